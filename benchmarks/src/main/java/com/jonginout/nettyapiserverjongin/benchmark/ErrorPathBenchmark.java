@@ -0,0 +1,107 @@
+package com.jonginout.nettyapiserverjongin.benchmark;
+
+import com.jonginout.nettyapiserverjongin.ApiServerConfig;
+import com.jonginout.nettyapiserverjongin.ApiServerInitializer;
+import com.jonginout.nettyapiserverjongin.Http2Config;
+import com.jonginout.nettyapiserverjongin.PipelineComponents;
+import com.jonginout.nettyapiserverjongin.core.ConnectionTimeoutConfig;
+import com.jonginout.nettyapiserverjongin.core.HttpBodyConfig;
+import com.jonginout.nettyapiserverjongin.core.ResponseCache;
+import com.jonginout.nettyapiserverjongin.core.ResponseCompressor;
+import com.jonginout.nettyapiserverjongin.core.ServerLifecycle;
+import com.jonginout.nettyapiserverjongin.core.ServiceExecutor;
+import com.jonginout.nettyapiserverjongin.core.accesslog.AccessLog;
+import com.jonginout.nettyapiserverjongin.core.admission.AdmissionController;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import com.jonginout.nettyapiserverjongin.service.user.UserRepository;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 오류 응답 경로와 정상 응답 경로의 비용을 같은 파이프라인으로 비교한다.
+ *
+ * success는 캐시된 사용자를 조회하는 GET /users, notFound는 라우트가 없는 GET /missing,
+ * invalid는 email 헤더가 없어 정합성 검사에 실패하는 GET /users다. 오류 경로는 예외를 만들지 않고
+ * 미리 인코딩해 둔 본문을 보내므로 정상 경로보다 비싸지 않아야 한다.
+ * 측정 조건은 PipelineBenchmark와 같다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-opens=java.base/java.lang=ALL-UNNAMED")
+@State(Scope.Thread)
+public class ErrorPathBenchmark {
+    @Param({"success", "notFound", "invalid"})
+    public String outcome;
+
+    private AnnotationConfigApplicationContext springContext;
+
+    private ServiceExecutor serviceExecutor;
+
+    private EmbeddedChannel pipeline;
+
+    private ByteBuf request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        System.setProperty("user.cache.ttl.millis", String.valueOf(TimeUnit.HOURS.toMillis(1)));
+        System.setProperty("admission.rate.ip.per.second", "0");
+        springContext = new AnnotationConfigApplicationContext(ApiServerConfig.class);
+        springContext.getBean(UserRepository.class).findByEmail(HttpRequests.EMAIL).toCompletableFuture().join();
+        serviceExecutor = new ServiceExecutor("inline", 1, 1, 3000);
+        HttpBodyConfig bodyConfig = new HttpBodyConfig(true, 65536, 16384);
+
+        pipeline = new EmbeddedChannel(new ApiServerInitializer(null, new PipelineComponents(serviceExecutor,
+                bodyConfig, springContext.getBean(ApiMetrics.class), springContext.getBean(ResponseCache.class),
+                springContext.getBean(ResponseCompressor.class),
+                springContext.getBean(Http2Config.class),
+                springContext.getBean(AdmissionController.class),
+                springContext.getBean(ServerLifecycle.class),
+                springContext.getBean(ConnectionTimeoutConfig.class),
+                springContext.getBean(AccessLog.class))));
+        switch (outcome) {
+            case "success":
+                request = HttpRequests.get("/users");
+                break;
+            case "notFound":
+                request = HttpRequests.get("/missing");
+                break;
+            case "invalid":
+                request = HttpRequests.getWithoutEmail("/users");
+                break;
+            default:
+                throw new IllegalArgumentException("outcome : " + outcome);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pipeline.finishAndReleaseAll();
+        request.release();
+        serviceExecutor.shutdown();
+        springContext.close();
+    }
+
+    @Benchmark
+    public int pipeline() {
+        pipeline.writeInbound(request.retainedDuplicate());
+        return PipelineBenchmark.drainOutbound(pipeline);
+    }
+}
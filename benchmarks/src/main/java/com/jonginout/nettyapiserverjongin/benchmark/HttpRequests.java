@@ -0,0 +1,72 @@
+package com.jonginout.nettyapiserverjongin.benchmark;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+
+/**
+ * 벤치마크에서 파이프라인에 넣을 HTTP/1.1 요청 바이트.
+ * 반환한 버퍼는 매 호출마다 retainedDuplicate()로 넘기고 벤치마크가 끝날 때 한 번 해제한다.
+ */
+final class HttpRequests {
+    static final String EMAIL = "jongin@example.com";
+
+    static final String FORM_BODY = "email=jongin%40example.com&name=jongin&age=30&city=Seoul&token=abcdef0123456789";
+
+    static final String JSON_BODY =
+            "{\"email\":\"jongin@example.com\",\"name\":\"jongin\",\"age\":30,\"city\":\"Seoul\",\"token\":\"abcdef0123456789\"}";
+
+    private HttpRequests() {
+    }
+
+    /**
+     * @param body none, form, json 중 하나. none이면 GET 요청이다.
+     */
+    static ByteBuf request(String uri, String body) {
+        switch (body) {
+            case "none":
+                return get(uri);
+            case "form":
+                return post(uri, "application/x-www-form-urlencoded", FORM_BODY);
+            case "json":
+                return post(uri, "application/json; charset=UTF-8", JSON_BODY);
+            default:
+                throw new IllegalArgumentException("body : " + body);
+        }
+    }
+
+    static ByteBuf get(String uri) {
+        return toBuffer("GET " + uri + " HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "email: " + EMAIL + "\r\n"
+                + "Accept-Encoding: gzip, deflate\r\n"
+                + "\r\n");
+    }
+
+    /**
+     * email 헤더가 없는 GET 요청. /users는 정합성 검사에 실패한다.
+     */
+    static ByteBuf getWithoutEmail(String uri) {
+        return toBuffer("GET " + uri + " HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "Accept-Encoding: gzip, deflate\r\n"
+                + "\r\n");
+    }
+
+    static ByteBuf post(String uri, String contentType, String body) {
+        byte[] content = body.getBytes(CharsetUtil.UTF_8);
+        return toBuffer("POST " + uri + " HTTP/1.1\r\n"
+                + "Host: localhost\r\n"
+                + "email: " + EMAIL + "\r\n"
+                + "Accept-Encoding: gzip, deflate\r\n"
+                + "Content-Type: " + contentType + "\r\n"
+                + "Content-Length: " + content.length + "\r\n"
+                + "\r\n"
+                + body);
+    }
+
+    private static ByteBuf toBuffer(String request) {
+        byte[] bytes = request.getBytes(CharsetUtil.UTF_8);
+        return Unpooled.directBuffer(bytes.length).writeBytes(bytes);
+    }
+}
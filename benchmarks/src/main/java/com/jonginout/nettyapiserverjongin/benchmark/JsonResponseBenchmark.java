@@ -0,0 +1,63 @@
+package com.jonginout.nettyapiserverjongin.benchmark;
+
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.core.JsonByteBufWriter;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 응답 본문 인코딩 비용 비교.
+ * 이전 방식(JsonObject.toString + Unpooled.copiedBuffer)과 풀 버퍼에 바로 기록하는 방식의
+ * 요청당 할당량은 -prof gc의 gc.alloc.rate.norm(B/op)으로 확인한다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonResponseBenchmark {
+    private final ByteBufAllocator alloc = PooledByteBufAllocator.DEFAULT;
+
+    private JsonObject apiResult;
+
+    @Setup
+    public void setUp() {
+        apiResult = new JsonObject();
+        apiResult.addProperty("resultCode", "200");
+        apiResult.addProperty("message", "Success");
+        apiResult.addProperty("userNo", "12312");
+        apiResult.addProperty("email", "jongin@example.com");
+    }
+
+    @Benchmark
+    public int stringCopiedBuffer() {
+        ByteBuf buf = Unpooled.copiedBuffer(apiResult.toString(), CharsetUtil.UTF_8);
+        int size = buf.readableBytes();
+        buf.release();
+        return size;
+    }
+
+    @Benchmark
+    public int pooledDirectEncode() {
+        ByteBuf buf = JsonByteBufWriter.encode(alloc, apiResult);
+        int size = buf.readableBytes();
+        buf.release();
+        return size;
+    }
+}
@@ -0,0 +1,78 @@
+package com.jonginout.nettyapiserverjongin.benchmark;
+
+import com.jonginout.nettyapiserverjongin.core.ApiRequest;
+import com.jonginout.nettyapiserverjongin.core.ApiRequestTemplate;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.Map;
+
+/**
+ * 라우팅 테이블 도입 이전의 ServiceDispatcher.dispatch 구현.
+ * startsWith 분기와 요청마다 프로토타입 빈을 조회하는 비용을 비교하기 위해 그대로 옮겨 두었다.
+ *
+ * 지금의 서비스는 싱글톤 핸들러이므로 이전 구현이 조회하던 프로토타입 빈은 이 클래스의 컨텍스트에 따로 등록한다.
+ * 빈은 요청 맵 생성자만 가진 {@link ApiRequestTemplate}이며, 서비스 로직은 비교 대상이 아니므로 비워 둔다.
+ */
+final class LegacyServiceDispatcher {
+    private static final String[] BEAN_NAMES = {"tokenIssue", "tokenExpier", "tokenVerify", "users", "notFound"};
+
+    private final GenericApplicationContext springContext = new GenericApplicationContext();
+
+    LegacyServiceDispatcher() {
+        for (String beanName : BEAN_NAMES) {
+            RootBeanDefinition definition = new RootBeanDefinition(LegacyApiRequest.class);
+            definition.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+            springContext.registerBeanDefinition(beanName, definition);
+        }
+        springContext.refresh();
+    }
+
+    ApiRequest dispatch(Map<String, String> requestMap) {
+        String serviceUri = requestMap.get("REQUEST_URI");
+        String beanName;
+
+        if (serviceUri.startsWith("/tokens")) {
+            String httpMethod = requestMap.get("REQUEST_METHOD");
+
+            switch (httpMethod) {
+                case "POST":
+                    beanName = "tokenIssue";
+                    break;
+                case "DELETE":
+                    beanName = "tokenExpier";
+                    break;
+                case "GET":
+                    beanName = "tokenVerify";
+                    break;
+                default:
+                    beanName = "notFound";
+                    break;
+            }
+        } else if (serviceUri.startsWith("/users")) {
+            beanName = "users";
+        } else {
+            beanName = "notFound";
+        }
+
+        return (ApiRequest) springContext.getBean(beanName, requestMap);
+    }
+
+    void close() {
+        springContext.close();
+    }
+
+    /**
+     * 이전 구현의 프로토타입 서비스를 대신하는 빈. 요청 맵을 생성자로 받는다.
+     */
+    static final class LegacyApiRequest extends ApiRequestTemplate {
+        public LegacyApiRequest(Map<String, String> reqData) {
+            super(reqData);
+        }
+
+        @Override
+        public void service() {
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.jonginout.nettyapiserverjongin.benchmark;
+
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.ApiServerConfig;
+import com.jonginout.nettyapiserverjongin.ApiServerInitializer;
+import com.jonginout.nettyapiserverjongin.PipelineComponents;
+import com.jonginout.nettyapiserverjongin.RpcServerInitializer;
+import com.jonginout.nettyapiserverjongin.ServerTransport;
+import com.jonginout.nettyapiserverjongin.core.ConnectionTimeoutConfig;
+import com.jonginout.nettyapiserverjongin.core.ServerLifecycle;
+import com.jonginout.nettyapiserverjongin.core.ServiceExecutor;
+import com.jonginout.nettyapiserverjongin.core.admission.AdmissionController;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import com.jonginout.nettyapiserverjongin.core.rpc.RpcClient;
+import com.jonginout.nettyapiserverjongin.core.rpc.RpcConfig;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpResponseDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 루프백 주소에 API 서버 파이프라인을 띄우고 네티 HTTP 클라이언트로 처리량을 잰다.
+ * 설정은 api-server.properties를 그대로 사용하며(transport, 업무 실행기, 본문 처리), TLS 없이 실행한다.
+ *
+ * JMH 스레드마다 keep-alive 연결 하나를 사용한다. keepAlive는 요청 하나를 보내고 응답을 기다리며,
+ * pipelined는 요청 16개를 한 번에 보낸 뒤 응답 16개를 기다린다.
+ *
+ * rpc, rpcPipelined는 같은 서비스(/users)를 같은 방식으로 이진 RPC 리스너에 호출하여 HTTP 경로와 비교한다.
+ * RPC 클라이언트도 JMH 스레드마다 연결 하나를 사용한다.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-opens=java.base/java.lang=ALL-UNNAMED")
+@Threads(4)
+public class LoopbackThroughputBenchmark {
+    static final int PIPELINE_DEPTH = 16;
+
+    @State(Scope.Benchmark)
+    public static class Server {
+        private AnnotationConfigApplicationContext springContext;
+
+        private EventLoopGroup bossGroup;
+
+        private EventLoopGroup workerGroup;
+
+        private Channel serverChannel;
+
+        private Channel rpcChannel;
+
+        EventLoopGroup clientGroup;
+
+        InetSocketAddress address;
+
+        InetSocketAddress rpcAddress;
+
+        @Setup(Level.Trial)
+        public void setUp() throws InterruptedException {
+            // 모든 연결이 루프백 주소에서 오므로 IP별 속도 제한은 끈다.
+            System.setProperty("admission.rate.ip.per.second", "0");
+            springContext = new AnnotationConfigApplicationContext(ApiServerConfig.class);
+            ServerTransport transport = springContext.getBean(ServerTransport.class);
+
+            bossGroup = transport.newEventLoopGroup(1, "bench-boss");
+            workerGroup = transport.newEventLoopGroup(springContext.getBean("workerThreadCount", Integer.class),
+                    "bench-worker");
+            ServerBootstrap b = new ServerBootstrap();
+            transport.configure(b.group(bossGroup, workerGroup))
+                    .childHandler(new ApiServerInitializer(null,
+                            springContext.getBean(PipelineComponents.class)));
+            serverChannel = b.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)).sync().channel();
+            address = (InetSocketAddress) serverChannel.localAddress();
+
+            ServerBootstrap rpc = new ServerBootstrap();
+            transport.configure(rpc.group(bossGroup, workerGroup))
+                    .childHandler(new RpcServerInitializer(springContext.getBean(RpcConfig.class),
+                            springContext.getBean(ServiceExecutor.class), springContext.getBean(ApiMetrics.class),
+                            springContext.getBean(ServerLifecycle.class),
+                            springContext.getBean(ConnectionTimeoutConfig.class),
+                            springContext.getBean(AdmissionController.class), null));
+            rpcChannel = rpc.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)).sync().channel();
+            rpcAddress = (InetSocketAddress) rpcChannel.localAddress();
+
+            clientGroup = new NioEventLoopGroup(4);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            serverChannel.close().sync();
+            rpcChannel.close().sync();
+            clientGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+            bossGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+            workerGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+            springContext.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        private final BlockingQueue<Integer> statuses = new ArrayBlockingQueue<Integer>(PIPELINE_DEPTH);
+
+        private Channel channel;
+
+        private ByteBuf request;
+
+        @Setup(Level.Trial)
+        public void setUp(Server server) throws InterruptedException {
+            request = HttpRequests.get("/users");
+            channel = new Bootstrap()
+                    .group(server.clientGroup)
+                    .channel(NioSocketChannel.class)
+                    .option(ChannelOption.TCP_NODELAY, true)
+                    .handler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            // 요청은 미리 만든 바이트를 그대로 보내므로 응답 디코더만 둔다.
+                            ch.pipeline().addLast(new HttpResponseDecoder(), new HttpObjectAggregator(1 << 20),
+                                    new SimpleChannelInboundHandler<FullHttpResponse>() {
+                                        @Override
+                                        protected void channelRead0(ChannelHandlerContext ctx,
+                                                                    FullHttpResponse response) {
+                                            statuses.offer(response.status().code());
+                                        }
+                                    });
+                        }
+                    })
+                    .connect(server.address).sync().channel();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            channel.close().sync();
+            request.release();
+        }
+
+        int await(int count) throws InterruptedException {
+            int sum = 0;
+            for (int i = 0; i < count; i++) {
+                sum += statuses.take();
+            }
+            return sum;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Rpc {
+        private static final Map<String, String> HEADERS = Collections.singletonMap("email", HttpRequests.EMAIL);
+
+        private final List<CompletableFuture<JsonObject>> calls = new ArrayList<>(PIPELINE_DEPTH);
+
+        private RpcClient client;
+
+        @Setup(Level.Trial)
+        public void setUp(Server server) {
+            client = new RpcClient(server.rpcAddress, server.clientGroup, NioSocketChannel.class, 1,
+                    RpcConfig.DEFAULT_MAX_FRAME_SIZE, 0);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            client.close();
+        }
+
+        CompletableFuture<JsonObject> call() {
+            return client.call("GET", "/users", HEADERS, null);
+        }
+    }
+
+    @Benchmark
+    public int keepAlive(Client client) throws InterruptedException {
+        client.channel.writeAndFlush(client.request.retainedDuplicate());
+        return client.await(1);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIPELINE_DEPTH)
+    public int pipelined(Client client) throws InterruptedException {
+        for (int i = 0; i < PIPELINE_DEPTH; i++) {
+            client.channel.write(client.request.retainedDuplicate());
+        }
+        client.channel.flush();
+        return client.await(PIPELINE_DEPTH);
+    }
+
+    @Benchmark
+    public JsonObject rpc(Rpc rpc) {
+        return rpc.call().join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIPELINE_DEPTH)
+    public int rpcPipelined(Rpc rpc) {
+        rpc.calls.clear();
+        for (int i = 0; i < PIPELINE_DEPTH; i++) {
+            rpc.calls.add(rpc.call());
+        }
+        int size = 0;
+        for (CompletableFuture<JsonObject> call : rpc.calls) {
+            size += call.join().entrySet().size();
+        }
+        return size;
+    }
+}
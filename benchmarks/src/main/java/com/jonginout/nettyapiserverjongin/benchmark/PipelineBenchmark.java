@@ -0,0 +1,141 @@
+package com.jonginout.nettyapiserverjongin.benchmark;
+
+import com.jonginout.nettyapiserverjongin.ApiServerConfig;
+import com.jonginout.nettyapiserverjongin.ApiServerInitializer;
+import com.jonginout.nettyapiserverjongin.Http2Config;
+import com.jonginout.nettyapiserverjongin.PipelineComponents;
+import com.jonginout.nettyapiserverjongin.core.ConnectionTimeoutConfig;
+import com.jonginout.nettyapiserverjongin.core.HttpBodyConfig;
+import com.jonginout.nettyapiserverjongin.core.ResponseCache;
+import com.jonginout.nettyapiserverjongin.core.ResponseCompressor;
+import com.jonginout.nettyapiserverjongin.core.ServerLifecycle;
+import com.jonginout.nettyapiserverjongin.core.ServiceExecutor;
+import com.jonginout.nettyapiserverjongin.core.accesslog.AccessLog;
+import com.jonginout.nettyapiserverjongin.core.admission.AdmissionController;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import com.jonginout.nettyapiserverjongin.service.user.UserRepository;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpRequestDecoder;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ApiServerInitializer가 구성한 파이프라인을 EmbeddedChannel로 실행한다.
+ *
+ * decode는 HttpRequestDecoder와 HttpObjectAggregator만, pipeline은 디코딩, 라우팅, 본문 디코딩,
+ * 서비스 실행, 응답 인코딩과 압축까지 한 요청의 전체 비용을 잰다. 두 결과의 차이가 디코딩 이후 단계의 비용이다.
+ * 서비스는 이벤트 루프(inline)에서 실행하여 스레드 전환 비용은 제외한다.
+ *
+ * EmbeddedChannel의 이벤트 루프는 어느 스레드에서나 inEventLoop()가 true이므로 서비스가 다른 스레드에서 완료되면
+ * 파이프라인에 동시에 기록하게 된다. 그래서 사용자를 미리 조회해 캐시에 두고, 측정 중에 만료되지 않게 하여
+ * /users가 항상 호출한 스레드에서 완료되도록 한다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-opens=java.base/java.lang=ALL-UNNAMED")
+@State(Scope.Thread)
+public class PipelineBenchmark {
+    /**
+     * true면 본문 조각을 바로 디코딩하고, false면 HttpObjectAggregator로 합친 뒤 처리한다.
+     */
+    @Param({"true", "false"})
+    public boolean streaming;
+
+    @Param({"none", "form", "json"})
+    public String body;
+
+    private AnnotationConfigApplicationContext springContext;
+
+    private ServiceExecutor serviceExecutor;
+
+    private EmbeddedChannel pipeline;
+
+    private EmbeddedChannel decoder;
+
+    private ByteBuf request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 라우팅 테이블과 서비스 빈을 불러온다.
+        System.setProperty("user.cache.ttl.millis", String.valueOf(TimeUnit.HOURS.toMillis(1)));
+        // 모든 요청이 한 클라이언트에서 오므로 IP별 속도 제한은 끈다. 동시성 한도 확인은 측정에 포함한다.
+        System.setProperty("admission.rate.ip.per.second", "0");
+        springContext = new AnnotationConfigApplicationContext(ApiServerConfig.class);
+        springContext.getBean(UserRepository.class).findByEmail(HttpRequests.EMAIL).toCompletableFuture().join();
+        serviceExecutor = new ServiceExecutor("inline", 1, 1, 3000);
+        HttpBodyConfig bodyConfig = new HttpBodyConfig(streaming, 65536, 16384);
+
+        pipeline = new EmbeddedChannel(new ApiServerInitializer(null, new PipelineComponents(serviceExecutor,
+                bodyConfig, springContext.getBean(ApiMetrics.class), springContext.getBean(ResponseCache.class),
+                springContext.getBean(ResponseCompressor.class),
+                springContext.getBean(Http2Config.class),
+                springContext.getBean(AdmissionController.class),
+                springContext.getBean(ServerLifecycle.class),
+                springContext.getBean(ConnectionTimeoutConfig.class),
+                springContext.getBean(AccessLog.class))));
+        decoder = new EmbeddedChannel(new HttpRequestDecoder(), new HttpObjectAggregator(65536));
+        request = HttpRequests.request("/users", body);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pipeline.finishAndReleaseAll();
+        decoder.finishAndReleaseAll();
+        request.release();
+        serviceExecutor.shutdown();
+        springContext.close();
+    }
+
+    @Benchmark
+    public int decode() {
+        decoder.writeInbound(request.retainedDuplicate());
+        return drainInbound(decoder);
+    }
+
+    @Benchmark
+    public int pipeline() {
+        pipeline.writeInbound(request.retainedDuplicate());
+        return drainOutbound(pipeline);
+    }
+
+    static int drainInbound(EmbeddedChannel channel) {
+        int count = 0;
+        Object msg;
+        while ((msg = channel.readInbound()) != null) {
+            ReferenceCountUtil.release(msg);
+            count++;
+        }
+        return count;
+    }
+
+    static int drainOutbound(EmbeddedChannel channel) {
+        int bytes = 0;
+        Object msg;
+        while ((msg = channel.readOutbound()) != null) {
+            if (msg instanceof ByteBuf) {
+                bytes += ((ByteBuf) msg).readableBytes();
+            }
+            ReferenceCountUtil.release(msg);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,131 @@
+package com.jonginout.nettyapiserverjongin.benchmark;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.core.JsonByteBufWriter;
+import com.jonginout.nettyapiserverjongin.core.ResponseCompressor;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContentCompressor;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ApiRequestParser.writeResponse 이후의 아웃바운드 경로 비용.
+ * JSON 결과를 인코딩하여 FullHttpResponse를 만들고 HttpResponseEncoder로 바이트를 만든다.
+ * compressor가 netty면 이전 파이프라인처럼 HttpContentCompressor를 거쳐 gzip으로 압축하고,
+ * pooled면 ApiRequestParser처럼 ResponseCompressor(기본 설정: 1024 byte 이상, 수준 6)로 압축한다.
+ *
+ * HttpContentCompressor는 요청의 Accept-Encoding을 보고 압축 여부를 정하므로 매 응답 전에 요청을 먼저 통과시킨다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseWriteBenchmark {
+    @Param({"none", "netty", "pooled"})
+    public String compressor;
+
+    /**
+     * 응답 본문의 항목 수. 1이면 UserInfo 응답 크기(약 60 byte)다.
+     */
+    @Param({"1", "100"})
+    public int items;
+
+    private EmbeddedChannel channel;
+
+    private FullHttpRequest request;
+
+    private JsonObject apiResult;
+
+    private ResponseCompressor responseCompressor;
+
+    private ResponseCompressor.Encoding encoding;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        channel = "netty".equals(compressor)
+                ? new EmbeddedChannel(new HttpResponseEncoder(), new HttpContentCompressor())
+                : new EmbeddedChannel(new HttpResponseEncoder());
+        responseCompressor = new ResponseCompressor(true, 1024, 6, new ApiMetrics());
+        encoding = "pooled".equals(compressor)
+                ? responseCompressor.negotiate("gzip, deflate") : ResponseCompressor.Encoding.NONE;
+
+        request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/users");
+        request.headers().set(HttpHeaderNames.ACCEPT_ENCODING, "gzip, deflate");
+
+        apiResult = new JsonObject();
+        apiResult.addProperty("resultCode", "200");
+        apiResult.addProperty("message", "Success");
+        apiResult.addProperty("userNo", "12312");
+        if (items > 1) {
+            JsonArray users = new JsonArray();
+            for (int i = 0; i < items; i++) {
+                JsonObject user = new JsonObject();
+                user.addProperty("userNo", 12312 + i);
+                user.addProperty("email", "user" + i + "@example.com");
+                user.addProperty("name", "jongin");
+                users.add(user);
+            }
+            apiResult.add("users", users);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        channel.finishAndReleaseAll();
+        request.release();
+    }
+
+    @Benchmark
+    public int writeResponse() {
+        if ("netty".equals(compressor)) {
+            channel.writeInbound(request.retainedDuplicate());
+            PipelineBenchmark.drainInbound(channel);
+        }
+
+        String contentType = "application/json; charset=UTF-8";
+        ByteBuf content = JsonByteBufWriter.encode(channel.alloc(), apiResult);
+        ByteBuf compressed = responseCompressor.compress(channel.alloc(), content, contentType, encoding);
+        if (compressed != null) {
+            content.release();
+            content = compressed;
+        }
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK, content);
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, contentType);
+        if (compressed != null) {
+            response.headers().set(HttpHeaderNames.CONTENT_ENCODING, encoding.contentEncoding());
+        }
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes());
+        response.headers().set(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+        channel.writeOutbound(response);
+        return PipelineBenchmark.drainOutbound(channel);
+    }
+}
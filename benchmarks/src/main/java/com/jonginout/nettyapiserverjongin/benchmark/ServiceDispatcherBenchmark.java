@@ -0,0 +1,87 @@
+package com.jonginout.nettyapiserverjongin.benchmark;
+
+import com.jonginout.nettyapiserverjongin.ApiServerConfig;
+import com.jonginout.nettyapiserverjongin.core.ApiRequest;
+import com.jonginout.nettyapiserverjongin.core.ApiRequestContext;
+import com.jonginout.nettyapiserverjongin.core.ServiceDispatcher;
+import com.jonginout.nettyapiserverjongin.core.route.Route;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ServiceDispatcher.dispatch의 라우트 조회와 서비스 객체 생성 비용을
+ * 이전 구현(startsWith 분기 + 요청마다 getBean)과 비교한다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-opens=java.base/java.lang=ALL-UNNAMED")
+@State(Scope.Benchmark)
+public class ServiceDispatcherBenchmark {
+    @Param({"/users", "/users/jongin%40example.com?x=1"})
+    public String uri;
+
+    private AnnotationConfigApplicationContext springContext;
+
+    private LegacyServiceDispatcher legacy;
+
+    private Map<String, String> reqData;
+
+    private ApiRequestContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        springContext = new AnnotationConfigApplicationContext(ApiServerConfig.class);
+        legacy = new LegacyServiceDispatcher();
+        reqData = new HashMap<>();
+        context = new ApiRequestContext();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        legacy.close();
+        springContext.close();
+    }
+
+    @Benchmark
+    public ApiRequest routeTable() {
+        reqData.clear();
+        reqData.put("REQUEST_URI", uri);
+        reqData.put("REQUEST_METHOD", "GET");
+        return ServiceDispatcher.dispatch(reqData);
+    }
+
+    /**
+     * ApiRequestParser가 사용하는 경로. 요청 컨텍스트로 라우트만 조회한다.
+     */
+    @Benchmark
+    public Route routeContext() {
+        context.init("GET", uri);
+        return ServiceDispatcher.route(context);
+    }
+
+    @Benchmark
+    public ApiRequest legacyGetBean() {
+        reqData.clear();
+        reqData.put("REQUEST_URI", uri);
+        reqData.put("REQUEST_METHOD", "GET");
+        return legacy.dispatch(reqData);
+    }
+}
@@ -1,20 +1,23 @@
 package com.jonginout.nettyapiserverjongin;
 
+import com.jonginout.nettyapiserverjongin.core.ConnectionTimeoutConfig;
+import com.jonginout.nettyapiserverjongin.core.ServerLifecycle;
+import com.jonginout.nettyapiserverjongin.core.ServiceExecutor;
+import com.jonginout.nettyapiserverjongin.core.admission.AdmissionController;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import com.jonginout.nettyapiserverjongin.core.rpc.RpcAuthenticator;
+import com.jonginout.nettyapiserverjongin.core.rpc.RpcConfig;
 import io.netty.bootstrap.ServerBootstrap;
 import io.netty.channel.Channel;
-import io.netty.channel.ChannelFuture;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.handler.ssl.SslContext;
-import io.netty.handler.ssl.util.SelfSignedCertificate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 
-import javax.net.ssl.SSLException;
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.security.cert.CertificateException;
 
@@ -36,56 +39,144 @@ public final class ApiServer {
     @Qualifier("bossThreadCount")
     private int bossThreadCount;
 
+    /**
+     * API 서비스를 이벤트 루프 밖에서 실행하는 업무 실행기. 두 부트스트랩이 공유한다.
+     */
+    @Autowired
+    private ServiceExecutor serviceExecutor;
+
+    /**
+     * epoll/NIO 선택과 소켓 옵션. 두 부트스트랩에 같은 설정을 적용한다.
+     */
+    @Autowired
+    private ServerTransport transport;
+
+    @Autowired
+    private ApiMetrics metrics;
+
+    /**
+     * HTTP 연결의 파이프라인 구성 요소. 평문과 TLS 리스너가 공유한다.
+     */
+    @Autowired
+    private PipelineComponents pipelineComponents;
+
+    /**
+     * 속도 제한과 동시성 한도. 두 부트스트랩이 같은 한도를 공유한다.
+     */
+    @Autowired
+    private AdmissionController admission;
+
+    /**
+     * TLS 포트의 주소와 인증서, TLS 구현, 세션 재사용 설정
+     */
+    @Autowired
+    @Qualifier("tlsSocketAddress")
+    private InetSocketAddress tlsAddress;
+
+    @Autowired
+    private TlsConfig tlsConfig;
+
+    /**
+     * 서비스 간 호출용 이진 RPC 리스너의 주소와 설정. 꺼져 있으면 바인드하지 않는다.
+     */
+    @Autowired
+    @Qualifier("rpcSocketAddress")
+    private InetSocketAddress rpcAddress;
+
+    @Autowired
+    private RpcConfig rpcConfig;
+
+    /**
+     * RPC 호출을 보낸 노드의 인증. 클러스터의 노드 목록과 공유 비밀 값으로 확인한다.
+     */
+    @Autowired
+    private RpcAuthenticator rpcAuthenticator;
+
+    /**
+     * 모든 리스너의 서버 채널, 연결과 이벤트 루프를 가지고 종료 시 연결을 비운다.
+     */
+    @Autowired
+    private ServerLifecycle lifecycle;
+
+    /**
+     * 쉬는 연결, 느린 요청 본문과 응답을 가져가지 않는 클라이언트의 제한 시간
+     */
+    @Autowired
+    private ConnectionTimeoutConfig timeoutConfig;
+
+    /**
+     * 리스너를 모두 바인드하고 stop이 호출되어 서버가 완전히 멈출 때까지 블로킹된다.
+     */
     public void start() {
-        EventLoopGroup bossGroup = new NioEventLoopGroup(bossThreadCount);
-        EventLoopGroup workerGroup = new NioEventLoopGroup(workerThreadCount);
-        ChannelFuture channelFuture;
+        EventLoopGroup bossGroup = transport.newEventLoopGroup(bossThreadCount, "api-boss");
+        EventLoopGroup workerGroup = transport.newEventLoopGroup(workerThreadCount, "api-worker");
+        lifecycle.addEventLoopGroup(bossGroup);
+        lifecycle.addEventLoopGroup(workerGroup);
+        metrics.registerEventLoopGroup("api-worker", workerGroup);
+        metrics.registerAllocator(transport.getAllocator());
+        metrics.registerAdmission(admission::getInFlight, admission::getLimit);
+        metrics.registerOutbound(lifecycle::getPendingOutboundBytes, lifecycle::getUnwritableConnections);
 
         try {
             ServerBootstrap b = new ServerBootstrap();
-            b.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
+            transport.configure(b.group(bossGroup, workerGroup))
                     .handler(new LoggingHandler(LogLevel.INFO))
                     /**
                      * API 서버의 채널 파이프라인 설정 클래스를 지정한다.
                      * ApiServerInitializer의 인자는 SSL 컨텍스트인데 우선 null
                      */
-                    .childHandler(new ApiServerInitializer(null));
-
-            Channel ch = b.bind(address).sync().channel();
-
-            channelFuture = ch.closeFuture();
+                    .childHandler(new ApiServerInitializer(null, pipelineComponents));
 
-            /**
-             * sync 메서드를 호출하면 코드가 블로킹되어 이후의 코드가 실행되지 않으므로 주석,
-             * 이 부분이 이전에 작성한 코드의 마지막 부분이며 뒤에 새로운 부트스트랩을 추가
-             */
-            // channelFuture.sync();
+            // SO_REUSEPORT를 사용하면 acceptor.count 만큼의 채널이 같은 포트에 바인드된다.
+            for (Channel ch : transport.bind(b, address)) {
+                lifecycle.addServerChannel(ch);
+            }
 
-            final SslContext sslContext;
-            SelfSignedCertificate ssc = new SelfSignedCertificate();
-            sslContext = SslContext.newServerContext(ssc.certificate(), ssc.privateKey());
+            // 설정한 인증서 파일로 SSL 컨텍스트를 만든다. HTTP/2를 사용하면 ALPN으로 h2와 http/1.1을 협상한다.
+            final SslContext sslContext = tlsConfig.newServerContext(pipelineComponents.getHttp2Config());
 
             // 새로운 부트스트랩 추가
             ServerBootstrap b2 = new ServerBootstrap();
             // 이벤트 루프는 첫 번째 부트스트랩과 공유하여 사용하도록 함
-            b2.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
+            transport.configure(b2.group(bossGroup, workerGroup))
                     .handler(new LoggingHandler(LogLevel.INFO))
                     /**
-                     * SSL 연결을 지원하려면 SelfSignedCertificate 클래스 객체를 사용함
+                     * SSL 연결을 지원하려면 SSL 컨텍스트를 인자로 지정함
                      */
-                    .childHandler(new ApiServerInitializer(sslContext));
+                    .childHandler(new ApiServerInitializer(sslContext, pipelineComponents));
 
-            Channel ch2 = b2.bind(8443).sync().channel();
+            for (Channel ch2 : transport.bind(b2, tlsAddress)) {
+                lifecycle.addServerChannel(ch2);
+            }
 
-            channelFuture = ch2.closeFuture();
-            channelFuture.sync();
-        } catch (InterruptedException | CertificateException | SSLException e) {
+            if (rpcConfig.isEnabled()) {
+                // 서비스 간 호출용 RPC 리스너. 이벤트 루프와 업무 실행기, 라우팅 테이블을 HTTP 리스너와 공유한다.
+                ServerBootstrap b3 = new ServerBootstrap();
+                transport.configure(b3.group(bossGroup, workerGroup))
+                        .handler(new LoggingHandler(LogLevel.INFO))
+                        .childHandler(new RpcServerInitializer(rpcConfig, serviceExecutor, metrics, lifecycle,
+                                timeoutConfig, admission, rpcAuthenticator));
+
+                for (Channel ch3 : transport.bind(b3, rpcAddress)) {
+                    lifecycle.addServerChannel(ch3);
+                }
+            }
+
+            // 리스너를 모두 바인드한 뒤에 준비 상태가 된다.
+            lifecycle.started();
+            lifecycle.awaitTermination();
+        } catch (InterruptedException | CertificateException | IOException e) {
             e.printStackTrace();
         } finally {
-            bossGroup.shutdownGracefully();
-            workerGroup.shutdownGracefully();
+            // 바인드에 실패하면 이벤트 루프를 놓는다. 이미 종료했으면 바로 돌아온다.
+            lifecycle.shutdown();
         }
     }
+
+    /**
+     * 새 연결을 막고 처리 중인 요청이 끝나기를 기다린 뒤(최대 shutdown.drain.timeout.millis) 이벤트 루프를 놓는다.
+     */
+    public void stop() {
+        lifecycle.shutdown();
+    }
 }
@@ -1,12 +1,38 @@
 package com.jonginout.nettyapiserverjongin;
 
+import com.jonginout.nettyapiserverjongin.core.BatchExecutor;
+import com.jonginout.nettyapiserverjongin.core.ConnectionTimeoutConfig;
+import com.jonginout.nettyapiserverjongin.core.HttpBodyConfig;
+import com.jonginout.nettyapiserverjongin.core.ResponseCache;
+import com.jonginout.nettyapiserverjongin.core.ResponseCompressor;
+import com.jonginout.nettyapiserverjongin.core.ServerLifecycle;
+import com.jonginout.nettyapiserverjongin.core.ServiceExecutor;
+import com.jonginout.nettyapiserverjongin.core.accesslog.AccessLog;
+import com.jonginout.nettyapiserverjongin.core.admission.AdmissionController;
+import com.jonginout.nettyapiserverjongin.core.cluster.Cluster;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import com.jonginout.nettyapiserverjongin.core.rpc.RpcConfig;
+import com.jonginout.nettyapiserverjongin.service.token.JedisTokenBackend;
+import com.jonginout.nettyapiserverjongin.service.token.TokenCache;
+import com.jonginout.nettyapiserverjongin.service.token.TokenStore;
+import com.jonginout.nettyapiserverjongin.service.user.UserMapper;
+import com.jonginout.nettyapiserverjongin.service.user.UserRepository;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.SqlSessionTemplate;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.datasource.init.DataSourceInitializer;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
 
+import javax.sql.DataSource;
 import java.net.InetSocketAddress;
 
 @Configuration
@@ -22,6 +48,282 @@ public class ApiServerConfig {
     @Value("${tcp.port}")
     private int tcpPort;
 
+    @Value("${tls.port}")
+    private int tlsPort;
+
+    @Value("${rpc.enabled}")
+    private boolean rpcEnabled;
+
+    @Value("${rpc.port}")
+    private int rpcPort;
+
+    @Value("${rpc.bind.address}")
+    private String rpcBindAddress;
+
+    @Value("${rpc.max.frame.size}")
+    private int rpcMaxFrameSize;
+
+    @Value("${cluster.enabled}")
+    private boolean clusterEnabled;
+
+    @Value("${cluster.self}")
+    private String clusterSelf;
+
+    @Value("${cluster.peers}")
+    private String clusterPeers;
+
+    @Value("${cluster.peers.file}")
+    private String clusterPeersFile;
+
+    @Value("${cluster.secret}")
+    private String clusterSecret;
+
+    @Value("${cluster.peers.refresh.millis}")
+    private long clusterPeersRefreshMillis;
+
+    @Value("${cluster.peer.retry.millis}")
+    private long clusterPeerRetryMillis;
+
+    @Value("${cluster.virtual.nodes}")
+    private int clusterVirtualNodes;
+
+    @Value("${cluster.connections.per.peer}")
+    private int clusterConnectionsPerPeer;
+
+    @Value("${cluster.forward.timeout.millis}")
+    private long clusterForwardTimeoutMillis;
+
+    @Value("${tls.provider}")
+    private String tlsProvider;
+
+    @Value("${tls.cert.path}")
+    private String tlsCertPath;
+
+    @Value("${tls.key.path}")
+    private String tlsKeyPath;
+
+    @Value("${tls.key.password}")
+    private String tlsKeyPassword;
+
+    @Value("${tls.session.cache.size}")
+    private long tlsSessionCacheSize;
+
+    @Value("${tls.session.timeout.seconds}")
+    private long tlsSessionTimeoutSeconds;
+
+    @Value("${tls.session.tickets}")
+    private boolean tlsSessionTickets;
+
+    @Value("${tls.session.ticket.key.path}")
+    private String tlsSessionTicketKeyPath;
+
+    @Value("${transport.type}")
+    private String transportType;
+
+    @Value("${so.backlog}")
+    private int soBacklog;
+
+    @Value("${tcp.nodelay}")
+    private boolean tcpNoDelay;
+
+    @Value("${so.reuseport}")
+    private boolean soReusePort;
+
+    @Value("${acceptor.count}")
+    private int acceptorCount;
+
+    @Value("${allocator.type}")
+    private String allocatorType;
+
+    @Value("${write.buffer.low.water.mark}")
+    private int writeBufferLowWaterMark;
+
+    @Value("${write.buffer.high.water.mark}")
+    private int writeBufferHighWaterMark;
+
+    @Value("${http.body.streaming}")
+    private boolean httpBodyStreaming;
+
+    @Value("${http.body.max.size}")
+    private long httpBodyMaxSize;
+
+    @Value("${http.body.memory.threshold}")
+    private long httpBodyMemoryThreshold;
+
+    @Value("${connection.idle.timeout.millis}")
+    private long connectionIdleTimeoutMillis;
+
+    @Value("${http.request.read.timeout.millis}")
+    private long httpRequestReadTimeoutMillis;
+
+    @Value("${connection.write.timeout.millis}")
+    private long connectionWriteTimeoutMillis;
+
+    @Value("${service.execution.mode}")
+    private String serviceExecutionMode;
+
+    @Value("${service.thread.count}")
+    private int serviceThreadCount;
+
+    @Value("${service.queue.limit}")
+    private int serviceQueueLimit;
+
+    @Value("${service.timeout.millis}")
+    private long serviceTimeoutMillis;
+
+    @Value("${admission.enabled}")
+    private boolean admissionEnabled;
+
+    @Value("${admission.max.in.flight}")
+    private int admissionMaxInFlight;
+
+    @Value("${admission.adaptive.enabled}")
+    private boolean admissionAdaptiveEnabled;
+
+    @Value("${admission.adaptive.initial.limit}")
+    private int admissionAdaptiveInitialLimit;
+
+    @Value("${admission.adaptive.min.limit}")
+    private int admissionAdaptiveMinLimit;
+
+    @Value("${admission.adaptive.latency.target.millis}")
+    private long admissionAdaptiveLatencyTargetMillis;
+
+    @Value("${admission.adaptive.backoff.ratio}")
+    private double admissionAdaptiveBackoffRatio;
+
+    @Value("${admission.rate.ip.per.second}")
+    private int admissionRateIpPerSecond;
+
+    @Value("${admission.rate.ip.burst}")
+    private int admissionRateIpBurst;
+
+    @Value("${admission.rate.token.per.second}")
+    private int admissionRateTokenPerSecond;
+
+    @Value("${admission.rate.token.burst}")
+    private int admissionRateTokenBurst;
+
+    @Value("${admission.rate.slots}")
+    private int admissionRateSlots;
+
+    @Value("${admission.exempt.paths}")
+    private String admissionExemptPaths;
+
+    @Value("${access.log.enabled}")
+    private boolean accessLogEnabled;
+
+    @Value("${access.log.buffer.size}")
+    private int accessLogBufferSize;
+
+    @Value("${access.log.sample.rate}")
+    private double accessLogSampleRate;
+
+    @Value("${access.log.redact}")
+    private String accessLogRedact;
+
+    @Value("${batch.max.requests}")
+    private int batchMaxRequests;
+
+    @Value("${shutdown.drain.timeout.millis}")
+    private long shutdownDrainTimeoutMillis;
+
+    @Value("${shutdown.readiness.delay.millis}")
+    private long shutdownReadinessDelayMillis;
+
+    @Value("${shutdown.quiet.period.millis}")
+    private long shutdownQuietPeriodMillis;
+
+    @Value("${http2.enabled}")
+    private boolean http2Enabled;
+
+    @Value("${http2.max.concurrent.streams}")
+    private long http2MaxConcurrentStreams;
+
+    @Value("${http2.initial.window.size}")
+    private int http2InitialWindowSize;
+
+    @Value("${http2.max.header.list.size}")
+    private long http2MaxHeaderListSize;
+
+    @Value("${http.compression.enabled}")
+    private boolean httpCompressionEnabled;
+
+    @Value("${http.compression.min.size}")
+    private int httpCompressionMinSize;
+
+    @Value("${http.compression.level}")
+    private int httpCompressionLevel;
+
+    @Value("${response.cache.size}")
+    private int responseCacheSize;
+
+    @Value("${response.cache.max.entry.bytes}")
+    private int responseCacheMaxEntryBytes;
+
+    @Value("${response.cache.gzip}")
+    private boolean responseCacheGzip;
+
+    @Value("${token.store}")
+    private String tokenStoreType;
+
+    @Value("${token.ttl.seconds}")
+    private int tokenTtlSeconds;
+
+    @Value("${token.cache.size}")
+    private int tokenCacheSize;
+
+    @Value("${token.cache.revalidate.millis}")
+    private long tokenCacheRevalidateMillis;
+
+    @Value("${redis.host}")
+    private String redisHost;
+
+    @Value("${redis.port}")
+    private int redisPort;
+
+    @Value("${redis.timeout.millis}")
+    private int redisTimeoutMillis;
+
+    @Value("${redis.max.connections}")
+    private int redisMaxConnections;
+
+    @Value("${db.driver}")
+    private String dbDriver;
+
+    @Value("${db.url}")
+    private String dbUrl;
+
+    @Value("${db.username}")
+    private String dbUsername;
+
+    @Value("${db.password}")
+    private String dbPassword;
+
+    @Value("${db.init}")
+    private boolean dbInit;
+
+    @Value("${db.pool.max.active}")
+    private int dbPoolMaxActive;
+
+    @Value("${db.pool.max.idle}")
+    private int dbPoolMaxIdle;
+
+    @Value("${db.pool.time.to.wait.millis}")
+    private int dbPoolTimeToWaitMillis;
+
+    @Value("${user.cache.size}")
+    private int userCacheSize;
+
+    @Value("${user.cache.ttl.millis}")
+    private long userCacheTtlMillis;
+
+    @Value("${user.batch.window.millis}")
+    private long userBatchWindowMillis;
+
+    @Value("${user.batch.max.size}")
+    private int userBatchMaxSize;
+
     // ApiServer 부트스트랩에서 사용된다.
     @Bean(name = "bossThreadCount")
     public int getBossThreadCount() {
@@ -39,6 +341,189 @@ public class ApiServerConfig {
         return new InetSocketAddress(tcpPort);
     }
 
+    @Bean(name = "tlsSocketAddress")
+    public InetSocketAddress tlsPort() {
+        return new InetSocketAddress(tlsPort);
+    }
+
+    @Bean(name = "rpcSocketAddress")
+    public InetSocketAddress rpcPort() {
+        return new InetSocketAddress(rpcBindAddress, rpcPort);
+    }
+
+    // ApiServer의 RPC 부트스트랩과 RpcServerInitializer에서 사용된다.
+    @Bean
+    public RpcConfig rpcConfig() {
+        return new RpcConfig(rpcEnabled, rpcMaxFrameSize);
+    }
+
+    // TokenStore와 UserRepository가 담당 노드를 찾고 조회를 넘길 때, ApiServer의 RPC 부트스트랩이 호출한 노드를 인증할 때 사용된다.
+    @Bean(destroyMethod = "close")
+    public Cluster cluster() {
+        if (clusterEnabled && !rpcEnabled) {
+            throw new IllegalArgumentException("cluster.enabled requires rpc.enabled");
+        }
+        String self = clusterSelf.trim().isEmpty() ? "127.0.0.1:" + rpcPort : clusterSelf;
+        return new Cluster(clusterEnabled, self, clusterPeers, clusterPeersFile, clusterSecret, clusterVirtualNodes,
+                clusterConnectionsPerPeer, clusterForwardTimeoutMillis, clusterPeersRefreshMillis,
+                clusterPeerRetryMillis, apiMetrics());
+    }
+
+    // ApiServer의 TLS 부트스트랩에서 SSL 컨텍스트를 만들 때 사용된다.
+    @Bean
+    public TlsConfig tlsConfig() {
+        return new TlsConfig(tlsProvider, tlsCertPath, tlsKeyPath, tlsKeyPassword, tlsSessionCacheSize,
+                tlsSessionTimeoutSeconds, tlsSessionTickets, tlsSessionTicketKeyPath);
+    }
+
+    // ApiServer 부트스트랩의 이벤트 루프, 서버 채널과 소켓 옵션에 사용된다.
+    @Bean
+    public ServerTransport serverTransport() {
+        return new ServerTransport(transportType, soBacklog, tcpNoDelay, soReusePort, acceptorCount,
+                allocatorType, writeBufferLowWaterMark, writeBufferHighWaterMark);
+    }
+
+    // ApiServerInitializer와 ApiRequestParser에서 요청 본문을 처리할 때 사용된다.
+    @Bean
+    public HttpBodyConfig httpBodyConfig() {
+        return new HttpBodyConfig(httpBodyStreaming, httpBodyMaxSize, httpBodyMemoryThreshold);
+    }
+
+    // ApiServerInitializer가 연결과 요청 파이프라인에 제한 시간 핸들러를 추가할 때 사용된다.
+    @Bean
+    public ConnectionTimeoutConfig connectionTimeoutConfig() {
+        return new ConnectionTimeoutConfig(connectionIdleTimeoutMillis, httpRequestReadTimeoutMillis,
+                connectionWriteTimeoutMillis);
+    }
+
+    // ApiServer의 TLS 설정(ALPN)과 ApiServerInitializer의 HTTP/2 파이프라인에서 사용된다.
+    @Bean
+    public Http2Config http2Config() {
+        return new Http2Config(http2Enabled, http2MaxConcurrentStreams, http2InitialWindowSize,
+                http2MaxHeaderListSize);
+    }
+
+    // ApiRequestParser에서 API 서비스를 실행할 때 사용된다.
+    @Bean(destroyMethod = "shutdown")
+    public ServiceExecutor serviceExecutor() {
+        return new ServiceExecutor(serviceExecutionMode, serviceThreadCount, serviceQueueLimit, serviceTimeoutMillis);
+    }
+
+    // batch API 서비스가 하위 요청을 입장 제어하고 실행할 때 사용된다.
+    @Bean(destroyMethod = "close")
+    public BatchExecutor batchExecutor() {
+        return new BatchExecutor(serviceExecutor(), admissionController(), apiMetrics(), serverLifecycle(),
+                batchMaxRequests);
+    }
+
+    // ApiServerInitializer가 ApiRequestParser 앞에 추가하는 AdmissionHandler에서 사용된다.
+    @Bean
+    public AdmissionController admissionController() {
+        return new AdmissionController(admissionEnabled, admissionMaxInFlight, admissionAdaptiveEnabled,
+                admissionAdaptiveInitialLimit, admissionAdaptiveMinLimit, admissionAdaptiveLatencyTargetMillis,
+                admissionAdaptiveBackoffRatio, admissionRateIpPerSecond, admissionRateIpBurst,
+                admissionRateTokenPerSecond, admissionRateTokenBurst, admissionRateSlots, admissionExemptPaths);
+    }
+
+    // ApiServer가 리스너의 채널과 이벤트 루프를 등록하고, ApiRequestParser가 실행 중인 서비스를 알리며,
+    // health 서비스가 준비 상태를 응답할 때 사용된다.
+    @Bean
+    public ServerLifecycle serverLifecycle() {
+        return new ServerLifecycle(shutdownDrainTimeoutMillis, shutdownReadinessDelayMillis,
+                shutdownQuietPeriodMillis);
+    }
+
+    // ApiRequestParser가 요청 처리 지표를 기록하고 /metrics 라우트가 내보낸다.
+    @Bean
+    public ApiMetrics apiMetrics() {
+        return new ApiMetrics();
+    }
+
+    // ApiRequestParser가 응답을 기록할 때 요청마다 항목을 넘긴다. 종료할 때 남은 항목을 모두 기록한다.
+    @Bean(destroyMethod = "close")
+    public AccessLog accessLog() {
+        return new AccessLog(accessLogEnabled, accessLogBufferSize, accessLogSampleRate, accessLogRedact,
+                apiMetrics());
+    }
+
+    // ApiRequestParser가 응답 본문을 압축할 때 사용한다.
+    @Bean
+    public ResponseCompressor responseCompressor() {
+        return new ResponseCompressor(httpCompressionEnabled, httpCompressionMinSize, httpCompressionLevel,
+                apiMetrics());
+    }
+
+    // ApiRequestParser가 cacheTtlMillis를 지정한 라우트의 응답을 캐시하고, tokenExpier가 만료된 토큰의 응답을 지운다.
+    @Bean
+    public ResponseCache responseCache() {
+        return new ResponseCache(responseCacheSize, responseCacheMaxEntryBytes,
+                responseCacheGzip && httpCompressionEnabled ? responseCompressor() : null);
+    }
+
+    // ApiServer의 평문, TLS 리스너가 ApiServerInitializer로 HTTP 연결의 파이프라인을 구성할 때 함께 사용된다.
+    @Bean
+    public PipelineComponents pipelineComponents() {
+        return new PipelineComponents(serviceExecutor(), httpBodyConfig(), apiMetrics(), responseCache(),
+                responseCompressor(), http2Config(), admissionController(), serverLifecycle(),
+                connectionTimeoutConfig(), accessLog());
+    }
+
+    // tokenIssue, tokenVerify, tokenExpier, clusterTokens API 서비스에서 사용된다.
+    @Bean(destroyMethod = "close")
+    public TokenStore tokenStore() {
+        JedisTokenBackend backend = "redis".equalsIgnoreCase(tokenStoreType.trim())
+                ? new JedisTokenBackend(redisHost, redisPort, redisTimeoutMillis, redisMaxConnections) : null;
+        // Redis가 없으면 다른 서버와 나눌 토큰이 없으므로 토큰의 만료 시각까지 캐시한다.
+        TokenCache cache = new TokenCache(tokenCacheSize, backend != null ? tokenCacheRevalidateMillis : 0);
+        return new TokenStore(cache, backend, tokenTtlSeconds, serviceExecutor(), cluster(),
+                apiMetrics());
+    }
+
+    // MyBatis 매퍼가 사용하는 연결 풀
+    @Bean(destroyMethod = "forceCloseAll")
+    public PooledDataSource dataSource() {
+        PooledDataSource dataSource = new PooledDataSource(dbDriver, dbUrl, dbUsername, dbPassword);
+        dataSource.setPoolMaximumActiveConnections(dbPoolMaxActive);
+        dataSource.setPoolMaximumIdleConnections(dbPoolMaxIdle);
+        dataSource.setPoolTimeToWait(dbPoolTimeToWaitMillis);
+        return dataSource;
+    }
+
+    // db.init이 true이면 기동할 때 스키마와 샘플 데이터를 만든다.
+    @Bean
+    public DataSourceInitializer dataSourceInitializer(DataSource dataSource) {
+        DataSourceInitializer initializer = new DataSourceInitializer();
+        initializer.setDataSource(dataSource);
+        initializer.setDatabasePopulator(new ResourceDatabasePopulator(
+                new ClassPathResource("db/schema.sql"), new ClassPathResource("db/data.sql")));
+        initializer.setEnabled(dbInit);
+        return initializer;
+    }
+
+    @Bean
+    public SqlSessionFactory sqlSessionFactory(DataSource dataSource) throws Exception {
+        SqlSessionFactoryBean factory = new SqlSessionFactoryBean();
+        factory.setDataSource(dataSource);
+        factory.setMapperLocations(new PathMatchingResourcePatternResolver().getResources("classpath:mapper/*.xml"));
+        return factory.getObject();
+    }
+
+    /**
+     * SqlSessionTemplate은 close를 지원하지 않는데, Spring 4.1은 AutoCloseable 빈이면 destroyMethod와 상관없이
+     * 종료할 때 close를 호출한다. 그래서 템플릿은 빈으로 등록하지 않고 매퍼만 등록한다.
+     */
+    @Bean
+    public UserMapper userMapper(SqlSessionFactory sqlSessionFactory) {
+        return new SqlSessionTemplate(sqlSessionFactory).getMapper(UserMapper.class);
+    }
+
+    // users, tokenIssue, clusterUsers API 서비스에서 사용된다.
+    @Bean(destroyMethod = "close")
+    public UserRepository userRepository(UserMapper userMapper) {
+        return new UserRepository(userMapper, userCacheSize, userCacheTtlMillis, userBatchWindowMillis,
+                userBatchMaxSize, serviceExecutor(), cluster());
+    }
+
     @Bean
     public static PropertySourcesPlaceholderConfigurer propertyPlaceholderConfigurer() {
         return new PropertySourcesPlaceholderConfigurer();
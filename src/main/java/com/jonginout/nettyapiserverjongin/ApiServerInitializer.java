@@ -1,34 +1,175 @@
 package com.jonginout.nettyapiserverjongin;
 
 import com.jonginout.nettyapiserverjongin.core.ApiRequestParser;
+import com.jonginout.nettyapiserverjongin.core.ConnectionTimeoutConfig;
+import com.jonginout.nettyapiserverjongin.core.ConnectionTimeoutHandler;
+import com.jonginout.nettyapiserverjongin.core.HttpBodyConfig;
+import com.jonginout.nettyapiserverjongin.core.ResponseCache;
+import com.jonginout.nettyapiserverjongin.core.RequestReadTimeoutHandler;
+import com.jonginout.nettyapiserverjongin.core.ResponseCompressor;
+import com.jonginout.nettyapiserverjongin.core.ServerLifecycle;
+import com.jonginout.nettyapiserverjongin.core.ServiceExecutor;
+import com.jonginout.nettyapiserverjongin.core.accesslog.AccessLog;
+import com.jonginout.nettyapiserverjongin.core.admission.AdmissionController;
+import com.jonginout.nettyapiserverjongin.core.admission.AdmissionHandler;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics.Handshake;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPipeline;
-import io.netty.channel.socket.SocketChannel;
-import io.netty.handler.codec.http.HttpContentCompressor;
+import io.netty.handler.codec.ByteToMessageDecoder;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpRequestDecoder;
 import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.codec.http2.Http2CodecUtil;
+import io.netty.handler.codec.http2.Http2FrameCodecBuilder;
+import io.netty.handler.codec.http2.Http2MultiplexHandler;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.codec.http2.Http2StreamFrameToHttpObjectCodec;
+import io.netty.handler.flow.FlowControlHandler;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.ApplicationProtocolNegotiationHandler;
 import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.timeout.IdleStateHandler;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 네티로 구현한 API 서버에서 제일 중요한 부분인 채널 파이프라인 설정코드!
+ * 소켓 채널뿐 아니라 EmbeddedChannel에도 같은 파이프라인을 구성할 수 있다(벤치마크).
+ *
+ * HTTP/2를 사용하면 TLS 연결은 ALPN으로, 평문 연결은 연결 서문(prior knowledge)으로 프로토콜을 정한 뒤
+ * HTTP/1.1 또는 HTTP/2 파이프라인을 구성한다. HTTP/2 연결은 스트림마다 자식 채널을 만들고,
+ * 자식 채널의 파이프라인이 HTTP/2 프레임을 HttpObject로 바꿔 HTTP/1.1과 같은 ApiRequestParser로 처리한다.
  */
-public class ApiServerInitializer extends ChannelInitializer<SocketChannel> {
+public class ApiServerInitializer extends ChannelInitializer<Channel> {
+    // HTTP/2 클라이언트가 연결 처음에 보내는 연결 서문. 해제되지 않는 버퍼를 읽기만 한다.
+    private static final ByteBuf HTTP2_PREFACE = Http2CodecUtil.connectionPrefaceBuf();
+
     private final SslContext sslCtx;
 
-    // ssl 컨텍트스트
-    public ApiServerInitializer(SslContext sslCtx) {
+    private final ServiceExecutor serviceExecutor;
+
+    private final HttpBodyConfig bodyConfig;
+
+    private final ApiMetrics metrics;
+
+    private final ResponseCache responseCache;
+
+    private final ResponseCompressor compressor;
+
+    private final Http2Config http2Config;
+
+    private final AdmissionController admission;
+
+    private final ServerLifecycle lifecycle;
+
+    private final ConnectionTimeoutConfig timeoutConfig;
+
+    private final AccessLog accessLog;
+
+    // HTTP/2 스트림의 프레임과 HttpObject를 서로 바꾼다. 상태가 없으므로 모든 스트림이 공유한다.
+    private final Http2StreamFrameToHttpObjectCodec streamCodec = new Http2StreamFrameToHttpObjectCodec(true);
+
+    // HTTP/2 스트림(자식 채널)마다 요청 처리 파이프라인을 구성한다.
+    private final ChannelInitializer<Http2StreamChannel> streamInitializer =
+            new ChannelInitializer<Http2StreamChannel>() {
+                @Override
+                protected void initChannel(Http2StreamChannel ch) {
+                    metrics.streamOpened();
+                    ch.closeFuture().addListener(future -> metrics.streamClosed());
+
+                    ChannelPipeline p = ch.pipeline();
+                    p.addLast(streamCodec);
+                    addReadTimeout(p);
+                    addAdmission(p);
+                    if (!bodyConfig.isStreaming()) {
+                        p.addLast(new HttpObjectAggregator(bodyConfig.getAggregatorMaxSize()));
+                    }
+                    p.addLast(new ApiRequestParser(serviceExecutor, bodyConfig, metrics, responseCache, compressor,
+                            lifecycle, accessLog));
+                }
+            };
+
+    // ssl 컨텍트스트(평문 리스너는 null)와 모든 HTTP 리스너가 공유하는 파이프라인 구성 요소
+    public ApiServerInitializer(SslContext sslCtx, PipelineComponents components) {
         this.sslCtx = sslCtx;
+        this.serviceExecutor = components.getServiceExecutor();
+        this.bodyConfig = components.getBodyConfig();
+        this.metrics = components.getMetrics();
+        this.responseCache = components.getResponseCache();
+        this.compressor = components.getCompressor();
+        this.http2Config = components.getHttp2Config();
+        this.admission = components.getAdmission();
+        this.lifecycle = components.getLifecycle();
+        this.timeoutConfig = components.getTimeoutConfig();
+        this.accessLog = components.getAccessLog();
     }
 
     @Override
-    public void initChannel(SocketChannel ch) {
+    public void initChannel(Channel ch) {
         // 클라이언트 채널로 수신된 HTTP 데이터를 처리하기 위한 채널 파이프라인 객체
         ChannelPipeline p = ch.pipeline();
+        /**
+         * 연결 수는 여기서 센다. ALPN이나 연결 서문으로 프로토콜을 정한 뒤에 추가되는 핸들러는
+         * channelActive 이벤트를 받지 못하기 때문이다.
+         */
+        metrics.connectionOpened();
+        ch.closeFuture().addListener(future -> metrics.connectionClosed());
+        // 서버를 종료할 때 남은 연결을 비우고 닫을 수 있도록 등록한다.
+        lifecycle.addClientChannel(ch);
+
+        /**
+         * IdleStateHandler는 읽기도 쓰기도 없는 시간이 connection.idle.timeout.millis를 넘으면 이벤트를 보내고,
+         * ConnectionTimeoutHandler가 처리 중인 요청이 없는 연결을 닫는다. ConnectionTimeoutHandler는 송신 버퍼가
+         * high water mark를 넘는 동안 읽기를 멈춘다. 두 핸들러는 TLS와 프로토콜에 관계없이 연결 맨 앞에 둔다.
+         */
+        if (timeoutConfig.getIdleTimeoutMillis() > 0) {
+            p.addLast(new IdleStateHandler(0, 0, timeoutConfig.getIdleTimeoutMillis(), TimeUnit.MILLISECONDS));
+        }
+        p.addLast(new ConnectionTimeoutHandler(timeoutConfig, metrics));
+
         if (sslCtx != null) {
-            p.addLast(sslCtx.newHandler(ch.alloc()));
+            long handshakeStart = System.nanoTime();
+            long handshakeStartMillis = System.currentTimeMillis();
+            SslHandler sslHandler = sslCtx.newHandler(ch.alloc());
+            p.addLast(sslHandler);
+            recordHandshake(sslHandler, handshakeStart, handshakeStartMillis);
+            // ALPN을 설정한 SSL 컨텍스트면 핸드셰이크가 끝난 뒤 클라이언트와 고른 프로토콜로 파이프라인을 구성한다.
+            if (!sslCtx.applicationProtocolNegotiator().protocols().isEmpty()) {
+                p.addLast(new AlpnHandler());
+                return;
+            }
+        } else if (http2Config.isEnabled()) {
+            // 평문 연결은 첫 바이트가 HTTP/2 연결 서문인지 보고 h2c와 HTTP/1.1을 구분한다.
+            p.addLast(new PriorKnowledgeDetector());
+            return;
         }
+        configureHttp1(p);
+    }
 
+    /**
+     * 연결을 받은 때부터 핸드셰이크가 끝날 때까지의 시간을 전체 핸드셰이크와 세션 재사용으로 나누어 기록한다.
+     */
+    private void recordHandshake(SslHandler sslHandler, long start, long startMillis) {
+        sslHandler.handshakeFuture().addListener(future -> {
+            if (!future.isSuccess()) {
+                metrics.countHandshakeFailure();
+                return;
+            }
+            boolean resumed = TlsConfig.isSessionReused(sslHandler.engine(), startMillis);
+            metrics.recordHandshake(resumed ? Handshake.RESUMED : Handshake.FULL, System.nanoTime() - start);
+        });
+    }
+
+    /**
+     * HTTP/1.1 파이프라인
+     */
+    private void configureHttp1(ChannelPipeline p) {
         //// 디코더 ///////
 
         /**
@@ -37,37 +178,134 @@ public class ApiServerInitializer extends ChannelInitializer<SocketChannel> {
          */
         p.addLast(new HttpRequestDecoder());
         /**
-         * HttpObjectAggregator는 HTTP 프로토콜에서 발생하는 메시지 파편화를 처리하는 디코더.
-         * HTTP 프로토콜을 구성하는 데이터가 나위어서 수신되었을때 데이터를 하나로 합쳐주는 역할 수행,
-         * 인자로 입력된 65536은 한꺼번에 처리가 가능한 최대 데이터 크기다.
-         * 65Kbyte 이상의 데이터가 하나의 HTTP 요청으로 수신되면 TooLongFrameException 예외가 발생한다.
+         * FlowControlHandler는 ConnectionTimeoutHandler가 송신 버퍼가 차서 읽기를 멈추면, 같은 읽기에서 이미 디코딩한
+         * 파이프라이닝 요청을 넘기지 않고 붙잡아 두었다가 다시 읽을 때 넘긴다.
          */
-        p.addLast(new HttpObjectAggregator(65536));
+        p.addLast(new FlowControlHandler());
 
         //// 인코더 ///////
 
         /**
          * HttpResponseEncoder는 수신된 HTTP 요청의 처리 결과를 클라이언트[로] 전송할때 HTTP 프로토콜로 변환해주는 인코더!
+         * 인코더는 송신 방향에서만 동작하므로, 뒤에 오는 핸들러들(입장 제어, HttpObjectAggregator)이 직접 기록하는
+         * 거절 응답이나 100 Continue도 인코딩되도록 디코더 바로 뒤에 둔다.
          */
         p.addLast(new HttpResponseEncoder());
+
+        /**
+         * RequestReadTimeoutHandler는 요청 헤더를 받은 뒤 http.request.read.timeout.millis 안에 본문을 다 받지 못하면
+         * ApiRequestParser가 408로 응답하게 한다. 본문을 합치는 모드에서도 동작하도록 HttpObjectAggregator 앞에 둔다.
+         */
+        addReadTimeout(p);
         /**
-         * HttpContentCompressor는 HTTP 프로토콜로 송수신되는 HTTP의 본문 데이터를 gzip압축 알고리즘을 사용하여 압축과 압축 해제를 수행한다.
-         * 즉 HttpContentCompressor는 ChannelDuplexHandler 클래스를 상속받기 때문에 인바운드와 아웃바운드에서 모두 호출된다.
+         * AdmissionHandler는 요청 헤더를 받자마자 속도 제한과 동시성 한도를 확인하고, 넘으면 본문을 합치거나
+         * 서비스를 실행하지 않고 바로 429나 503으로 응답한다.
          */
-        p.addLast(new HttpContentCompressor());
+        addAdmission(p);
+        /**
+         * HttpObjectAggregator는 HTTP 프로토콜에서 발생하는 메시지 파편화를 처리하는 디코더.
+         * HTTP 프로토콜을 구성하는 데이터가 나위어서 수신되었을때 데이터를 하나로 합쳐주는 역할 수행,
+         * 인자는 한꺼번에 처리가 가능한 최대 데이터 크기(http.body.max.size)다.
+         *
+         * 본문 스트리밍 모드(http.body.streaming=true)에서는 합치지 않고 ApiRequestParser가
+         * 본문 조각을 받는 대로 디코딩하며 라우트별 크기 제한을 적용한다.
+         */
+        if (!bodyConfig.isStreaming()) {
+            p.addLast(new HttpObjectAggregator(bodyConfig.getAggregatorMaxSize()));
+        }
         /**
          * ApiRequestParsers는 클라이언트로부터 수신된 HTTP 데이터에서 헤더와 데이터 값을 추출하여
          * 토큰 발급과 같은 업무 처리 클래스로 분기하는 클래스로써 API 서버의 컨트롤러 역할을 수행한다.
+         * 응답 본문 압축도 HttpContentCompressor 대신 ApiRequestParser가 응답을 기록할 때 ResponseCompressor로 한다.
          */
-        p.addLast(new ApiRequestParser());
+        p.addLast(new ApiRequestParser(serviceExecutor, bodyConfig, metrics, responseCache, compressor, lifecycle,
+                accessLog));
 
         /**
          * [클라이언트로부터 데이터를 수신했을때 데이터 호출 순서]
-         * HttpRequestDecoder -> HttpObjectAggregator -> HttpResponseEncoder -> HttpContentCompressor -> ApiRequestParser
+         * HttpRequestDecoder -> FlowControlHandler -> (RequestReadTimeoutHandler) -> (AdmissionHandler) -> (HttpObjectAggregator)
+         * -> ApiRequestParser
          * 순서로 실행된다.
          *
          * [ApiRequestParser의 처리가 완료되어 채널로 데이터를 기록할 때 호출되는 순서]
-         * ApiRequestParser -> HttpContentCompressor -> HttpResponseEncoder
+         * ApiRequestParser(ResponseCompressor) -> (AdmissionHandler) -> HttpResponseEncoder
          */
     }
+
+    /**
+     * 요청 읽기 제한 시간을 사용하면 제한 시간을 재는 핸들러를 추가한다. 핸들러는 채널(스트림)마다 만든다.
+     */
+    private void addReadTimeout(ChannelPipeline p) {
+        if (timeoutConfig.getReadTimeoutMillis() > 0) {
+            p.addLast(new RequestReadTimeoutHandler(timeoutConfig, metrics));
+        }
+    }
+
+    /**
+     * 입장 제어를 사용하면 요청마다 받을지 정하는 핸들러를 추가한다. 핸들러는 채널(스트림)마다 만든다.
+     */
+    private void addAdmission(ChannelPipeline p) {
+        if (admission != null && admission.isEnabled()) {
+            p.addLast(new AdmissionHandler(admission, metrics));
+        }
+    }
+
+    /**
+     * HTTP/2 파이프라인. Http2FrameCodec이 연결의 프레임과 흐름 제어를 처리하고,
+     * Http2MultiplexHandler가 스트림마다 streamInitializer로 구성한 자식 채널을 만든다.
+     *
+     * [스트림 자식 채널의 호출 순서]
+     * Http2StreamFrameToHttpObjectCodec -> (RequestReadTimeoutHandler) -> (AdmissionHandler) -> (HttpObjectAggregator)
+     * -> ApiRequestParser
+     *
+     * 서버 종료 시 연결을 닫으면 Http2FrameCodec이 GOAWAY를 보내고, 처리 중인 스트림이 끝나거나
+     * 종료 대기 시간(shutdown.drain.timeout.millis)이 지나면 연결을 닫는다.
+     */
+    private void configureHttp2(ChannelPipeline p) {
+        p.addLast(Http2FrameCodecBuilder.forServer().initialSettings(http2Config.initialSettings())
+                .gracefulShutdownTimeoutMillis(lifecycle.getDrainTimeoutMillis()).build());
+        p.addLast(new Http2MultiplexHandler(streamInitializer));
+    }
+
+    /**
+     * TLS 핸드셰이크에서 ALPN으로 고른 프로토콜의 파이프라인을 구성한다. ALPN을 쓰지 않는 클라이언트는 HTTP/1.1이다.
+     */
+    private final class AlpnHandler extends ApplicationProtocolNegotiationHandler {
+        AlpnHandler() {
+            super(ApplicationProtocolNames.HTTP_1_1);
+        }
+
+        @Override
+        protected void configurePipeline(ChannelHandlerContext ctx, String protocol) {
+            if (ApplicationProtocolNames.HTTP_2.equals(protocol)) {
+                configureHttp2(ctx.pipeline());
+            } else if (ApplicationProtocolNames.HTTP_1_1.equals(protocol)) {
+                configureHttp1(ctx.pipeline());
+            } else {
+                throw new IllegalStateException("unknown protocol: " + protocol);
+            }
+        }
+    }
+
+    /**
+     * 평문 연결의 첫 바이트를 HTTP/2 연결 서문(PRI * HTTP/2.0...)과 비교하여 h2c와 HTTP/1.1 파이프라인 중 하나를 구성한다.
+     * 구성한 뒤에는 파이프라인에서 빠지며, 그때까지 받은 바이트는 새로 구성한 핸들러로 넘어간다.
+     */
+    private final class PriorKnowledgeDetector extends ByteToMessageDecoder {
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+            int length = Math.min(in.readableBytes(), HTTP2_PREFACE.readableBytes());
+            for (int i = 0; i < length; i++) {
+                if (in.getByte(in.readerIndex() + i) != HTTP2_PREFACE.getByte(HTTP2_PREFACE.readerIndex() + i)) {
+                    configureHttp1(ctx.pipeline());
+                    ctx.pipeline().remove(this);
+                    return;
+                }
+            }
+            if (length == HTTP2_PREFACE.readableBytes()) {
+                configureHttp2(ctx.pipeline());
+                ctx.pipeline().remove(this);
+            }
+        }
+    }
 }
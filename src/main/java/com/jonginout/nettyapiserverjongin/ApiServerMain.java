@@ -1,19 +1,30 @@
 package com.jonginout.nettyapiserverjongin;
 
+import org.apache.logging.log4j.LogManager;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.context.support.AbstractApplicationContext;
 
 public class ApiServerMain {
     public static void main(String[] args) {
-        AbstractApplicationContext springContext = null;
+        // AnnotationConfigApplicationContext 등록
+        final AbstractApplicationContext springContext = new AnnotationConfigApplicationContext(ApiServerConfig.class);
         try {
-            // AnnotationConfigApplicationContext 등록
-            springContext = new AnnotationConfigApplicationContext(ApiServerConfig.class);
-            springContext.registerShutdownHook();
-
             // server 실행
             // ApiServer 클래스는 네티의 부트스트랩 설정을 포함한 클래스
-            ApiServer server = springContext.getBean(ApiServer.class);
+            final ApiServer server = springContext.getBean(ApiServer.class);
+
+            /**
+             * 스프링의 registerShutdownHook 대신 직접 종료 훅을 등록한다. SIGTERM을 받으면 먼저 서버의 연결을 비우고
+             * 처리 중인 요청이 끝난 뒤에 스프링 컨텍스트를 닫아, 실행 중인 서비스가 쓰는 업무 스레드 풀,
+             * DB 커넥션 풀과 Redis 연결이 요청보다 먼저 닫히지 않게 한다.
+             * log4j2의 종료 훅은 꺼 두었으므로(log4j2.xml) 접근 로그가 남은 항목을 기록한 뒤 마지막에 로거를 닫는다.
+             */
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.stop();
+                springContext.close();
+                LogManager.shutdown();
+            }, "api-shutdown"));
+
             server.start();
         } finally {
             springContext.close();
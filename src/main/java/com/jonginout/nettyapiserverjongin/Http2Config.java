@@ -0,0 +1,71 @@
+package com.jonginout.nettyapiserverjongin;
+
+import io.netty.handler.codec.http2.Http2SecurityUtil;
+import io.netty.handler.codec.http2.Http2Settings;
+import io.netty.handler.ssl.ApplicationProtocolConfig;
+import io.netty.handler.ssl.ApplicationProtocolConfig.Protocol;
+import io.netty.handler.ssl.ApplicationProtocolConfig.SelectedListenerFailureBehavior;
+import io.netty.handler.ssl.ApplicationProtocolConfig.SelectorFailureBehavior;
+import io.netty.handler.ssl.ApplicationProtocolNames;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.SupportedCipherSuiteFilter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * HTTP/2 설정.
+ *
+ * TLS 포트에서는 ALPN으로 h2와 http/1.1 중 하나를 고르고, 평문 포트에서는 연결 서문(prior knowledge)으로 h2c를 구분한다.
+ * HTTP/2 연결의 스트림 하나가 HTTP/1.1 요청 하나처럼 ApiRequestParser를 거치므로,
+ * 적은 연결로 많은 API 호출을 동시에 보내는 클라이언트도 앞선 응답을 기다리지 않는다.
+ */
+public class Http2Config {
+    private static final Logger logger = LogManager.getLogger(Http2Config.class);
+
+    private final boolean enabled;
+
+    private final Http2Settings settings;
+
+    /**
+     * @param maxConcurrentStreams 연결 하나에서 동시에 처리하는 최대 스트림(요청) 수
+     * @param initialWindowSize    스트림마다 응답을 기다리지 않고 받을 수 있는 본문 크기(byte)
+     * @param maxHeaderListSize    요청 헤더 목록의 최대 크기(byte)
+     */
+    public Http2Config(boolean enabled, long maxConcurrentStreams, int initialWindowSize, long maxHeaderListSize) {
+        this.enabled = enabled;
+        this.settings = new Http2Settings()
+                .maxConcurrentStreams(maxConcurrentStreams)
+                .initialWindowSize(initialWindowSize)
+                .maxHeaderListSize(maxHeaderListSize);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 연결을 열 때 클라이언트에 보낼 SETTINGS 프레임의 값. 연결마다 복사본을 돌려준다.
+     */
+    public Http2Settings initialSettings() {
+        return new Http2Settings().copyFrom(settings);
+    }
+
+    /**
+     * HTTP/2를 사용하면 TLS 서버 설정에 ALPN(h2, http/1.1)과 HTTP/2에서 허용하는 암호 스위트를 지정한다.
+     * SSL 구현이 ALPN을 지원하지 않으면 TLS 포트는 HTTP/1.1만 사용한다.
+     */
+    public SslContextBuilder configure(SslContextBuilder builder, SslProvider provider) {
+        if (!enabled) {
+            return builder;
+        }
+        if (!SslProvider.isAlpnSupported(provider)) {
+            logger.warn(provider + " SSL 구현이 ALPN을 지원하지 않아 TLS 포트는 HTTP/1.1만 사용합니다.");
+            return builder;
+        }
+        return builder.ciphers(Http2SecurityUtil.CIPHERS, SupportedCipherSuiteFilter.INSTANCE)
+                .applicationProtocolConfig(new ApplicationProtocolConfig(Protocol.ALPN,
+                        SelectorFailureBehavior.NO_ADVERTISE, SelectedListenerFailureBehavior.ACCEPT,
+                        ApplicationProtocolNames.HTTP_2, ApplicationProtocolNames.HTTP_1_1));
+    }
+}
@@ -0,0 +1,98 @@
+package com.jonginout.nettyapiserverjongin;
+
+import com.jonginout.nettyapiserverjongin.core.ConnectionTimeoutConfig;
+import com.jonginout.nettyapiserverjongin.core.HttpBodyConfig;
+import com.jonginout.nettyapiserverjongin.core.ResponseCache;
+import com.jonginout.nettyapiserverjongin.core.ResponseCompressor;
+import com.jonginout.nettyapiserverjongin.core.ServerLifecycle;
+import com.jonginout.nettyapiserverjongin.core.ServiceExecutor;
+import com.jonginout.nettyapiserverjongin.core.accesslog.AccessLog;
+import com.jonginout.nettyapiserverjongin.core.admission.AdmissionController;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+
+/**
+ * ApiServerInitializer가 HTTP 연결마다 파이프라인을 구성할 때 쓰는 구성 요소 묶음.
+ * 모든 HTTP 리스너(평문, TLS)가 같은 묶음을 공유하며, 리스너마다 다른 것은 SSL 컨텍스트뿐이다.
+ */
+public final class PipelineComponents {
+    private final ServiceExecutor serviceExecutor;
+
+    private final HttpBodyConfig bodyConfig;
+
+    private final ApiMetrics metrics;
+
+    private final ResponseCache responseCache;
+
+    private final ResponseCompressor compressor;
+
+    private final Http2Config http2Config;
+
+    private final AdmissionController admission;
+
+    private final ServerLifecycle lifecycle;
+
+    private final ConnectionTimeoutConfig timeoutConfig;
+
+    private final AccessLog accessLog;
+
+    /**
+     * @param serviceExecutor API 서비스를 실행할 업무 실행기
+     * @param bodyConfig      요청 본문 처리 설정
+     * @param admission       입장 제어. null이면 입장 제어를 하지 않는다.
+     */
+    public PipelineComponents(ServiceExecutor serviceExecutor, HttpBodyConfig bodyConfig, ApiMetrics metrics,
+                              ResponseCache responseCache, ResponseCompressor compressor, Http2Config http2Config,
+                              AdmissionController admission, ServerLifecycle lifecycle,
+                              ConnectionTimeoutConfig timeoutConfig, AccessLog accessLog) {
+        this.serviceExecutor = serviceExecutor;
+        this.bodyConfig = bodyConfig;
+        this.metrics = metrics;
+        this.responseCache = responseCache;
+        this.compressor = compressor;
+        this.http2Config = http2Config;
+        this.admission = admission;
+        this.lifecycle = lifecycle;
+        this.timeoutConfig = timeoutConfig;
+        this.accessLog = accessLog;
+    }
+
+    public ServiceExecutor getServiceExecutor() {
+        return serviceExecutor;
+    }
+
+    public HttpBodyConfig getBodyConfig() {
+        return bodyConfig;
+    }
+
+    public ApiMetrics getMetrics() {
+        return metrics;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public ResponseCompressor getCompressor() {
+        return compressor;
+    }
+
+    public Http2Config getHttp2Config() {
+        return http2Config;
+    }
+
+    public AdmissionController getAdmission() {
+        return admission;
+    }
+
+    public ServerLifecycle getLifecycle() {
+        return lifecycle;
+    }
+
+    public ConnectionTimeoutConfig getTimeoutConfig() {
+        return timeoutConfig;
+    }
+
+    public AccessLog getAccessLog() {
+        return accessLog;
+    }
+}
@@ -0,0 +1,82 @@
+package com.jonginout.nettyapiserverjongin;
+
+import com.jonginout.nettyapiserverjongin.core.ConnectionTimeoutConfig;
+import com.jonginout.nettyapiserverjongin.core.ConnectionTimeoutHandler;
+import com.jonginout.nettyapiserverjongin.core.ServerLifecycle;
+import com.jonginout.nettyapiserverjongin.core.ServiceExecutor;
+import com.jonginout.nettyapiserverjongin.core.admission.AdmissionController;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import com.jonginout.nettyapiserverjongin.core.rpc.RpcAuthenticator;
+import com.jonginout.nettyapiserverjongin.core.rpc.RpcCodec;
+import com.jonginout.nettyapiserverjongin.core.rpc.RpcConfig;
+import com.jonginout.nettyapiserverjongin.core.rpc.RpcServerHandler;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.flow.FlowControlHandler;
+
+/**
+ * 서비스 간 호출용 이진 RPC 리스너의 채널 파이프라인 설정.
+ *
+ * [클라이언트로부터 데이터를 수신했을때 데이터 호출 순서]
+ * ConnectionTimeoutHandler -> LengthFieldBasedFrameDecoder -> FlowControlHandler -> RpcServerHandler
+ *
+ * 응답 프레임은 RpcServerHandler가 길이 필드까지 기록하므로 인코더가 없다.
+ */
+public class RpcServerInitializer extends ChannelInitializer<Channel> {
+    private final RpcConfig rpcConfig;
+
+    private final ServiceExecutor serviceExecutor;
+
+    private final ApiMetrics metrics;
+
+    private final ServerLifecycle lifecycle;
+
+    private final ConnectionTimeoutConfig timeoutConfig;
+
+    private final AdmissionController admission;
+
+    private final RpcAuthenticator authenticator;
+
+    /**
+     * @param admission     인증 정보 없이 들어온 호출의 입장 제어. null이면 입장 제어를 하지 않는다.
+     * @param authenticator 호출한 노드의 인증. null이면 어떤 호출도 내부 호출로 표시하지 않는다.
+     */
+    public RpcServerInitializer(RpcConfig rpcConfig, ServiceExecutor serviceExecutor, ApiMetrics metrics,
+                                ServerLifecycle lifecycle, ConnectionTimeoutConfig timeoutConfig,
+                                AdmissionController admission, RpcAuthenticator authenticator) {
+        this.rpcConfig = rpcConfig;
+        this.serviceExecutor = serviceExecutor;
+        this.metrics = metrics;
+        this.lifecycle = lifecycle;
+        this.timeoutConfig = timeoutConfig;
+        this.admission = admission;
+        this.authenticator = authenticator;
+    }
+
+    @Override
+    public void initChannel(Channel ch) {
+        ChannelPipeline p = ch.pipeline();
+        metrics.connectionOpened();
+        ch.closeFuture().addListener(future -> metrics.connectionClosed());
+        // 서버를 종료할 때 남은 호출의 응답을 보낸 뒤 닫을 수 있도록 등록한다.
+        lifecycle.addClientChannel(ch);
+
+        /**
+         * RPC 연결은 클라이언트가 풀에 열어 두고 계속 쓰는 연결이므로 idle timeout을 적용하지 않는다.
+         * ConnectionTimeoutHandler는 응답을 가져가지 않는 클라이언트의 읽기를 멈추는 데만 쓴다.
+         */
+        p.addLast(new ConnectionTimeoutHandler(timeoutConfig, metrics));
+        /**
+         * 4바이트 길이 필드로 프레임을 나누고 길이 필드는 떼어 낸다. rpc.max.frame.size를 넘는 프레임이 오면 연결을 닫는다.
+         */
+        p.addLast(new LengthFieldBasedFrameDecoder(rpcConfig.getMaxFrameSize(), 0, RpcCodec.LENGTH_FIELD_SIZE, 0,
+                RpcCodec.LENGTH_FIELD_SIZE));
+        /**
+         * 읽기를 멈췄을 때 같은 읽기에서 이미 나눈 프레임을 붙잡아 두었다가 다시 읽을 때 넘긴다.
+         */
+        p.addLast(new FlowControlHandler());
+        p.addLast(new RpcServerHandler(serviceExecutor, metrics, lifecycle, admission, authenticator));
+    }
+}
@@ -0,0 +1,129 @@
+package com.jonginout.nettyapiserverjongin;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * API 서버 부트스트랩의 전송 계층 설정.
+ * 리눅스에서 네이티브 epoll을 사용할 수 있으면 epoll을, 아니면 NIO를 사용하며
+ * api-server.properties의 소켓 옵션을 ServerBootstrap에 적용한다.
+ *
+ * epoll에서 SO_REUSEPORT를 켜면 같은 포트에 acceptor 채널을 여러 개 바인드하여
+ * 커널이 연결을 각 acceptor에 분산하도록 한다.
+ */
+public class ServerTransport {
+    private static final Logger logger = LogManager.getLogger(ServerTransport.class);
+
+    private final boolean epoll;
+
+    private final int backlog;
+
+    private final boolean tcpNoDelay;
+
+    private final boolean reusePort;
+
+    private final int acceptorCount;
+
+    private final ByteBufAllocator allocator;
+
+    private final WriteBufferWaterMark waterMark;
+
+    public ServerTransport(String type, int backlog, boolean tcpNoDelay, boolean reusePort, int acceptorCount,
+                           String allocator, int lowWaterMark, int highWaterMark) {
+        this.epoll = useEpoll(type.trim().toLowerCase(Locale.ROOT));
+        this.backlog = backlog;
+        this.tcpNoDelay = tcpNoDelay;
+        this.reusePort = reusePort && epoll;
+        this.acceptorCount = this.reusePort ? Math.max(1, acceptorCount) : 1;
+        this.allocator = "unpooled".equalsIgnoreCase(allocator.trim())
+                ? UnpooledByteBufAllocator.DEFAULT : PooledByteBufAllocator.DEFAULT;
+        this.waterMark = new WriteBufferWaterMark(lowWaterMark, highWaterMark);
+
+        if (reusePort && !epoll) {
+            logger.warn("SO_REUSEPORT는 epoll 전송에서만 사용할 수 있어 acceptor 채널 하나로 바인드합니다.");
+        }
+        logger.info("transport : " + (epoll ? "epoll" : "nio") + ", acceptors : " + this.acceptorCount);
+    }
+
+    private static boolean useEpoll(String type) {
+        switch (type) {
+            case "nio":
+                return false;
+            case "epoll":
+                if (!Epoll.isAvailable()) {
+                    throw new IllegalStateException("epoll 전송을 사용할 수 없습니다.", Epoll.unavailabilityCause());
+                }
+                return true;
+            case "auto":
+                return Epoll.isAvailable();
+            default:
+                throw new IllegalArgumentException("transport.type must be auto, epoll or nio : " + type);
+        }
+    }
+
+    public boolean isEpoll() {
+        return epoll;
+    }
+
+    public ByteBufAllocator getAllocator() {
+        return allocator;
+    }
+
+    public EventLoopGroup newEventLoopGroup(int threadCount, String name) {
+        DefaultThreadFactory threadFactory = new DefaultThreadFactory(name);
+        return epoll ? new EpollEventLoopGroup(threadCount, threadFactory)
+                : new NioEventLoopGroup(threadCount, threadFactory);
+    }
+
+    /**
+     * 서버 채널 클래스와 소켓 옵션을 부트스트랩에 적용한다.
+     */
+    public ServerBootstrap configure(ServerBootstrap b) {
+        b.channel(serverChannelClass())
+                .option(ChannelOption.SO_BACKLOG, backlog)
+                .option(ChannelOption.ALLOCATOR, allocator)
+                .childOption(ChannelOption.TCP_NODELAY, tcpNoDelay)
+                .childOption(ChannelOption.ALLOCATOR, allocator)
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, waterMark);
+        if (reusePort) {
+            b.option(EpollChannelOption.SO_REUSEPORT, true);
+        }
+        return b;
+    }
+
+    /**
+     * 설정된 acceptor 수만큼 같은 주소에 바인드한다. SO_REUSEPORT를 사용하지 않으면 하나만 바인드한다.
+     */
+    public List<Channel> bind(ServerBootstrap b, SocketAddress address) throws InterruptedException {
+        List<Channel> channels = new ArrayList<Channel>(acceptorCount);
+        for (int i = 0; i < acceptorCount; i++) {
+            channels.add(b.bind(address).sync().channel());
+        }
+        return channels;
+    }
+
+    private Class<? extends ServerChannel> serverChannelClass() {
+        return epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class;
+    }
+}
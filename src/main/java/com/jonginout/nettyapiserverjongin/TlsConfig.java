@@ -0,0 +1,174 @@
+package com.jonginout.nettyapiserverjongin;
+
+import io.netty.handler.ssl.DelegatingSslContext;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.OpenSslSessionContext;
+import io.netty.handler.ssl.OpenSslSessionTicketKey;
+import io.netty.handler.ssl.ReferenceCountedOpenSslEngine;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.SelfSignedCertificate;
+import io.netty.internal.tcnative.SSL;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.net.ssl.SSLEngine;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.security.cert.CertificateException;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * TLS 포트의 SSL 설정.
+ *
+ * 인증서와 개인 키는 파일에서 읽고, netty-tcnative(BoringSSL)를 사용할 수 있으면 OpenSSL 엔진을, 아니면 JDK 엔진을 사용한다.
+ * 세션 캐시와 세션 티켓으로 다시 연결하는 클라이언트가 전체 핸드셰이크(인증서 서명, 키 교환)를 반복하지 않게 한다.
+ *
+ * 세션 티켓 키 파일이 없으면 기동할 때 임의의 키를 만들므로, 여러 서버가 티켓을 함께 쓰려면 같은 키 파일을 지정한다.
+ * 키 파일은 48byte(이름 16, HMAC 키 16, AES 키 16) 단위이며 첫 키로 티켓을 만들고 나머지 키는 이전 티켓을 여는 데만 쓴다.
+ */
+public class TlsConfig {
+    private static final Logger logger = LogManager.getLogger(TlsConfig.class);
+
+    private final SslProvider provider;
+
+    private final String certPath;
+
+    private final String keyPath;
+
+    private final String keyPassword;
+
+    private final long sessionCacheSize;
+
+    private final long sessionTimeoutSeconds;
+
+    private final boolean sessionTickets;
+
+    private final String ticketKeyPath;
+
+    /**
+     * @param provider 사용할 TLS 구현 (auto, openssl, jdk)
+     * @param certPath PEM 인증서(체인) 파일. 비어 있으면 개발용 자체 서명 인증서를 만든다.
+     * @param keyPath  PKCS#8 PEM 개인 키 파일
+     */
+    public TlsConfig(String provider, String certPath, String keyPath, String keyPassword, long sessionCacheSize,
+                     long sessionTimeoutSeconds, boolean sessionTickets, String ticketKeyPath) {
+        this.provider = selectProvider(provider.trim().toLowerCase(Locale.ROOT));
+        this.certPath = certPath.trim();
+        this.keyPath = keyPath.trim();
+        this.keyPassword = keyPassword;
+        this.sessionCacheSize = sessionCacheSize;
+        this.sessionTimeoutSeconds = sessionTimeoutSeconds;
+        this.sessionTickets = sessionTickets;
+        this.ticketKeyPath = ticketKeyPath.trim();
+
+        logger.info("tls provider : " + this.provider
+                + (this.provider == SslProvider.OPENSSL ? " (" + OpenSsl.versionString() + ")" : ""));
+    }
+
+    private static SslProvider selectProvider(String type) {
+        switch (type) {
+            case "jdk":
+                return SslProvider.JDK;
+            case "openssl":
+                if (!OpenSsl.isAvailable()) {
+                    throw new IllegalStateException("OpenSSL TLS 구현을 사용할 수 없습니다.", OpenSsl.unavailabilityCause());
+                }
+                return SslProvider.OPENSSL;
+            case "auto":
+                return OpenSsl.isAvailable() ? SslProvider.OPENSSL : SslProvider.JDK;
+            default:
+                throw new IllegalArgumentException("tls.provider must be auto, openssl or jdk : " + type);
+        }
+    }
+
+    public SslProvider getProvider() {
+        return provider;
+    }
+
+    /**
+     * 서버 SSL 컨텍스트를 만든다. HTTP/2를 사용하면 ALPN도 설정한다.
+     */
+    public SslContext newServerContext(Http2Config http2Config) throws CertificateException, IOException {
+        SslContextBuilder builder;
+        if (certPath.isEmpty()) {
+            logger.warn("tls.cert.path가 없어 개발용 자체 서명 인증서를 만듭니다.");
+            SelfSignedCertificate ssc = new SelfSignedCertificate();
+            builder = SslContextBuilder.forServer(ssc.certificate(), ssc.privateKey());
+        } else {
+            builder = SslContextBuilder.forServer(new File(certPath), new File(keyPath),
+                    keyPassword.isEmpty() ? null : keyPassword);
+        }
+        builder.sslProvider(provider)
+                .sessionCacheSize(sessionCacheSize)
+                .sessionTimeout(sessionTimeoutSeconds);
+
+        return configureTickets(http2Config.configure(builder, provider).build());
+    }
+
+    /**
+     * 핸드셰이크를 마친 엔진이 세션 캐시나 세션 티켓으로 이전 세션을 다시 사용했는지 여부.
+     * OpenSSL 세션의 생성 시각은 초 단위이므로 엔진에 직접 묻고, JDK 엔진은 세션이 연결 전에 만들어졌는지로 판단한다.
+     *
+     * @param startMillis 연결을 받은 시각
+     */
+    public static boolean isSessionReused(SSLEngine engine, long startMillis) {
+        if (engine instanceof ReferenceCountedOpenSslEngine) {
+            long ssl = ((ReferenceCountedOpenSslEngine) engine).sslPointer();
+            return ssl != 0 && SSL.isSessionReused(ssl);
+        }
+        return engine.getSession().getCreationTime() < startMillis;
+    }
+
+    /**
+     * OpenSSL 엔진은 지정한 티켓 키로 세션 티켓을 발급하고, 티켓을 끄면 세션 캐시(세션 ID)로만 재개한다.
+     * JDK 엔진은 jdk.tls.server.enableSessionTicketExtension 시스템 속성을 따른다.
+     */
+    private SslContext configureTickets(SslContext context) throws IOException {
+        if (!(context.sessionContext() instanceof OpenSslSessionContext)) {
+            return context;
+        }
+        if (sessionTickets) {
+            ((OpenSslSessionContext) context.sessionContext()).setTicketKeys(ticketKeys());
+            return context;
+        }
+        // netty는 티켓 키를 지정하지 않아도 티켓을 발급하므로 엔진마다 티켓을 끈다.
+        return new DelegatingSslContext(context) {
+            @Override
+            protected void initEngine(SSLEngine engine) {
+                SSL.setOptions(((ReferenceCountedOpenSslEngine) engine).sslPointer(), SSL.SSL_OP_NO_TICKET);
+            }
+        };
+    }
+
+    private OpenSslSessionTicketKey[] ticketKeys() throws IOException {
+        byte[] bytes;
+        if (ticketKeyPath.isEmpty()) {
+            bytes = new byte[OpenSslSessionTicketKey.TICKET_KEY_SIZE];
+            new SecureRandom().nextBytes(bytes);
+        } else {
+            bytes = Files.readAllBytes(Paths.get(ticketKeyPath));
+            if (bytes.length == 0 || bytes.length % OpenSslSessionTicketKey.TICKET_KEY_SIZE != 0) {
+                throw new IllegalArgumentException("session ticket key file must be a multiple of "
+                        + OpenSslSessionTicketKey.TICKET_KEY_SIZE + " bytes : " + ticketKeyPath);
+            }
+        }
+
+        int keySize = OpenSslSessionTicketKey.TICKET_KEY_SIZE;
+        OpenSslSessionTicketKey[] keys = new OpenSslSessionTicketKey[bytes.length / keySize];
+        for (int i = 0; i < keys.length; i++) {
+            int name = i * keySize;
+            int hmac = name + OpenSslSessionTicketKey.NAME_SIZE;
+            int aes = hmac + OpenSslSessionTicketKey.HMAC_KEY_SIZE;
+            keys[i] = new OpenSslSessionTicketKey(Arrays.copyOfRange(bytes, name, hmac),
+                    Arrays.copyOfRange(bytes, hmac, aes),
+                    Arrays.copyOfRange(bytes, aes, aes + OpenSslSessionTicketKey.AES_KEY_SIZE));
+        }
+        return keys;
+    }
+}
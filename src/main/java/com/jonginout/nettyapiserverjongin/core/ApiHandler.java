@@ -0,0 +1,21 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.google.gson.JsonObject;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 요청마다 객체를 만들지 않는 API 서비스.
+ * 빈은 싱글톤으로 한 번만 만들어지고 요청 컨텍스트를 인자로 받으므로,
+ * 여러 이벤트 루프와 업무 스레드에서 동시에 호출된다. 요청별 상태를 필드에 두면 안 된다.
+ */
+public interface ApiHandler {
+    /**
+     * 요청을 처리하고 처리 결과를 돌려준다. 업무 오류는 resultCode로 표현하고,
+     * 예상하지 못한 예외만 예외로 완료된다. 채널이 닫히거나 요청 시간이 초과되면 돌려준 CompletionStage를 취소(cancel)한다.
+     * 여러 요청이 함께 기다리는 CompletionStage를 그대로 돌려주면 한 요청의 취소가 다른 요청에도 전달되므로,
+     * 아직 완료되지 않은 CompletionStage는 요청마다 새로 만들어 돌려주어야 한다.
+     * 이미 완료된 CompletionStage는 취소해도 바뀌지 않으므로 {@link ErrorResponse#getStage()}처럼 여러 요청이 같이 돌려받아도 된다.
+     */
+    public CompletionStage<JsonObject> execute(ApiRequestContext context);
+}
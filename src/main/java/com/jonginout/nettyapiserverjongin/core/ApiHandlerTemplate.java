@@ -0,0 +1,93 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.service.RequestParamException;
+import com.jonginout.nettyapiserverjongin.service.ServiceException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * ApiHandler의 기본 구현. AsyncApiRequestTemplate과 같은 방식으로
+ * 정합성 검사 실패는 405, ServiceException은 501로 응답한다.
+ * 처리 결과 JsonObject는 요청마다 handle에서 새로 만들어 돌려준다.
+ *
+ * 정합성 검사 실패는 예외 없이 {@link #validate}의 결과로 판단하고, 미리 만들어 둔 405 응답을 돌려준다.
+ */
+public abstract class ApiHandlerTemplate implements ApiHandler {
+    protected final Logger logger = LogManager.getLogger(this.getClass());
+
+    /**
+     * API를 호출하는 HTTP 요청의 파라미터 값이 입력되었는지 검증하는 메서드.
+     * 새 핸들러는 예외를 만들지 않는 {@link #validate}를 재정의한다.
+     */
+    public void requestParamValidation(ApiRequestContext context) throws RequestParamException {
+    }
+
+    /**
+     * 요청 파라미터가 잘못되었으면 그 이유를, 올바르면 null을 돌려준다.
+     * 기본 구현은 requestParamValidation을 호출하여 예외로 검사하는 핸들러를 지원한다.
+     */
+    protected String validate(ApiRequestContext context) {
+        try {
+            this.requestParamValidation(context);
+            return null;
+        } catch (RequestParamException e) {
+            return String.valueOf(e.getMessage());
+        }
+    }
+
+    /**
+     * 각 API 서비스에 따른 개별 구현 메서드. 처리 중 발생한 ServiceException은 예외로 완료시키면 된다.
+     */
+    public abstract CompletionStage<JsonObject> handle(ApiRequestContext context) throws ServiceException;
+
+    @Override
+    public final CompletionStage<JsonObject> execute(ApiRequestContext context) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("request data : {}", context.asMap());
+        }
+
+        // 정합성 검사. 잘못된 요청은 클라이언트의 오류이므로 debug로만 남긴다.
+        String invalid = this.validate(context);
+        if (invalid != null) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("invalid request parameter : {}", invalid);
+            }
+            return ErrorResponse.INVALID_PARAMETER.getStage();
+        }
+
+        CompletionStage<JsonObject> stage;
+        try {
+            stage = this.handle(context);
+        } catch (ServiceException e) {
+            logger.error(e);
+            return CompletableFuture.completedFuture(resultOf("501"));
+        }
+
+        return stage.handle((result, e) -> {
+            if (e == null) {
+                return result != null ? result : new JsonObject();
+            }
+
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof ServiceException) {
+                logger.error(cause);
+                return resultOf("501");
+            }
+            throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+        });
+    }
+
+    /**
+     * resultCode만 가진 처리 결과
+     */
+    protected static JsonObject resultOf(String resultCode) {
+        JsonObject apiResult = new JsonObject();
+        apiResult.addProperty("resultCode", resultCode);
+        return apiResult;
+    }
+}
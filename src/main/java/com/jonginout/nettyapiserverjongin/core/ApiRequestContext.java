@@ -0,0 +1,320 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.util.AsciiString;
+
+import java.net.SocketAddress;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * HTTP 요청 하나의 데이터를 담는 요청 컨텍스트.
+ * 메서드, 경로, 쿼리 파라미터, 선언된 헤더, 경로 변수와 본문 값을 각각의 슬롯에 보관한다.
+ *
+ * 인스턴스는 채널마다 재사용된다. 응답을 기록하면 recycle로 비워지며, 그 뒤에 이전 요청의 맵 뷰({@link #asMap()})에
+ * 접근하면 다음 요청의 값을 읽는 대신 IllegalStateException이 발생한다.
+ */
+public final class ApiRequestContext {
+    /**
+     * 요청 데이터 맵에서 URI와 메서드를 가리키는 키. 이전 reqData 맵과의 호환을 위해 남겨 둔다.
+     */
+    public static final String REQUEST_URI = "REQUEST_URI";
+
+    public static final String REQUEST_METHOD = "REQUEST_METHOD";
+
+    /**
+     * API 서비스가 사용하는 헤더. 이 목록에 없는 헤더는 컨텍스트로 옮기지 않는다.
+     */
+    private static final AsciiString[] DECLARED_HEADERS = {
+            AsciiString.cached("token"),
+            AsciiString.cached("email"),
+            AsciiString.cached("test")
+    };
+
+    private HttpMethod method;
+
+    private String uri;
+
+    // uri에서 경로가 끝나는 위치. 경로 문자열은 필요할 때만 만든다.
+    private int pathEnd;
+
+    private QueryStringDecoder query;
+
+    private final String[] headers = new String[DECLARED_HEADERS.length];
+
+    private final Map<String, String> pathVariables = new HashMap<String, String>(4);
+
+    private final Map<String, String> bodyAttributes = new HashMap<String, String>(8);
+
+    // RPC 리스너로 들어온 서비스 간 호출인지 여부
+    private boolean internal;
+
+    // 요청을 보낸 클라이언트의 주소. 묶음 요청의 하위 요청을 입장 제어할 때 사용한다.
+    private SocketAddress remoteAddress;
+
+    private int generation;
+
+    /**
+     * 요청 헤더를 받았을 때 호출한다.
+     */
+    void init(HttpMethod method, String uri, HttpHeaders httpHeaders) {
+        this.method = method;
+        this.uri = uri;
+        int end = uri.indexOf('?');
+        this.pathEnd = end < 0 ? uri.length() : end;
+        if (!httpHeaders.isEmpty()) {
+            for (int i = 0; i < DECLARED_HEADERS.length; i++) {
+                headers[i] = httpHeaders.get(DECLARED_HEADERS[i]);
+            }
+        }
+    }
+
+    /**
+     * HTTP 이외의 프로토콜에서 요청 컨텍스트를 채울 때 사용한다.
+     */
+    public void init(String method, String uri) {
+        this.method = HttpMethod.valueOf(method);
+        this.uri = uri;
+        int end = uri.indexOf('?');
+        this.pathEnd = end < 0 ? uri.length() : end;
+    }
+
+    /**
+     * 응답을 기록한 뒤 다음 요청을 위해 비운다.
+     */
+    void recycle() {
+        generation++;
+        method = null;
+        uri = null;
+        pathEnd = 0;
+        query = null;
+        for (int i = 0; i < headers.length; i++) {
+            headers[i] = null;
+        }
+        pathVariables.clear();
+        bodyAttributes.clear();
+        internal = false;
+        remoteAddress = null;
+    }
+
+    public HttpMethod getMethod() {
+        return method;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public String getPath() {
+        return pathEnd == uri.length() ? uri : uri.substring(0, pathEnd);
+    }
+
+    public String getQueryParam(String name) {
+        List<String> values = getQueryParams().get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    public Map<String, List<String>> getQueryParams() {
+        if (pathEnd == uri.length()) {
+            return Collections.emptyMap();
+        }
+        if (query == null) {
+            query = new QueryStringDecoder(uri);
+        }
+        return query.parameters();
+    }
+
+    /**
+     * 선언된 헤더의 값. 선언되지 않은 헤더는 항상 null이다.
+     */
+    public String getHeader(CharSequence name) {
+        for (int i = 0; i < DECLARED_HEADERS.length; i++) {
+            if (DECLARED_HEADERS[i].contentEqualsIgnoreCase(name)) {
+                return headers[i];
+            }
+        }
+        return null;
+    }
+
+    public void setHeader(CharSequence name, String value) {
+        for (int i = 0; i < DECLARED_HEADERS.length; i++) {
+            if (DECLARED_HEADERS[i].contentEqualsIgnoreCase(name)) {
+                headers[i] = value;
+                return;
+            }
+        }
+    }
+
+    /**
+     * 다른 요청 컨텍스트의 선언된 헤더와 클라이언트 주소를 복사한다.
+     * 묶음 요청의 하위 요청이 묶음 요청의 token 같은 헤더를 물려받고, 같은 클라이언트의 요청으로 입장 제어를 받는다.
+     */
+    public void copyHeaders(ApiRequestContext from) {
+        System.arraycopy(from.headers, 0, headers, 0, headers.length);
+        remoteAddress = from.remoteAddress;
+    }
+
+    /**
+     * 요청을 보낸 클라이언트의 주소. HTTP/2 스트림은 부모 연결의 주소이고, HTTP 이외의 프로토콜로 들어왔으면 null이다.
+     */
+    public SocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    public void setRemoteAddress(SocketAddress remoteAddress) {
+        this.remoteAddress = remoteAddress;
+    }
+
+    /**
+     * RPC 리스너로 들어온 서비스 간 호출이면 true다. 클러스터 노드 사이의 내부 라우트는 이 값이 true일 때만 처리한다.
+     * copyHeaders로 옮겨지지 않으므로 묶음 요청의 하위 요청은 항상 false다.
+     */
+    public boolean isInternal() {
+        return internal;
+    }
+
+    public void setInternal(boolean internal) {
+        this.internal = internal;
+    }
+
+    public String getPathVariable(String name) {
+        return pathVariables.get(name);
+    }
+
+    /**
+     * 라우팅 테이블이 경로 변수를 채우는 맵
+     */
+    public Map<String, String> pathVariables() {
+        return pathVariables;
+    }
+
+    public String getBodyAttribute(String name) {
+        return bodyAttributes.get(name);
+    }
+
+    /**
+     * 본문 디코더가 form 값과 JSON 필드를 채우는 맵
+     */
+    public Map<String, String> bodyAttributes() {
+        return bodyAttributes;
+    }
+
+    /**
+     * 요청 데이터 맵의 get과 같다. 본문, 경로 변수, REQUEST_URI/REQUEST_METHOD, 헤더 순서로 값을 찾는다.
+     */
+    public String get(String name) {
+        return lookup(name);
+    }
+
+    /**
+     * 이전 reqData와 같은 모양의 맵 뷰. 값은 본문, 경로 변수, REQUEST_URI/REQUEST_METHOD, 헤더 순서로 찾는다.
+     * put은 본문 값 슬롯에 기록된다. 이 뷰는 요청 컨텍스트가 재사용되기 전까지만 유효하다.
+     */
+    public Map<String, String> asMap() {
+        return new MapView(this, generation);
+    }
+
+    /**
+     * reqData 맵이 요청 컨텍스트의 뷰이면 그 컨텍스트를, 아니면 null을 돌려준다.
+     */
+    public static ApiRequestContext from(Map<String, String> reqData) {
+        return reqData instanceof MapView ? ((MapView) reqData).checked() : null;
+    }
+
+    private String lookup(String key) {
+        String value = bodyAttributes.get(key);
+        if (value != null) {
+            return value;
+        }
+        value = pathVariables.get(key);
+        if (value != null) {
+            return value;
+        }
+        if (REQUEST_URI.equals(key)) {
+            return uri;
+        }
+        if (REQUEST_METHOD.equals(key)) {
+            return method == null ? null : method.name();
+        }
+        return getHeader(key);
+    }
+
+    private Map<String, String> snapshot() {
+        Map<String, String> all = new LinkedHashMap<String, String>();
+        for (int i = 0; i < DECLARED_HEADERS.length; i++) {
+            if (headers[i] != null) {
+                all.put(DECLARED_HEADERS[i].toString(), headers[i]);
+            }
+        }
+        if (uri != null) {
+            all.put(REQUEST_URI, uri);
+            all.put(REQUEST_METHOD, method.name());
+        }
+        all.putAll(pathVariables);
+        all.putAll(bodyAttributes);
+        return all;
+    }
+
+    private static final class MapView extends AbstractMap<String, String> {
+        private final ApiRequestContext context;
+
+        private final int generation;
+
+        private MapView(ApiRequestContext context, int generation) {
+            this.context = context;
+            this.generation = generation;
+        }
+
+        private ApiRequestContext checked() {
+            if (context.generation != generation) {
+                throw new IllegalStateException("요청 처리가 끝난 뒤에 요청 데이터에 접근했습니다.");
+            }
+            return context;
+        }
+
+        @Override
+        public String get(Object key) {
+            return key instanceof String ? checked().lookup((String) key) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public String put(String key, String value) {
+            String previous = checked().lookup(key);
+            if (REQUEST_URI.equals(key) || REQUEST_METHOD.equals(key)) {
+                throw new UnsupportedOperationException(key);
+            }
+            context.bodyAttributes.put(key, value);
+            return previous;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            final Map<String, String> snapshot = checked().snapshot();
+            return new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return Collections.unmodifiableMap(snapshot).entrySet().iterator();
+                }
+
+                @Override
+                public int size() {
+                    return snapshot.size();
+                }
+            };
+        }
+    }
+}
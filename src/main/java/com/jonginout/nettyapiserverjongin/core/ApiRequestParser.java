@@ -1,192 +1,720 @@
 package com.jonginout.nettyapiserverjongin.core;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.core.ResponseCompressor.Encoding;
+import com.jonginout.nettyapiserverjongin.core.accesslog.AccessLog;
+import com.jonginout.nettyapiserverjongin.core.accesslog.AccessRecord;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics.CacheResult;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics.Phase;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics.Timeout;
+import com.jonginout.nettyapiserverjongin.core.route.ApiRequestFactory;
+import com.jonginout.nettyapiserverjongin.core.route.Route;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.*;
-import io.netty.handler.codec.http.multipart.*;
-import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder.ErrorDataDecoderException;
-import io.netty.handler.codec.http.multipart.InterfaceHttpData.HttpDataType;
-import io.netty.util.CharsetUtil;
+import io.netty.handler.codec.http2.Http2StreamChannel;
+import io.netty.handler.timeout.IdleStateEvent;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-
-import static io.netty.handler.codec.http.HttpHeaders.Names.*;
+import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static io.netty.handler.codec.http.HttpHeaderNames.*;
 import static io.netty.handler.codec.http.HttpResponseStatus.*;
 import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
 /**
- * InboundHandler를 상속받고 있으며 이벤트 메서드가 실행될 때 FullHttpMessage를 데이터로 받는다.
+ * InboundHandler를 상속받고 있으며 이벤트 메서드가 실행될 때 HttpObject를 데이터로 받는다.
+ * 본문 스트리밍 모드에서는 HttpRequest와 HttpContent 조각을, 본문을 합치는 모드에서는 FullHttpRequest를 받는다.
  */
-public class ApiRequestParser extends SimpleChannelInboundHandler<FullHttpMessage> {
+public class ApiRequestParser extends SimpleChannelInboundHandler<HttpObject> {
     /**
      * log4j logger
      */
     private static final Logger logger = LogManager.getLogger(ApiRequestParser.class);
 
-    private HttpRequest request;
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=UTF-8";
 
-    private JsonObject apiResult;
+    private HttpRequest request;
 
-    private static final HttpDataFactory factory = new DefaultHttpDataFactory(DefaultHttpDataFactory.MINSIZE); // Disk
+    // 요청 헤더를 받았을 때 찾아 둔 라우트. 라우트별 본문 크기 제한에 사용한다.
+    private Route route;
 
     // 사용자가 전송한 HTTP 요청의 본문을 추출할 디코더를 멤버 변수로 등록
-    private HttpPostRequestDecoder decoder;
+    private RequestBodyDecoder decoder;
+
+    private long bodySize;
+
+    private long maxBodySize;
+
+    // 본문 크기 제한을 넘어 413으로 응답한 요청의 나머지 조각을 버리는 중인지 여부
+    private boolean discarding;
+
+    // 처리 중인 요청의 컨텍스트
+    private ApiRequestContext context;
+
+    // 응답을 기록한 뒤 돌려받은 요청 컨텍스트. 이 채널의 다음 요청에서 재사용한다.
+    private final ArrayDeque<ApiRequestContext> contextPool = new ArrayDeque<ApiRequestContext>(2);
+
+    // 처리 중인 요청의 접근 로그 항목과, 응답을 기록한 뒤 돌려받아 다음 요청에서 재사용할 항목
+    private AccessRecord requestRecord;
+
+    private final ArrayDeque<AccessRecord> recordPool = new ArrayDeque<AccessRecord>(2);
+
+    // API 서비스를 실행할 업무 실행기
+    private final ServiceExecutor serviceExecutor;
+
+    private final HttpBodyConfig bodyConfig;
+
+    private final ApiMetrics metrics;
+
+    // ApiRoute의 cacheTtlMillis를 지정한 GET 라우트의 인코딩된 응답 캐시
+    private final ResponseCache responseCache;
+
+    // 응답 본문 압축. 라우트 설정과 요청의 Accept-Encoding으로 요청마다 방식을 정한다.
+    private final ResponseCompressor compressor;
+
+    // 처리 중인 요청의 헤더를 받은 시각과 라우트 조회에 걸린 시간(ns)
+    private long requestStartNanos;
+
+    private long routeNanos;
+
+    // channelRead0와 channelReadComplete 사이인지 여부. 이 사이에 기록된 응답은 channelReadComplete에서 flush 된다.
+    private boolean reading;
+
+    // 파이프라이닝된 요청의 응답을 요청 순서대로 기록한다.
+    private final ResponseSequencer responses = new ResponseSequencer();
+
+    // 처리 중인 요청의 응답 순번
+    private long seq;
 
-    private Map<String, String> reqData = new HashMap<String, String>();
+    // 읽기 밖에서 기록된 응답을 모아 한 번에 flush 하도록 예약했는지 여부
+    private boolean flushPending;
 
-    private static final Set<String> usingHeader = new HashSet<String>();
+    // keep-alive가 아닌 요청을 받은 뒤에는 이후 요청을 처리하지 않는다.
+    private boolean closing;
 
-    static {
-        usingHeader.add("token");
-        usingHeader.add("email");
-        usingHeader.add("test");
+    // 실행 중인 API 서비스 수와 종료 중인지 여부. 종료 중에는 마지막 응답에 Connection: close를 붙이고 연결을 닫는다.
+    private final ServerLifecycle lifecycle;
+
+    // 응답을 기록할 때 요청마다 한 줄씩 남기는 접근 로그
+    private final AccessLog accessLog;
+
+    public ApiRequestParser(ServiceExecutor serviceExecutor, HttpBodyConfig bodyConfig, ApiMetrics metrics,
+                            ResponseCache responseCache, ResponseCompressor compressor, ServerLifecycle lifecycle,
+                            AccessLog accessLog) {
+        this.serviceExecutor = serviceExecutor;
+        this.bodyConfig = bodyConfig;
+        this.metrics = metrics;
+        this.responseCache = responseCache;
+        this.compressor = compressor;
+        this.lifecycle = lifecycle;
+        this.accessLog = accessLog;
     }
 
     @Override
     public void channelReadComplete(ChannelHandlerContext ctx) {
-        logger.info("요청 처리 완료");
         /**
          * channelRead0 이벤트 메서드의 수행이 완료된 이후에 channelReadComplete가 호출되고
          * 이때 채널 버퍼의 내용을 클라이언트로 전송한다.
          */
+        reading = false;
         ctx.flush();
     }
 
     /**
      * 클라리언트가 전송한 데이터가 채널 파이프라인의 모든 디코더를 거치고 난 뒤에 호출된다.
-     * 메서드 호출에 입력되는 객체는 FullHttpMessage 인터페이스의 구현체고 HTTP 프로토콜의 모든 데이터가 포함되어있다.
+     * 헤더(HttpRequest)를 받으면 라우트를 찾고, 본문 조각(HttpContent)은 도착하는 대로 디코딩하며,
+     * 마지막 조각(LastHttpContent)에서 API 서비스를 실행한다.
      */
     @Override
-    protected void channelRead0(ChannelHandlerContext ctx, FullHttpMessage msg) {
+    protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg) {
+        reading = true;
+        if (closing) {
+            return;
+        }
+
         // Request header 처리.
-        // FullHttpMessage는 HttpRequest, HttpMessage, HttpContent의 최상위 객체
         if (msg instanceof HttpRequest) {
             this.request = (HttpRequest) msg;
-
-            if (HttpHeaders.is100ContinueExpected(request)) {
-                send100Continue(ctx);
+            requestStartNanos = System.nanoTime();
+
+            // 메서드, URI와 ApiRequestContext에 선언된 헤더만 요청 컨텍스트로 옮긴다.
+            context = contextPool.isEmpty() ? new ApiRequestContext() : contextPool.poll();
+            context.init(request.method(), request.uri(), request.headers());
+            context.setRemoteAddress(remoteAddress(ctx));
+            seq = responses.next();
+            requestRecord = newRecord(ctx, request.protocolVersion().text(), request.method().name(), request.uri(),
+                    requestStartNanos);
+
+            long routeStart = System.nanoTime();
+            route = ServiceDispatcher.route(context);
+            routeNanos = System.nanoTime() - routeStart;
+            requestRecord.route(route, metrics.route(route.getName()));
+            maxBodySize = bodyConfig.resolveMaxBodySize(route.getMaxBodySize());
+            if (HttpUtil.getContentLength(request, 0L) > maxBodySize) {
+                // 본문을 받기 전에 거절한다. 100-continue를 기다리는 클라이언트는 본문을 보내지 않는다.
+                rejectTooLarge(ctx);
+                discarding = !(msg instanceof LastHttpContent);
+                return;
             }
 
-            // 헤더 정보 추출
-            HttpHeaders headers = request.headers();
-            if (!headers.isEmpty()) {
-                for (Map.Entry<String, String> h : headers) {
-                    String key = h.getKey();
-                    if (usingHeader.contains(key)) {
-                        reqData.put(key, h.getValue());
-                    }
-                }
+            if (HttpUtil.is100ContinueExpected(request)) {
+                send100Continue(ctx);
             }
 
-            reqData.put("REQUEST_URI", request.getUri());
-            reqData.put("REQUEST_METHOD", request.getMethod().name());
+            decoder = RequestBodyDecoder.create(bodyConfig.getDataFactory(), request, ctx.alloc());
         }
 
         // Request content 처리.
         if (msg instanceof HttpContent) {
+            if (discarding) {
+                if (msg instanceof LastHttpContent) {
+                    discarding = false;
+                }
+                return;
+            }
+
+            HttpContent content = (HttpContent) msg;
+            bodySize += content.content().readableBytes();
+            if (bodySize > maxBodySize) {
+                rejectTooLarge(ctx);
+                discarding = !(msg instanceof LastHttpContent);
+                return;
+            }
+
+            // POST 데이터 추출
+            if (decoder != null) {
+                decoder.offer(content, context.bodyAttributes());
+            }
+
             /**
              * HttpContent의 상위 인터페이스인 LastHttpContent는 모든 HTTP가 디코딩되었고
              * HTTP 프로토콜의 마지막 데이터임을 알리는 인터페이스
              */
             if (msg instanceof LastHttpContent) {
-                logger.debug("LastHttpContent message received!!" + request.getUri());
+                if (logger.isDebugEnabled()) {
+                    logger.debug("LastHttpContent message received!!" + request.uri());
+                }
 
                 LastHttpContent trailer = (LastHttpContent) msg;
-
-                // POST 데이터 추출
-                readPostData();
+                if (decoder != null) {
+                    decoder.finish(context.bodyAttributes());
+                }
 
                 /**
-                 * HTTP 프로토콜에서 필요한 데이터의 추출이 완료되면 reqData 맵을 ServiceDispatcher 클래스의
-                 * dispatch 메서드를 호출하여 HTTP 요청에 맞는 API 서비스 클래스를 생성한다.
+                 * HTTP 프로토콜에서 필요한 데이터의 추출이 완료되면 헤더를 받을 때 찾아 둔 라우트로
+                 * HTTP 요청에 맞는 API 서비스 클래스를 생성하여 실행한다.
+                 * 요청 컨텍스트는 응답을 기록할 때까지 이 요청이 사용하고, 다음 요청은 다른 컨텍스트를 받는다.
                  */
-                ApiRequest service = ServiceDispatcher.dispatch(reqData);
+                ApiRequestContext data = context;
+                context = null;
+                AccessRecord target = requestRecord;
+                requestRecord = null;
+                Route targetRoute = route;
+                HttpHeaders requestHeaders = request.headers();
+                target.setBytesIn(bodySize);
+                target.record(Phase.DECODE, System.nanoTime() - requestStartNanos - routeNanos);
+                boolean keepAlive = HttpUtil.isKeepAlive(request);
+                boolean decoded = request.decoderResult().isSuccess() && trailer.decoderResult().isSuccess();
+                reset();
+                closing = !keepAlive;
 
-                try {
-                    // ServiceDispatcher 클래스의 dispatch 메서드로부터 생성된 API 서비스 클래스를 실행한다.
+                executeService(ctx, seq, targetRoute, target, data, requestHeaders, keepAlive, decoded);
+            }
+        }
+    }
+
+    /**
+     * 라우트의 본문 크기 제한을 넘은 요청에 413으로 응답하고 연결을 닫는다.
+     */
+    private void rejectTooLarge(ChannelHandlerContext ctx) {
+        AccessRecord target = requestRecord;
+        requestRecord = null;
+        target.setBytesIn(bodySize);
+        recycle(context);
+        context = null;
+        reset();
+
+        writeError(ctx, seq, target, REQUEST_ENTITY_TOO_LARGE, ErrorResponse.REQUEST_ENTITY_TOO_LARGE, false);
+        closing = true;
+    }
+
+    /**
+     * API 서비스를 라우트에 지정된 실행 방식으로 실행하고, 결과는 채널의 이벤트 루프에서 기록한다.
+     * 업무 스레드 풀의 대기열이 가득 차 있으면 서비스를 실행하지 않고 바로 503으로 응답한다.
+     *
+     * AsyncApiRequest는 돌려받은 CompletionStage가 완료될 때 응답하며, 이벤트 루프에서 바로 끝나지 않은 요청은
+     * 제한 시간이 지나면 504로 응답하고 채널이 닫히면 취소된다.
+     * 싱글톤 핸들러 라우트는 서비스 객체를 만들지 않고 요청 컨텍스트로 핸들러를 바로 호출한다.
+     * 응답 캐시에 있는 요청은 서비스를 실행하지 않고 캐시된 본문이나 304로 바로 응답한다.
+     *
+     * 서버 종료 시 실행 중인 서비스가 끝나기를 기다릴 수 있도록, 서비스 실행부터 서비스 자신이 끝날 때까지를
+     * ServerLifecycle에 알린다. 제한 시간이 지나 504로 응답한 서비스도 끝날 때까지 센다.
+     */
+    private void executeService(final ChannelHandlerContext ctx, final long seq, Route route,
+                                final AccessRecord record, final ApiRequestContext data, HttpHeaders requestHeaders,
+                                final boolean keepAlive, final boolean decoded) {
+        long createStart = System.nanoTime();
+        final Encoding encoding = route.isCompress()
+                ? compressor.negotiate(requestHeaders.get(ACCEPT_ENCODING)) : Encoding.NONE;
+        final CacheRequest cacheRequest = cacheRequest(route, data, requestHeaders, encoding);
+        if (cacheRequest != null) {
+            ResponseCache.Entry cached = responseCache.get(cacheRequest.key);
+            if (cached != null) {
+                long encodeStart = System.nanoTime();
+                record.record(Phase.DISPATCH, routeNanos + encodeStart - createStart);
+                metrics.countCache(cached.matches(cacheRequest.ifNoneMatch)
+                        ? CacheResult.NOT_MODIFIED : CacheResult.HIT);
+                writeCached(ctx, seq, record, encodeStart, cacheRequest, cached, keepAlive);
+                recycle(data);
+                return;
+            }
+            metrics.countCache(CacheResult.MISS);
+        }
+
+        final boolean resultCodeAsStatus = route.isResultCodeAsStatus();
+        final ApiHandler handler = route.getHandler();
+        final ApiRequestFactory factory = route.getFactory();
+        final ApiRequest service = handler == null ? factory.create(data.asMap()) : null;
+        final long serviceStart = System.nanoTime();
+        record.record(Phase.DISPATCH, routeNanos + serviceStart - createStart);
+
+        final CompletableFuture<JsonObject> result = new CompletableFuture<JsonObject>();
+        lifecycle.serviceStarted();
+        boolean accepted = serviceExecutor.execute(route.getExecutionMode(), () -> {
+            CompletionStage<JsonObject> stage;
+            try {
+                if (handler != null) {
+                    stage = handler.execute(data);
+                } else if (service instanceof AsyncApiRequest) {
+                    stage = ((AsyncApiRequest) service).executeServiceAsync();
+                } else {
+                    // ServiceDispatcher 클래스의 route 메서드로부터 생성된 API 서비스 클래스를 실행한다.
                     service.executeService();
+                    lifecycle.serviceFinished();
 
                     // 결과
-                    apiResult = service.getApiResult();
-                } finally {
-                    reqData.clear();
+                    result.complete(service.getApiResult());
+                    return;
+                }
+            } catch (RuntimeException e) {
+                lifecycle.serviceFinished();
+                result.completeExceptionally(e);
+                return;
+            }
+            ServiceDispatcher.cancelWhenAbandoned(result, stage);
+            stage.whenComplete((apiResult, e) -> {
+                lifecycle.serviceFinished();
+                if (e != null) {
+                    result.completeExceptionally(e);
+                } else {
+                    result.complete(apiResult);
                 }
+            });
+        });
+
+        if (!accepted) {
+            lifecycle.serviceFinished();
+            writeError(ctx, seq, record, SERVICE_UNAVAILABLE, ErrorResponse.SERVICE_UNAVAILABLE, keepAlive);
+            recycle(data);
+            if (service != null) {
+                factory.release(service);
+            }
+            return;
+        }
+
+        if (!result.isDone()) {
+            long timeoutMillis = serviceExecutor.resolveTimeoutMillis(route.getTimeoutMillis());
+            final ScheduledFuture<?> timeout = ctx.executor().schedule(
+                    () -> result.completeExceptionally(new TimeoutException()), timeoutMillis, TimeUnit.MILLISECONDS);
+            final ChannelFutureListener cancel = future -> result.cancel(true);
+            ctx.channel().closeFuture().addListener(cancel);
+            result.whenComplete((apiResult, e) -> {
+                timeout.cancel(false);
+                ctx.channel().closeFuture().removeListener(cancel);
+            });
+        }
 
-                // apiResult 멤버 변수에 저장된 API 처리 결과를 클라이언트 채널의 송신 버퍼에 기록한다.
-                if (!writeResponse(trailer, ctx)) {
-                    ctx.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
+        result.whenComplete((apiResult, e) -> {
+            record.record(Phase.SERVICE, System.nanoTime() - serviceStart);
+            Runnable write = () -> {
+                complete(ctx, seq, record, service, data, apiResult, e, cacheRequest, encoding, decoded,
+                        resultCodeAsStatus, keepAlive);
+                // 응답 기록이 끝난 서비스 객체만 생성기에 돌려준다. 시간 초과나 취소된 서비스는 아직 실행 중일 수 있다.
+                if (e == null && service != null) {
+                    factory.release(service);
                 }
-                reset();
+            };
+            if (ctx.executor().inEventLoop()) {
+                write.run();
+            } else {
+                ctx.executor().execute(write);
+            }
+        });
+    }
+
+    /**
+     * 서비스 처리 결과를 응답으로 기록한다. 채널 이벤트 루프에서만 호출된다.
+     *
+     * 서비스가 정상적으로 끝났을 때만 요청 컨텍스트를 재사용한다. 시간 초과나 취소된 서비스는
+     * 아직 요청 컨텍스트를 사용하고 있을 수 있기 때문이다.
+     * TextApiRequest가 정상적으로 끝나면 JSON 대신 텍스트 결과를 응답한다.
+     * 캐시를 사용하는 라우트의 resultCode 200 응답은 인코딩한 본문을 캐시에 넣은 뒤 캐시된 본문으로 응답한다.
+     * resultCodeAsStatus 라우트는 resultCode를 HTTP 상태 코드로 응답한다.
+     * 처리 결과가 {@link ErrorResponse}의 공유 결과이면 인코딩하지 않고 미리 만들어 둔 본문을 기록한다.
+     */
+    private void complete(ChannelHandlerContext ctx, long seq, AccessRecord record, ApiRequest service,
+                          ApiRequestContext data, JsonObject apiResult, Throwable e, CacheRequest cacheRequest,
+                          Encoding encoding, boolean decoded, boolean resultCodeAsStatus, boolean keepAlive) {
+        if (e == null) {
+            recycle(data);
+        }
+        if (!ctx.channel().isActive()) {
+            recycle(record);
+            return;
+        }
+
+        HttpResponseStatus status = decoded ? OK : BAD_REQUEST;
+        if (e != null) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            apiResult = new JsonObject();
+            if (cause instanceof TimeoutException) {
+                status = GATEWAY_TIMEOUT;
+                apiResult.addProperty("resultCode", "504");
+            } else if (cause instanceof CancellationException) {
+                recycle(record);
+                responses.complete(ctx, seq, null, false);
+                return;
+            } else {
+                logger.error("API 서비스 실행 실패", cause);
+                status = INTERNAL_SERVER_ERROR;
+                apiResult.addProperty("resultCode", "500");
+            }
+        } else if (resultCodeAsStatus && status == OK) {
+            status = statusOf(resultCode(apiResult, status));
+        }
+
+        if (e == null && service instanceof TextApiRequest) {
+            TextApiRequest textService = (TextApiRequest) service;
+            long encodeStart = System.nanoTime();
+            CharSequence text = textService.getTextResult();
+            ByteBuf content = ctx.alloc().ioBuffer(ByteBufUtil.utf8MaxBytes(text));
+            ByteBufUtil.writeUtf8(content, text);
+            writeResponse(ctx, seq, record, encodeStart, status, resultCode(apiResult, status), content,
+                    textService.getContentType(), encoding, keepAlive);
+            return;
+        }
+        if (cacheRequest != null && e == null && status == OK && "200".equals(resultCode(apiResult, status))) {
+            long encodeStart = System.nanoTime();
+            ByteBuf content = JsonByteBufWriter.encode(ctx.alloc(), apiResult);
+            ResponseCache.Entry entry = responseCache.put(cacheRequest.key, content, "200", cacheRequest.ttlMillis);
+            if (entry != null) {
+                content.release();
+                writeCached(ctx, seq, record, encodeStart, cacheRequest, entry, keepAlive);
+            } else {
+                writeResponse(ctx, seq, record, encodeStart, status, "200", content, JSON_CONTENT_TYPE,
+                        encoding, keepAlive);
+            }
+            return;
+        }
+        ErrorResponse error = e == null ? ErrorResponse.of(apiResult) : null;
+        if (error != null) {
+            writeError(ctx, seq, record, status, error, keepAlive);
+            return;
+        }
+        writeResponse(ctx, seq, record, status, apiResult, encoding, keepAlive);
+    }
+
+    /**
+     * 캐시를 사용하는 라우트의 GET 요청이면 캐시 키와 조건부 요청 헤더를 담아 돌려준다. 아니면 null이다.
+     */
+    private CacheRequest cacheRequest(Route route, ApiRequestContext data, HttpHeaders requestHeaders,
+                                      Encoding encoding) {
+        String key = responseCache.key(route, data);
+        if (key == null) {
+            return null;
+        }
+        return new CacheRequest(key, route.getCacheTtlMillis(), requestHeaders.get(IF_NONE_MATCH), encoding);
+    }
+
+    /**
+     * 캐시된 응답을 기록한다. If-None-Match가 ETag와 맞으면 본문 없이 304로 응답하고,
+     * 클라이언트가 gzip을 받으면 미리 압축해 둔 본문을 보낸다. 캐시된 본문은 응답마다 압축하지 않는다.
+     */
+    private void writeCached(ChannelHandlerContext ctx, long seq, AccessRecord record, long encodeStart,
+                             CacheRequest cacheRequest, ResponseCache.Entry entry, boolean keepAlive) {
+        FullHttpResponse response;
+        String resultCode;
+        if (entry.matches(cacheRequest.ifNoneMatch)) {
+            response = new DefaultFullHttpResponse(HTTP_1_1, NOT_MODIFIED, Unpooled.EMPTY_BUFFER);
+            resultCode = NOT_MODIFIED.codeAsText().toString();
+        } else {
+            ByteBuf gzipped = cacheRequest.encoding == Encoding.GZIP ? entry.gzipped() : null;
+            response = new DefaultFullHttpResponse(HTTP_1_1, OK, gzipped != null ? gzipped : entry.content());
+            response.headers().set(CONTENT_TYPE, JSON_CONTENT_TYPE);
+            if (gzipped != null) {
+                response.headers().set(CONTENT_ENCODING, HttpHeaderValues.GZIP);
+            }
+            if (entry.gzipped() != null) {
+                response.headers().set(VARY, ACCEPT_ENCODING);
             }
+            resultCode = entry.getResultCode();
+        }
+        response.headers().set(ETAG, entry.getEtag());
+        writeResponse(ctx, seq, record, encodeStart, resultCode, response, keepAlive);
+    }
+
+    private void recycle(ApiRequestContext data) {
+        data.recycle();
+        if (contextPool.size() < 2) {
+            contextPool.offer(data);
+        }
+    }
+
+    /**
+     * 채널의 풀에서 접근 로그 항목을 꺼내 요청 정보를 채운다. HTTP/2 스트림은 부모 연결의 주소를 기록한다.
+     */
+    private AccessRecord newRecord(ChannelHandlerContext ctx, String protocol, String method, String uri,
+                                   long startNanos) {
+        AccessRecord newRecord = recordPool.isEmpty() ? new AccessRecord() : recordPool.poll();
+        boolean stream = ctx.channel() instanceof Http2StreamChannel;
+        newRecord.start(remoteAddress(ctx), stream ? "HTTP/2" : protocol, method, uri, startNanos);
+        return newRecord;
+    }
+
+    private static SocketAddress remoteAddress(ChannelHandlerContext ctx) {
+        return ctx.channel() instanceof Http2StreamChannel
+                ? ctx.channel().parent().remoteAddress() : ctx.channel().remoteAddress();
+    }
+
+    private void recycle(AccessRecord used) {
+        used.clear();
+        if (recordPool.size() < 2) {
+            recordPool.offer(used);
         }
     }
 
     private void reset() {
         request = null;
+        route = null;
+        bodySize = 0;
+        if (decoder != null) {
+            decoder.destroy();
+            decoder = null;
+        }
     }
 
-    private void readPostData() {
-        try {
-            decoder = new HttpPostRequestDecoder(factory, request);
-            for (InterfaceHttpData data : decoder.getBodyHttpDatas()) {
-                if (HttpDataType.Attribute == data.getHttpDataType()) {
-                    try {
-                        Attribute attribute = (Attribute) data;
-                        reqData.put(attribute.getName(), attribute.getValue());
-                    } catch (IOException e) {
-                        logger.error("BODY Attribute: " + data.getHttpDataType().name(), e);
-                        return;
-                    }
-                } else {
-                    logger.info("BODY data : " + data.getHttpDataType().name() + ": " + data);
+    /**
+     * 서버 종료가 시작되었거나(DRAIN) 연결이 idle timeout 동안 쉬었으면 처리 중인 요청이 없을 때 연결을 닫는다.
+     * 종료 중에 처리 중인 요청이 있으면 마지막 응답을 기록할 때 닫는다.
+     * 요청을 제한 시간 안에 받지 못했으면(READ_TIMEOUT) 408로 응답하고 닫는다.
+     */
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt == ServerLifecycle.DRAIN || evt instanceof IdleStateEvent) {
+            if (request == null && responses.pending() == 0) {
+                if (evt != ServerLifecycle.DRAIN) {
+                    metrics.countTimeout(Timeout.IDLE);
                 }
+                closing = true;
+                ctx.close();
             }
-        } catch (ErrorDataDecoderException e) {
-            logger.error(e);
-        } finally {
-            if (decoder != null) {
-                decoder.destroy();
+            return;
+        }
+        if (evt == RequestReadTimeoutHandler.READ_TIMEOUT) {
+            if (!closing) {
+                rejectReadTimeout(ctx);
             }
+            return;
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+
+    /**
+     * 받고 있던 요청에 408로 응답하고 연결을 닫는다. 본문을 합치는 모드에서는 요청이 아직 이 핸들러에 오지 않았으므로
+     * 새 순번을 받아 앞선 요청의 응답 뒤에 기록한다.
+     */
+    private void rejectReadTimeout(ChannelHandlerContext ctx) {
+        AccessRecord target = requestRecord != null ? requestRecord
+                : newRecord(ctx, HTTP_1_1.text(), null, null, System.nanoTime());
+        requestRecord = null;
+        target.setBytesIn(bodySize);
+        long timeoutSeq = request != null ? seq : responses.next();
+        if (context != null) {
+            recycle(context);
+            context = null;
         }
+        reset();
+
+        writeError(ctx, timeoutSeq, target, REQUEST_TIMEOUT, ErrorResponse.REQUEST_TIMEOUT, false);
+        closing = true;
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        reset();
+        responses.releaseAll();
+        super.channelInactive(ctx);
+    }
+
+    /**
+     * API 처리 결과를 클라이언트 채널의 송신 버퍼에 기록한다. 반드시 채널의 이벤트 루프에서 호출해야 한다.
+     * 앞선 요청의 응답이 아직 없으면 요청 순서를 지키기 위해 보관해 두었다가 함께 기록한다.
+     * keep-alive 연결이 아니면 기록이 끝난 뒤 연결을 닫는다.
+     */
+    private void writeResponse(ChannelHandlerContext ctx, long seq, AccessRecord record,
+                               HttpResponseStatus status, JsonObject apiResult, Encoding encoding, boolean keepAlive) {
+        long encodeStart = System.nanoTime();
+        // 처리 결과는 채널 할당기의 풀 버퍼에 UTF-8로 바로 기록한다.
+        ByteBuf content = JsonByteBufWriter.encode(ctx.alloc(), apiResult);
+        writeResponse(ctx, seq, record, encodeStart, status, resultCode(apiResult, status), content,
+                JSON_CONTENT_TYPE, encoding, keepAlive);
     }
 
-    private boolean writeResponse(HttpObject currentObj, ChannelHandlerContext ctx) {
-        // Decide whether to close the connection or not.
-        boolean keepAlive = HttpHeaders.isKeepAlive(request);
+    /**
+     * 미리 인코딩해 둔 오류 응답 본문을 기록한다. 작은 본문이므로 압축하지 않는다.
+     */
+    private void writeError(ChannelHandlerContext ctx, long seq, AccessRecord record, HttpResponseStatus status,
+                            ErrorResponse error, boolean keepAlive) {
+        writeResponse(ctx, seq, record, System.nanoTime(), status, error.getResultCode(), error.content(),
+                JSON_CONTENT_TYPE, Encoding.NONE, keepAlive);
+    }
+
+    /**
+     * 본문이 압축 최소 크기 이상이고 클라이언트가 받을 수 있으면 압축해서 기록한다.
+     */
+    private void writeResponse(ChannelHandlerContext ctx, long seq, AccessRecord record, long encodeStart,
+                               HttpResponseStatus status, String resultCode, ByteBuf content, String contentType,
+                               Encoding encoding, boolean keepAlive) {
+        int length = content.readableBytes();
+        ByteBuf compressed = compressor.compress(ctx.alloc(), content, contentType, encoding);
+        if (compressed != null) {
+            content.release();
+            content = compressed;
+        }
+
         // Build the response object.
-        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1,
-                currentObj.getDecoderResult().isSuccess() ? OK : BAD_REQUEST, Unpooled.copiedBuffer(
-                apiResult.toString(), CharsetUtil.UTF_8));
+        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, status, content);
 
-        response.headers().set(CONTENT_TYPE, "application/json; charset=UTF-8");
+        response.headers().set(CONTENT_TYPE, contentType);
+        if (compressed != null) {
+            response.headers().set(CONTENT_ENCODING, encoding.contentEncoding());
+        }
+        if (encoding != Encoding.NONE && length >= compressor.getMinSize()) {
+            response.headers().set(VARY, ACCEPT_ENCODING);
+        }
+        writeResponse(ctx, seq, record, encodeStart, resultCode, response, keepAlive);
+    }
 
+    /**
+     * 응답 하나를 기록하는 마지막 단계. 단계 시간과 응답 수를 지표에 기록하고 접근 로그에 항목을 넘긴다.
+     */
+    private void writeResponse(ChannelHandlerContext ctx, long seq, AccessRecord record, long encodeStart,
+                               String resultCode, FullHttpResponse response, boolean keepAlive) {
+        // 서버 종료 중에는 받은 요청 중 마지막 요청의 응답에 Connection: close를 붙이고, 이후 요청은 받지 않는다.
+        if (keepAlive && lifecycle.isDraining() && request == null && responses.isLast(seq)) {
+            keepAlive = false;
+            closing = true;
+            response.headers().set(CONNECTION, HttpHeaderValues.CLOSE);
+        }
         if (keepAlive) {
-            // Add 'Content-Length' header only for a keep-alive connection.
-            response.headers().set(CONTENT_LENGTH, response.content().readableBytes());
+            // Add 'Content-Length' header only for a keep-alive connection. 304 has no body.
+            if (response.status().code() != NOT_MODIFIED.code()) {
+                response.headers().set(CONTENT_LENGTH, response.content().readableBytes());
+            }
             // Add keep alive header as per:
             // -
             // http://www.w3.org/Protocols/HTTP/1.1/draft-ietf-http-v11-spec-01.html#Connection
-            response.headers().set(CONNECTION, HttpHeaders.Values.KEEP_ALIVE);
+            response.headers().set(CONNECTION, HttpHeaderValues.KEEP_ALIVE);
         }
 
+        record.record(Phase.ENCODE, System.nanoTime() - encodeStart);
+        record.finish(response.status().code(), resultCode, response.content().readableBytes());
+        accessLog.log(record);
+        recycle(record);
+        metrics.countResult(resultCode);
+
         // Write the response.
-        ctx.write(response);
+        if (responses.complete(ctx, seq, response, !keepAlive)) {
+            flushLater(ctx);
+        }
+    }
+
+    /**
+     * 처리 결과의 resultCode. 서비스가 지정하지 않았으면 HTTP 상태 코드를 사용한다.
+     */
+    private static String resultCode(JsonObject apiResult, HttpResponseStatus status) {
+        JsonElement resultCode = apiResult == null ? null : apiResult.get("resultCode");
+        return resultCode != null && resultCode.isJsonPrimitive()
+                ? resultCode.getAsString() : status.codeAsText().toString();
+    }
+
+    /**
+     * resultCode에 해당하는 HTTP 상태. 상태 코드가 아니면 200이다.
+     */
+    private static HttpResponseStatus statusOf(String resultCode) {
+        try {
+            int code = Integer.parseInt(resultCode);
+            return code >= 100 && code < 600 ? HttpResponseStatus.valueOf(code) : OK;
+        } catch (NumberFormatException e) {
+            return OK;
+        }
+    }
+
+    /**
+     * 읽기 도중에 기록된 응답은 channelReadComplete에서 한 번에 flush 된다.
+     * 읽기 밖(업무 스레드, 비동기 완료)에서 기록된 응답은 이벤트 루프의 다음 작업에서 flush 하여,
+     * 그 사이에 완료된 다른 응답과 함께 한 번의 gather-write로 전송한다.
+     */
+    private void flushLater(final ChannelHandlerContext ctx) {
+        if (reading || flushPending) {
+            return;
+        }
+        flushPending = true;
+        ctx.executor().execute(() -> {
+            flushPending = false;
+            ctx.flush();
+        });
+    }
+
+    /**
+     * 캐시를 사용하는 요청의 캐시 키와 조건부 요청 정보
+     */
+    private static final class CacheRequest {
+        final String key;
+
+        final long ttlMillis;
+
+        final String ifNoneMatch;
 
-        return keepAlive;
+        final Encoding encoding;
+
+        CacheRequest(String key, long ttlMillis, String ifNoneMatch, Encoding encoding) {
+            this.key = key;
+            this.ttlMillis = ttlMillis;
+            this.ifNoneMatch = ifNoneMatch;
+            this.encoding = encoding;
+        }
     }
 
     private static void send100Continue(ChannelHandlerContext ctx) {
         FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, CONTINUE);
-        ctx.write(response);
+        ctx.writeAndFlush(response);
     }
 
     @Override
@@ -9,13 +9,28 @@ import org.apache.logging.log4j.Logger;
 import java.util.Map;
 
 public abstract class ApiRequestTemplate implements ApiRequest {
+    /**
+     * 클래스별 logger. 요청마다 LogManager를 조회하지 않도록 클래스에 붙여 둔다.
+     */
+    private static final ClassValue<Logger> LOGGERS = new ClassValue<Logger>() {
+        @Override
+        protected Logger computeValue(Class<?> type) {
+            return LogManager.getLogger(type);
+        }
+    };
+
     protected Logger logger;
 
     /**
-     * API 요청 data
+     * API 요청 data. HTTP 요청에서 생성된 경우 요청 컨텍스트의 맵 뷰다.
      */
     protected Map<String, String> reqData;
 
+    /**
+     * 타입이 지정된 요청 컨텍스트. 요청 컨텍스트 없이 맵으로만 생성된 경우 null이다.
+     */
+    protected ApiRequestContext context;
+
     /**
      * API 처리결과
      */
@@ -25,11 +40,27 @@ public abstract class ApiRequestTemplate implements ApiRequest {
      * HTTP 요청에서 추출[한] 필드의 이름과 값을 API 서비스 클래스의 생성자로 전달한다.
      */
     public ApiRequestTemplate(Map<String, String> reqData) {
-        this.logger = LogManager.getLogger(this.getClass());
+        this.logger = LOGGERS.get(this.getClass());
+        init(reqData);
+    }
+
+    /**
+     * 요청 데이터와 처리 결과를 다시 초기화한다. {@link ReusableApiRequest}를 구현한 서비스가
+     * 풀에서 재사용될 때 호출되며, 요청별 필드를 더 가진 서비스는 재정의하여 함께 비워야 한다.
+     */
+    public void reset(Map<String, String> reqData) {
+        init(reqData);
+    }
+
+    private void init(Map<String, String> reqData) {
         this.apiResult = new JsonObject();
         this.reqData = reqData;
+        this.context = ApiRequestContext.from(reqData);
 
-        logger.info("request data : " + this.reqData);
+        // 요청마다 남기는 기록은 접근 로그가 맡는다. 요청 데이터에는 토큰과 email이 있으므로 debug에서만 남긴다.
+        if (logger.isDebugEnabled()) {
+            logger.debug("request data : {}", this.reqData);
+        }
     }
 
     public void executeService() {
@@ -40,7 +71,10 @@ public abstract class ApiRequestTemplate implements ApiRequest {
             // service 메서드는 각 API 서비스 클래스가 제공할 기능을 구현해야한다
             this.service();
         } catch (RequestParamException e) {
-            logger.error(e);
+            // 잘못된 요청은 클라이언트의 오류이므로 debug로만 남긴다.
+            if (logger.isDebugEnabled()) {
+                logger.debug("invalid request parameter : {}", e.getMessage());
+            }
             this.apiResult.addProperty("resultCode", "405");
         } catch (ServiceException e) {
             logger.error(e);
@@ -52,6 +86,10 @@ public abstract class ApiRequestTemplate implements ApiRequest {
         return this.apiResult;
     }
 
+    public ApiRequestContext getContext() {
+        return this.context;
+    }
+
     @Override
     public void requestParamValidation() throws RequestParamException {
         if (getClass().getClasses().length == 0) {
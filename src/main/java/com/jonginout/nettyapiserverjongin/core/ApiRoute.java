@@ -0,0 +1,72 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * API 서비스 클래스가 처리할 HTTP 메서드와 URI 템플릿을 선언한다.
+ * ServiceDispatcher는 기동 시점에 이 애너테이션이 붙은 빈을 모아 라우팅 테이블을 한 번만 만든다.
+ *
+ * <pre>
+ * &#64;Service("users")
+ * &#64;ApiRoute(method = "GET", path = {"/users", "/users/{email}"})
+ * public class UserInfo extends ApiHandlerTemplate { ... }
+ * </pre>
+ *
+ * {name} 형태의 경로 변수는 요청 데이터 맵에 같은 이름으로 들어간다.
+ */
+@Documented
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ApiRoute {
+    /**
+     * 처리할 HTTP 메서드. 비어 있으면 모든 메서드를 처리한다.
+     */
+    String[] method() default {};
+
+    /**
+     * 처리할 URI 템플릿 목록
+     */
+    String[] path();
+
+    /**
+     * executeService를 실행할 스레드. 기본값은 service.execution.mode 설정을 따른다.
+     */
+    ExecutionMode execution() default ExecutionMode.DEFAULT;
+
+    /**
+     * 응답까지 기다리는 최대 시간(ms). 0이면 service.timeout.millis 설정을 따른다.
+     */
+    long timeoutMillis() default 0;
+
+    /**
+     * 요청 본문의 최대 크기(byte). 0이면 http.body.max.size 설정을 따르며, 본문 스트리밍 모드에서만 더 크게 지정할 수 있다.
+     */
+    long maxBodySize() default 0;
+
+    /**
+     * 응답을 캐시할 시간(ms). 0이면 캐시하지 않는다.
+     * GET 요청의 resultCode 200 응답만 인코딩된 그대로 캐시하며, ETag를 붙이고 If-None-Match가 맞으면 304로 응답한다.
+     */
+    long cacheTtlMillis() default 0;
+
+    /**
+     * 캐시 키에 넣을 요청 값의 이름(본문 값, 경로 변수, 헤더). 비어 있으면 쿼리를 포함한 요청 URI를 사용한다.
+     */
+    String[] cacheKey() default {};
+
+    /**
+     * 응답 본문을 압축할지 여부. 요청 값과 비밀 값을 함께 돌려주는 응답처럼 압축하면 안 되는 라우트는 false로 지정한다.
+     * true이어도 http.compression.min.size보다 작은 본문은 압축하지 않는다.
+     */
+    boolean compress() default true;
+
+    /**
+     * resultCode를 HTTP 상태 코드로도 사용할지 여부. 기본값은 resultCode와 관계없이 200으로 응답한다.
+     * 로드 밸런서의 헬스 체크처럼 본문을 보지 않고 상태 코드로 판단하는 클라이언트를 위한 라우트에 지정한다.
+     */
+    boolean resultCodeAsStatus() default false;
+}
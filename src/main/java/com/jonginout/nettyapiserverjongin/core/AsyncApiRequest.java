@@ -0,0 +1,19 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.google.gson.JsonObject;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 논블로킹 I/O로 업무를 처리하는 API 서비스.
+ * ApiRequestParser는 executeService 대신 executeServiceAsync를 호출하고
+ * 돌려받은 CompletionStage가 완료될 때 HTTP 응답을 기록한다.
+ */
+public interface AsyncApiRequest extends ApiRequest {
+    /**
+     * 비동기 서비스 API 호출 시작 메서드. 완료 값은 API 서비스의 처리 결과다.
+     * 채널이 닫히거나 요청 시간이 초과되면 돌려준 CompletionStage를 취소(cancel)한다. 취소는 완료를 기다리는 쪽에만
+     * 전달되므로, 진행 중인 I/O를 멈추려면 구현이 취소를 확인해야 한다. 요청마다 새 CompletionStage를 돌려주어야 한다.
+     */
+    public CompletionStage<JsonObject> executeServiceAsync();
+}
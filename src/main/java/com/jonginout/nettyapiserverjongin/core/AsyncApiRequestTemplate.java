@@ -0,0 +1,92 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.service.RequestParamException;
+import com.jonginout.nettyapiserverjongin.service.ServiceException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * ApiRequestTemplate의 비동기 버전.
+ * 각 API 서비스 클래스는 service 대신 serviceAsync를 구현하며, 여러 백엔드를 동시에 호출한 뒤
+ * 결과를 조합하여 CompletionStage로 돌려줄 수 있다.
+ */
+public abstract class AsyncApiRequestTemplate extends ApiRequestTemplate implements AsyncApiRequest {
+
+    public AsyncApiRequestTemplate(Map<String, String> reqData) {
+        super(reqData);
+    }
+
+    /**
+     * 각 API 서비스에 따른 개별 구현 메서드. 완료 값이 null이면 apiResult를 결과로 사용한다.
+     * 처리 중 발생한 ServiceException은 예외로 완료시키면 된다.
+     */
+    public abstract CompletionStage<JsonObject> serviceAsync() throws ServiceException;
+
+    public CompletionStage<JsonObject> executeServiceAsync() {
+        CompletionStage<JsonObject> stage;
+        try {
+            // 정합성 검사
+            this.requestParamValidation();
+
+            stage = this.serviceAsync();
+        } catch (RequestParamException e) {
+            // 잘못된 요청은 클라이언트의 오류이므로 debug로만 남긴다.
+            if (logger.isDebugEnabled()) {
+                logger.debug("invalid request parameter : {}", e.getMessage());
+            }
+            this.apiResult.addProperty("resultCode", "405");
+            return CompletableFuture.completedFuture(this.apiResult);
+        } catch (ServiceException e) {
+            return CompletableFuture.completedFuture(serviceFailed(e));
+        }
+
+        return stage.handle((result, e) -> {
+            if (e == null) {
+                if (result != null) {
+                    this.apiResult = result;
+                }
+                return this.apiResult;
+            }
+
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof ServiceException) {
+                return serviceFailed((ServiceException) cause);
+            }
+            throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+        });
+    }
+
+    /**
+     * 동기 방식으로 호출되었을 때는 비동기 처리가 끝날 때까지 기다린다.
+     */
+    @Override
+    public final void service() throws ServiceException {
+        try {
+            JsonObject result = this.serviceAsync().toCompletableFuture().get();
+            if (result != null) {
+                this.apiResult = result;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ServiceException) {
+                throw (ServiceException) e.getCause();
+            }
+            throw new ServiceException(e.getCause());
+        }
+    }
+
+    private JsonObject serviceFailed(ServiceException e) {
+        logger.error(e);
+        JsonObject result = new JsonObject();
+        result.addProperty("resultCode", "501");
+        this.apiResult = result;
+        return result;
+    }
+}
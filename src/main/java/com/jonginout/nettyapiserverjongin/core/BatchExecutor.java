@@ -0,0 +1,342 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.core.admission.AdmissionController;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics.Rejection;
+import com.jonginout.nettyapiserverjongin.core.route.Route;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 여러 API 호출을 HTTP 요청 하나로 받아 실행하는 묶음 요청 실행기.
+ *
+ * 하위 요청은 {"id", "method", "uri", "fields", "dependsOn"} 형태이며, 각각 라우팅 테이블에서 라우트를 찾아
+ * {@link ServiceDispatcher#execute}로 라우트의 실행 방식대로 실행한다. 선언된 헤더(token 등)는 묶음 요청의 것을 물려받고,
+ * fields는 본문 값으로 들어간다. 의존하는 하위 요청이 없으면 바로 함께 실행하고, dependsOn에 적은 하위 요청이 있으면
+ * 모두 resultCode 200으로 끝난 뒤 실행한다. 의존하는 하위 요청이 실패하면 실행하지 않고 424로 채운다.
+ * fields 값이 "${id.name}"이면 앞선 하위 요청 결과의 name 값으로 바꾼다.
+ *
+ * 결과는 요청 순서대로 {"id", "result"}를 담은 results 배열로 돌려준다. 하위 요청이 모두 끝난 뒤 한 번에 돌려주며,
+ * 응답 캐시, 압축과 응답 순서 맞추기가 모두 처리 결과 JSON 하나를 단위로 하므로 먼저 끝난 결과를 나누어 보내지는 않는다.
+ *
+ * 하위 요청은 HTTP 요청처럼 라우트의 처리 제한 시간을 받고 실행 중인 서비스 수에 들어간다. 제한 시간이 지나면
+ * 서비스를 취소하고 504로 채우므로, 끝나지 않는 하위 요청도 입장 제어의 자리를 제한 시간 안에 돌려준다.
+ *
+ * 묶음 요청은 AdmissionHandler에서 요청 하나로만 입장 제어를 받으므로, 하위 요청도 실행하기 전에 각각 입장 제어를 받는다.
+ * 묶음 요청의 클라이언트 IP와 token으로 속도 제한을 받고 처리 중인 요청 수에 들어가며, 거절된 하위 요청은 실행하지 않고
+ * 429나 503으로 채운다. RPC 리스너로 들어온 내부 호출의 묶음 요청은 HTTP 요청처럼 입장 제어를 받지 않는다.
+ */
+public class BatchExecutor {
+    private static final Logger logger = LogManager.getLogger(BatchExecutor.class);
+
+    /**
+     * 묶음 요청 라우트의 빈 이름. 하위 요청으로 묶음 요청을 다시 호출할 수 없다.
+     */
+    public static final String BATCH_ROUTE = "batch";
+
+    private final ServiceExecutor serviceExecutor;
+
+    private final AdmissionController admission;
+
+    private final ApiMetrics metrics;
+
+    private final ServerLifecycle lifecycle;
+
+    private final int maxRequests;
+
+    // 하위 요청의 처리 제한 시간을 재는 타이머
+    private final ScheduledExecutorService timer;
+
+    /**
+     * @param admission 하위 요청의 입장 제어. null이면 입장 제어를 하지 않는다.
+     */
+    public BatchExecutor(ServiceExecutor serviceExecutor, AdmissionController admission, ApiMetrics metrics,
+                         ServerLifecycle lifecycle, int maxRequests) {
+        if (maxRequests < 1) {
+            throw new IllegalArgumentException("batch.max.requests must be positive : " + maxRequests);
+        }
+        this.serviceExecutor = serviceExecutor;
+        this.admission = admission != null && admission.isEnabled() ? admission : null;
+        this.metrics = metrics;
+        this.lifecycle = lifecycle;
+        this.maxRequests = maxRequests;
+        this.timer = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("batch-timeout", true));
+    }
+
+    /**
+     * 하위 요청을 모두 실행한다. 하위 요청 목록이 잘못되었으면 아무것도 실행하지 않고 405로 완료된다.
+     * 하위 요청 컨텍스트는 이 메서드 안에서 모두 만들므로, 묶음 요청의 컨텍스트는 반환한 뒤 재사용되어도 된다.
+     */
+    public CompletionStage<JsonObject> execute(ApiRequestContext parent, JsonArray requests) {
+        List<Call> calls = new ArrayList<Call>(requests.size());
+        String invalid = parse(parent, requests, calls);
+        if (invalid != null) {
+            JsonObject apiResult = new JsonObject();
+            apiResult.addProperty("resultCode", "405");
+            apiResult.addProperty("message", invalid);
+            return CompletableFuture.completedFuture(apiResult);
+        }
+
+        final List<CompletableFuture<JsonObject>> results = new ArrayList<CompletableFuture<JsonObject>>(calls.size());
+        for (Call call : calls) {
+            results.add(start(call, results));
+        }
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[results.size()])).thenApply(done -> {
+            JsonArray items = new JsonArray();
+            for (int i = 0; i < calls.size(); i++) {
+                JsonObject item = new JsonObject();
+                item.addProperty("id", calls.get(i).id);
+                item.add("result", results.get(i).join());
+                items.add(item);
+            }
+            JsonObject apiResult = new JsonObject();
+            apiResult.addProperty("resultCode", "200");
+            apiResult.add("results", items);
+            return apiResult;
+        });
+    }
+
+    /**
+     * 하위 요청 목록을 검사하여 하위 요청 컨텍스트를 만든다. 잘못되었으면 이유를, 올바르면 null을 돌려준다.
+     * dependsOn은 앞에 선언한 하위 요청만 가리킬 수 있으므로 순환 의존은 생기지 않는다.
+     */
+    private String parse(ApiRequestContext parent, JsonArray requests, List<Call> calls) {
+        if (requests.size() == 0) {
+            return "requests가 비어 있습니다.";
+        }
+        if (requests.size() > maxRequests) {
+            return "requests는 " + maxRequests + "개까지 보낼 수 있습니다.";
+        }
+
+        Map<String, Integer> indexes = new HashMap<String, Integer>();
+        for (int i = 0; i < requests.size(); i++) {
+            if (!requests.get(i).isJsonObject()) {
+                return "requests[" + i + "]가 객체가 아닙니다.";
+            }
+            JsonObject request = requests.get(i).getAsJsonObject();
+            String id = string(request, "id", String.valueOf(i));
+            String method = string(request, "method", "GET");
+            String uri = string(request, "uri", null);
+            if (uri == null || !uri.startsWith("/")) {
+                return "requests[" + i + "]의 uri가 없습니다.";
+            }
+            if (indexes.put(id, i) != null) {
+                return "requests[" + i + "]의 id가 중복되었습니다 : " + id;
+            }
+
+            ApiRequestContext context = new ApiRequestContext();
+            try {
+                context.init(method, uri);
+            } catch (IllegalArgumentException e) {
+                return "requests[" + i + "]의 method가 잘못되었습니다 : " + method;
+            }
+            Route route = ServiceDispatcher.route(context);
+            if (BATCH_ROUTE.equals(route.getName())) {
+                return "requests[" + i + "]에서 묶음 요청을 다시 호출할 수 없습니다.";
+            }
+            context.copyHeaders(parent);
+
+            Call call = new Call(id, route, context, admission != null && !parent.isInternal()
+                    && !admission.isExempt(uri));
+            JsonElement dependsOn = request.get("dependsOn");
+            if (dependsOn != null && dependsOn.isJsonArray()) {
+                for (JsonElement dependency : dependsOn.getAsJsonArray()) {
+                    Integer index = dependency.isJsonPrimitive() ? indexes.get(dependency.getAsString()) : null;
+                    if (index == null || index == i) {
+                        return "requests[" + i + "]의 dependsOn은 앞에 선언한 id만 가리킬 수 있습니다 : " + dependency;
+                    }
+                    call.dependencies.put(dependency.getAsString(), index);
+                }
+            }
+
+            JsonElement fields = request.get("fields");
+            if (fields != null && fields.isJsonObject()) {
+                for (Map.Entry<String, JsonElement> field : fields.getAsJsonObject().entrySet()) {
+                    JsonElement value = field.getValue();
+                    if (value.isJsonNull()) {
+                        continue;
+                    }
+                    String text = value.isJsonPrimitive() ? value.getAsString() : value.toString();
+                    if (text.startsWith("${") && text.endsWith("}")) {
+                        int dot = text.indexOf('.');
+                        if (dot < 0 || !call.dependencies.containsKey(text.substring(2, dot))) {
+                            return "requests[" + i + "]의 " + field.getKey()
+                                    + "는 dependsOn에 적은 id만 참조할 수 있습니다.";
+                        }
+                        call.references.put(field.getKey(), text.substring(2, text.length() - 1));
+                    } else {
+                        context.bodyAttributes().put(field.getKey(), text);
+                    }
+                }
+            }
+            calls.add(call);
+        }
+        return null;
+    }
+
+    private static String string(JsonObject request, String name, String defaultValue) {
+        JsonElement value = request.get(name);
+        return value != null && value.isJsonPrimitive() ? value.getAsString() : defaultValue;
+    }
+
+    /**
+     * 하위 요청 하나를 실행한다. 의존하는 하위 요청이 있으면 모두 끝난 뒤에 실행한다.
+     * 실패한 하위 요청은 예외 대신 500 결과로 완료되어, 다른 하위 요청과 묶음 응답은 계속 진행된다.
+     */
+    private CompletableFuture<JsonObject> start(final Call call, List<CompletableFuture<JsonObject>> results) {
+        if (call.dependencies.isEmpty()) {
+            return run(call);
+        }
+
+        // 이후 하위 요청의 결과 칸은 다른 스레드에서 읽지 않도록, 의존하는 결과만 따로 모아 둔다.
+        final Map<String, CompletableFuture<JsonObject>> upstream =
+                new HashMap<String, CompletableFuture<JsonObject>>(call.dependencies.size() * 2);
+        for (Map.Entry<String, Integer> dependency : call.dependencies.entrySet()) {
+            upstream.put(dependency.getKey(), results.get(dependency.getValue()));
+        }
+        CompletableFuture<?>[] waiting = upstream.values().toArray(new CompletableFuture<?>[upstream.size()]);
+        return CompletableFuture.allOf(waiting).thenCompose(done -> runAfter(call, upstream));
+    }
+
+    /**
+     * 의존하는 하위 요청이 모두 끝난 뒤 호출된다. 하나라도 실패했으면 실행하지 않고, 참조한 결과 값을 본문 값에 채워 실행한다.
+     */
+    private CompletionStage<JsonObject> runAfter(Call call, Map<String, CompletableFuture<JsonObject>> upstream) {
+        for (CompletableFuture<JsonObject> dependency : upstream.values()) {
+            if (!succeeded(dependency.join())) {
+                return ErrorResponse.FAILED_DEPENDENCY.getStage();
+            }
+        }
+        for (Map.Entry<String, String> reference : call.references.entrySet()) {
+            String target = reference.getValue();
+            int dot = target.indexOf('.');
+            JsonElement value = upstream.get(target.substring(0, dot)).join().get(target.substring(dot + 1));
+            if (value != null && !value.isJsonNull()) {
+                call.context.bodyAttributes().put(reference.getKey(),
+                        value.isJsonPrimitive() ? value.getAsString() : value.toString());
+            }
+        }
+        return run(call);
+    }
+
+    private CompletableFuture<JsonObject> run(final Call call) {
+        if (call.admitted) {
+            Rejection rejection = admission.admit(AdmissionController.ipHash(call.context.getRemoteAddress()),
+                    call.context.getHeader("token"));
+            if (rejection != null) {
+                metrics.countRejected(rejection);
+                boolean rateLimited = rejection == Rejection.IP_RATE || rejection == Rejection.TOKEN_RATE;
+                return CompletableFuture.completedFuture(rateLimited
+                        ? ErrorResponse.TOO_MANY_REQUESTS.getResult() : ErrorResponse.SERVICE_UNAVAILABLE.getResult());
+            }
+        }
+
+        final long start = System.nanoTime();
+        final CompletableFuture<JsonObject> service = new CompletableFuture<JsonObject>();
+        lifecycle.serviceStarted();
+        CompletionStage<JsonObject> stage = ServiceDispatcher.execute(call.route, call.context, serviceExecutor);
+        ServiceDispatcher.cancelWhenAbandoned(service, stage);
+        stage.whenComplete((apiResult, e) -> {
+            lifecycle.serviceFinished();
+            if (e != null) {
+                service.completeExceptionally(e);
+            } else {
+                service.complete(apiResult);
+            }
+        });
+
+        if (!service.isDone()) {
+            long timeoutMillis = serviceExecutor.resolveTimeoutMillis(call.route.getTimeoutMillis());
+            final ScheduledFuture<?> timeout = timer.schedule(
+                    () -> service.completeExceptionally(new TimeoutException()), timeoutMillis, TimeUnit.MILLISECONDS);
+            service.whenComplete((apiResult, e) -> timeout.cancel(false));
+        }
+
+        return service.handle((apiResult, e) -> {
+            JsonObject result;
+            if (e == null) {
+                result = apiResult != null ? apiResult : new JsonObject();
+            } else {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                result = new JsonObject();
+                if (cause instanceof TimeoutException) {
+                    result.addProperty("resultCode", "504");
+                } else {
+                    logger.error("묶음 요청의 하위 요청 실행 실패 : " + call.id, cause);
+                    result.addProperty("resultCode", "500");
+                }
+            }
+            if (call.admitted) {
+                admission.release(System.nanoTime() - start, isDropped(result));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * 하위 요청의 제한 시간 타이머를 멈춘다.
+     */
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    private static boolean succeeded(JsonObject result) {
+        return "200".equals(resultCode(result));
+    }
+
+    /**
+     * 서비스가 과부하로 처리하지 못했는지(503, 504) 여부. 적응형 동시성 한도를 줄이는 데 쓴다.
+     */
+    private static boolean isDropped(JsonObject result) {
+        String resultCode = resultCode(result);
+        return "503".equals(resultCode) || "504".equals(resultCode);
+    }
+
+    private static String resultCode(JsonObject result) {
+        JsonElement resultCode = result.get("resultCode");
+        return resultCode != null && resultCode.isJsonPrimitive() ? resultCode.getAsString() : null;
+    }
+
+    /**
+     * 하위 요청 하나. dependencies는 의존하는 하위 요청의 id와 위치, references는 앞선 결과로 채울 본문 값의
+     * 이름과 "id.name"이다.
+     */
+    private static final class Call {
+        final String id;
+
+        final Route route;
+
+        final ApiRequestContext context;
+
+        final Map<String, Integer> dependencies = new HashMap<String, Integer>(4);
+
+        final Map<String, String> references = new HashMap<String, String>(4);
+
+        // 실행하기 전에 입장 제어를 받는지 여부
+        final boolean admitted;
+
+        Call(String id, Route route, ApiRequestContext context, boolean admitted) {
+            this.id = id;
+            this.route = route;
+            this.context = context;
+            this.admitted = admitted;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+/**
+ * 느리거나 멈춘 클라이언트 연결의 제한 시간 설정. 값이 0이면 해당 제한을 사용하지 않는다.
+ *
+ * idle은 읽기도 쓰기도 없는 연결을 닫는 시간, read는 요청 헤더를 받은 뒤 본문 마지막 조각까지 받아야 하는 시간,
+ * write는 송신 버퍼가 high water mark를 넘어 쓰기 불가능한 상태로 머물 수 있는 시간이다.
+ */
+public class ConnectionTimeoutConfig {
+    private final long idleTimeoutMillis;
+
+    private final long readTimeoutMillis;
+
+    private final long writeTimeoutMillis;
+
+    public ConnectionTimeoutConfig(long idleTimeoutMillis, long readTimeoutMillis, long writeTimeoutMillis) {
+        if (idleTimeoutMillis < 0 || readTimeoutMillis < 0 || writeTimeoutMillis < 0) {
+            throw new IllegalArgumentException("connection timeouts must not be negative");
+        }
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.writeTimeoutMillis = writeTimeoutMillis;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public long getReadTimeoutMillis() {
+        return readTimeoutMillis;
+    }
+
+    public long getWriteTimeoutMillis() {
+        return writeTimeoutMillis;
+    }
+}
@@ -0,0 +1,107 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics.Timeout;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http2.Http2FrameCodec;
+import io.netty.handler.timeout.IdleStateEvent;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 클라이언트 연결(HTTP/2는 부모 채널)마다 하나씩 두는 핸들러. 쉬는 연결을 닫고 느린 클라이언트에 배압을 건다.
+ *
+ * 앞에 둔 IdleStateHandler가 연결이 쉰다고 알리면 HTTP/1.1 연결은 ApiRequestParser에 넘겨 처리 중인 요청이 없을 때만 닫고,
+ * HTTP/2 연결은 열린 스트림이 없을 때 GOAWAY를 보내 닫으며, 프로토콜을 정하지 못한 연결(TLS 핸드셰이크 중 포함)은 바로 닫는다.
+ *
+ * 송신 버퍼가 high water mark를 넘어 쓰기 불가능해지면 읽기를 멈춰 새 요청을 받지 않고, low water mark 아래로
+ * 내려가면 다시 읽는다. 이미 디코딩한 HTTP/1.1 요청은 HttpRequestDecoder 뒤의 FlowControlHandler가 붙잡아 둔다.
+ * 응답을 가져가지 않는 클라이언트 때문에 송신 버퍼가 끝없이 커지지 않도록, 쓰기 불가능한 상태가 writeTimeout 넘게
+ * 이어지면 연결을 닫는다.
+ */
+public class ConnectionTimeoutHandler extends ChannelDuplexHandler {
+    private final ApiMetrics metrics;
+
+    private final long writeTimeoutMillis;
+
+    private ScheduledFuture<?> writeTimeout;
+
+    public ConnectionTimeoutHandler(ConnectionTimeoutConfig config, ApiMetrics metrics) {
+        this.metrics = metrics;
+        this.writeTimeoutMillis = config.getWriteTimeoutMillis();
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (!(evt instanceof IdleStateEvent) || ctx.pipeline().get(ApiRequestParser.class) != null) {
+            super.userEventTriggered(ctx, evt);
+            return;
+        }
+        Http2FrameCodec codec = ctx.pipeline().get(Http2FrameCodec.class);
+        if (codec == null || codec.connection().numActiveStreams() == 0) {
+            metrics.countTimeout(Timeout.IDLE);
+            ctx.close();
+        }
+    }
+
+    /**
+     * 쓰기 가능 상태 변경 이벤트는 이벤트 루프의 다음 작업으로 전달되므로, 한 번의 읽기에서 파이프라이닝된 요청 여러 개의
+     * 응답을 기록하는 동안에는 오지 않는다. 기록할 때마다 바로 확인하여 그 읽기의 남은 요청부터 멈추게 한다.
+     */
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        ctx.write(msg, promise);
+        if (!ctx.channel().isWritable()) {
+            pauseReads(ctx);
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (ctx.channel().isWritable()) {
+            resumeReads(ctx);
+        } else {
+            pauseReads(ctx);
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    private void pauseReads(ChannelHandlerContext ctx) {
+        final Channel channel = ctx.channel();
+        if (!channel.config().isAutoRead()) {
+            return;
+        }
+        channel.config().setAutoRead(false);
+        metrics.countReadPaused();
+        if (writeTimeoutMillis > 0 && writeTimeout == null) {
+            writeTimeout = ctx.executor().schedule(() -> {
+                writeTimeout = null;
+                if (!channel.isWritable()) {
+                    metrics.countTimeout(Timeout.WRITE);
+                    channel.close();
+                }
+            }, writeTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void resumeReads(ChannelHandlerContext ctx) {
+        ctx.channel().config().setAutoRead(true);
+        if (writeTimeout != null) {
+            writeTimeout.cancel(false);
+            writeTimeout = null;
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (writeTimeout != null) {
+            writeTimeout.cancel(false);
+            writeTimeout = null;
+        }
+        super.channelInactive(ctx);
+    }
+}
@@ -0,0 +1,108 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.google.gson.JsonObject;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.CharsetUtil;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 자주 나가는 오류 응답. 본문은 기동할 때 한 번 JSON으로 인코딩해 두고 응답마다 복제본만 보낸다.
+ *
+ * 핸들러는 {@link #getStage()}를 돌려주면 예외를 만들지 않고 오류로 응답할 수 있다. ApiRequestParser는 처리 결과가
+ * {@link #getResult()}와 같은 객체이면 JSON을 다시 인코딩하지 않고 미리 만들어 둔 본문을 기록한다.
+ * 처리 결과 객체는 모든 요청이 함께 쓰므로 수정하면 안 된다.
+ */
+public final class ErrorResponse {
+    public static final ErrorResponse NOT_FOUND = new ErrorResponse(HttpResponseStatus.NOT_FOUND, "Not Found");
+
+    // 이 서버는 요청 파라미터 정합성 검사 실패를 resultCode 405로 응답한다.
+    public static final ErrorResponse INVALID_PARAMETER =
+            new ErrorResponse(HttpResponseStatus.METHOD_NOT_ALLOWED, "Invalid Request Parameter");
+
+    public static final ErrorResponse REQUEST_TIMEOUT =
+            new ErrorResponse(HttpResponseStatus.REQUEST_TIMEOUT, "Request Timeout");
+
+    public static final ErrorResponse REQUEST_ENTITY_TOO_LARGE =
+            new ErrorResponse(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE, "Request Entity Too Large");
+
+    public static final ErrorResponse TOO_MANY_REQUESTS =
+            new ErrorResponse(HttpResponseStatus.TOO_MANY_REQUESTS, "Too Many Requests");
+
+    public static final ErrorResponse SERVICE_UNAVAILABLE =
+            new ErrorResponse(HttpResponseStatus.SERVICE_UNAVAILABLE, "Service Unavailable");
+
+    // 묶음 요청에서 앞선 하위 요청이 실패하여 실행하지 않은 하위 요청의 결과
+    public static final ErrorResponse FAILED_DEPENDENCY =
+            new ErrorResponse(HttpResponseStatus.FAILED_DEPENDENCY, "Failed Dependency");
+
+    // 핸들러가 돌려줄 수 있는 오류 응답. 처리 결과로 오류 응답을 찾을 때 사용한다.
+    private static final ErrorResponse[] RESULTS = {NOT_FOUND, INVALID_PARAMETER};
+
+    private final HttpResponseStatus status;
+
+    private final String resultCode;
+
+    private final JsonObject result;
+
+    private final CompletionStage<JsonObject> stage;
+
+    // 해제되지 않는 direct 버퍼. 응답마다 독립된 인덱스를 가진 복제본을 보낸다.
+    private final ByteBuf content;
+
+    private ErrorResponse(HttpResponseStatus status, String message) {
+        this.status = status;
+        this.resultCode = status.codeAsText().toString();
+        this.result = new JsonObject();
+        this.result.addProperty("resultCode", resultCode);
+        this.result.addProperty("message", message);
+        this.stage = CompletableFuture.completedFuture(result);
+
+        byte[] bytes = result.toString().getBytes(CharsetUtil.UTF_8);
+        this.content = Unpooled.unreleasableBuffer(Unpooled.directBuffer(bytes.length).writeBytes(bytes));
+    }
+
+    /**
+     * 처리 결과가 핸들러가 돌려준 오류 응답이면 그 오류 응답을, 아니면 null을 돌려준다. 객체가 같은지만 비교한다.
+     */
+    public static ErrorResponse of(JsonObject apiResult) {
+        for (ErrorResponse error : RESULTS) {
+            if (error.result == apiResult) {
+                return error;
+            }
+        }
+        return null;
+    }
+
+    public HttpResponseStatus getStatus() {
+        return status;
+    }
+
+    public String getResultCode() {
+        return resultCode;
+    }
+
+    /**
+     * 모든 요청이 함께 쓰는 처리 결과. 수정하면 안 된다.
+     */
+    public JsonObject getResult() {
+        return result;
+    }
+
+    /**
+     * 처리 결과로 완료된 CompletionStage. 이미 완료되어 취소가 전달되지 않으므로 핸들러가 그대로 돌려준다.
+     */
+    public CompletionStage<JsonObject> getStage() {
+        return stage;
+    }
+
+    /**
+     * 응답 본문. 호출할 때마다 인덱스가 독립된 복제본을 돌려주며, 기록한 쪽이 해제해도 원본은 남는다.
+     */
+    public ByteBuf content() {
+        return content.retainedDuplicate();
+    }
+}
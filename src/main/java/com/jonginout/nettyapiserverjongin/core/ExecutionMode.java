@@ -0,0 +1,26 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+/**
+ * API 서비스의 executeService를 어느 스레드에서 실행할지 결정한다.
+ */
+public enum ExecutionMode {
+    /**
+     * ApiRoute에 지정하지 않았을 때 사용하며 service.execution.mode 설정값을 따른다.
+     */
+    DEFAULT,
+
+    /**
+     * 네티 이벤트 루프 스레드에서 바로 실행한다. 블로킹 I/O가 없는 짧은 서비스에만 사용한다.
+     */
+    INLINE,
+
+    /**
+     * 크기가 고정된 업무 스레드 풀에서 실행한다.
+     */
+    POOL,
+
+    /**
+     * 가상 스레드에서 실행한다. JDK가 지원하지 않으면 POOL로 대체된다.
+     */
+    VIRTUAL
+}
@@ -0,0 +1,79 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.service.ServiceException;
+
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * 요청 데이터 맵으로 호출하는 ServiceDispatcher.dispatch에서 싱글톤 핸들러를 ApiRequest 형태로 감싼다.
+ * HTTP 요청은 ApiRequestParser가 핸들러를 직접 호출하므로 이 클래스를 거치지 않는다.
+ */
+final class HandlerRequest implements AsyncApiRequest {
+    private final ApiHandler handler;
+
+    private final ApiRequestContext context;
+
+    private JsonObject apiResult = new JsonObject();
+
+    HandlerRequest(ApiHandler handler, Map<String, String> reqData) {
+        this.handler = handler;
+        this.context = toContext(reqData);
+    }
+
+    /**
+     * 요청 컨텍스트의 맵 뷰가 아닌 맵은 URI와 메서드 외의 값을 본문 값 슬롯에 옮겨 요청 컨텍스트를 만든다.
+     */
+    private static ApiRequestContext toContext(Map<String, String> reqData) {
+        ApiRequestContext context = ApiRequestContext.from(reqData);
+        if (context != null) {
+            return context;
+        }
+
+        context = new ApiRequestContext();
+        context.init(reqData.get(ApiRequestContext.REQUEST_METHOD), reqData.get(ApiRequestContext.REQUEST_URI));
+        context.bodyAttributes().putAll(reqData);
+        context.bodyAttributes().remove(ApiRequestContext.REQUEST_METHOD);
+        context.bodyAttributes().remove(ApiRequestContext.REQUEST_URI);
+        return context;
+    }
+
+    @Override
+    public void requestParamValidation() {
+        // 정합성 검사는 핸들러의 execute에서 함께 한다.
+    }
+
+    @Override
+    public void service() throws ServiceException {
+        try {
+            this.apiResult = executeServiceAsync().toCompletableFuture().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException(e);
+        } catch (ExecutionException e) {
+            throw new ServiceException(e.getCause());
+        }
+    }
+
+    @Override
+    public void executeService() {
+        try {
+            service();
+        } catch (ServiceException e) {
+            this.apiResult = new JsonObject();
+            this.apiResult.addProperty("resultCode", "501");
+        }
+    }
+
+    @Override
+    public CompletionStage<JsonObject> executeServiceAsync() {
+        return handler.execute(context).thenApply(result -> this.apiResult = result);
+    }
+
+    @Override
+    public JsonObject getApiResult() {
+        return this.apiResult;
+    }
+}
@@ -0,0 +1,47 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import io.netty.handler.codec.http.multipart.DefaultHttpDataFactory;
+import io.netty.handler.codec.http.multipart.HttpDataFactory;
+
+/**
+ * HTTP 요청 본문 처리 설정.
+ *
+ * streaming이 true이면 HttpObjectAggregator 없이 본문 조각을 바로 디코딩하고,
+ * false이면 이전처럼 maxBodySize 크기까지 하나의 FullHttpRequest로 합친 뒤 처리한다.
+ */
+public class HttpBodyConfig {
+    private final boolean streaming;
+
+    private final long maxBodySize;
+
+    private final HttpDataFactory dataFactory;
+
+    /**
+     * @param memoryThreshold 이 크기(byte)를 넘는 form 값만 디스크에 기록한다.
+     */
+    public HttpBodyConfig(boolean streaming, long maxBodySize, long memoryThreshold) {
+        this.streaming = streaming;
+        this.maxBodySize = maxBodySize;
+        this.dataFactory = new DefaultHttpDataFactory(memoryThreshold);
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * 라우트에 지정된 본문 최대 크기를 실제 값으로 바꾼다. 0 이하는 http.body.max.size 설정값을 따른다.
+     * 본문을 합치는 모드에서는 HttpObjectAggregator가 먼저 http.body.max.size로 제한한다.
+     */
+    public long resolveMaxBodySize(long routeMaxBodySize) {
+        return routeMaxBodySize > 0 ? routeMaxBodySize : maxBodySize;
+    }
+
+    public int getAggregatorMaxSize() {
+        return (int) Math.min(Integer.MAX_VALUE, maxBodySize);
+    }
+
+    public HttpDataFactory getDataFactory() {
+        return dataFactory;
+    }
+}
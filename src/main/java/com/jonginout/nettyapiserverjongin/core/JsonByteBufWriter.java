@@ -0,0 +1,193 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.util.CharsetUtil;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Gson JsonElement를 중간 문자열 없이 UTF-8로 ByteBuf에 바로 기록한다.
+ * 결과는 JsonElement.toString()과 같은 JSON 문자열이다.
+ *
+ * resultCode, message 같은 응답 공통 필드와 값은 미리 인코딩해 둔 바이트를 그대로 복사하고,
+ * 그 밖의 필드 이름은 스레드별 캐시에 인코딩 결과를 보관한다. 인스턴스는 스레드마다 하나씩 만들어 재사용한다.
+ */
+public final class JsonByteBufWriter {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final int MAX_CACHED_NAMES = 256;
+
+    /**
+     * 미리 인코딩한 응답 공통 문자열. 값은 따옴표를 포함한 JSON 문자열 바이트다.
+     */
+    private static final Map<String, byte[]> STATIC_FRAGMENTS = new HashMap<String, byte[]>();
+
+    static {
+        for (String s : new String[]{"resultCode", "message", "userNo", "token", "email", "issueDate",
+                "Success", "Not Found", "200", "404", "405", "413", "500", "501", "503", "504"}) {
+            STATIC_FRAGMENTS.put(s, ('"' + s + '"').getBytes(CharsetUtil.UTF_8));
+        }
+    }
+
+    private static final String[] REPLACEMENT_CHARS = new String[128];
+
+    static {
+        for (int i = 0; i <= 0x1f; i++) {
+            REPLACEMENT_CHARS[i] = String.format("\\u%04x", i);
+        }
+        REPLACEMENT_CHARS['"'] = "\\\"";
+        REPLACEMENT_CHARS['\\'] = "\\\\";
+        REPLACEMENT_CHARS['\t'] = "\\t";
+        REPLACEMENT_CHARS['\b'] = "\\b";
+        REPLACEMENT_CHARS['\n'] = "\\n";
+        REPLACEMENT_CHARS['\r'] = "\\r";
+        REPLACEMENT_CHARS['\f'] = "\\f";
+    }
+
+    private static final FastThreadLocal<JsonByteBufWriter> WRITERS = new FastThreadLocal<JsonByteBufWriter>() {
+        @Override
+        protected JsonByteBufWriter initialValue() {
+            return new JsonByteBufWriter();
+        }
+    };
+
+    // 스레드별 필드 이름 캐시. "name": 까지 인코딩해 둔다.
+    private final Map<String, byte[]> names = new HashMap<String, byte[]>();
+
+    private ByteBuf out;
+
+    private JsonByteBufWriter() {
+    }
+
+    /**
+     * alloc에서 할당한 버퍼에 JSON을 기록하여 돌려준다. 버퍼 해제는 호출자 책임이다.
+     */
+    public static ByteBuf encode(ByteBufAllocator alloc, JsonElement element) {
+        ByteBuf buf = alloc.ioBuffer(INITIAL_CAPACITY);
+        try {
+            encode(element, buf);
+            return buf;
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 이미 할당된 버퍼 뒤에 JSON을 기록한다.
+     */
+    public static void encode(JsonElement element, ByteBuf buf) {
+        JsonByteBufWriter writer = WRITERS.get();
+        writer.out = buf;
+        try {
+            writer.write(element);
+        } finally {
+            writer.out = null;
+        }
+    }
+
+    private void write(JsonElement element) {
+        if (element == null || element.isJsonNull()) {
+            out.writeBytes(NULL);
+        } else if (element.isJsonObject()) {
+            out.writeByte('{');
+            boolean first = true;
+            for (Map.Entry<String, JsonElement> field : ((JsonObject) element).entrySet()) {
+                if (!first) {
+                    out.writeByte(',');
+                }
+                first = false;
+                writeName(field.getKey());
+                write(field.getValue());
+            }
+            out.writeByte('}');
+        } else if (element.isJsonArray()) {
+            out.writeByte('[');
+            boolean first = true;
+            for (JsonElement item : (JsonArray) element) {
+                if (!first) {
+                    out.writeByte(',');
+                }
+                first = false;
+                write(item);
+            }
+            out.writeByte(']');
+        } else {
+            JsonPrimitive primitive = (JsonPrimitive) element;
+            if (primitive.isString()) {
+                writeString(primitive.getAsString());
+            } else if (primitive.isBoolean()) {
+                out.writeBytes(primitive.getAsBoolean() ? TRUE : FALSE);
+            } else {
+                out.writeCharSequence(primitive.getAsNumber().toString(), CharsetUtil.US_ASCII);
+            }
+        }
+    }
+
+    private void writeName(String name) {
+        byte[] encoded = names.get(name);
+        if (encoded == null) {
+            int start = out.writerIndex();
+            writeString(name);
+            out.writeByte(':');
+            if (names.size() < MAX_CACHED_NAMES) {
+                encoded = new byte[out.writerIndex() - start];
+                out.getBytes(start, encoded);
+                names.put(name, encoded);
+            }
+            return;
+        }
+        out.writeBytes(encoded);
+    }
+
+    private void writeString(String value) {
+        byte[] fragment = STATIC_FRAGMENTS.get(value);
+        if (fragment != null) {
+            out.writeBytes(fragment);
+            return;
+        }
+
+        out.writeByte('"');
+        int last = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            if (c < 128) {
+                replacement = REPLACEMENT_CHARS[c];
+                if (replacement == null) {
+                    continue;
+                }
+            } else if (c == '\u2028') {
+                replacement = "\\u2028";
+            } else if (c == '\u2029') {
+                replacement = "\\u2029";
+            } else {
+                continue;
+            }
+            if (last < i) {
+                ByteBufUtil.writeUtf8(out, value, last, i);
+            }
+            out.writeCharSequence(replacement, CharsetUtil.US_ASCII);
+            last = i + 1;
+        }
+        if (last < length) {
+            ByteBufUtil.writeUtf8(out, value, last, length);
+        }
+        out.writeByte('"');
+    }
+
+    private static final byte[] NULL = "null".getBytes(CharsetUtil.US_ASCII);
+
+    private static final byte[] TRUE = "true".getBytes(CharsetUtil.US_ASCII);
+
+    private static final byte[] FALSE = "false".getBytes(CharsetUtil.US_ASCII);
+}
@@ -0,0 +1,110 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 크기가 제한되고 항목마다 만료 시각이 있는 프로세스 내 캐시.
+ *
+ * 조회는 ConcurrentHashMap 조회와 만료 시각 비교뿐이며 락을 사용하지 않는다.
+ * 만료된 항목은 조회할 때 지운다. 최대 크기를 넘으면 한 스레드만 전체를 훑어 만료된 항목부터 지우고,
+ * 그래도 최대 크기의 90%를 넘으면 해시 순서대로 지운다(임의 제거). 한 번에 최대 크기의 10%를 비우므로
+ * 전체를 훑는 비용은 캐시가 가득 찬 뒤에도 put마다가 아니라 최대 크기의 10%만큼 put할 때마다 한 번 든다.
+ */
+public class LocalCache<K, V> {
+    private static final class Entry<V> {
+        final V value;
+
+        final long expireAtMillis;
+
+        Entry(V value, long expireAtMillis) {
+            this.value = value;
+            this.expireAtMillis = expireAtMillis;
+        }
+    }
+
+    private final ConcurrentHashMap<K, Entry<V>> entries;
+
+    private final int maxSize;
+
+    // 제거할 때 줄이는 크기
+    private final int lowWaterSize;
+
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    public LocalCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("cache size must be positive");
+        }
+        this.maxSize = maxSize;
+        this.lowWaterSize = maxSize - Math.max(1, maxSize / 10);
+        this.entries = new ConcurrentHashMap<K, Entry<V>>(Math.min(maxSize, 1 << 16));
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() >= entry.expireAtMillis) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public void put(K key, V value, long expireAtMillis) {
+        entries.put(key, new Entry<V>(value, expireAtMillis));
+        if (entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    public void remove(K key) {
+        entries.remove(key);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * 키가 조건에 맞는 항목을 모두 지우고, 지운 항목 중 만료되지 않은 값을 removed에 넘긴다. removed는 null이어도 된다.
+     * 전체를 훑으므로 클러스터 링이 바뀔 때처럼 드물게만 사용한다.
+     */
+    public void removeIf(Predicate<? super K> filter, Consumer<? super V> removed) {
+        long now = System.currentTimeMillis();
+        for (Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<K, Entry<V>> entry = it.next();
+            if (!filter.test(entry.getKey())) {
+                continue;
+            }
+            it.remove();
+            if (removed != null && now < entry.getValue().expireAtMillis) {
+                removed.accept(entry.getValue().value);
+            }
+        }
+    }
+
+    private void evict() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            entries.values().removeIf(entry -> now >= entry.expireAtMillis);
+
+            Iterator<K> keys = entries.keySet().iterator();
+            while (entries.size() > lowWaterSize && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        } finally {
+            evicting.set(false);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 짧은 시간 동안 들어온 단건 조회를 모아 한 번의 다건 조회로 실행한다.
+ *
+ * 묶음의 첫 키가 들어오면 windowMillis 뒤에 묶음을 실행하도록 예약하고, 그 전에 maxBatchSize개가 모이면 바로 실행한다.
+ * 같은 묶음 안의 같은 키는 하나의 조회 결과를 함께 받는다. 다건 조회는 업무 스레드 풀에서 실행한다.
+ */
+public class MicroBatcher<K, V> {
+    private final Function<Collection<K>, Map<K, V>> loader;
+
+    private final long windowMillis;
+
+    private final int maxBatchSize;
+
+    private final ServiceExecutor serviceExecutor;
+
+    private final ScheduledExecutorService timer;
+
+    private final Object lock = new Object();
+
+    // 모으는 중인 묶음. lock으로 보호한다.
+    private Map<K, CompletableFuture<V>> pending;
+
+    /**
+     * @param loader 키 목록으로 값을 조회한다. 결과에 없는 키는 null로 완료된다.
+     */
+    public MicroBatcher(String name, Function<Collection<K>, Map<K, V>> loader, long windowMillis, int maxBatchSize,
+                        ServiceExecutor serviceExecutor) {
+        if (windowMillis <= 0 || maxBatchSize <= 0) {
+            throw new IllegalArgumentException("batch window and size must be positive");
+        }
+        this.loader = loader;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.serviceExecutor = serviceExecutor;
+        this.timer = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory(name, true));
+    }
+
+    public CompletableFuture<V> load(K key) {
+        CompletableFuture<V> result;
+        Map<K, CompletableFuture<V>> full = null;
+        Map<K, CompletableFuture<V>> started = null;
+
+        synchronized (lock) {
+            if (pending == null) {
+                pending = new LinkedHashMap<K, CompletableFuture<V>>();
+                started = pending;
+            }
+            result = pending.get(key);
+            if (result == null) {
+                result = new CompletableFuture<V>();
+                pending.put(key, result);
+            }
+            if (pending.size() >= maxBatchSize) {
+                full = pending;
+                pending = null;
+            }
+        }
+
+        if (full != null) {
+            submit(full);
+        } else if (started != null) {
+            final Map<K, CompletableFuture<V>> batch = started;
+            timer.schedule(() -> flush(batch), windowMillis, TimeUnit.MILLISECONDS);
+        }
+        return result;
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private void flush(Map<K, CompletableFuture<V>> batch) {
+        synchronized (lock) {
+            // 이미 크기가 차서 실행된 묶음이다.
+            if (pending != batch) {
+                return;
+            }
+            pending = null;
+        }
+        submit(batch);
+    }
+
+    private void submit(final Map<K, CompletableFuture<V>> batch) {
+        boolean accepted = serviceExecutor.execute(ExecutionMode.POOL, () -> run(batch));
+        if (!accepted) {
+            RuntimeException e = new IllegalStateException("service queue is full");
+            for (CompletableFuture<V> result : batch.values()) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void run(Map<K, CompletableFuture<V>> batch) {
+        Map<K, V> values;
+        try {
+            values = loader.apply(batch.keySet());
+        } catch (RuntimeException e) {
+            for (CompletableFuture<V> result : batch.values()) {
+                result.completeExceptionally(e);
+            }
+            return;
+        }
+
+        for (Map.Entry<K, CompletableFuture<V>> entry : batch.entrySet()) {
+            entry.getValue().complete(values.get(entry.getKey()));
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.multipart.Attribute;
+import io.netty.handler.codec.http.multipart.HttpDataFactory;
+import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder;
+import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder.EndOfDataDecoderException;
+import io.netty.handler.codec.http.multipart.HttpPostRequestDecoder.ErrorDataDecoderException;
+import io.netty.handler.codec.http.multipart.InterfaceHttpData;
+import io.netty.handler.codec.http.multipart.InterfaceHttpData.HttpDataType;
+import io.netty.util.CharsetUtil;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * HTTP 요청 본문을 HttpContent 조각이 도착할 때마다 디코딩하여 reqData에 채운다.
+ *
+ * form(x-www-form-urlencoded, multipart) 본문은 HttpPostRequestDecoder에 조각 단위로 넘기며,
+ * HttpDataFactory의 기준 크기보다 작은 값은 메모리에 두고 큰 값만 디스크에 기록한다.
+ * JSON 본문은 수신한 버퍼를 복사하지 않고 CompositeByteBuf로 모았다가 마지막 조각에서 최상위 필드를 꺼낸다.
+ */
+final class RequestBodyDecoder {
+    private static final Logger logger = LogManager.getLogger(RequestBodyDecoder.class);
+
+    private final HttpPostRequestDecoder form;
+
+    private final CompositeByteBuf json;
+
+    private RequestBodyDecoder(HttpPostRequestDecoder form, CompositeByteBuf json) {
+        this.form = form;
+        this.json = json;
+    }
+
+    /**
+     * 본문 형식에 맞는 디코더를 만든다. 처리하지 않는 형식이면 null을 돌려준다.
+     */
+    static RequestBodyDecoder create(HttpDataFactory factory, HttpRequest request, ByteBufAllocator alloc) {
+        String contentType = request.headers().get(HttpHeaderNames.CONTENT_TYPE);
+        if (contentType == null) {
+            return null;
+        }
+
+        contentType = contentType.toLowerCase(Locale.ROOT);
+        try {
+            if (contentType.startsWith("application/x-www-form-urlencoded")
+                    || HttpPostRequestDecoder.isMultipart(request)) {
+                return new RequestBodyDecoder(new HttpPostRequestDecoder(factory, request), null);
+            }
+        } catch (ErrorDataDecoderException e) {
+            logger.error(e);
+            return null;
+        }
+
+        if (contentType.startsWith("application/json")) {
+            return new RequestBodyDecoder(null, alloc.compositeBuffer(Integer.MAX_VALUE));
+        }
+        return null;
+    }
+
+    /**
+     * 본문 조각을 디코딩한다. form 본문은 값이 완성되는 즉시 reqData(요청 컨텍스트의 본문 값 슬롯)에 들어간다.
+     */
+    void offer(HttpContent content, Map<String, String> reqData) {
+        if (form != null) {
+            try {
+                form.offer(content);
+            } catch (ErrorDataDecoderException e) {
+                logger.error(e);
+                return;
+            }
+            readFormData(reqData);
+        } else if (content.content().isReadable()) {
+            json.addComponent(true, content.content().retain());
+        }
+    }
+
+    /**
+     * 마지막 조각까지 받은 뒤 호출한다.
+     */
+    void finish(Map<String, String> reqData) {
+        if (json == null || !json.isReadable()) {
+            return;
+        }
+
+        try (InputStreamReader reader = new InputStreamReader(new ByteBufInputStream(json), CharsetUtil.UTF_8)) {
+            JsonElement body = new JsonParser().parse(reader);
+            if (body.isJsonObject()) {
+                for (Map.Entry<String, JsonElement> field : ((JsonObject) body).entrySet()) {
+                    JsonElement value = field.getValue();
+                    if (value.isJsonPrimitive()) {
+                        reqData.put(field.getKey(), value.getAsString());
+                    } else if (!value.isJsonNull()) {
+                        reqData.put(field.getKey(), value.toString());
+                    }
+                }
+            }
+        } catch (JsonParseException | IOException e) {
+            logger.error("BODY json", e);
+        }
+    }
+
+    void destroy() {
+        if (form != null) {
+            form.destroy();
+        } else {
+            json.release();
+        }
+    }
+
+    private void readFormData(Map<String, String> reqData) {
+        try {
+            while (form.hasNext()) {
+                InterfaceHttpData data = form.next();
+                try {
+                    if (HttpDataType.Attribute == data.getHttpDataType()) {
+                        Attribute attribute = (Attribute) data;
+                        reqData.put(attribute.getName(), attribute.getValue());
+                    } else if (logger.isDebugEnabled()) {
+                        logger.debug("BODY data : " + data.getHttpDataType().name() + ": " + data.getName());
+                    }
+                } catch (IOException e) {
+                    logger.error("BODY Attribute: " + data.getHttpDataType().name(), e);
+                } finally {
+                    form.removeHttpDataFromClean(data);
+                    data.release();
+                }
+            }
+        } catch (EndOfDataDecoderException e) {
+            // 마지막 데이터까지 모두 읽었다.
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics.Timeout;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.LastHttpContent;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 요청 헤더를 받은 뒤 본문 마지막 조각까지 readTimeout 안에 받지 못하면 파이프라인에 READ_TIMEOUT 이벤트를 보낸다.
+ * ApiRequestParser가 이벤트를 받아 요청 순서에 맞춰 408로 응답하고 연결(HTTP/2는 스트림)을 닫는다.
+ * 채널(HTTP/2는 스트림)마다 만든다.
+ *
+ * 한 번의 읽기로 끝나는 대부분의 요청에는 타이머를 만들지 않는다. 읽기가 끝났는데 요청이 아직 남아 있을 때만
+ * 받고 있는 요청의 제한 시각에 타이머를 하나 걸고, 타이머가 울렸을 때 다음 요청을 받고 있으면 그 요청의 제한 시각으로 다시 건다.
+ */
+public class RequestReadTimeoutHandler extends ChannelInboundHandlerAdapter {
+    /**
+     * 요청을 제한 시간 안에 받지 못했음을 ApiRequestParser에 알리는 사용자 이벤트
+     */
+    public static final Object READ_TIMEOUT = new Object() {
+        @Override
+        public String toString() {
+            return "READ_TIMEOUT";
+        }
+    };
+
+    private final ApiMetrics metrics;
+
+    private final long timeoutNanos;
+
+    // 헤더를 받고 아직 마지막 조각을 받지 못한 요청이 있는지 여부, 그 요청의 번호와 헤더를 받은 시각
+    private boolean reading;
+
+    private long requestId;
+
+    private long startNanos;
+
+    private ScheduledFuture<?> timer;
+
+    public RequestReadTimeoutHandler(ConnectionTimeoutConfig config, ApiMetrics metrics) {
+        this.metrics = metrics;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getReadTimeoutMillis());
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof HttpRequest) {
+            reading = true;
+            requestId++;
+            startNanos = System.nanoTime();
+        }
+        if (msg instanceof LastHttpContent) {
+            reading = false;
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+        if (reading && timer == null) {
+            schedule(ctx, timeoutNanos - (System.nanoTime() - startNanos));
+        }
+        ctx.fireChannelReadComplete();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        reading = false;
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+        ctx.fireChannelInactive();
+    }
+
+    private void schedule(final ChannelHandlerContext ctx, long delayNanos) {
+        final long scheduledId = requestId;
+        timer = ctx.executor().schedule(() -> {
+            timer = null;
+            if (!reading || !ctx.channel().isActive()) {
+                return;
+            }
+            if (requestId != scheduledId) {
+                // 타이머를 건 요청은 끝났고 다음 요청을 받고 있다.
+                schedule(ctx, timeoutNanos - (System.nanoTime() - startNanos));
+                return;
+            }
+            reading = false;
+            metrics.countTimeout(Timeout.READ);
+            ctx.fireUserEventTriggered(READ_TIMEOUT);
+        }, Math.max(0, delayNanos), TimeUnit.NANOSECONDS);
+    }
+}
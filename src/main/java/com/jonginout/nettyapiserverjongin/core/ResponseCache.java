@@ -0,0 +1,174 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.jonginout.nettyapiserverjongin.core.route.Route;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+
+import java.util.zip.CRC32;
+
+/**
+ * ApiRoute의 cacheTtlMillis를 지정한 GET 라우트의 인코딩된 응답 캐시.
+ *
+ * 키는 라우트 이름과 cacheKey에 지정한 요청 값(지정하지 않았으면 요청 URI)이다.
+ * 본문은 읽기 전용 버퍼로 한 번만 만들어 두고 응답마다 duplicate로 보내므로 JSON 인코딩과 복사가 없다.
+ * 압축기를 지정하면 압축 최소 크기 이상인 본문은 gzip으로 압축한 본문도 함께 저장해,
+ * gzip을 받는 클라이언트에는 응답마다 압축하지 않고 보낸다.
+ * 항목 수는 maxEntries, 항목 하나의 크기는 maxEntryBytes로 제한한다.
+ */
+public class ResponseCache {
+    /**
+     * 캐시된 응답 하나
+     */
+    public static final class Entry {
+        private final ByteBuf content;
+
+        private final ByteBuf gzipped;
+
+        private final String etag;
+
+        private final String resultCode;
+
+        Entry(ByteBuf content, ByteBuf gzipped, String etag, String resultCode) {
+            this.content = content;
+            this.gzipped = gzipped;
+            this.etag = etag;
+            this.resultCode = resultCode;
+        }
+
+        /**
+         * 응답 본문. 해제할 필요가 없는 버퍼의 duplicate다.
+         */
+        public ByteBuf content() {
+            return content.duplicate();
+        }
+
+        /**
+         * gzip으로 압축한 응답 본문. 압축기가 없거나 본문이 압축 최소 크기보다 작으면 null이다.
+         */
+        public ByteBuf gzipped() {
+            return gzipped == null ? null : gzipped.duplicate();
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getResultCode() {
+            return resultCode;
+        }
+
+        /**
+         * If-None-Match 헤더의 ETag 목록에 이 응답의 ETag가 있으면 true. 약한 비교를 사용한다.
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals(etag) || tag.equals("*")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final LocalCache<String, Entry> entries;
+
+    private final int maxEntryBytes;
+
+    // gzip 본문을 함께 저장하지 않으면 null
+    private final ResponseCompressor compressor;
+
+    public ResponseCache(int maxEntries, int maxEntryBytes, ResponseCompressor compressor) {
+        this.entries = new LocalCache<String, Entry>(maxEntries);
+        this.maxEntryBytes = maxEntryBytes;
+        this.compressor = compressor;
+    }
+
+    /**
+     * 요청의 캐시 키. 라우트가 캐시를 사용하지 않거나 GET 요청이 아니면 null이다.
+     */
+    public String key(Route route, ApiRequestContext context) {
+        if (route.getCacheTtlMillis() <= 0 || !"GET".equals(context.getMethod().name())) {
+            return null;
+        }
+        String[] fields = route.getCacheKey();
+        if (fields.length == 0) {
+            return route.getName() + '\n' + context.getUri();
+        }
+        String[] values = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            values[i] = context.get(fields[i]);
+        }
+        return key(route.getName(), values);
+    }
+
+    public Entry get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * 인코딩된 응답 본문을 캐시한다. 본문은 복사하므로 content는 호출한 쪽에서 해제한다.
+     * 본문이 maxEntryBytes보다 크면 캐시하지 않고 null을 돌려준다.
+     */
+    public Entry put(String key, ByteBuf content, String resultCode, long ttlMillis) {
+        int length = content.readableBytes();
+        if (length > maxEntryBytes) {
+            return null;
+        }
+        byte[] bytes = ByteBufUtil.getBytes(content, content.readerIndex(), length, false);
+        ByteBuf gzipped = null;
+        if (compressor != null && length >= compressor.getMinSize()) {
+            ByteBuf out = Unpooled.buffer(length / 2 + 32);
+            compressor.encode(Unpooled.wrappedBuffer(bytes), out, ResponseCompressor.Encoding.GZIP);
+            gzipped = readOnly(ByteBufUtil.getBytes(out));
+        }
+        Entry entry = new Entry(readOnly(bytes), gzipped, etag(bytes), resultCode);
+        entries.put(key, entry, System.currentTimeMillis() + ttlMillis);
+        return entry;
+    }
+
+    /**
+     * cacheKey 값으로 라우트의 캐시 항목을 지운다. 값은 ApiRoute의 cacheKey 순서대로 넘긴다.
+     */
+    public void invalidate(String routeName, String... values) {
+        entries.remove(key(routeName, values));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private static String key(String routeName, String[] values) {
+        StringBuilder key = new StringBuilder(routeName);
+        for (String value : values) {
+            key.append('\n');
+            if (value != null) {
+                key.append(value);
+            }
+        }
+        return key.toString();
+    }
+
+    /**
+     * 캐시에서 밀려난 항목을 해제하지 않으므로 GC가 회수하는 힙 버퍼를 사용한다.
+     */
+    private static ByteBuf readOnly(byte[] bytes) {
+        return Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(bytes).asReadOnly());
+    }
+
+    /**
+     * 본문의 CRC32와 길이로 만든 강한 ETag
+     */
+    static String etag(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return "\"" + Long.toHexString(crc.getValue()) + '-' + Integer.toHexString(bytes.length) + "\"";
+    }
+}
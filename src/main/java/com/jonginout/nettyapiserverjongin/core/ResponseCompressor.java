@@ -0,0 +1,249 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.AsciiString;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 응답 본문 압축. HttpContentCompressor를 대신하여 ApiRequestParser가 응답을 기록할 때 직접 압축한다.
+ *
+ * 클라이언트의 Accept-Encoding에서 q 값이 가장 큰 gzip 또는 deflate를 고르고,
+ * JSON과 텍스트 본문 중 minSize 이상인 것만 압축한다. 작은 본문은 압축해도 거의 줄지 않고 CPU만 쓰기 때문이다.
+ * Deflater와 작업 버퍼는 이벤트 루프마다 하나씩 두고 reset하여 재사용하므로 응답마다 zlib 상태를 만들지 않는다.
+ * 압축한 본문 크기와 걸린 시간은 ApiMetrics에 기록한다.
+ */
+public class ResponseCompressor {
+    /**
+     * 응답에 사용할 본문 인코딩
+     */
+    public enum Encoding {
+        // 라우트가 압축을 사용하지 않거나 압축이 꺼져 있음
+        NONE(null),
+        // 클라이언트가 지원하는 압축 방식이 없음
+        IDENTITY(null),
+        GZIP("gzip"),
+        DEFLATE("deflate");
+
+        private final AsciiString name;
+
+        Encoding(String name) {
+            this.name = name == null ? null : AsciiString.cached(name);
+        }
+
+        /**
+         * Content-Encoding 헤더 값. 압축하지 않으면 null이다.
+         */
+        public AsciiString contentEncoding() {
+            return name;
+        }
+    }
+
+    private static final int GZIP_MAGIC = 0x8b1f;
+
+    private static final byte[] GZIP_HEADER = {
+            (byte) GZIP_MAGIC, (byte) (GZIP_MAGIC >> 8), Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff
+    };
+
+    /**
+     * 스레드 하나의 압축 상태
+     */
+    private static final class State {
+        final Deflater gzip;
+
+        final Deflater deflate;
+
+        final CRC32 crc = new CRC32();
+
+        byte[] input = new byte[8192];
+
+        final byte[] output = new byte[8192];
+
+        State(int level) {
+            this.gzip = new Deflater(level, true);
+            this.deflate = new Deflater(level, false);
+        }
+    }
+
+    private final boolean enabled;
+
+    private final int minSize;
+
+    private final int level;
+
+    private final ApiMetrics metrics;
+
+    private final FastThreadLocal<State> states = new FastThreadLocal<State>() {
+        @Override
+        protected State initialValue() {
+            return new State(level);
+        }
+
+        @Override
+        protected void onRemoval(State state) {
+            state.gzip.end();
+            state.deflate.end();
+        }
+    };
+
+    public ResponseCompressor(boolean enabled, int minSize, int level, ApiMetrics metrics) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("compression level must be 1-9 : " + level);
+        }
+        this.enabled = enabled;
+        this.minSize = minSize;
+        this.level = level;
+        this.metrics = metrics;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * Accept-Encoding 헤더로 응답의 본문 인코딩을 고른다. q 값이 같으면 gzip을 고르며, *는 gzip으로 본다.
+     */
+    public Encoding negotiate(CharSequence acceptEncoding) {
+        if (!enabled) {
+            return Encoding.NONE;
+        }
+        if (acceptEncoding == null) {
+            return Encoding.IDENTITY;
+        }
+
+        float gzipQ = -1;
+        float deflateQ = -1;
+        float anyQ = -1;
+        String value = acceptEncoding.toString();
+        int start = 0;
+        while (start < value.length()) {
+            int end = value.indexOf(',', start);
+            if (end < 0) {
+                end = value.length();
+            }
+            int paramStart = value.indexOf(';', start);
+            int nameEnd = paramStart >= 0 && paramStart < end ? paramStart : end;
+            String name = value.substring(start, nameEnd).trim();
+            float q = nameEnd < end ? quality(value.substring(nameEnd + 1, end)) : 1.0f;
+            if ("gzip".equalsIgnoreCase(name) || "x-gzip".equalsIgnoreCase(name)) {
+                gzipQ = q;
+            } else if ("deflate".equalsIgnoreCase(name)) {
+                deflateQ = q;
+            } else if ("*".equals(name)) {
+                anyQ = q;
+            }
+            start = end + 1;
+        }
+
+        if (gzipQ < 0) {
+            gzipQ = anyQ;
+        }
+        if (deflateQ < 0) {
+            deflateQ = anyQ;
+        }
+        if (gzipQ > 0 && gzipQ >= deflateQ) {
+            return Encoding.GZIP;
+        }
+        return deflateQ > 0 ? Encoding.DEFLATE : Encoding.IDENTITY;
+    }
+
+    /**
+     * 본문을 압축한다. 압축하지 않아야 하면 null을 돌려주며, 그때 content는 그대로 사용한다.
+     * 압축한 경우 content는 해제하지 않으므로 호출한 쪽에서 해제한다.
+     */
+    public ByteBuf compress(ByteBufAllocator alloc, ByteBuf content, CharSequence contentType, Encoding encoding) {
+        if (encoding == Encoding.NONE || !isCompressible(contentType)) {
+            return null;
+        }
+        int length = content.readableBytes();
+        if (length < minSize) {
+            metrics.countCompressionSkipped("too_small");
+            return null;
+        }
+        if (encoding == Encoding.IDENTITY) {
+            metrics.countCompressionSkipped("not_accepted");
+            return null;
+        }
+
+        long start = System.nanoTime();
+        ByteBuf compressed = alloc.ioBuffer(length / 2 + 32);
+        encode(content, compressed, encoding);
+        metrics.recordCompression(encoding.contentEncoding().toString(), length, compressed.readableBytes(),
+                System.nanoTime() - start);
+        return compressed;
+    }
+
+    /**
+     * 크기 제한과 지표 기록 없이 본문을 압축해 out에 기록한다. content의 읽기 위치는 바뀌지 않는다.
+     */
+    public void encode(ByteBuf content, ByteBuf out, Encoding encoding) {
+        State state = states.get();
+        int length = content.readableBytes();
+        byte[] input;
+        int offset;
+        if (content.hasArray()) {
+            input = content.array();
+            offset = content.arrayOffset() + content.readerIndex();
+        } else {
+            if (state.input.length < length) {
+                state.input = new byte[Math.max(length, state.input.length * 2)];
+            }
+            input = state.input;
+            offset = 0;
+            content.getBytes(content.readerIndex(), input, 0, length);
+        }
+
+        if (encoding == Encoding.GZIP) {
+            state.crc.reset();
+            state.crc.update(input, offset, length);
+            out.writeBytes(GZIP_HEADER);
+            deflate(state.gzip, input, offset, length, state.output, out);
+            out.writeIntLE((int) state.crc.getValue());
+            out.writeIntLE(length);
+        } else if (encoding == Encoding.DEFLATE) {
+            deflate(state.deflate, input, offset, length, state.output, out);
+        } else {
+            throw new IllegalArgumentException("not a compression encoding : " + encoding);
+        }
+    }
+
+    private static void deflate(Deflater deflater, byte[] input, int offset, int length, byte[] buffer,
+                                ByteBuf out) {
+        deflater.reset();
+        deflater.setInput(input, offset, length);
+        deflater.finish();
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer, 0, buffer.length);
+            out.writeBytes(buffer, 0, n);
+        }
+    }
+
+    private static boolean isCompressible(CharSequence contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toString();
+        return type.startsWith("application/json") || type.startsWith("text/");
+    }
+
+    private static float quality(String params) {
+        int q = params.indexOf("q=");
+        if (q < 0) {
+            return 1.0f;
+        }
+        int end = params.indexOf(';', q);
+        try {
+            return Float.parseFloat(params.substring(q + 2, end < 0 ? params.length() : end).trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
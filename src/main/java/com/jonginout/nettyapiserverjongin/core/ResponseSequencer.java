@@ -0,0 +1,119 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * HTTP/1.1 파이프라이닝에서 요청을 받은 순서대로 응답을 기록한다.
+ *
+ * 요청마다 next로 순번을 받고, 서비스가 끝나면 complete로 응답을 넘긴다. 앞선 순번의 응답이 아직 없으면
+ * 보관해 두었다가 앞선 응답이 도착할 때 이어서 기록한다. 기록만 하고 flush는 호출자가 한 번에 처리한다.
+ * 채널 이벤트 루프에서만 사용한다.
+ */
+final class ResponseSequencer {
+    private static final Object SKIPPED = new Object();
+
+    private Object[] slots = new Object[4];
+
+    private boolean[] closes = new boolean[4];
+
+    // 다음에 기록할 응답의 순번
+    private long nextWrite;
+
+    // 다음 요청에 줄 순번
+    private long nextSeq;
+
+    // Connection: close 응답을 기록하여 이후 응답은 버린다.
+    private boolean closed;
+
+    long next() {
+        if (nextSeq - nextWrite == slots.length) {
+            grow();
+        }
+        return nextSeq++;
+    }
+
+    /**
+     * 처리 중인 요청 수(응답을 아직 기록하지 않은 요청 포함)
+     */
+    int pending() {
+        return (int) (nextSeq - nextWrite);
+    }
+
+    /**
+     * seq가 지금까지 받은 요청 중 마지막 요청의 순번인지 여부
+     */
+    boolean isLast(long seq) {
+        return seq == nextSeq - 1;
+    }
+
+    /**
+     * 순번 seq의 응답을 넘긴다. response가 null이면 응답 없이 순번만 건너뛴다.
+     *
+     * @param close 응답을 기록한 뒤 연결을 닫을지 여부
+     * @return 이번 호출로 채널에 기록한 응답이 있으면 true
+     */
+    boolean complete(ChannelHandlerContext ctx, long seq, HttpResponse response, boolean close) {
+        if (closed || seq < nextWrite) {
+            ReferenceCountUtil.release(response);
+            return false;
+        }
+
+        int index = index(seq);
+        slots[index] = response == null ? SKIPPED : response;
+        closes[index] = close;
+
+        boolean written = false;
+        while (nextWrite < nextSeq && slots[index(nextWrite)] != null) {
+            index = index(nextWrite);
+            Object ready = slots[index];
+            boolean closeAfter = closes[index];
+            slots[index] = null;
+            nextWrite++;
+
+            if (ready == SKIPPED) {
+                continue;
+            }
+            written = true;
+            if (closeAfter) {
+                ctx.write(ready).addListener(ChannelFutureListener.CLOSE);
+                closed = true;
+                releaseAll();
+                break;
+            }
+            ctx.write(ready);
+        }
+        return written;
+    }
+
+    /**
+     * 채널이 닫혔을 때 보관 중인 응답을 해제한다.
+     */
+    void releaseAll() {
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] != SKIPPED) {
+                ReferenceCountUtil.release(slots[i]);
+            }
+            slots[i] = null;
+        }
+        nextWrite = nextSeq;
+    }
+
+    private int index(long seq) {
+        return (int) (seq & (slots.length - 1));
+    }
+
+    private void grow() {
+        int length = slots.length;
+        Object[] newSlots = new Object[length << 1];
+        boolean[] newCloses = new boolean[length << 1];
+        for (long seq = nextWrite; seq < nextSeq; seq++) {
+            newSlots[(int) (seq & (newSlots.length - 1))] = slots[index(seq)];
+            newCloses[(int) (seq & (newSlots.length - 1))] = closes[index(seq)];
+        }
+        slots = newSlots;
+        closes = newCloses;
+    }
+}
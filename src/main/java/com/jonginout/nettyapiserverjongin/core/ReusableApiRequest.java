@@ -0,0 +1,15 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import java.util.Map;
+
+/**
+ * 요청별 상태를 가지지만 만드는 비용이 큰 API 서비스.
+ * 라우팅 테이블은 이 서비스를 이벤트 루프마다 풀에 보관했다가 다음 요청에서 reset으로 다시 초기화하여 사용한다.
+ * 응답을 기록한 뒤에 풀로 돌아가며, 시간 초과나 취소된 요청의 서비스는 돌아가지 않는다.
+ */
+public interface ReusableApiRequest extends ApiRequest {
+    /**
+     * 새 요청의 데이터로 요청 데이터와 처리 결과를 다시 초기화한다.
+     */
+    public void reset(Map<String, String> reqData);
+}
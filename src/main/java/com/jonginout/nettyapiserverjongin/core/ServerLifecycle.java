@@ -0,0 +1,252 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.jonginout.nettyapiserverjongin.core.rpc.RpcServerHandler;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 리스너(평문, TLS, RPC)가 함께 쓰는 서버 수명 주기. 바인드한 서버 채널, 받은 연결과 이벤트 루프를 모두 가지고 있다.
+ *
+ * 종료 신호를 받으면 다음 순서로 연결을 비운다(drain).
+ * 1. 준비 상태(/health/ready)를 503으로 바꾸고 readinessDelay 동안 로드 밸런서가 알아차리기를 기다린다.
+ * 2. 서버 채널을 닫아 새 연결을 받지 않는다.
+ * 3. HTTP/2 연결은 GOAWAY를 보내 처리 중인 스트림만 끝내게 하고, HTTP/1.1 연결은 쉬고 있으면 바로 닫고
+ *    처리 중이면 남은 응답에 Connection: close를 붙여 보낸 뒤 닫는다(ApiRequestParser).
+ *    RPC 연결은 새 호출을 503으로 응답하고 처리 중인 호출의 응답을 모두 보낸 뒤 닫는다(RpcServerHandler).
+ * 4. 실행 중인 API 서비스(executeService)가 모두 끝나거나 drainTimeout이 지나면 남은 연결을 닫고 이벤트 루프를 놓는다.
+ */
+public class ServerLifecycle {
+    private static final Logger logger = LogManager.getLogger(ServerLifecycle.class);
+
+    /**
+     * 연결 비우기를 시작했음을 HTTP/1.1 연결과 RPC 연결의 파이프라인에 알리는 사용자 이벤트
+     */
+    public static final Object DRAIN = new Object() {
+        @Override
+        public String toString() {
+            return "DRAIN";
+        }
+    };
+
+    public enum State {
+        STARTING, RUNNING, DRAINING, STOPPED
+    }
+
+    private final long drainTimeoutMillis;
+
+    private final long readinessDelayMillis;
+
+    private final long quietPeriodMillis;
+
+    private final ChannelGroup serverChannels = new DefaultChannelGroup("api-server", GlobalEventExecutor.INSTANCE);
+
+    // 닫힌 채널은 그룹에서 저절로 빠진다.
+    private final ChannelGroup clientChannels = new DefaultChannelGroup("api-client", GlobalEventExecutor.INSTANCE);
+
+    private final List<EventLoopGroup> eventLoopGroups = new CopyOnWriteArrayList<EventLoopGroup>();
+
+    // 실행 중인 API 서비스 수
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private volatile State state = State.STARTING;
+
+    /**
+     * @param drainTimeoutMillis   실행 중인 API 서비스와 연결이 끝나기를 기다리는 최대 시간(ms)
+     * @param readinessDelayMillis 준비 상태를 내린 뒤 새 연결을 막기 전까지 기다리는 시간(ms)
+     * @param quietPeriodMillis    이벤트 루프를 놓을 때 새 작업이 없어야 하는 시간(ms)
+     */
+    public ServerLifecycle(long drainTimeoutMillis, long readinessDelayMillis, long quietPeriodMillis) {
+        if (drainTimeoutMillis < 0 || readinessDelayMillis < 0 || quietPeriodMillis < 0) {
+            throw new IllegalArgumentException("shutdown timeouts must not be negative");
+        }
+        this.drainTimeoutMillis = drainTimeoutMillis;
+        this.readinessDelayMillis = readinessDelayMillis;
+        this.quietPeriodMillis = quietPeriodMillis;
+    }
+
+    public void addEventLoopGroup(EventLoopGroup group) {
+        eventLoopGroups.add(group);
+    }
+
+    public void addServerChannel(Channel channel) {
+        serverChannels.add(channel);
+    }
+
+    /**
+     * 받은 연결을 등록한다. 연결 비우기를 시작한 뒤(readinessDelay 동안)에 들어온 연결은 ApiRequestParser가
+     * 첫 응답에 Connection: close를 붙인다.
+     */
+    public void addClientChannel(Channel channel) {
+        clientChannels.add(channel);
+    }
+
+    /**
+     * 모든 리스너를 바인드했다. 이때부터 준비 상태가 된다.
+     */
+    public void started() {
+        if (state == State.STARTING) {
+            state = State.RUNNING;
+            logger.info("서버 준비 완료 : " + serverChannels.size() + "개 리스너");
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * 새 요청을 받을 수 있는지 여부(readiness)
+     */
+    public boolean isReady() {
+        return state == State.RUNNING;
+    }
+
+    /**
+     * 이벤트 루프가 돌고 있는지 여부(liveness). 연결을 비우는 중에도 살아 있다.
+     */
+    public boolean isLive() {
+        return state != State.STOPPED;
+    }
+
+    public boolean isDraining() {
+        State current = state;
+        return current == State.DRAINING || current == State.STOPPED;
+    }
+
+    public long getDrainTimeoutMillis() {
+        return drainTimeoutMillis;
+    }
+
+    /**
+     * API 서비스 실행을 시작했다. 끝나면 반드시 serviceFinished를 호출해야 한다.
+     */
+    public void serviceStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    public void serviceFinished() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 모든 연결의 송신 버퍼에 쌓여 아직 소켓에 쓰지 못한 바이트 합계. 지표를 조회할 때만 연결을 훑는다.
+     */
+    public long getPendingOutboundBytes() {
+        long pending = 0;
+        for (Channel channel : clientChannels) {
+            ChannelOutboundBuffer buffer = channel.unsafe().outboundBuffer();
+            if (buffer != null) {
+                pending += buffer.totalPendingWriteBytes();
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * 송신 버퍼가 high water mark를 넘어 쓰기 불가능한 연결 수
+     */
+    public int getUnwritableConnections() {
+        int unwritable = 0;
+        for (Channel channel : clientChannels) {
+            if (!channel.isWritable()) {
+                unwritable++;
+            }
+        }
+        return unwritable;
+    }
+
+    /**
+     * 서버가 완전히 멈출 때까지 기다린다.
+     */
+    public void awaitTermination() throws InterruptedException {
+        terminated.await();
+    }
+
+    /**
+     * 연결을 비운 뒤 이벤트 루프를 놓는다. 여러 스레드에서 호출해도 한 번만 실행하며, 나머지는 끝날 때까지 기다린다.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            if (state == State.DRAINING || state == State.STOPPED) {
+                awaitTerminationUninterruptibly();
+                return;
+            }
+            state = State.DRAINING;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMillis);
+        try {
+            logger.info("서버 종료 시작 : 연결 " + clientChannels.size() + "개, 실행 중인 서비스 " + inFlight.get() + "개");
+            if (readinessDelayMillis > 0) {
+                TimeUnit.MILLISECONDS.sleep(readinessDelayMillis);
+            }
+            serverChannels.close().awaitUninterruptibly();
+
+            for (Channel channel : clientChannels) {
+                drain(channel);
+            }
+            while ((inFlight.get() > 0 || !clientChannels.isEmpty()) && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (inFlight.get() > 0 || !clientChannels.isEmpty()) {
+            logger.warn("종료 대기 시간이 지나 연결 " + clientChannels.size() + "개를 닫습니다. 실행 중인 서비스 "
+                    + inFlight.get() + "개");
+        }
+        clientChannels.close().awaitUninterruptibly();
+        for (EventLoopGroup group : eventLoopGroups) {
+            group.shutdownGracefully(quietPeriodMillis, Math.max(quietPeriodMillis, drainTimeoutMillis),
+                    TimeUnit.MILLISECONDS);
+        }
+        for (EventLoopGroup group : eventLoopGroups) {
+            group.terminationFuture().awaitUninterruptibly();
+        }
+
+        state = State.STOPPED;
+        terminated.countDown();
+        logger.info("서버 종료 완료");
+    }
+
+    /**
+     * HTTP/2 연결은 닫기를 요청하면 Http2FrameCodec이 GOAWAY를 보내고 처리 중인 스트림이 끝날 때까지 기다린다.
+     * HTTP/1.1 연결과 RPC 연결은 파이프라인에 DRAIN 이벤트를 보내고, 아직 요청을 하나도 받지 않아 프로토콜을 정하지 않은
+     * 연결은 닫는다.
+     */
+    private static void drain(Channel channel) {
+        if (channel.pipeline().get(ApiRequestParser.class) != null
+                || channel.pipeline().get(RpcServerHandler.class) != null) {
+            channel.pipeline().fireUserEventTriggered(DRAIN);
+        } else {
+            channel.close();
+        }
+    }
+
+    private void awaitTerminationUninterruptibly() {
+        try {
+            terminated.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,5 +1,11 @@
 package com.jonginout.nettyapiserverjongin.core;
 
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.core.route.ApiRequestFactory;
+import com.jonginout.nettyapiserverjongin.core.route.ApiRouteRegistry;
+import com.jonginout.nettyapiserverjongin.core.route.Route;
+import com.jonginout.nettyapiserverjongin.core.route.RouteTable;
+import com.jonginout.nettyapiserverjongin.service.NotFound;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -7,70 +13,128 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 /**
  * ServiceDispatcher 클래스는 스프링을 기초로 하여
  * HTTP 요청의 URL과
  * HTTP 메서드에 해당하는 API 서비스 클래스를 생성하여
  * ApiRequest 인터페이스 형태로 돌려준다.
+ *
+ * 라우팅 테이블은 기동 시점에 {@link ApiRoute}가 붙은 빈으로 한 번만 만들어지고,
+ * 요청마다 스프링 컨텍스트를 조회하지 않는다.
  */
 @Component
 public class ServiceDispatcher {
     private static ApplicationContext springContext;
 
+    private static RouteTable routeTable = new RouteTable();
+
+    /**
+     * 해당하는 라우트가 없을 때 사용하는 기본 라우트. 가벼운 응답이므로 이벤트 루프에서 바로 실행한다.
+     */
+    private static final Route NOT_FOUND = new Route("notFound", null, null, new NotFound(), ExecutionMode.INLINE, 0, 0);
+
     @Autowired
     public void init(ApplicationContext springContext) {
         ServiceDispatcher.springContext = springContext;
+        ServiceDispatcher.routeTable = ApiRouteRegistry.build(springContext);
+        logger.info("route table loaded : " + routeTable.size() + " routes");
     }
 
     protected Logger logger = LogManager.getLogger(this.getClass());
 
     // HTTP 요청에서 추출한 값을 가진 맵 책체를 인수로
+    // 싱글톤 핸들러 라우트는 요청 데이터를 ApiRequest 형태로 감싸서 돌려준다.
     public static ApiRequest dispatch(Map<String, String> requestMap) {
-        // HTTP 요청의 URL을 보고 이 값을 기준으로 API 서비스 클래스를 생성한다.
-        String serviceUri = requestMap.get("REQUEST_URI");
-        String beanName = null;
+        Route route = route(requestMap);
+        if (route.getHandler() != null) {
+            return new HandlerRequest(route.getHandler(), requestMap);
+        }
+        return route.getFactory().create(requestMap);
+    }
 
+    /**
+     * HTTP 요청의 URL과 메서드로 라우팅 테이블을 조회한다. 경로 변수는 requestMap에 추가된다.
+     * 해당하는 라우트가 없으면 NotFound 핸들러를 가진 기본 라우트를 돌려준다.
+     */
+    public static Route route(Map<String, String> requestMap) {
+        String serviceUri = requestMap.get("REQUEST_URI");
         if (serviceUri == null) {
-            beanName = "notFound";
+            return NOT_FOUND;
         }
 
-        if (serviceUri.startsWith("/tokens")) {
-            String httpMethod = requestMap.get("REQUEST_METHOD");
-
-            switch (httpMethod) {
-                case "POST":
-                    beanName = "tokenIssue";
-                    break;
-                case "DELETE":
-                    beanName = "tokenExpier";
-                    break;
-                case "GET":
-                    beanName = "tokenVerify";
-                    break;
-                default:
-                    beanName = "notFound";
-                    break;
-            }
-        } else if (serviceUri.startsWith("/users")) {
-            beanName = "users";
-        } else {
-            beanName = "notFound";
-        }
+        Route route = routeTable.find(requestMap.get("REQUEST_METHOD"), serviceUri, requestMap);
+        return route == null ? NOT_FOUND : route;
+    }
 
-        ApiRequest service = null;
-        try {
-            /**
-             * beanName 값을 사용하여 스프링 컨텍스트에서 API 서비스 클래스 객체를 생성한다.
-             * 다른 오류 없이 이 부분
-             */
-            service = (ApiRequest) springContext.getBean(beanName, requestMap);
-        } catch (Exception e) {
-            e.printStackTrace();
-            // 기본 API 서비스 생성
-            service = (ApiRequest) springContext.getBean("notFound", requestMap);
+    /**
+     * 요청 컨텍스트의 메서드와 URI로 라우팅 테이블을 조회한다. 경로 변수는 요청 컨텍스트의 경로 변수 슬롯에 들어간다.
+     */
+    public static Route route(ApiRequestContext context) {
+        if (context.getUri() == null) {
+            return NOT_FOUND;
         }
 
-        return service;
+        Route route = routeTable.find(context.getMethod().name(), context.getUri(), context.pathVariables());
+        return route == null ? NOT_FOUND : route;
+    }
+
+    /**
+     * HTTP 연결 밖에서 요청 컨텍스트 하나를 라우트의 실행 방식으로 실행한다. 묶음 요청의 하위 요청이 사용한다.
+     * ApiRequestParser와 같이 싱글톤 핸들러는 요청 컨텍스트로 바로 호출하고, 그 밖의 서비스는 생성기로 만들어 실행한다.
+     * 서비스는 업무 스레드에서 만들어질 수 있으므로 이벤트 루프마다 두는 풀을 거치지 않고 만들고 생성기에 돌려주지 않는다.
+     * 업무 스레드 풀의 대기열이 가득 차 있으면 503 응답으로 완료된다.
+     */
+    public static CompletionStage<JsonObject> execute(Route route, final ApiRequestContext context,
+                                                      ServiceExecutor executor) {
+        final ApiHandler handler = route.getHandler();
+        final ApiRequestFactory factory = route.getFactory();
+        final CompletableFuture<JsonObject> result = new CompletableFuture<JsonObject>();
+        boolean accepted = executor.execute(route.getExecutionMode(), () -> {
+            try {
+                if (handler != null) {
+                    CompletionStage<JsonObject> stage = handler.execute(context);
+                    cancelWhenAbandoned(result, stage);
+                    stage.whenComplete((apiResult, e) -> complete(result, apiResult, e));
+                    return;
+                }
+
+                ApiRequest service = factory.createUnpooled(context.asMap());
+                if (service instanceof AsyncApiRequest) {
+                    CompletionStage<JsonObject> stage = ((AsyncApiRequest) service).executeServiceAsync();
+                    cancelWhenAbandoned(result, stage);
+                    stage.whenComplete((apiResult, e) -> complete(result, apiResult, e));
+                } else {
+                    service.executeService();
+                    result.complete(service.getApiResult());
+                }
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        return accepted ? result : ErrorResponse.SERVICE_UNAVAILABLE.getStage();
+    }
+
+    /**
+     * 응답을 기다리던 쪽이 시간 초과나 연결 종료로 result를 먼저 예외로 완료하면, 서비스가 돌려준 stage를 취소한다.
+     * result가 이미 예외로 완료되어 있으면 바로 취소한다. 서비스가 먼저 끝났으면 취소는 아무 일도 하지 않는다.
+     */
+    public static void cancelWhenAbandoned(CompletableFuture<JsonObject> result, CompletionStage<JsonObject> stage) {
+        final CompletableFuture<JsonObject> service = stage.toCompletableFuture();
+        result.whenComplete((apiResult, e) -> {
+            if (e != null) {
+                service.cancel(false);
+            }
+        });
+    }
+
+    private static void complete(CompletableFuture<JsonObject> result, JsonObject apiResult, Throwable e) {
+        if (e != null) {
+            result.completeExceptionally(e);
+        } else {
+            result.complete(apiResult);
+        }
     }
 }
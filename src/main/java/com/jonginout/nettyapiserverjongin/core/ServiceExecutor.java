@@ -0,0 +1,138 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * API 서비스를 네티 이벤트 루프 밖에서 실행하는 업무 실행기.
+ * 데이터베이스나 레디스를 호출하는 서비스가 이벤트 루프를 막아 같은 루프의 다른 연결까지 지연시키는 것을 막는다.
+ *
+ * 대기 중인 작업이 queueLimit을 넘으면 execute가 false를 돌려주며, 호출자는 즉시 503으로 응답해야 한다.
+ */
+public class ServiceExecutor {
+    private static final Logger logger = LogManager.getLogger(ServiceExecutor.class);
+
+    private final ExecutionMode defaultMode;
+
+    private final int queueLimit;
+
+    private final long timeoutMillis;
+
+    private final ThreadPoolExecutor pool;
+
+    private final ExecutorService virtual;
+
+    private final AtomicInteger virtualPending = new AtomicInteger();
+
+    public ServiceExecutor(String defaultMode, int threadCount, int queueLimit, long timeoutMillis) {
+        this(ExecutionMode.valueOf(defaultMode.trim().toUpperCase(Locale.ROOT)), threadCount, queueLimit, timeoutMillis);
+    }
+
+    public ServiceExecutor(ExecutionMode defaultMode, int threadCount, int queueLimit, long timeoutMillis) {
+        if (defaultMode == ExecutionMode.DEFAULT) {
+            throw new IllegalArgumentException("service.execution.mode must be inline, pool or virtual");
+        }
+        this.queueLimit = queueLimit;
+        this.timeoutMillis = timeoutMillis;
+        this.pool = new ThreadPoolExecutor(threadCount, threadCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueLimit), new DefaultThreadFactory("api-service"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.virtual = newVirtualThreadExecutor();
+        if (defaultMode == ExecutionMode.VIRTUAL && virtual == null) {
+            logger.warn("이 JDK는 가상 스레드를 지원하지 않아 pool 모드로 실행합니다.");
+            defaultMode = ExecutionMode.POOL;
+        }
+        this.defaultMode = defaultMode;
+    }
+
+    /**
+     * 라우트에 지정된 실행 방식을 실제 실행 방식으로 바꾼다.
+     */
+    public ExecutionMode resolve(ExecutionMode mode) {
+        if (mode == null || mode == ExecutionMode.DEFAULT) {
+            return defaultMode;
+        }
+        if (mode == ExecutionMode.VIRTUAL && virtual == null) {
+            return ExecutionMode.POOL;
+        }
+        return mode;
+    }
+
+    /**
+     * 라우트에 지정된 처리 제한 시간을 실제 제한 시간으로 바꾼다. 0 이하는 service.timeout.millis 설정값을 따른다.
+     */
+    public long resolveTimeoutMillis(long routeTimeoutMillis) {
+        return routeTimeoutMillis > 0 ? routeTimeoutMillis : timeoutMillis;
+    }
+
+    /**
+     * task를 지정된 실행 방식으로 실행한다. INLINE은 호출한 스레드에서 바로 실행한다.
+     *
+     * @return 대기열이 가득 차서 실행을 거절했으면 false
+     */
+    public boolean execute(ExecutionMode mode, final Runnable task) {
+        switch (resolve(mode)) {
+            case INLINE:
+                task.run();
+                return true;
+            case VIRTUAL:
+                if (virtualPending.incrementAndGet() > queueLimit) {
+                    virtualPending.decrementAndGet();
+                    return false;
+                }
+                try {
+                    virtual.execute(() -> {
+                        try {
+                            task.run();
+                        } finally {
+                            virtualPending.decrementAndGet();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    virtualPending.decrementAndGet();
+                    return false;
+                }
+                return true;
+            default:
+                try {
+                    pool.execute(task);
+                } catch (RejectedExecutionException e) {
+                    return false;
+                }
+                return true;
+        }
+    }
+
+    /**
+     * 업무 스레드 풀 대기열에 쌓여 있는 작업 수
+     */
+    public int getQueueDepth() {
+        return pool.getQueue().size() + virtualPending.get();
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+        if (virtual != null) {
+            virtual.shutdown();
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            // JDK 21 이상에서만 존재하는 메서드이므로 리플렉션으로 호출한다.
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+/**
+ * 처리 결과를 JSON 대신 텍스트 본문으로 응답하는 API 서비스.
+ * ApiRequestParser는 서비스가 정상적으로 끝나면 getApiResult 대신 getTextResult를 응답 본문으로 기록한다.
+ */
+public interface TextApiRequest extends ApiRequest {
+    /**
+     * 응답의 Content-Type 헤더 값
+     */
+    public String getContentType();
+
+    /**
+     * 응답 본문. UTF-8로 인코딩된다.
+     */
+    public CharSequence getTextResult();
+}
@@ -0,0 +1,145 @@
+package com.jonginout.nettyapiserverjongin.core.accesslog;
+
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.appender.AbstractOutputStreamAppender;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 요청마다 한 줄씩 남기는 접근 로그.
+ *
+ * 이벤트 루프는 응답을 기록할 때 {@link AccessRecord}를 미리 만들어 둔 링 버퍼 칸에 복사하기만 하고,
+ * 문자열 만들기와 파일 기록은 접근 로그 기록 스레드 하나가 맡는다. 기록 스레드는 StringBuilder 하나를 재사용하여
+ * "access" 로거로 보내며, log4j2의 garbage-free 경로(재사용 메시지, RandomAccessFile appender)를 타므로
+ * 항목마다 객체를 만들지 않는다. 링 버퍼가 가득 차면 항목을 버리고 지표에 센다.
+ *
+ * 4xx, 5xx 응답은 모두 기록하고, 나머지는 sampleRate의 비율만 기록한다.
+ * uri에서 redact에 있는 이름의 쿼리 파라미터와 경로 변수 값은 가려서 기록한다.
+ */
+public class AccessLog {
+    private static final Logger logger = LogManager.getLogger("access");
+
+    // 기록할 항목이 없을 때 기록 스레드가 쉬는 시간
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final boolean enabled;
+
+    private final double sampleRate;
+
+    private final String[] redact;
+
+    private final ApiMetrics metrics;
+
+    private final AccessLogBuffer buffer;
+
+    private final Thread writer;
+
+    private volatile boolean running = true;
+
+    public AccessLog(boolean enabled, int bufferSize, double sampleRate, String redactNames, ApiMetrics metrics) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("access log sample rate must be 0..1 : " + sampleRate);
+        }
+        this.enabled = enabled;
+        this.sampleRate = sampleRate;
+        this.redact = split(redactNames);
+        this.metrics = metrics;
+        this.buffer = enabled ? new AccessLogBuffer(bufferSize) : null;
+        if (enabled) {
+            this.writer = new Thread(this::drain, "access-log-writer");
+            this.writer.setDaemon(true);
+            this.writer.start();
+        } else {
+            this.writer = null;
+        }
+    }
+
+    private static String[] split(String names) {
+        List<String> list = new ArrayList<String>();
+        if (names != null) {
+            for (String name : names.split(",")) {
+                if (!name.trim().isEmpty()) {
+                    list.add(name.trim());
+                }
+            }
+        }
+        return list.toArray(new String[list.size()]);
+    }
+
+    /**
+     * 응답을 기록한 항목을 링 버퍼에 넣는다. 항목은 복사되므로 호출한 뒤 바로 재사용할 수 있다.
+     */
+    public void log(AccessRecord record) {
+        if (!enabled || !sampled(record.getStatus())) {
+            return;
+        }
+        if (!buffer.offer(record)) {
+            metrics.countAccessLogDropped();
+        }
+    }
+
+    private boolean sampled(int status) {
+        return status >= 400 || sampleRate >= 1
+                || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    /**
+     * 기록 스레드. 링 버퍼의 항목을 차례로 기록하고, 버퍼가 비면 appender의 버퍼를 내보낸 뒤 잠시 쉰다.
+     * 종료할 때는 남은 항목을 모두 기록한 뒤 끝난다.
+     */
+    private void drain() {
+        StringBuilder line = new StringBuilder(256);
+        boolean written = false;
+        for (;;) {
+            AccessRecord entry = buffer.peek();
+            if (entry == null) {
+                if (written) {
+                    flush();
+                    written = false;
+                }
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            line.setLength(0);
+            entry.formatTo(line, redact);
+            buffer.release();
+            logger.info(line);
+            metrics.countAccessLogWritten();
+            written = true;
+        }
+    }
+
+    /**
+     * immediateFlush를 끈 appender는 버퍼가 찰 때까지 파일에 쓰지 않으므로, 요청이 뜸할 때 로그가 늦게 보이지 않도록
+     * 링 버퍼를 다 비울 때마다 내보낸다.
+     */
+    private static void flush() {
+        if (logger instanceof org.apache.logging.log4j.core.Logger) {
+            for (Appender appender : ((org.apache.logging.log4j.core.Logger) logger).getAppenders().values()) {
+                if (appender instanceof AbstractOutputStreamAppender) {
+                    ((AbstractOutputStreamAppender<?>) appender).getManager().flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * 남은 항목을 모두 기록하고 기록 스레드를 끝낸다. 서버 종료 후 스프링 컨텍스트를 닫을 때 호출된다.
+     */
+    public void close() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+}
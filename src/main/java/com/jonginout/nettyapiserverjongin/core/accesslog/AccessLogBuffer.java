@@ -0,0 +1,78 @@
+package com.jonginout.nettyapiserverjongin.core.accesslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 접근 로그 항목을 미리 만들어 둔 칸에 복사해 두는 고정 크기 링 버퍼.
+ * 여러 이벤트 루프가 기록하고 접근 로그 기록 스레드 하나만 꺼낸다.
+ *
+ * 칸마다 순번을 두어 기록할 칸을 CAS 한 번으로 차지하고, 복사가 끝나면 순번을 올려 기록 스레드에 넘긴다.
+ * 버퍼가 가득 차면 기다리지 않고 false를 돌려준다. 이벤트 루프를 멈추는 대신 항목을 버린다.
+ */
+final class AccessLogBuffer {
+    private final AccessRecord[] entries;
+
+    // 칸의 순번. 기록할 수 있으면 위치, 꺼낼 수 있으면 위치 + 1이다.
+    private final AtomicLongArray sequences;
+
+    private final int mask;
+
+    // 다음에 기록할 위치
+    private final AtomicLong tail = new AtomicLong();
+
+    // 다음에 꺼낼 위치. 기록 스레드만 사용한다.
+    private long head;
+
+    AccessLogBuffer(int capacity) {
+        // 위치를 마스크로 칸에 대응시키도록 2의 거듭제곱으로 올린다.
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.entries = new AccessRecord[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            entries[i] = new AccessRecord();
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return entries.length;
+    }
+
+    boolean offer(AccessRecord record) {
+        long position = tail.get();
+        for (;;) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    entries[index].copyFrom(record);
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // 한 바퀴 앞의 항목을 기록 스레드가 아직 꺼내지 않았다.
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 꺼낼 항목. 없으면 null이다. 항목을 다 쓴 뒤 {@link #release()}를 호출해야 칸을 다시 쓸 수 있다.
+     */
+    AccessRecord peek() {
+        int index = (int) head & mask;
+        return sequences.get(index) == head + 1 ? entries[index] : null;
+    }
+
+    void release() {
+        int index = (int) head & mask;
+        entries[index].clear();
+        sequences.lazySet(index, head + entries.length);
+        head++;
+    }
+}
@@ -0,0 +1,249 @@
+package com.jonginout.nettyapiserverjongin.core.accesslog;
+
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics.Phase;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics.RouteMetrics;
+import com.jonginout.nettyapiserverjongin.core.route.Route;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * 요청 하나의 접근 로그 항목. 라우트, 응답 상태, 단계별 처리 시간과 주고받은 본문 크기를 고정된 필드에 담는다.
+ *
+ * ApiRequestParser가 요청 헤더를 받을 때 채널의 풀에서 꺼내 채우고, 응답을 기록할 때 {@link AccessLog}의
+ * 링 버퍼 칸으로 복사한 뒤 다시 풀에 돌려준다. 링 버퍼의 칸도 같은 클래스를 미리 만들어 둔 것이므로
+ * 요청마다 객체나 문자열을 만들지 않는다. 단계 시간은 라우트 지표에도 함께 기록한다.
+ */
+public final class AccessRecord {
+    private static final Phase[] PHASES = Phase.values();
+
+    private static final String REDACTED = "***";
+
+    private SocketAddress remoteAddress;
+
+    private String protocol;
+
+    private String method;
+
+    private String uri;
+
+    // 라우트의 빈 이름과 URI 템플릿. 경로 변수 값을 가릴 때 템플릿을 사용한다.
+    private String routeName;
+
+    private String template;
+
+    private RouteMetrics routeMetrics;
+
+    private long startNanos;
+
+    private final long[] phaseNanos = new long[PHASES.length];
+
+    private long totalNanos;
+
+    private int status;
+
+    private String resultCode;
+
+    private long bytesIn;
+
+    private long bytesOut;
+
+    /**
+     * 요청 헤더를 받았을 때 호출한다. 요청을 받기 전에 끝난 경우(408) method와 uri는 null이다.
+     */
+    public void start(SocketAddress remoteAddress, String protocol, String method, String uri, long startNanos) {
+        this.remoteAddress = remoteAddress;
+        this.protocol = protocol;
+        this.method = method;
+        this.uri = uri;
+        this.startNanos = startNanos;
+    }
+
+    public void route(Route route, RouteMetrics routeMetrics) {
+        this.routeName = route.getName();
+        this.template = route.getTemplate();
+        this.routeMetrics = routeMetrics;
+    }
+
+    public void setBytesIn(long bytesIn) {
+        this.bytesIn = bytesIn;
+    }
+
+    /**
+     * 단계 처리 시간을 항목과 라우트 지표에 기록한다.
+     */
+    public void record(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()] = nanos;
+        if (routeMetrics != null) {
+            routeMetrics.record(phase, nanos);
+        }
+    }
+
+    /**
+     * 응답을 기록할 때 호출한다.
+     */
+    public void finish(int status, String resultCode, long bytesOut) {
+        this.status = status;
+        this.resultCode = resultCode;
+        this.bytesOut = bytesOut;
+        this.totalNanos = System.nanoTime() - startNanos;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * 다음 요청을 위해 비운다. 요청 객체를 붙잡아 두지 않도록 참조 필드도 비운다.
+     */
+    public void clear() {
+        remoteAddress = null;
+        protocol = null;
+        method = null;
+        uri = null;
+        routeName = null;
+        template = null;
+        routeMetrics = null;
+        startNanos = 0;
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = 0;
+        }
+        totalNanos = 0;
+        status = 0;
+        resultCode = null;
+        bytesIn = 0;
+        bytesOut = 0;
+    }
+
+    void copyFrom(AccessRecord other) {
+        remoteAddress = other.remoteAddress;
+        protocol = other.protocol;
+        method = other.method;
+        uri = other.uri;
+        routeName = other.routeName;
+        template = other.template;
+        System.arraycopy(other.phaseNanos, 0, phaseNanos, 0, phaseNanos.length);
+        totalNanos = other.totalNanos;
+        status = other.status;
+        resultCode = other.resultCode;
+        bytesIn = other.bytesIn;
+        bytesOut = other.bytesOut;
+    }
+
+    /**
+     * 한 줄 형식으로 기록한다. 시간은 마이크로초, 크기는 본문 byte이며 값이 없으면 '-'이다.
+     * remote protocol method uri route status resultCode bytesIn bytesOut decode dispatch service encode total
+     *
+     * uri에서 redact에 있는 이름의 쿼리 파라미터와 경로 변수 값은 ***로 가린다.
+     */
+    void formatTo(StringBuilder line, String[] redact) {
+        appendRemote(line);
+        line.append(' ');
+        appendOrDash(line, protocol).append(' ');
+        appendOrDash(line, method).append(' ');
+        if (uri == null) {
+            line.append('-');
+        } else {
+            appendUri(line, redact);
+        }
+        line.append(' ');
+        appendOrDash(line, routeName).append(' ');
+        line.append(status).append(' ');
+        appendOrDash(line, resultCode).append(' ');
+        line.append(bytesIn).append(' ');
+        line.append(bytesOut);
+        for (long nanos : phaseNanos) {
+            line.append(' ').append(nanos / 1000);
+        }
+        line.append(' ').append(totalNanos / 1000);
+    }
+
+    private void appendRemote(StringBuilder line) {
+        if (remoteAddress instanceof InetSocketAddress
+                && ((InetSocketAddress) remoteAddress).getAddress() != null) {
+            line.append(((InetSocketAddress) remoteAddress).getAddress().getHostAddress());
+        } else if (remoteAddress != null) {
+            line.append(remoteAddress);
+        } else {
+            line.append('-');
+        }
+    }
+
+    private static StringBuilder appendOrDash(StringBuilder line, String value) {
+        return line.append(value == null ? "-" : value);
+    }
+
+    private void appendUri(StringBuilder line, String[] redact) {
+        int query = uri.indexOf('?');
+        int pathEnd = query < 0 ? uri.length() : query;
+        if (redact.length == 0) {
+            line.append(uri);
+            return;
+        }
+
+        // 경로: 템플릿의 같은 위치 세그먼트가 가릴 경로 변수이면 값을 가린다.
+        int index = 0;
+        int templateIndex = 0;
+        int templateLength = template == null ? 0 : template.length();
+        while (index < pathEnd) {
+            if (uri.charAt(index) == '/') {
+                line.append('/');
+                index++;
+                continue;
+            }
+            int end = segmentEnd(uri, index, pathEnd);
+            while (templateIndex < templateLength && template.charAt(templateIndex) == '/') {
+                templateIndex++;
+            }
+            int templateEnd = segmentEnd(template, templateIndex, templateLength);
+            if (templateEnd - templateIndex > 2 && template.charAt(templateIndex) == '{'
+                    && template.charAt(templateEnd - 1) == '}'
+                    && contains(redact, template, templateIndex + 1, templateEnd - 1)) {
+                line.append(REDACTED);
+            } else {
+                line.append(uri, index, end);
+            }
+            index = end;
+            templateIndex = templateEnd;
+        }
+
+        // 쿼리: name=value 쌍마다 이름이 가릴 이름이면 값을 가린다.
+        index = pathEnd;
+        while (index < uri.length()) {
+            line.append(uri.charAt(index++));
+            int end = uri.indexOf('&', index);
+            if (end < 0) {
+                end = uri.length();
+            }
+            int equals = uri.indexOf('=', index);
+            if (equals >= 0 && equals < end && contains(redact, uri, index, equals)) {
+                line.append(uri, index, equals + 1).append(REDACTED);
+            } else {
+                line.append(uri, index, end);
+            }
+            index = end;
+        }
+    }
+
+    private static int segmentEnd(String s, int start, int end) {
+        int index = s == null ? end : s.indexOf('/', start);
+        return index < 0 || index > end ? end : index;
+    }
+
+    private static boolean contains(String[] names, String s, int start, int end) {
+        for (String name : names) {
+            if (name.length() == end - start && s.regionMatches(start, name, 0, name.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
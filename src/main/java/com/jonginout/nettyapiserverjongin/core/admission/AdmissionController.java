@@ -0,0 +1,168 @@
+package com.jonginout.nettyapiserverjongin.core.admission;
+
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics.Rejection;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 요청을 API 서비스로 넘기기 전에 받을지 거절할지 정하는 입장 제어. 모든 이벤트 루프가 공유한다.
+ *
+ * 클라이언트 IP와 토큰별 토큰 버킷으로 요청 속도를 제한하고(429), 처리 중인 요청 수를 전역 상한과
+ * 적응형 동시성 한도 중 작은 값으로 제한한다(503). 적응형 한도는 AIMD로 조정한다. 응답 시간이 목표 안이고
+ * 처리 중인 요청이 한도의 절반을 넘으면 1씩 늘리고, 목표를 넘거나 503, 504로 응답하면 backoffRatio를 곱해 줄인다.
+ * 줄이는 것은 목표 응답 시간에 한 번만 하여, 한꺼번에 끝난 느린 응답들이 한도를 연달아 깎지 않게 한다.
+ *
+ * 과부하에서 거절은 버퍼 할당이나 서비스 실행 없이 카운터 비교만으로 끝나므로 받은 요청의 처리량(goodput)이 유지된다.
+ */
+public class AdmissionController {
+    private final boolean enabled;
+
+    private final int maxInFlight;
+
+    private final boolean adaptive;
+
+    private final int minLimit;
+
+    private final long latencyTargetNanos;
+
+    private final double backoffRatio;
+
+    private final TokenBucketLimiter ipLimiter;
+
+    private final TokenBucketLimiter tokenLimiter;
+
+    private final String[] exemptPaths;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final AtomicInteger limit;
+
+    private volatile long lastDecreaseNanos = System.nanoTime();
+
+    /**
+     * @param maxInFlight          전역에서 동시에 처리하는 최대 요청 수
+     * @param initialLimit         적응형 동시성 한도의 시작 값
+     * @param latencyTargetMillis  적응형 한도를 줄이는 기준 응답 시간(ms)
+     * @param ipRatePerSecond      클라이언트 IP별 초당 요청 수. 0이면 제한하지 않는다.
+     * @param tokenRatePerSecond   token 헤더별 초당 요청 수. 0이면 제한하지 않는다.
+     * @param rateSlots            속도 제한 버킷 슬롯 수
+     * @param exemptPaths          입장 제어를 받지 않는 경로(쉼표로 구분). 과부하에서도 지표를 수집할 수 있어야 한다.
+     */
+    public AdmissionController(boolean enabled, int maxInFlight, boolean adaptive, int initialLimit, int minLimit,
+                               long latencyTargetMillis, double backoffRatio, int ipRatePerSecond, int ipBurst,
+                               int tokenRatePerSecond, int tokenBurst, int rateSlots, String exemptPaths) {
+        if (maxInFlight <= 0 || minLimit <= 0 || backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException("admission.max.in.flight and admission.adaptive.min.limit must be "
+                    + "positive and admission.adaptive.backoff.ratio must be between 0 and 1");
+        }
+        this.enabled = enabled;
+        this.maxInFlight = maxInFlight;
+        this.adaptive = adaptive;
+        this.minLimit = Math.min(minLimit, maxInFlight);
+        this.latencyTargetNanos = TimeUnit.MILLISECONDS.toNanos(latencyTargetMillis);
+        this.backoffRatio = backoffRatio;
+        this.limit = new AtomicInteger(adaptive
+                ? Math.max(this.minLimit, Math.min(initialLimit, maxInFlight)) : maxInFlight);
+        this.ipLimiter = ipRatePerSecond > 0 ? new TokenBucketLimiter(ipRatePerSecond, ipBurst, rateSlots) : null;
+        this.tokenLimiter = tokenRatePerSecond > 0
+                ? new TokenBucketLimiter(tokenRatePerSecond, tokenBurst, rateSlots) : null;
+        this.exemptPaths = exemptPaths.trim().isEmpty() ? new String[0] : exemptPaths.trim().split("\\s*,\\s*");
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 입장 제어를 받지 않는 경로인지 여부. 쿼리 문자열은 보지 않는다.
+     */
+    public boolean isExempt(String uri) {
+        for (String path : exemptPaths) {
+            if (uri.startsWith(path) && (uri.length() == path.length() || uri.charAt(path.length()) == '?')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 요청 하나를 받을지 정한다. 받으면 처리 중인 요청 수를 하나 늘리며, 응답을 기록할 때 반드시 release를 호출해야 한다.
+     *
+     * @param ipHash 클라이언트 IP의 해시 값
+     * @param token  요청의 token 헤더. 없으면 null
+     * @return 받으면 null, 거절하면 거절 사유
+     */
+    public Rejection admit(int ipHash, String token) {
+        if (ipLimiter != null && !ipLimiter.tryAcquire(ipHash)) {
+            return Rejection.IP_RATE;
+        }
+        if (tokenLimiter != null && token != null && !tokenLimiter.tryAcquire(token.hashCode())) {
+            return Rejection.TOKEN_RATE;
+        }
+        for (;;) {
+            int current = inFlight.get();
+            if (current >= maxInFlight) {
+                return Rejection.IN_FLIGHT;
+            }
+            if (current >= limit.get()) {
+                return Rejection.CONCURRENCY;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * IP별 속도 제한에 쓰는 클라이언트 IP의 해시. IP를 알 수 없으면 0이다.
+     */
+    public static int ipHash(SocketAddress address) {
+        if (address instanceof InetSocketAddress && ((InetSocketAddress) address).getAddress() != null) {
+            return ((InetSocketAddress) address).getAddress().hashCode();
+        }
+        return 0;
+    }
+
+    /**
+     * 받은 요청의 응답을 기록했다. 응답 시간으로 적응형 동시성 한도를 조정한다.
+     *
+     * @param latencyNanos 요청을 받은 때부터 응답을 기록할 때까지의 시간
+     * @param dropped      서비스가 과부하로 처리하지 못했는지(503, 504) 여부
+     */
+    public void release(long latencyNanos, boolean dropped) {
+        int current = inFlight.getAndDecrement();
+        if (!adaptive) {
+            return;
+        }
+        if (dropped || latencyNanos > latencyTargetNanos) {
+            long now = System.nanoTime();
+            if (now - lastDecreaseNanos >= latencyTargetNanos) {
+                lastDecreaseNanos = now;
+                limit.updateAndGet(value -> Math.max(minLimit, (int) (value * backoffRatio)));
+            }
+        } else if (current * 2 >= limit.get()) {
+            limit.updateAndGet(value -> Math.min(maxInFlight, value + 1));
+        }
+    }
+
+    /**
+     * 응답 없이 끝난 요청(연결이 닫힘)의 자리를 돌려준다. 응답 시간은 한도 조정에 쓰지 않는다.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 지금 적용 중인 동시성 한도. 적응형 한도를 쓰지 않으면 전역 상한이다.
+     */
+    public int getLimit() {
+        return limit.get();
+    }
+}
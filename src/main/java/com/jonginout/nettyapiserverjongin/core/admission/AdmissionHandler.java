@@ -0,0 +1,221 @@
+package com.jonginout.nettyapiserverjongin.core.admission;
+
+import com.jonginout.nettyapiserverjongin.core.ErrorResponse;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics.Rejection;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.AsciiString;
+import io.netty.util.ReferenceCountUtil;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+
+/**
+ * ApiRequestParser 앞에서 요청마다 AdmissionController에 입장을 묻는 핸들러. 채널(HTTP/2는 스트림)마다 만든다.
+ *
+ * 거절한 요청은 본문을 받는 대로 버리고 미리 만들어 둔 JSON 본문으로 바로 429나 503을 응답한다.
+ * 받은 요청은 응답이 이 핸들러를 지나갈 때 자리를 돌려주고 응답 시간을 적응형 한도에 알린다.
+ * HTTP/1.1 파이프라이닝에서 앞선 요청의 응답이 아직 없으면 거절 응답을 보관했다가 앞선 응답 뒤에 기록하여 순서를 지킨다.
+ */
+public class AdmissionHandler extends ChannelDuplexHandler {
+    private static final AsciiString TOKEN = AsciiString.cached("token");
+
+    private static final AsciiString JSON_CONTENT_TYPE = AsciiString.cached("application/json; charset=UTF-8");
+
+    private static final AsciiString RETRY_AFTER_SECONDS = AsciiString.cached("1");
+
+    // 응답을 기다리는 요청의 종류. 입장 제어를 받은 요청과 받지 않는 경로의 요청
+    private static final Object ADMITTED = new Object();
+
+    private static final Object EXEMPT = new Object();
+
+    private final AdmissionController controller;
+
+    private final ApiMetrics metrics;
+
+    // 응답을 기다리는 요청을 받은 순서대로 담는 원형 큐. ADMITTED, EXEMPT나 앞선 응답을 기다리는 거절 응답이다.
+    private Object[] entries = new Object[4];
+
+    // ADMITTED 요청을 받은 시각(ns)
+    private long[] startNanos = new long[4];
+
+    private int head;
+
+    private int size;
+
+    private int ipHash;
+
+    private boolean ipResolved;
+
+    // 거절한 요청의 나머지 본문 조각을 버리는 중인지 여부
+    private boolean discarding;
+
+    // 이번 읽기에서 거절 응답을 기록하여 channelReadComplete에서 flush 해야 하는지 여부
+    private boolean flushNeeded;
+
+    public AdmissionHandler(AdmissionController controller, ApiMetrics metrics) {
+        this.controller = controller;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof HttpRequest) {
+            HttpRequest request = (HttpRequest) msg;
+            if (controller.isExempt(request.uri())) {
+                offer(EXEMPT, 0);
+            } else {
+                Rejection rejection = controller.admit(ipHash(ctx.channel()), request.headers().get(TOKEN));
+                if (rejection != null) {
+                    reject(ctx, request, rejection);
+                    discarding = !(msg instanceof LastHttpContent);
+                    ReferenceCountUtil.release(msg);
+                    return;
+                }
+                offer(ADMITTED, System.nanoTime());
+            }
+        } else if (discarding && msg instanceof HttpContent) {
+            discarding = !(msg instanceof LastHttpContent);
+            ReferenceCountUtil.release(msg);
+            return;
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        if (flushNeeded) {
+            flushNeeded = false;
+            ctx.flush();
+        }
+        ctx.fireChannelReadComplete();
+    }
+
+    /**
+     * 받은 요청의 응답이 지나가면 자리를 돌려주고, 그 뒤에 보관해 둔 거절 응답을 이어서 기록한다.
+     * 100 Continue 같은 중간 응답은 요청의 응답으로 세지 않는다.
+     */
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        if (!(msg instanceof HttpResponse) || size == 0
+                || ((HttpResponse) msg).status().codeClass() == HttpStatusClass.INFORMATIONAL) {
+            ctx.write(msg, promise);
+            return;
+        }
+
+        long start = startNanos[head];
+        if (poll() == ADMITTED) {
+            int code = ((HttpResponse) msg).status().code();
+            controller.release(System.nanoTime() - start,
+                    code == HttpResponseStatus.SERVICE_UNAVAILABLE.code()
+                            || code == HttpResponseStatus.GATEWAY_TIMEOUT.code());
+        }
+        ctx.write(msg, promise);
+        while (size > 0 && entries[head] instanceof FullHttpResponse) {
+            writeRejection(ctx, (FullHttpResponse) poll());
+        }
+    }
+
+    /**
+     * 응답 없이 연결(스트림)이 닫힌 요청의 자리를 돌려준다.
+     */
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        while (size > 0) {
+            Object entry = poll();
+            if (entry == ADMITTED) {
+                controller.release();
+            } else {
+                ReferenceCountUtil.release(entry);
+            }
+        }
+        super.channelInactive(ctx);
+    }
+
+    private void reject(ChannelHandlerContext ctx, HttpRequest request, Rejection rejection) {
+        metrics.countRejected(rejection);
+        boolean rateLimited = rejection == Rejection.IP_RATE || rejection == Rejection.TOKEN_RATE;
+        ErrorResponse error = rateLimited ? ErrorResponse.TOO_MANY_REQUESTS : ErrorResponse.SERVICE_UNAVAILABLE;
+        metrics.countResult(error.getResultCode());
+
+        // 본문은 미리 인코딩해 둔 direct 버퍼의 복제본이므로 복사하지 않는다.
+        FullHttpResponse response = new DefaultFullHttpResponse(HTTP_1_1, error.getStatus(), error.content());
+        response.headers()
+                .set(HttpHeaderNames.CONTENT_TYPE, JSON_CONTENT_TYPE)
+                .setInt(HttpHeaderNames.CONTENT_LENGTH, response.content().readableBytes())
+                .set(HttpHeaderNames.RETRY_AFTER, RETRY_AFTER_SECONDS)
+                .set(HttpHeaderNames.CONNECTION, HttpUtil.isKeepAlive(request)
+                        ? HttpHeaderValues.KEEP_ALIVE : HttpHeaderValues.CLOSE);
+
+        if (size == 0) {
+            writeRejection(ctx, response);
+            flushNeeded = true;
+        } else {
+            offer(response, 0);
+        }
+    }
+
+    private static void writeRejection(ChannelHandlerContext ctx, FullHttpResponse response) {
+        if (HttpUtil.isKeepAlive(response)) {
+            ctx.write(response, ctx.voidPromise());
+        } else {
+            ctx.write(response).addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    /**
+     * 클라이언트 IP의 해시. 연결마다 한 번만 계산한다.
+     */
+    private int ipHash(Channel channel) {
+        if (!ipResolved) {
+            ipHash = AdmissionController.ipHash(channel.remoteAddress());
+            ipResolved = true;
+        }
+        return ipHash;
+    }
+
+    private void offer(Object entry, long start) {
+        if (size == entries.length) {
+            grow();
+        }
+        int index = (head + size) & (entries.length - 1);
+        entries[index] = entry;
+        startNanos[index] = start;
+        size++;
+    }
+
+    private Object poll() {
+        Object entry = entries[head];
+        entries[head] = null;
+        head = (head + 1) & (entries.length - 1);
+        size--;
+        return entry;
+    }
+
+    private void grow() {
+        Object[] newEntries = new Object[entries.length << 1];
+        long[] newStartNanos = new long[newEntries.length];
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) & (entries.length - 1);
+            newEntries[i] = entries[index];
+            newStartNanos[i] = startNanos[index];
+        }
+        entries = newEntries;
+        startNanos = newStartNanos;
+        head = 0;
+    }
+}
@@ -0,0 +1,97 @@
+package com.jonginout.nettyapiserverjongin.core.admission;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 키(클라이언트 IP, 토큰)별 토큰 버킷 요청 속도 제한.
+ *
+ * 버킷은 키마다 객체를 만들지 않고 고정 크기 AtomicLongArray의 슬롯 하나(long 하나)에 마지막 보충 시각과 남은 토큰 수를
+ * 함께 담아 CAS로 갱신한다. 키의 해시로 슬롯을 고르므로 메모리는 슬롯 수로 정해지고 락이 없으며,
+ * 서로 다른 키가 같은 슬롯에 들어가면 버킷을 함께 쓰므로 슬롯 수는 동시에 요청하는 클라이언트 수보다 충분히 크게 잡는다.
+ * 오래 쓰지 않은 슬롯은 시간이 지나면 가득 찬 버킷과 같아지므로 따로 비우지 않는다.
+ */
+final class TokenBucketLimiter {
+    // 토큰은 1/1000 단위로 세어 초당 보충량을 ms 단위로 나누지 않고 정수로 더한다.
+    private static final long MILLI = 1000;
+
+    private static final int TOKEN_BITS = 24;
+
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+
+    // TOKEN_BITS에 담을 수 있는 최대 버킷 크기
+    static final int MAX_BURST = (int) (TOKEN_MASK / MILLI);
+
+    private final AtomicLongArray slots;
+
+    private final int mask;
+
+    // 1ms마다 보충하는 토큰(1/1000 단위), 즉 초당 허용 요청 수
+    private final long refillPerMilli;
+
+    private final long capacity;
+
+    // 슬롯 값 0은 아직 쓰지 않은 버킷이므로 시각은 1부터 센다.
+    private final long epochMillis = System.currentTimeMillis() - 1;
+
+    /**
+     * @param ratePerSecond 초당 허용 요청 수
+     * @param burst         한 번에 몰려도 허용하는 요청 수(버킷 크기)
+     * @param slotCount     버킷 슬롯 수. 2의 거듭제곱으로 올린다.
+     */
+    TokenBucketLimiter(int ratePerSecond, int burst, int slotCount) {
+        if (ratePerSecond <= 0 || burst <= 0 || burst > MAX_BURST) {
+            throw new IllegalArgumentException("rate must be positive and burst must be 1.." + MAX_BURST
+                    + " : " + ratePerSecond + "/" + burst);
+        }
+        int size = Integer.highestOneBit(Math.max(1, slotCount - 1)) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.refillPerMilli = ratePerSecond;
+        this.capacity = burst * MILLI;
+    }
+
+    /**
+     * 키의 버킷에서 토큰 하나를 꺼낸다.
+     *
+     * @param hash 키의 해시 값
+     * @return 버킷이 비어 있어 요청을 거절해야 하면 false
+     */
+    boolean tryAcquire(int hash) {
+        int index = spread(hash) & mask;
+        long now = System.currentTimeMillis() - epochMillis;
+        for (;;) {
+            long current = slots.get(index);
+            long last = current >>> TOKEN_BITS;
+            long tokens;
+            if (current == 0) {
+                tokens = capacity;
+            } else {
+                tokens = current & TOKEN_MASK;
+                long elapsed = now - last;
+                if (elapsed > 0) {
+                    // 오래 쉬었으면 곱셈이 넘치기 전에 가득 채운다.
+                    tokens = elapsed >= capacity / refillPerMilli + 1
+                            ? capacity : Math.min(capacity, tokens + elapsed * refillPerMilli);
+                }
+            }
+            if (tokens < MILLI) {
+                return false;
+            }
+            long next = (Math.max(now, last) << TOKEN_BITS) | (tokens - MILLI);
+            if (slots.compareAndSet(index, current, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 비슷한 해시(연속된 IP 등)가 같은 슬롯에 몰리지 않도록 비트를 섞는다.
+     */
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,390 @@
+package com.jonginout.nettyapiserverjongin.core.cluster;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics.ClusterLookup;
+import com.jonginout.nettyapiserverjongin.core.rpc.RpcAuthenticator;
+import com.jonginout.nettyapiserverjongin.core.rpc.RpcClient;
+import com.jonginout.nettyapiserverjongin.core.rpc.RpcCodec;
+import com.jonginout.nettyapiserverjongin.core.rpc.RpcConfig;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 여러 API 서버가 토큰과 사용자 캐시를 나누어 맡는 클러스터 모드.
+ *
+ * 노드는 RPC 리스너 주소("host:port")로 구분하며, 모든 노드가 같은 노드 목록으로 같은 {@link HashRing}을 만든다.
+ * 키의 담당 노드만 그 키를 캐시하고, 다른 노드는 담당 노드의 RPC 리스너로 조회를 넘긴다. 그래서 노드가 늘수록
+ * 클러스터 전체에 캐시되는 키가 늘어나고, 같은 키를 노드마다 따로 캐시하느라 적중률이 떨어지지 않는다.
+ * 노드마다 연결 connectionsPerPeer 개를 열어 두고 호출을 파이프라인으로 보낸다.
+ *
+ * 노드 목록은 cluster.peers와 refreshMillis마다 다시 읽는 노드 목록 파일을 합친 것이다. 호출이 실패하거나
+ * 5xx로 응답한 노드는 peerRetryMillis 동안 링에서 뺀다. 링이 바뀌면 rebalance 리스너를 호출하여
+ * 담당이 바뀐 항목을 새 담당 노드로 넘기게 한다. 호출이 실패하면 호출한 쪽이 로컬에서 처리한다.
+ *
+ * 노드 사이의 호출은 이 노드의 주소와 cluster.secret을 예약 헤더로 보내고, RPC 리스너는 {@link #authenticate}로
+ * 노드 목록에 있는 다른 노드가 같은 비밀 값을 보낸 호출만 내부 호출로 받아들인다. 비밀 값이 다른 노드는 401로 응답하므로 실패한 노드처럼 링에서 뺀다.
+ */
+public class Cluster implements RpcAuthenticator {
+    private static final Logger logger = LogManager.getLogger(Cluster.class);
+
+    private final boolean enabled;
+
+    private final String self;
+
+    private final List<String> staticPeers;
+
+    private final Path peersFile;
+
+    private final byte[] secret;
+
+    // 노드 사이의 호출마다 보내는 예약 헤더. 이 노드의 주소와 공유 비밀 값
+    private final Map<String, String> credentials;
+
+    private final int virtualNodes;
+
+    private final int connectionsPerPeer;
+
+    private final long forwardTimeoutMillis;
+
+    private final long peerRetryMillis;
+
+    private final ApiMetrics metrics;
+
+    private final EventLoopGroup group;
+
+    private final ScheduledExecutorService refresher;
+
+    private final Map<String, RpcClient> clients = new ConcurrentHashMap<String, RpcClient>();
+
+    // 호출이 실패한 노드와 그 노드를 다시 링에 넣을 시각(ms)
+    private final Map<String, Long> downUntil = new ConcurrentHashMap<String, Long>();
+
+    private final List<Runnable> rebalanceListeners = new CopyOnWriteArrayList<Runnable>();
+
+    // 마지막으로 읽은 노드 목록 파일의 노드. refresh에서만 바뀐다.
+    private Set<String> filePeers = Collections.emptySet();
+
+    private volatile HashRing ring;
+
+    private volatile boolean closed;
+
+    /**
+     * @param self                 이 노드의 RPC 주소. 다른 노드의 노드 목록에 적힌 것과 같은 문자열이어야 한다.
+     * @param peers                쉼표로 구분한 다른 노드의 RPC 주소
+     * @param peersFile            한 줄에 노드 주소 하나씩 적은 노드 목록 파일. 비어 있으면 사용하지 않는다.
+     * @param secret               모든 노드가 같은 값을 쓰는 공유 비밀 값. 클러스터 모드에서는 비어 있으면 안 된다.
+     * @param virtualNodes         노드마다 링에 놓는 점의 수
+     * @param connectionsPerPeer   노드마다 열어 두는 RPC 연결 수
+     * @param forwardTimeoutMillis 넘긴 조회의 응답을 기다리는 시간(ms)
+     * @param refreshMillis        노드 목록 파일을 다시 읽고 실패한 노드를 다시 넣어 보는 주기(ms). 0이면 하지 않는다.
+     * @param peerRetryMillis      호출이 실패한 노드를 링에서 빼 두는 시간(ms)
+     */
+    public Cluster(boolean enabled, String self, String peers, String peersFile, String secret, int virtualNodes,
+                   int connectionsPerPeer, long forwardTimeoutMillis, long refreshMillis, long peerRetryMillis,
+                   ApiMetrics metrics) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("cluster.virtual.nodes must be positive : " + virtualNodes);
+        }
+        if (connectionsPerPeer < 1) {
+            throw new IllegalArgumentException("cluster.connections.per.peer must be positive : " + connectionsPerPeer);
+        }
+        if (forwardTimeoutMillis <= 0 || refreshMillis < 0 || peerRetryMillis < 0) {
+            throw new IllegalArgumentException("cluster timeouts must not be negative");
+        }
+        if (enabled && secret.isEmpty()) {
+            throw new IllegalArgumentException("cluster.enabled requires cluster.secret");
+        }
+        this.enabled = enabled;
+        this.self = self.trim();
+        this.staticPeers = new ArrayList<String>();
+        for (String peer : peers.split(",")) {
+            if (!peer.trim().isEmpty()) {
+                address(peer.trim());
+                staticPeers.add(peer.trim());
+            }
+        }
+        this.peersFile = peersFile.trim().isEmpty() ? null : Paths.get(peersFile.trim());
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        Map<String, String> credentials = new HashMap<String, String>();
+        credentials.put(RpcCodec.NODE_HEADER, this.self);
+        credentials.put(RpcCodec.SECRET_HEADER, secret);
+        this.credentials = Collections.unmodifiableMap(credentials);
+        this.virtualNodes = virtualNodes;
+        this.connectionsPerPeer = connectionsPerPeer;
+        this.forwardTimeoutMillis = forwardTimeoutMillis;
+        this.peerRetryMillis = peerRetryMillis;
+        this.metrics = metrics;
+        this.ring = new HashRing(Collections.singleton(this.self), virtualNodes);
+
+        if (!enabled) {
+            this.group = null;
+            this.refresher = null;
+            return;
+        }
+        address(this.self);
+        this.group = new NioEventLoopGroup(1, new DefaultThreadFactory("cluster-client", true));
+        this.refresher = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("cluster-refresh", true));
+        refresh();
+        if (refreshMillis > 0) {
+            refresher.scheduleWithFixedDelay(this::refreshQuietly, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+        }
+        metrics.registerCluster(() -> ring.getNodes().size());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getSelf() {
+        return self;
+    }
+
+    public HashRing getRing() {
+        return ring;
+    }
+
+    /**
+     * 키를 조회할 담당 노드. 이 노드가 담당하거나 클러스터 모드가 아니면 null이다.
+     */
+    public String ownerOf(String key) {
+        if (!enabled) {
+            return null;
+        }
+        String owner = ring.owner(key);
+        if (self.equals(owner)) {
+            metrics.countClusterLookup(ClusterLookup.LOCAL);
+            return null;
+        }
+        return owner;
+    }
+
+    /**
+     * 이 노드가 키를 담당하는지 여부. 조회 지표에는 세지 않는다.
+     */
+    public boolean owns(String key) {
+        return !enabled || self.equals(ring.owner(key));
+    }
+
+    /**
+     * 클러스터 모드이고 노드 목록에 있는 다른 노드가 같은 공유 비밀 값을 보냈을 때만 받아들인다.
+     * 다른 노드가 없는 노드는 어떤 호출도 받아들이지 않는다. 링에서 잠시 뺀 노드도 노드 목록에 있으면 받아들인다.
+     * 비밀 값은 일정한 시간에 비교한다.
+     */
+    @Override
+    public boolean authenticate(String node, String secret) {
+        return enabled && node != null && secret != null && clients.containsKey(node)
+                && MessageDigest.isEqual(this.secret, secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 담당 노드의 RPC 리스너로 API를 호출한다. 연결하지 못하거나 시간 안에 응답하지 않거나 5xx나 401로 응답하면
+     * 예외로 완료되고, 그 노드를 peerRetryMillis 동안 링에서 뺀다. 호출한 쪽은 실패하면 로컬에서 처리한다.
+     * 돌려준 CompletableFuture는 클러스터 이벤트 루프에서 완료되므로 이어 붙인 작업에서 블로킹하면 안 된다.
+     */
+    public CompletableFuture<JsonObject> forward(final String peer, String method, String uri,
+                                                 Map<String, String> fields) {
+        final CompletableFuture<JsonObject> result = new CompletableFuture<JsonObject>();
+        RpcClient client = clients.get(peer);
+        if (client == null) {
+            metrics.countClusterLookup(ClusterLookup.FALLBACK);
+            result.completeExceptionally(new IOException("unknown cluster node : " + peer));
+            return result;
+        }
+        client.call(method, uri, credentials, fields).whenComplete((apiResult, e) -> {
+            Throwable failure = e;
+            if (failure == null && isFailure(apiResult)) {
+                failure = new IOException("cluster node " + peer + " answered " + apiResult.get("resultCode"));
+            }
+            if (failure != null) {
+                metrics.countClusterLookup(ClusterLookup.FALLBACK);
+                markDown(peer, failure);
+                result.completeExceptionally(failure);
+            } else {
+                metrics.countClusterLookup(ClusterLookup.FORWARDED);
+                result.complete(apiResult);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 링이 바뀔 때마다 호출할 작업을 등록한다. 노드 목록을 갱신하는 스레드에서 호출된다.
+     */
+    public void addRebalanceListener(Runnable listener) {
+        rebalanceListeners.add(listener);
+    }
+
+    /**
+     * 노드 목록을 다시 만들고, 링에 넣을 노드가 바뀌었으면 링을 바꾼 뒤 rebalance 리스너를 호출한다.
+     */
+    synchronized void refresh() {
+        Set<String> configured = new TreeSet<String>(staticPeers);
+        configured.addAll(readPeersFile());
+        configured.remove(self);
+
+        for (String peer : configured) {
+            if (!clients.containsKey(peer)) {
+                clients.put(peer, new RpcClient(address(peer), group, NioSocketChannel.class, connectionsPerPeer,
+                        RpcConfig.DEFAULT_MAX_FRAME_SIZE, forwardTimeoutMillis));
+            }
+        }
+        for (Iterator<Map.Entry<String, RpcClient>> it = clients.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, RpcClient> client = it.next();
+            if (!configured.contains(client.getKey())) {
+                it.remove();
+                downUntil.remove(client.getKey());
+                client.getValue().close();
+            }
+        }
+
+        long now = System.currentTimeMillis();
+        Set<String> members = new TreeSet<String>();
+        members.add(self);
+        for (String peer : configured) {
+            Long until = downUntil.get(peer);
+            if (until == null || now >= until) {
+                // 다시 넣어 본 노드가 여전히 응답하지 않으면 다음 호출에서 다시 뺀다.
+                downUntil.remove(peer);
+                members.add(peer);
+            }
+        }
+        if (members.equals(ring.getNodes())) {
+            return;
+        }
+
+        logger.info("클러스터 노드가 바뀌었습니다 : " + ring.getNodes() + " -> " + members);
+        ring = new HashRing(members, virtualNodes);
+        for (Runnable listener : rebalanceListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                logger.error("클러스터 rebalance 작업 실패", e);
+            }
+        }
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            logger.error("클러스터 노드 목록을 갱신하지 못했습니다.", e);
+        }
+    }
+
+    /**
+     * 노드 목록 파일의 노드. 파일을 읽지 못하면 마지막으로 읽은 목록을 유지하고, 잘못된 주소는 건너뛴다.
+     */
+    private Set<String> readPeersFile() {
+        if (peersFile == null) {
+            return filePeers;
+        }
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(peersFile, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            logger.warn("클러스터 노드 목록 파일을 읽지 못했습니다 : " + peersFile + " " + e);
+            return filePeers;
+        }
+        Set<String> peers = new TreeSet<String>();
+        for (String line : lines) {
+            String peer = line.trim();
+            if (peer.isEmpty() || peer.startsWith("#")) {
+                continue;
+            }
+            try {
+                address(peer);
+                peers.add(peer);
+            } catch (IllegalArgumentException e) {
+                logger.warn("잘못된 클러스터 노드 주소를 건너뜁니다 : " + peer);
+            }
+        }
+        filePeers = peers;
+        return peers;
+    }
+
+    private void markDown(String peer, Throwable cause) {
+        if (peerRetryMillis == 0 || closed) {
+            return;
+        }
+        if (downUntil.put(peer, System.currentTimeMillis() + peerRetryMillis) == null) {
+            logger.warn("클러스터 노드를 " + peerRetryMillis + "ms 동안 링에서 뺍니다 : " + peer + " " + cause);
+            try {
+                refresher.execute(this::refreshQuietly);
+            } catch (RejectedExecutionException e) {
+                // 종료 중
+            }
+        }
+    }
+
+    /**
+     * 5xx나 인증 실패(401). 401은 공유 비밀 값이 다른 노드이므로 응답하지 않는 노드처럼 다룬다.
+     */
+    private static boolean isFailure(JsonObject apiResult) {
+        JsonElement resultCode = apiResult.get("resultCode");
+        if (resultCode == null || !resultCode.isJsonPrimitive()) {
+            return false;
+        }
+        String code = resultCode.getAsString();
+        return code.startsWith("5") || "401".equals(code);
+    }
+
+    private static InetSocketAddress address(String node) {
+        int colon = node.lastIndexOf(':');
+        if (colon <= 0 || colon == node.length() - 1) {
+            throw new IllegalArgumentException("cluster node must be host:port : " + node);
+        }
+        try {
+            return InetSocketAddress.createUnresolved(node.substring(0, colon),
+                    Integer.parseInt(node.substring(colon + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("cluster node must be host:port : " + node, e);
+        }
+    }
+
+    /**
+     * 노드 목록 갱신을 멈추고 노드 연결을 모두 닫는다.
+     */
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        closed = true;
+        refresher.shutdownNow();
+        synchronized (this) {
+            for (RpcClient client : clients.values()) {
+                client.close();
+            }
+            clients.clear();
+        }
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).awaitUninterruptibly();
+    }
+}
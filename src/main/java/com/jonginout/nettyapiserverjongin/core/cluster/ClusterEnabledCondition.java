@@ -0,0 +1,16 @@
+package com.jonginout.nettyapiserverjongin.core.cluster;
+
+import org.springframework.context.annotation.Condition;
+import org.springframework.context.annotation.ConditionContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+
+/**
+ * cluster.enabled가 true일 때만 빈을 등록한다. 클러스터 노드 사이의 내부 라우트(/cluster/...)에 붙여
+ * 클러스터 모드가 아닌 서버에는 라우트 자체가 없게 한다.
+ */
+public class ClusterEnabledCondition implements Condition {
+    @Override
+    public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+        return context.getEnvironment().getProperty("cluster.enabled", Boolean.class, false);
+    }
+}
@@ -0,0 +1,83 @@
+package com.jonginout.nettyapiserverjongin.core.cluster;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * 키를 담당 노드에 배정하는 consistent hash 링. 만든 뒤에는 바뀌지 않으므로 여러 스레드가 함께 조회한다.
+ *
+ * 노드마다 virtualNodes 개의 점을 링에 놓고, 키의 해시에서 시계 방향으로 처음 만나는 점의 노드를 담당 노드로 한다.
+ * 노드가 하나 늘거나 줄면 그 노드가 맡거나 맡았던 키(약 1/노드 수)만 담당 노드가 바뀐다.
+ * 같은 노드 목록이면 어느 서버에서 만들어도 같은 링이 되도록 해시는 JVM과 무관한 FNV-1a 64비트를 사용한다.
+ */
+public final class HashRing {
+    private final Set<String> nodes;
+
+    // 정렬된 점의 해시와 그 점의 노드
+    private final long[] points;
+
+    private final String[] owners;
+
+    public HashRing(Collection<String> nodes, int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtual nodes must be positive : " + virtualNodes);
+        }
+        this.nodes = Collections.unmodifiableSet(new TreeSet<String>(nodes));
+
+        // 노드 이름 순서로 넣고 먼저 넣은 점을 남기므로, 드물게 해시가 겹쳐도 모든 서버에서 같은 노드가 점을 가진다.
+        TreeMap<Long, String> ring = new TreeMap<Long, String>();
+        for (String node : this.nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.putIfAbsent(hash(node + "#" + i), node);
+            }
+        }
+        this.points = new long[ring.size()];
+        this.owners = new String[ring.size()];
+        int i = 0;
+        for (Map.Entry<Long, String> point : ring.entrySet()) {
+            points[i] = point.getKey();
+            owners[i] = point.getValue();
+            i++;
+        }
+    }
+
+    /**
+     * 키의 담당 노드. 링에 노드가 없으면 null이다.
+     */
+    public String owner(String key) {
+        if (points.length == 0) {
+            return null;
+        }
+        int i = Arrays.binarySearch(points, hash(key));
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return owners[i == points.length ? 0 : i];
+    }
+
+    public Set<String> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * FNV-1a 64비트 해시에 MurmurHash3의 마무리 단계를 더해, 끝자리만 다른 키("#0", "#1" ...)도 링에 고르게 흩어지게 한다.
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,726 @@
+package com.jonginout.nettyapiserverjongin.core.metrics;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufAllocatorMetric;
+import io.netty.buffer.ByteBufAllocatorMetricProvider;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PooledByteBufAllocatorMetric;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * API 서버의 요청 처리 지표.
+ *
+ * 라우트별 단계 지연 시간 히스토그램, resultCode별 응답 수, 응답 캐시 조회 결과, 압축 크기와 시간, 연결 수,
+ * TLS 핸드셰이크 시간과 세션 재사용 여부, 입장 제어의 거절 수, 제한 시간으로 닫은 연결 수, 접근 로그 항목 수, 클러스터 조회 결과를
+ * 기록하고 이벤트 루프 대기 작업 수, 풀 할당기 사용량과 연결의 송신 대기 바이트는 조회할 때 읽는다.
+ * 기록은 모두 락 없이 이루어지며 /metrics 라우트에서 Prometheus 텍스트 형식으로 내보낸다.
+ */
+public class ApiMetrics {
+    /**
+     * 요청 처리 단계
+     */
+    public enum Phase {
+        // 헤더 수신부터 본문 디코딩 완료까지
+        DECODE("decode"),
+        // 라우트 조회와 API 서비스 객체 생성
+        DISPATCH("dispatch"),
+        // 서비스 실행 요청부터 결과 완료까지(업무 스레드 대기 포함)
+        SERVICE("service"),
+        // 처리 결과를 응답 버퍼로 인코딩
+        ENCODE("encode");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * 응답 캐시 조회 결과
+     */
+    public enum CacheResult {
+        // 캐시된 본문으로 응답
+        HIT("hit"),
+        // If-None-Match가 맞아 304로 응답
+        NOT_MODIFIED("not_modified"),
+        // 캐시에 없어 API 서비스를 실행
+        MISS("miss");
+
+        private final String label;
+
+        CacheResult(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * TLS 핸드셰이크 종류
+     */
+    public enum Handshake {
+        // 인증서 서명과 키 교환을 모두 수행한 핸드셰이크
+        FULL("full"),
+        // 세션 캐시나 세션 티켓으로 이전 세션을 다시 사용한 핸드셰이크
+        RESUMED("resumed");
+
+        private final String label;
+
+        Handshake(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * 입장 제어에서 요청을 거절한 사유
+     */
+    public enum Rejection {
+        // 처리 중인 요청 수가 전역 상한에 도달
+        IN_FLIGHT("in_flight"),
+        // 처리 중인 요청 수가 응답 시간으로 조정한 동시성 한도에 도달
+        CONCURRENCY("concurrency"),
+        // 클라이언트 IP별 요청 속도 초과
+        IP_RATE("ip_rate"),
+        // 토큰별 요청 속도 초과
+        TOKEN_RATE("token_rate");
+
+        private final String label;
+
+        Rejection(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * 제한 시간이 지나 연결(스트림)을 닫은 이유
+     */
+    public enum Timeout {
+        // 처리 중인 요청 없이 쉬는 연결
+        IDLE("idle"),
+        // 요청 헤더를 받은 뒤 본문을 제한 시간 안에 다 받지 못함(408)
+        READ("read"),
+        // 송신 버퍼가 쓰기 불가능한 상태로 제한 시간을 넘김
+        WRITE("write");
+
+        private final String label;
+
+        Timeout(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * 클러스터 모드에서 토큰, 사용자 조회를 처리한 곳
+     */
+    public enum ClusterLookup {
+        // 이 노드가 담당하여 로컬 캐시에서 처리
+        LOCAL("local"),
+        // 담당 노드로 넘겨 처리
+        FORWARDED("forwarded"),
+        // 담당 노드로 넘기지 못해 로컬에서 처리
+        FALLBACK("fallback");
+
+        private final String label;
+
+        ClusterLookup(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * 라우트 하나의 단계별 히스토그램
+     */
+    public static final class RouteMetrics {
+        private final LatencyHistogram[] phases = new LatencyHistogram[Phase.values().length];
+
+        RouteMetrics() {
+            for (int i = 0; i < phases.length; i++) {
+                phases[i] = new LatencyHistogram();
+            }
+        }
+
+        public void record(Phase phase, long nanos) {
+            phases[phase.ordinal()].record(nanos);
+        }
+
+        public LatencyHistogram get(Phase phase) {
+            return phases[phase.ordinal()];
+        }
+    }
+
+    /**
+     * 압축 방식 하나의 누적 크기와 시간
+     */
+    public static final class CompressionMetrics {
+        private final LongAdder responses = new LongAdder();
+
+        private final LongAdder inputBytes = new LongAdder();
+
+        private final LongAdder outputBytes = new LongAdder();
+
+        private final LongAdder nanos = new LongAdder();
+
+        public long getResponses() {
+            return responses.sum();
+        }
+
+        public long getInputBytes() {
+            return inputBytes.sum();
+        }
+
+        public long getOutputBytes() {
+            return outputBytes.sum();
+        }
+
+        public long getNanos() {
+            return nanos.sum();
+        }
+    }
+
+    private final ConcurrentMap<String, RouteMetrics> routes = new ConcurrentHashMap<String, RouteMetrics>();
+
+    private final ConcurrentMap<String, LongAdder> resultCodes = new ConcurrentHashMap<String, LongAdder>();
+
+    private final LongAdder activeConnections = new LongAdder();
+
+    private final LongAdder activeStreams = new LongAdder();
+
+    private final LongAdder streams = new LongAdder();
+
+    private final LatencyHistogram[] handshakes = new LatencyHistogram[Handshake.values().length];
+
+    private final LongAdder handshakeFailures = new LongAdder();
+
+    private final ConcurrentMap<String, CompressionMetrics> compressions =
+            new ConcurrentHashMap<String, CompressionMetrics>();
+
+    private final ConcurrentMap<String, LongAdder> compressionSkips = new ConcurrentHashMap<String, LongAdder>();
+
+    private final LongAdder[] cacheResults = new LongAdder[CacheResult.values().length];
+
+    private final LongAdder[] rejections = new LongAdder[Rejection.values().length];
+
+    private final LongAdder[] timeouts = new LongAdder[Timeout.values().length];
+
+    private final LongAdder readPauses = new LongAdder();
+
+    private final LongAdder accessLogWritten = new LongAdder();
+
+    private final LongAdder accessLogDropped = new LongAdder();
+
+    private final LongAdder[] clusterLookups = new LongAdder[ClusterLookup.values().length];
+
+    private final LongAdder clusterHandoffs = new LongAdder();
+
+    private volatile LongSupplier pendingOutboundBytes;
+
+    private volatile IntSupplier unwritableConnections;
+
+    private volatile IntSupplier admissionInFlight;
+
+    private volatile IntSupplier admissionLimit;
+
+    private volatile IntSupplier clusterNodes;
+
+    private final Map<String, EventLoopGroup> eventLoopGroups = new ConcurrentHashMap<String, EventLoopGroup>();
+
+    private volatile ByteBufAllocator allocator;
+
+    public ApiMetrics() {
+        for (int i = 0; i < cacheResults.length; i++) {
+            cacheResults[i] = new LongAdder();
+        }
+        for (int i = 0; i < handshakes.length; i++) {
+            handshakes[i] = new LatencyHistogram();
+        }
+        for (int i = 0; i < rejections.length; i++) {
+            rejections[i] = new LongAdder();
+        }
+        for (int i = 0; i < timeouts.length; i++) {
+            timeouts[i] = new LongAdder();
+        }
+        for (int i = 0; i < clusterLookups.length; i++) {
+            clusterLookups[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 라우트 이름에 해당하는 히스토그램 묶음. 처음 조회할 때만 만든다.
+     */
+    public RouteMetrics route(String name) {
+        RouteMetrics metrics = routes.get(name);
+        if (metrics == null) {
+            metrics = routes.computeIfAbsent(name, key -> new RouteMetrics());
+        }
+        return metrics;
+    }
+
+    public void countResult(String resultCode) {
+        LongAdder counter = resultCodes.get(resultCode);
+        if (counter == null) {
+            counter = resultCodes.computeIfAbsent(resultCode, key -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    public long getResultCount(String resultCode) {
+        LongAdder counter = resultCodes.get(resultCode);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    public void countCache(CacheResult result) {
+        cacheResults[result.ordinal()].increment();
+    }
+
+    public long getCacheCount(CacheResult result) {
+        return cacheResults[result.ordinal()].sum();
+    }
+
+    /**
+     * 응답 본문 하나를 압축한 결과를 기록한다.
+     */
+    public void recordCompression(String encoding, long inputBytes, long outputBytes, long nanos) {
+        CompressionMetrics metrics = compression(encoding);
+        metrics.responses.increment();
+        metrics.inputBytes.add(inputBytes);
+        metrics.outputBytes.add(outputBytes);
+        metrics.nanos.add(nanos);
+    }
+
+    public CompressionMetrics compression(String encoding) {
+        CompressionMetrics metrics = compressions.get(encoding);
+        if (metrics == null) {
+            metrics = compressions.computeIfAbsent(encoding, key -> new CompressionMetrics());
+        }
+        return metrics;
+    }
+
+    /**
+     * 압축할 수 있는 형식이지만 압축하지 않은 응답을 이유별로 센다.
+     */
+    public void countCompressionSkipped(String reason) {
+        LongAdder counter = compressionSkips.get(reason);
+        if (counter == null) {
+            counter = compressionSkips.computeIfAbsent(reason, key -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    public long getCompressionSkipped(String reason) {
+        LongAdder counter = compressionSkips.get(reason);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    public void connectionOpened() {
+        activeConnections.increment();
+    }
+
+    public void connectionClosed() {
+        activeConnections.decrement();
+    }
+
+    /**
+     * HTTP/2 연결에서 요청 하나를 처리하는 스트림이 열렸다. 연결 수는 부모 채널에서 따로 센다.
+     */
+    public void streamOpened() {
+        activeStreams.increment();
+        streams.increment();
+    }
+
+    public void streamClosed() {
+        activeStreams.decrement();
+    }
+
+    public long getStreams() {
+        return streams.sum();
+    }
+
+    /**
+     * 연결을 받은 뒤 TLS 핸드셰이크가 끝날 때까지 걸린 시간을 기록한다.
+     */
+    public void recordHandshake(Handshake handshake, long nanos) {
+        handshakes[handshake.ordinal()].record(nanos);
+    }
+
+    public long getHandshakeCount(Handshake handshake) {
+        return handshakes[handshake.ordinal()].getCount();
+    }
+
+    /**
+     * 핸드셰이크가 실패했거나 끝나기 전에 연결이 닫혔다.
+     */
+    public void countHandshakeFailure() {
+        handshakeFailures.increment();
+    }
+
+    public long getHandshakeFailures() {
+        return handshakeFailures.sum();
+    }
+
+    public void countRejected(Rejection rejection) {
+        rejections[rejection.ordinal()].increment();
+    }
+
+    public long getRejected(Rejection rejection) {
+        return rejections[rejection.ordinal()].sum();
+    }
+
+    public void countTimeout(Timeout timeout) {
+        timeouts[timeout.ordinal()].increment();
+    }
+
+    public long getTimeouts(Timeout timeout) {
+        return timeouts[timeout.ordinal()].sum();
+    }
+
+    /**
+     * 송신 버퍼가 쓰기 불가능해져 연결의 읽기를 멈췄다.
+     */
+    public void countReadPaused() {
+        readPauses.increment();
+    }
+
+    public long getReadPauses() {
+        return readPauses.sum();
+    }
+
+    /**
+     * 접근 로그 항목을 기록했다. 접근 로그 기록 스레드에서 호출된다.
+     */
+    public void countAccessLogWritten() {
+        accessLogWritten.increment();
+    }
+
+    public long getAccessLogWritten() {
+        return accessLogWritten.sum();
+    }
+
+    /**
+     * 접근 로그 링 버퍼가 가득 차 항목을 버렸다.
+     */
+    public void countAccessLogDropped() {
+        accessLogDropped.increment();
+    }
+
+    public long getAccessLogDropped() {
+        return accessLogDropped.sum();
+    }
+
+    public void countClusterLookup(ClusterLookup lookup) {
+        clusterLookups[lookup.ordinal()].increment();
+    }
+
+    public long getClusterLookups(ClusterLookup lookup) {
+        return clusterLookups[lookup.ordinal()].sum();
+    }
+
+    /**
+     * 링이 바뀌어 캐시 항목을 새 담당 노드로 넘겼다.
+     */
+    public void countClusterHandoff() {
+        clusterHandoffs.increment();
+    }
+
+    public long getClusterHandoffs() {
+        return clusterHandoffs.sum();
+    }
+
+    /**
+     * 클러스터 링에 있는 노드 수를 조회할 함수를 등록한다. 클러스터 모드일 때만 등록된다.
+     */
+    public void registerCluster(IntSupplier nodes) {
+        this.clusterNodes = nodes;
+    }
+
+    /**
+     * 모든 연결의 송신 대기 바이트 합계와 쓰기 불가능한 연결 수를 조회할 함수를 등록한다.
+     */
+    public void registerOutbound(LongSupplier pendingBytes, IntSupplier unwritable) {
+        this.pendingOutboundBytes = pendingBytes;
+        this.unwritableConnections = unwritable;
+    }
+
+    /**
+     * 입장 제어의 처리 중인 요청 수와 동시성 한도를 조회할 함수를 등록한다.
+     */
+    public void registerAdmission(IntSupplier inFlight, IntSupplier limit) {
+        this.admissionInFlight = inFlight;
+        this.admissionLimit = limit;
+    }
+
+    /**
+     * 대기 작업 수를 조회할 이벤트 루프 그룹을 등록한다.
+     */
+    public void registerEventLoopGroup(String name, EventLoopGroup group) {
+        eventLoopGroups.put(name, group);
+    }
+
+    /**
+     * 사용량을 조회할 채널 할당기를 등록한다.
+     */
+    public void registerAllocator(ByteBufAllocator allocator) {
+        this.allocator = allocator;
+    }
+
+    /**
+     * 현재 지표를 Prometheus 텍스트 형식(version 0.0.4)으로 기록한다.
+     */
+    public void writeTo(StringBuilder out) {
+        out.append("# HELP api_request_phase_seconds Request processing time by route and phase.\n");
+        out.append("# TYPE api_request_phase_seconds histogram\n");
+        for (Map.Entry<String, RouteMetrics> entry : new TreeMap<String, RouteMetrics>(routes).entrySet()) {
+            String route = escape(entry.getKey());
+            for (Phase phase : Phase.values()) {
+                entry.getValue().get(phase).writeTo(out, "api_request_phase_seconds",
+                        "route=\"" + route + "\",phase=\"" + phase.label + "\"");
+            }
+        }
+
+        out.append("# HELP api_responses_total Responses by API resultCode.\n");
+        out.append("# TYPE api_responses_total counter\n");
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<String, LongAdder>(resultCodes).entrySet()) {
+            out.append("api_responses_total{result_code=\"").append(escape(entry.getKey())).append("\"} ")
+                    .append(entry.getValue().sum()).append('\n');
+        }
+
+        out.append("# HELP api_response_cache_total Response cache lookups by result.\n");
+        out.append("# TYPE api_response_cache_total counter\n");
+        for (CacheResult result : CacheResult.values()) {
+            out.append("api_response_cache_total{result=\"").append(result.label).append("\"} ")
+                    .append(cacheResults[result.ordinal()].sum()).append('\n');
+        }
+
+        writeCompression(out);
+
+        out.append("# HELP api_active_connections Open client connections.\n");
+        out.append("# TYPE api_active_connections gauge\n");
+        out.append("api_active_connections ").append(activeConnections.sum()).append('\n');
+
+        writeConnections(out);
+
+        out.append("# HELP api_http2_active_streams Open HTTP/2 streams.\n");
+        out.append("# TYPE api_http2_active_streams gauge\n");
+        out.append("api_http2_active_streams ").append(activeStreams.sum()).append('\n');
+        out.append("# HELP api_http2_streams_total HTTP/2 streams opened.\n");
+        out.append("# TYPE api_http2_streams_total counter\n");
+        out.append("api_http2_streams_total ").append(streams.sum()).append('\n');
+
+        writeHandshakes(out);
+        writeAdmission(out);
+        writeCluster(out);
+
+        out.append("# HELP api_access_log_entries_total Access log entries by outcome.\n");
+        out.append("# TYPE api_access_log_entries_total counter\n");
+        out.append("api_access_log_entries_total{outcome=\"written\"} ").append(accessLogWritten.sum()).append('\n');
+        out.append("api_access_log_entries_total{outcome=\"dropped\"} ").append(accessLogDropped.sum()).append('\n');
+
+        out.append("# HELP api_event_loop_pending_tasks Tasks waiting in event loop queues.\n");
+        out.append("# TYPE api_event_loop_pending_tasks gauge\n");
+        for (Map.Entry<String, EventLoopGroup> entry : new TreeMap<String, EventLoopGroup>(eventLoopGroups).entrySet()) {
+            long pending = 0;
+            for (EventExecutor executor : entry.getValue()) {
+                if (executor instanceof SingleThreadEventExecutor) {
+                    pending += ((SingleThreadEventExecutor) executor).pendingTasks();
+                }
+            }
+            out.append("api_event_loop_pending_tasks{group=\"").append(escape(entry.getKey())).append("\"} ")
+                    .append(pending).append('\n');
+        }
+
+        ByteBufAllocator alloc = allocator;
+        if (alloc instanceof ByteBufAllocatorMetricProvider) {
+            writeAllocator(out, ((ByteBufAllocatorMetricProvider) alloc).metric());
+        }
+    }
+
+    /**
+     * 제한 시간으로 닫은 연결 수, 배압으로 읽기를 멈춘 횟수와 송신 대기 바이트
+     */
+    private void writeConnections(StringBuilder out) {
+        out.append("# HELP api_connection_timeouts_total Connections or streams closed by a timeout, by reason.\n");
+        out.append("# TYPE api_connection_timeouts_total counter\n");
+        for (Timeout timeout : Timeout.values()) {
+            out.append("api_connection_timeouts_total{reason=\"").append(timeout.label).append("\"} ")
+                    .append(timeouts[timeout.ordinal()].sum()).append('\n');
+        }
+        out.append("# HELP api_connection_read_pauses_total Reads paused because the write buffer was full.\n");
+        out.append("# TYPE api_connection_read_pauses_total counter\n");
+        out.append("api_connection_read_pauses_total ").append(readPauses.sum()).append('\n');
+
+        LongSupplier pendingBytes = pendingOutboundBytes;
+        IntSupplier unwritable = unwritableConnections;
+        if (pendingBytes == null || unwritable == null) {
+            return;
+        }
+        out.append("# HELP api_outbound_pending_bytes Bytes queued for clients but not yet written to sockets.\n");
+        out.append("# TYPE api_outbound_pending_bytes gauge\n");
+        out.append("api_outbound_pending_bytes ").append(pendingBytes.getAsLong()).append('\n');
+        out.append("# HELP api_unwritable_connections Connections above the write buffer high water mark.\n");
+        out.append("# TYPE api_unwritable_connections gauge\n");
+        out.append("api_unwritable_connections ").append(unwritable.getAsInt()).append('\n');
+    }
+
+    /**
+     * 입장 제어의 거절 수와 처리 중인 요청 수, 동시성 한도
+     */
+    private void writeAdmission(StringBuilder out) {
+        out.append("# HELP api_admission_rejected_total Requests rejected before reaching a service, by reason.\n");
+        out.append("# TYPE api_admission_rejected_total counter\n");
+        for (Rejection rejection : Rejection.values()) {
+            out.append("api_admission_rejected_total{reason=\"").append(rejection.label).append("\"} ")
+                    .append(rejections[rejection.ordinal()].sum()).append('\n');
+        }
+        IntSupplier inFlight = admissionInFlight;
+        IntSupplier limit = admissionLimit;
+        if (inFlight == null || limit == null) {
+            return;
+        }
+        out.append("# HELP api_admission_in_flight Admitted requests waiting for a response.\n");
+        out.append("# TYPE api_admission_in_flight gauge\n");
+        out.append("api_admission_in_flight ").append(inFlight.getAsInt()).append('\n');
+        out.append("# HELP api_admission_concurrency_limit Current adaptive concurrency limit.\n");
+        out.append("# TYPE api_admission_concurrency_limit gauge\n");
+        out.append("api_admission_concurrency_limit ").append(limit.getAsInt()).append('\n');
+    }
+
+    /**
+     * 클러스터 링의 노드 수, 조회를 처리한 곳과 담당 노드로 넘긴 캐시 항목 수. 클러스터 모드일 때만 내보낸다.
+     */
+    private void writeCluster(StringBuilder out) {
+        IntSupplier nodes = clusterNodes;
+        if (nodes == null) {
+            return;
+        }
+        out.append("# HELP api_cluster_nodes Nodes in this node's view of the cluster hash ring.\n");
+        out.append("# TYPE api_cluster_nodes gauge\n");
+        out.append("api_cluster_nodes ").append(nodes.getAsInt()).append('\n');
+        out.append("# HELP api_cluster_lookups_total Token and user lookups by where they were served.\n");
+        out.append("# TYPE api_cluster_lookups_total counter\n");
+        for (ClusterLookup lookup : ClusterLookup.values()) {
+            out.append("api_cluster_lookups_total{result=\"").append(lookup.label).append("\"} ")
+                    .append(clusterLookups[lookup.ordinal()].sum()).append('\n');
+        }
+        out.append("# HELP api_cluster_handoffs_total Cache entries moved to a new owner after the ring changed.\n");
+        out.append("# TYPE api_cluster_handoffs_total counter\n");
+        out.append("api_cluster_handoffs_total ").append(clusterHandoffs.sum()).append('\n');
+    }
+
+    /**
+     * TLS 핸드셰이크 시간과 세션 재사용 비율(재사용 핸드셰이크 / 성공한 핸드셰이크)
+     */
+    private void writeHandshakes(StringBuilder out) {
+        out.append("# HELP api_tls_handshake_seconds TLS handshake time from accept to completion.\n");
+        out.append("# TYPE api_tls_handshake_seconds histogram\n");
+        long total = 0;
+        for (Handshake handshake : Handshake.values()) {
+            handshakes[handshake.ordinal()].writeTo(out, "api_tls_handshake_seconds",
+                    "type=\"" + handshake.label + "\"");
+            total += handshakes[handshake.ordinal()].getCount();
+        }
+        out.append("# HELP api_tls_handshake_failures_total TLS handshakes that failed or were abandoned.\n");
+        out.append("# TYPE api_tls_handshake_failures_total counter\n");
+        out.append("api_tls_handshake_failures_total ").append(handshakeFailures.sum()).append('\n');
+        out.append("# HELP api_tls_resumption_ratio Share of successful TLS handshakes that resumed a session.\n");
+        out.append("# TYPE api_tls_resumption_ratio gauge\n");
+        out.append("api_tls_resumption_ratio ")
+                .append(total == 0 ? 0 : (double) handshakes[Handshake.RESUMED.ordinal()].getCount() / total)
+                .append('\n');
+    }
+
+    /**
+     * 압축 방식별 입출력 크기와 CPU 시간. 압축률(api_compression_ratio)과 입력 MiB당 압축 시간을 함께 내보낸다.
+     */
+    private void writeCompression(StringBuilder out) {
+        Map<String, CompressionMetrics> sorted = new TreeMap<String, CompressionMetrics>(compressions);
+        out.append("# HELP api_compression_responses_total Compressed responses by encoding.\n");
+        out.append("# TYPE api_compression_responses_total counter\n");
+        for (Map.Entry<String, CompressionMetrics> entry : sorted.entrySet()) {
+            out.append("api_compression_responses_total{encoding=\"").append(escape(entry.getKey())).append("\"} ")
+                    .append(entry.getValue().getResponses()).append('\n');
+        }
+        out.append("# HELP api_compression_bytes_total Body bytes before (in) and after (out) compression.\n");
+        out.append("# TYPE api_compression_bytes_total counter\n");
+        for (Map.Entry<String, CompressionMetrics> entry : sorted.entrySet()) {
+            String encoding = escape(entry.getKey());
+            out.append("api_compression_bytes_total{encoding=\"").append(encoding).append("\",direction=\"in\"} ")
+                    .append(entry.getValue().getInputBytes()).append('\n');
+            out.append("api_compression_bytes_total{encoding=\"").append(encoding).append("\",direction=\"out\"} ")
+                    .append(entry.getValue().getOutputBytes()).append('\n');
+        }
+        out.append("# HELP api_compression_seconds_total Time spent compressing response bodies.\n");
+        out.append("# TYPE api_compression_seconds_total counter\n");
+        for (Map.Entry<String, CompressionMetrics> entry : sorted.entrySet()) {
+            out.append("api_compression_seconds_total{encoding=\"").append(escape(entry.getKey())).append("\"} ")
+                    .append(entry.getValue().getNanos() / 1e9).append('\n');
+        }
+        out.append("# HELP api_compression_ratio Compressed size divided by original size since start.\n");
+        out.append("# TYPE api_compression_ratio gauge\n");
+        for (Map.Entry<String, CompressionMetrics> entry : sorted.entrySet()) {
+            long input = entry.getValue().getInputBytes();
+            if (input > 0) {
+                out.append("api_compression_ratio{encoding=\"").append(escape(entry.getKey())).append("\"} ")
+                        .append((double) entry.getValue().getOutputBytes() / input).append('\n');
+            }
+        }
+        out.append("# HELP api_compression_seconds_per_mebibyte Compression time per MiB of input since start.\n");
+        out.append("# TYPE api_compression_seconds_per_mebibyte gauge\n");
+        for (Map.Entry<String, CompressionMetrics> entry : sorted.entrySet()) {
+            long input = entry.getValue().getInputBytes();
+            if (input > 0) {
+                out.append("api_compression_seconds_per_mebibyte{encoding=\"").append(escape(entry.getKey()))
+                        .append("\"} ").append(entry.getValue().getNanos() / 1e9 / (input / 1048576.0)).append('\n');
+            }
+        }
+        out.append("# HELP api_compression_skipped_total Compressible responses sent uncompressed, by reason.\n");
+        out.append("# TYPE api_compression_skipped_total counter\n");
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<String, LongAdder>(compressionSkips).entrySet()) {
+            out.append("api_compression_skipped_total{reason=\"").append(escape(entry.getKey())).append("\"} ")
+                    .append(entry.getValue().sum()).append('\n');
+        }
+    }
+
+    private static void writeAllocator(StringBuilder out, ByteBufAllocatorMetric metric) {
+        out.append("# HELP api_allocator_used_bytes Memory held by the channel allocator.\n");
+        out.append("# TYPE api_allocator_used_bytes gauge\n");
+        out.append("api_allocator_used_bytes{type=\"heap\"} ").append(metric.usedHeapMemory()).append('\n');
+        out.append("api_allocator_used_bytes{type=\"direct\"} ").append(metric.usedDirectMemory()).append('\n');
+
+        if (metric instanceof PooledByteBufAllocatorMetric) {
+            PooledByteBufAllocatorMetric pooled = (PooledByteBufAllocatorMetric) metric;
+            out.append("# HELP api_allocator_active_allocations Buffers currently allocated from pool arenas.\n");
+            out.append("# TYPE api_allocator_active_allocations gauge\n");
+            out.append("api_allocator_active_allocations{type=\"heap\"} ")
+                    .append(activeAllocations(pooled.heapArenas())).append('\n');
+            out.append("api_allocator_active_allocations{type=\"direct\"} ")
+                    .append(activeAllocations(pooled.directArenas())).append('\n');
+            out.append("# HELP api_allocator_thread_local_caches Threads holding a pool cache.\n");
+            out.append("# TYPE api_allocator_thread_local_caches gauge\n");
+            out.append("api_allocator_thread_local_caches ").append(pooled.numThreadLocalCaches()).append('\n');
+        }
+    }
+
+    private static long activeAllocations(List<PoolArenaMetric> arenas) {
+        long active = 0;
+        for (PoolArenaMetric arena : arenas) {
+            active += arena.numActiveAllocations();
+        }
+        return active;
+    }
+
+    private static String escape(String value) {
+        if (value.indexOf('\\') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
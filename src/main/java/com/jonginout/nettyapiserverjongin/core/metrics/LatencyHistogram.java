@@ -0,0 +1,77 @@
+package com.jonginout.nettyapiserverjongin.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 지연 시간 히스토그램. HdrHistogram처럼 2의 거듭제곱 경계로 나뉜 고정 버킷에 값을 기록하므로
+ * 기록은 비트 연산 한 번과 원자적 증가 두 번으로 끝나며 락을 사용하지 않는다.
+ *
+ * 버킷 i의 상한은 2^(i+10) ns(약 1µs)이며, 마지막 상한(약 8.6초)을 넘는 값은 +Inf 버킷에만 들어간다.
+ */
+public final class LatencyHistogram {
+    static final int BUCKET_COUNT = 24;
+
+    private static final int MIN_SHIFT = 10;
+
+    /**
+     * 각 버킷 상한의 초 단위 문자열. Prometheus 출력의 le 라벨 값이다.
+     */
+    private static final String[] UPPER_BOUNDS = new String[BUCKET_COUNT];
+
+    static {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            UPPER_BOUNDS[i] = Double.toString((1L << (i + MIN_SHIFT)) / 1e9);
+        }
+    }
+
+    // 마지막 칸은 상한을 넘은 값
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT + 1);
+
+    private final LongAdder sumNanos = new LongAdder();
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        buckets.incrementAndGet(bucketIndex(nanos));
+        sumNanos.add(nanos);
+    }
+
+    /**
+     * nanos 이상인 상한 중 가장 작은 버킷의 번호
+     */
+    static int bucketIndex(long nanos) {
+        if (nanos <= (1L << MIN_SHIFT)) {
+            return 0;
+        }
+        int index = 64 - Long.numberOfLeadingZeros(nanos - 1) - MIN_SHIFT;
+        return Math.min(index, BUCKET_COUNT);
+    }
+
+    /**
+     * Prometheus 텍스트 형식의 _bucket, _sum, _count 줄을 기록한다.
+     *
+     * @param labels 중괄호 안에 들어갈 라벨 목록. 예) route="users",phase="service"
+     */
+    void writeTo(StringBuilder out, String name, String labels) {
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += buckets.get(i);
+            out.append(name).append("_bucket{").append(labels).append(",le=\"").append(UPPER_BOUNDS[i])
+                    .append("\"} ").append(cumulative).append('\n');
+        }
+        cumulative += buckets.get(BUCKET_COUNT);
+        out.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(cumulative).append('\n');
+        out.append(name).append("_sum{").append(labels).append("} ").append(sumNanos.sum() / 1e9).append('\n');
+        out.append(name).append("_count{").append(labels).append("} ").append(cumulative).append('\n');
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i <= BUCKET_COUNT; i++) {
+            count += buckets.get(i);
+        }
+        return count;
+    }
+}
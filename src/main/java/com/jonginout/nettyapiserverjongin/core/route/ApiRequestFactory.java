@@ -0,0 +1,27 @@
+package com.jonginout.nettyapiserverjongin.core.route;
+
+import com.jonginout.nettyapiserverjongin.core.ApiRequest;
+
+import java.util.Map;
+
+/**
+ * 라우팅 테이블에 미리 묶어 둔 API 서비스 클래스 생성기.
+ * 요청마다 스프링 컨텍스트를 조회하지 않고 생성자를 바로 호출한다.
+ */
+public interface ApiRequestFactory {
+    ApiRequest create(Map<String, String> reqData);
+
+    /**
+     * 풀을 거치지 않고 새 API 서비스를 만든다. 이벤트 루프 밖에서 서비스를 만들 때 사용하며, 만든 서비스는 release하지 않는다.
+     */
+    default ApiRequest createUnpooled(Map<String, String> reqData) {
+        return create(reqData);
+    }
+
+    /**
+     * 응답을 기록한 뒤 생성한 API 서비스를 돌려준다. 풀을 사용하는 생성기만 재사용을 위해 보관한다.
+     * create와 같은 이벤트 루프에서 호출된다.
+     */
+    default void release(ApiRequest request) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.jonginout.nettyapiserverjongin.core.route;
+
+import com.jonginout.nettyapiserverjongin.core.ApiHandler;
+import com.jonginout.nettyapiserverjongin.core.ApiRequest;
+import com.jonginout.nettyapiserverjongin.core.ApiRoute;
+import com.jonginout.nettyapiserverjongin.core.ReusableApiRequest;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.context.ApplicationContext;
+import org.springframework.util.ClassUtils;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 스프링 컨텍스트에서 {@link ApiRoute}가 붙은 API 서비스 빈을 찾아 라우팅 테이블을 만든다.
+ *
+ * 각 서비스 클래스는 마지막 인자가 요청 데이터 맵인 public 생성자를 가져야 한다.
+ * 맵 앞의 인자는 기동 시점에 스프링 빈으로 한 번만 찾아서 생성기에 묶어 두므로
+ * 요청 처리 중에는 리플렉션이나 빈 조회 없이 생성자가 바로 호출된다.
+ *
+ * {@link ApiHandler}를 구현한 빈은 싱글톤이어야 하며, 기동 시점에 한 번 조회한 빈을 모든 요청이 함께 사용한다.
+ * {@link ReusableApiRequest}를 구현한 서비스는 이벤트 루프마다 최대 {@value #POOL_SIZE}개까지 풀에 보관해 재사용한다.
+ */
+public final class ApiRouteRegistry {
+    private static final Logger logger = LogManager.getLogger(ApiRouteRegistry.class);
+
+    static final int POOL_SIZE = 16;
+
+    private ApiRouteRegistry() {
+    }
+
+    public static RouteTable build(ApplicationContext springContext) {
+        RouteTable table = new RouteTable();
+        for (String beanName : springContext.getBeanNamesForAnnotation(ApiRoute.class)) {
+            ApiRoute apiRoute = springContext.findAnnotationOnBean(beanName, ApiRoute.class);
+            Class<?> type = ClassUtils.getUserClass(springContext.getType(beanName));
+            ApiHandler handler = null;
+            ApiRequestFactory factory = null;
+            if (ApiHandler.class.isAssignableFrom(type)) {
+                if (!springContext.isSingleton(beanName)) {
+                    throw new IllegalStateException(beanName + " 빈은 ApiHandler이므로 싱글톤이어야 합니다 : " + type.getName());
+                }
+                handler = springContext.getBean(beanName, ApiHandler.class);
+            } else if (ApiRequest.class.isAssignableFrom(type)) {
+                factory = bindFactory(springContext, type);
+                if (ReusableApiRequest.class.isAssignableFrom(type)) {
+                    factory = new PooledApiRequestFactory(factory, POOL_SIZE);
+                }
+            } else {
+                throw new IllegalStateException(beanName + " 빈은 ApiRequest나 ApiHandler 구현체가 아닙니다 : " + type.getName());
+            }
+
+            for (String path : apiRoute.path()) {
+                if (apiRoute.method().length == 0) {
+                    table.add(null, path, new Route(beanName, path, factory, handler, apiRoute));
+                    logger.info("route * " + path + " -> " + beanName);
+                }
+                for (String method : apiRoute.method()) {
+                    table.add(method.toUpperCase(Locale.ROOT), path,
+                            new Route(beanName, path, factory, handler, apiRoute));
+                    logger.info("route " + method + " " + path + " -> " + beanName);
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * LambdaMetafactory로 생성자를 직접 호출하는 ApiRequestFactory 구현체를 만든다.
+     */
+    static ApiRequestFactory bindFactory(ApplicationContext springContext, Class<?> type) {
+        Constructor<?> constructor = findConstructor(type);
+        Class<?>[] parameterTypes = constructor.getParameterTypes();
+        Class<?>[] capturedTypes = Arrays.copyOf(parameterTypes, parameterTypes.length - 1);
+        Object[] captured = new Object[capturedTypes.length];
+        for (int i = 0; i < capturedTypes.length; i++) {
+            captured[i] = springContext.getBean(capturedTypes[i]);
+        }
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle target = lookup.unreflectConstructor(constructor);
+            CallSite site = LambdaMetafactory.metafactory(lookup,
+                    "create",
+                    MethodType.methodType(ApiRequestFactory.class, capturedTypes),
+                    MethodType.methodType(ApiRequest.class, Map.class),
+                    target,
+                    MethodType.methodType(type, Map.class));
+            return (ApiRequestFactory) site.getTarget().invokeWithArguments(captured);
+        } catch (Throwable e) {
+            throw new IllegalStateException(type.getName() + " 생성기를 만들 수 없습니다.", e);
+        }
+    }
+
+    private static Constructor<?> findConstructor(Class<?> type) {
+        if (!Modifier.isPublic(type.getModifiers())) {
+            throw new IllegalStateException(type.getName() + " 클래스는 public이어야 합니다.");
+        }
+        for (Constructor<?> constructor : type.getConstructors()) {
+            Class<?>[] parameterTypes = constructor.getParameterTypes();
+            if (parameterTypes.length > 0 && parameterTypes[parameterTypes.length - 1] == Map.class) {
+                return constructor;
+            }
+        }
+        throw new IllegalStateException(type.getName() + " 클래스에 (..., Map<String, String>) 생성자가 없습니다.");
+    }
+}
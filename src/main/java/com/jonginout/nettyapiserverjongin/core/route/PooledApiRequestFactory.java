@@ -0,0 +1,55 @@
+package com.jonginout.nettyapiserverjongin.core.route;
+
+import com.jonginout.nettyapiserverjongin.core.ApiRequest;
+import com.jonginout.nettyapiserverjongin.core.ReusableApiRequest;
+import io.netty.util.concurrent.FastThreadLocal;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+
+/**
+ * {@link ReusableApiRequest}를 이벤트 루프마다 풀에 보관했다가 재사용하는 생성기.
+ * 생성과 반환은 채널의 이벤트 루프에서만 일어나므로 풀은 스레드마다 따로 두고 동기화하지 않는다.
+ * 이벤트 루프 밖에서는 createUnpooled로 풀을 거치지 않고 만든다.
+ */
+final class PooledApiRequestFactory implements ApiRequestFactory {
+    private final ApiRequestFactory factory;
+
+    private final int maxPooled;
+
+    private final FastThreadLocal<ArrayDeque<ReusableApiRequest>> pool =
+            new FastThreadLocal<ArrayDeque<ReusableApiRequest>>() {
+                @Override
+                protected ArrayDeque<ReusableApiRequest> initialValue() {
+                    return new ArrayDeque<ReusableApiRequest>(maxPooled);
+                }
+            };
+
+    PooledApiRequestFactory(ApiRequestFactory factory, int maxPooled) {
+        this.factory = factory;
+        this.maxPooled = maxPooled;
+    }
+
+    @Override
+    public ApiRequest create(Map<String, String> reqData) {
+        ReusableApiRequest request = pool.get().poll();
+        if (request == null) {
+            return factory.create(reqData);
+        }
+        request.reset(reqData);
+        return request;
+    }
+
+    @Override
+    public ApiRequest createUnpooled(Map<String, String> reqData) {
+        return factory.create(reqData);
+    }
+
+    @Override
+    public void release(ApiRequest request) {
+        ArrayDeque<ReusableApiRequest> pooled = pool.get();
+        if (pooled.size() < maxPooled) {
+            pooled.offer((ReusableApiRequest) request);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.jonginout.nettyapiserverjongin.core.route;
+
+import com.jonginout.nettyapiserverjongin.core.ApiHandler;
+import com.jonginout.nettyapiserverjongin.core.ApiRoute;
+import com.jonginout.nettyapiserverjongin.core.ExecutionMode;
+
+/**
+ * 라우팅 테이블의 항목 하나. 빈 이름, URI 템플릿과 미리 묶어 둔 생성기 또는 싱글톤 핸들러를 가진다.
+ */
+public final class Route {
+    private final String name;
+
+    private final String template;
+
+    private final ApiRequestFactory factory;
+
+    // ApiHandler 빈이면 싱글톤 핸들러, 아니면 null
+    private final ApiHandler handler;
+
+    private final ExecutionMode executionMode;
+
+    private final long timeoutMillis;
+
+    private final long maxBodySize;
+
+    private final long cacheTtlMillis;
+
+    private final String[] cacheKey;
+
+    private final boolean compress;
+
+    private final boolean resultCodeAsStatus;
+
+    public Route(String name, String template, ApiRequestFactory factory) {
+        this(name, template, factory, ExecutionMode.DEFAULT, 0, 0);
+    }
+
+    /**
+     * ApiRoute 애너테이션의 라우트 옵션을 필드로 복사해 둔다. 요청마다 애너테이션 프록시를 호출하지 않기 위해서다.
+     */
+    public Route(String name, String template, ApiRequestFactory factory, ApiRoute options) {
+        this(name, template, factory, null, options);
+    }
+
+    public Route(String name, String template, ApiRequestFactory factory, ApiHandler handler, ApiRoute options) {
+        this(name, template, factory, handler, options.execution(), options.timeoutMillis(), options.maxBodySize(),
+                options.cacheTtlMillis(), options.cacheKey(), options.compress(), options.resultCodeAsStatus());
+    }
+
+    public Route(String name, String template, ApiRequestFactory factory, ExecutionMode executionMode,
+                 long timeoutMillis, long maxBodySize) {
+        this(name, template, factory, null, executionMode, timeoutMillis, maxBodySize);
+    }
+
+    public Route(String name, String template, ApiRequestFactory factory, ApiHandler handler,
+                 ExecutionMode executionMode, long timeoutMillis, long maxBodySize) {
+        this(name, template, factory, handler, executionMode, timeoutMillis, maxBodySize, 0, new String[0]);
+    }
+
+    public Route(String name, String template, ApiRequestFactory factory, ApiHandler handler,
+                 ExecutionMode executionMode, long timeoutMillis, long maxBodySize, long cacheTtlMillis,
+                 String[] cacheKey) {
+        this(name, template, factory, handler, executionMode, timeoutMillis, maxBodySize, cacheTtlMillis, cacheKey,
+                true, false);
+    }
+
+    private Route(String name, String template, ApiRequestFactory factory, ApiHandler handler,
+                  ExecutionMode executionMode, long timeoutMillis, long maxBodySize, long cacheTtlMillis,
+                  String[] cacheKey, boolean compress, boolean resultCodeAsStatus) {
+        this.name = name;
+        this.template = template;
+        this.factory = factory;
+        this.handler = handler;
+        this.executionMode = executionMode;
+        this.timeoutMillis = timeoutMillis;
+        this.maxBodySize = maxBodySize;
+        this.cacheTtlMillis = cacheTtlMillis;
+        this.cacheKey = cacheKey;
+        this.compress = compress;
+        this.resultCodeAsStatus = resultCodeAsStatus;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    public ApiRequestFactory getFactory() {
+        return factory;
+    }
+
+    /**
+     * 요청마다 객체를 만들지 않는 핸들러. null이면 getFactory로 API 서비스를 생성한다.
+     */
+    public ApiHandler getHandler() {
+        return handler;
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public long getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+
+    /**
+     * 응답 캐시 유효 시간(ms). 0이면 캐시하지 않는다.
+     */
+    public long getCacheTtlMillis() {
+        return cacheTtlMillis;
+    }
+
+    /**
+     * 캐시 키에 넣을 요청 값의 이름. 비어 있으면 요청 URI를 사용한다.
+     */
+    public String[] getCacheKey() {
+        return cacheKey;
+    }
+
+    /**
+     * 응답 본문을 압축할 수 있는지 여부
+     */
+    public boolean isCompress() {
+        return compress;
+    }
+
+    /**
+     * resultCode를 HTTP 상태 코드로도 사용하는지 여부
+     */
+    public boolean isResultCodeAsStatus() {
+        return resultCodeAsStatus;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + template;
+    }
+}
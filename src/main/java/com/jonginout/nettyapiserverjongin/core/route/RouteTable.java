@@ -0,0 +1,163 @@
+package com.jonginout.nettyapiserverjongin.core.route;
+
+import io.netty.handler.codec.http.QueryStringDecoder;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * URI 세그먼트 단위의 트라이로 구성된 라우팅 테이블.
+ * 기동 시점에 add로 채운 뒤에는 읽기 전용으로 사용하며, 조회 중에는 경로 변수 값 외에 객체를 만들지 않는다.
+ *
+ * 같은 위치에서는 고정 세그먼트가 경로 변수({name})보다 우선한다.
+ */
+public final class RouteTable {
+    private final Node root = new Node();
+
+    private int size;
+
+    /**
+     * @param method   HTTP 메서드, null이면 모든 메서드
+     * @param template /users/{email} 형태의 URI 템플릿
+     */
+    public void add(String method, String template, Route route) {
+        Node node = root;
+        int length = template.length();
+        int start = 0;
+        while ((start = nextSegmentStart(template, start, length)) < length) {
+            int end = segmentEnd(template, start, length);
+            if (template.charAt(start) == '{' && template.charAt(end - 1) == '}') {
+                String name = template.substring(start + 1, end - 1);
+                if (node.variable == null) {
+                    node.variable = new Node();
+                    node.variableName = name;
+                } else if (!node.variableName.equals(name)) {
+                    throw new IllegalStateException("경로 변수 이름 충돌 : " + template + " ({" + node.variableName + "})");
+                }
+                node = node.variable;
+            } else {
+                node = node.staticChild(template.substring(start, end));
+            }
+            start = end;
+        }
+
+        if (method == null) {
+            if (node.anyMethod != null) {
+                throw new IllegalStateException("중복된 라우트 : " + template + " -> " + node.anyMethod + ", " + route);
+            }
+            node.anyMethod = route;
+        } else {
+            if (node.methods == null) {
+                node.methods = new HashMap<>();
+            }
+            Route previous = node.methods.put(method, route);
+            if (previous != null) {
+                throw new IllegalStateException("중복된 라우트 : " + method + " " + template + " -> " + previous + ", " + route);
+            }
+        }
+        size++;
+    }
+
+    /**
+     * URI에 해당하는 라우트를 찾는다. 쿼리 문자열은 무시한다.
+     *
+     * @param pathVariables 매칭된 경로 변수를 담을 맵
+     * @return 해당하는 라우트가 없으면 null
+     */
+    public Route find(String method, String uri, Map<String, String> pathVariables) {
+        int length = uri.length();
+        int query = uri.indexOf('?');
+        if (query >= 0) {
+            length = query;
+        }
+        int fragment = uri.indexOf('#');
+        if (fragment >= 0 && fragment < length) {
+            length = fragment;
+        }
+        return find(root, method, uri, 0, length, pathVariables);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private static Route find(Node node, String method, String uri, int start, int length,
+                              Map<String, String> pathVariables) {
+        start = nextSegmentStart(uri, start, length);
+        if (start >= length) {
+            return node.route(method);
+        }
+
+        int end = segmentEnd(uri, start, length);
+        int segmentLength = end - start;
+        for (Node child : node.statics) {
+            if (child.segment.length() == segmentLength && uri.regionMatches(start, child.segment, 0, segmentLength)) {
+                Route route = find(child, method, uri, end, length, pathVariables);
+                if (route != null) {
+                    return route;
+                }
+            }
+        }
+
+        if (node.variable != null) {
+            Route route = find(node.variable, method, uri, end, length, pathVariables);
+            if (route != null) {
+                pathVariables.put(node.variableName, QueryStringDecoder.decodeComponent(uri.substring(start, end)));
+                return route;
+            }
+        }
+        return null;
+    }
+
+    private static int nextSegmentStart(String s, int index, int length) {
+        while (index < length && s.charAt(index) == '/') {
+            index++;
+        }
+        return index;
+    }
+
+    private static int segmentEnd(String s, int start, int length) {
+        int end = s.indexOf('/', start);
+        return end < 0 || end > length ? length : end;
+    }
+
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        private String segment;
+
+        private Node[] statics = NO_CHILDREN;
+
+        private Node variable;
+
+        private String variableName;
+
+        private Route anyMethod;
+
+        private Map<String, Route> methods;
+
+        private Node staticChild(String segment) {
+            for (Node child : statics) {
+                if (child.segment.equals(segment)) {
+                    return child;
+                }
+            }
+            Node child = new Node();
+            child.segment = segment;
+            statics = Arrays.copyOf(statics, statics.length + 1);
+            statics[statics.length - 1] = child;
+            return child;
+        }
+
+        private Route route(String method) {
+            if (methods != null && method != null) {
+                Route route = methods.get(method);
+                if (route != null) {
+                    return route;
+                }
+            }
+            return anyMethod;
+        }
+    }
+}
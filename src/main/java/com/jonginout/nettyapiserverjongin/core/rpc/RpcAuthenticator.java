@@ -0,0 +1,16 @@
+package com.jonginout.nettyapiserverjongin.core.rpc;
+
+/**
+ * RPC 호출을 보낸 노드를 인증한다.
+ *
+ * 인증한 호출만 내부 호출로 표시되어 입장 제어를 거치지 않고 내부 라우트(/cluster/...)를 실행할 수 있다.
+ * 인증 정보 없이 들어온 호출은 HTTP 요청처럼 입장 제어를 거치고, 인증 정보가 틀린 호출은 401로 응답한다.
+ */
+public interface RpcAuthenticator {
+    /**
+     * @param node   호출이 밝힌 노드 주소. 보내지 않았으면 null
+     * @param secret 호출이 보낸 공유 비밀 값. 보내지 않았으면 null
+     * @return 내부 호출로 받아들일지 여부
+     */
+    boolean authenticate(String node, String secret);
+}
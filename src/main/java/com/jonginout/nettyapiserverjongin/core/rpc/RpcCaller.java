@@ -0,0 +1,23 @@
+package com.jonginout.nettyapiserverjongin.core.rpc;
+
+/**
+ * RPC 요청의 예약 헤더로 받은 호출한 노드의 인증 정보. 요청 컨텍스트에는 넣지 않는다.
+ */
+public final class RpcCaller {
+    private final String node;
+
+    private final String secret;
+
+    public RpcCaller(String node, String secret) {
+        this.node = node;
+        this.secret = secret;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public String getSecret() {
+        return secret;
+    }
+}
@@ -0,0 +1,309 @@
+package com.jonginout.nettyapiserverjongin.core.rpc;
+
+import com.google.gson.JsonObject;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * RPC 리스너를 호출하는 자바 클라이언트.
+ *
+ * 서버 하나에 connections 개의 연결을 열어 두고 호출마다 돌아가며 사용한다. 연결은 처음 호출할 때 열고,
+ * 끊어진 연결은 다음 호출에서 다시 연다. 연결마다 여러 호출을 응답을 기다리지 않고 보내며,
+ * 응답은 요청 번호로 호출과 짝을 맞춘다. 응답을 기다리는 호출은 연결의 이벤트 루프에서만 관리하므로 잠금이 없다.
+ * 여러 스레드가 한꺼번에 보낸 호출은 이벤트 루프의 다음 작업에서 한 번에 flush 한다.
+ *
+ * call이 돌려준 CompletableFuture는 연결의 이벤트 루프에서 완료되므로, 이어 붙인 작업에서 블로킹하면 안 된다.
+ */
+public class RpcClient implements Closeable {
+    private final InetSocketAddress address;
+
+    private final Bootstrap bootstrap;
+
+    // 클라이언트가 직접 만든 이벤트 루프. 공유 이벤트 루프를 받았으면 null이다.
+    private final EventLoopGroup ownGroup;
+
+    private final AtomicReferenceArray<ChannelFuture> connections;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    private final long timeoutMillis;
+
+    private volatile boolean closed;
+
+    /**
+     * 스레드 하나짜리 NIO 이벤트 루프를 만들어 사용하는 클라이언트. close 할 때 이벤트 루프도 놓는다.
+     */
+    public RpcClient(InetSocketAddress address, int connections, long timeoutMillis) {
+        this(address, new NioEventLoopGroup(1, new DefaultThreadFactory("rpc-client", true)), NioSocketChannel.class,
+                connections, RpcConfig.DEFAULT_MAX_FRAME_SIZE, timeoutMillis, true);
+    }
+
+    /**
+     * 주어진 이벤트 루프를 공유하는 클라이언트. channelClass는 이벤트 루프와 같은 transport(epoll, NIO)여야 한다.
+     *
+     * @param connections   서버 하나에 열어 둘 연결 수
+     * @param maxFrameSize  받을 수 있는 응답 프레임의 최대 크기(byte)
+     * @param timeoutMillis 호출을 보낸 뒤 응답을 기다리는 시간(ms). 0이면 기다리는 시간을 제한하지 않는다.
+     */
+    public RpcClient(InetSocketAddress address, EventLoopGroup group, Class<? extends Channel> channelClass,
+                     int connections, int maxFrameSize, long timeoutMillis) {
+        this(address, group, channelClass, connections, maxFrameSize, timeoutMillis, false);
+    }
+
+    private RpcClient(InetSocketAddress address, EventLoopGroup group, Class<? extends Channel> channelClass,
+                      int connections, final int maxFrameSize, final long timeoutMillis, boolean ownGroup) {
+        if (connections < 1) {
+            throw new IllegalArgumentException("rpc connections must be positive : " + connections);
+        }
+        if (timeoutMillis < 0) {
+            throw new IllegalArgumentException("rpc timeout must not be negative : " + timeoutMillis);
+        }
+        this.address = address;
+        this.ownGroup = ownGroup ? group : null;
+        this.connections = new AtomicReferenceArray<ChannelFuture>(connections);
+        this.timeoutMillis = timeoutMillis;
+        this.bootstrap = new Bootstrap()
+                .group(group)
+                .channel(channelClass)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        ch.pipeline().addLast(new LengthFieldBasedFrameDecoder(maxFrameSize, 0,
+                                RpcCodec.LENGTH_FIELD_SIZE, 0, RpcCodec.LENGTH_FIELD_SIZE));
+                        ch.pipeline().addLast(new CallHandler(timeoutMillis));
+                    }
+                });
+    }
+
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    public CompletableFuture<JsonObject> call(String method, String uri, Map<String, String> fields) {
+        return call(method, uri, Collections.<String, String>emptyMap(), fields);
+    }
+
+    /**
+     * API를 호출한다. 헤더는 token 같은 선언된 헤더만 전달되고, 필드는 본문 값으로 전달된다.
+     * 연결하지 못하거나 연결이 끊기면 IOException, 응답이 timeoutMillis 안에 오지 않으면 TimeoutException으로 완료된다.
+     * 보낸 뒤에는 헤더와 필드 맵을 읽지 않는다.
+     */
+    public CompletableFuture<JsonObject> call(String method, String uri, Map<String, String> headers,
+                                              Map<String, String> fields) {
+        final Call call = new Call(method, uri, headers, fields);
+        if (closed) {
+            call.future.completeExceptionally(new IOException("rpc client closed : " + address));
+            return call.future;
+        }
+        ChannelFuture connection = connection((next.getAndIncrement() & Integer.MAX_VALUE) % connections.length());
+        if (connection.isDone()) {
+            send(connection, call);
+        } else {
+            connection.addListener(future -> send(connection, call));
+        }
+        return call.future;
+    }
+
+    private static void send(ChannelFuture connection, final Call call) {
+        if (!connection.isSuccess()) {
+            call.future.completeExceptionally(connection.cause());
+            return;
+        }
+        connection.channel().writeAndFlush(call).addListener(future -> {
+            if (!future.isSuccess()) {
+                call.future.completeExceptionally(future.cause());
+            }
+        });
+    }
+
+    /**
+     * 연결 칸 하나의 연결. 없거나 끊어졌으면 새로 연다.
+     */
+    private ChannelFuture connection(int index) {
+        ChannelFuture connection = connections.get(index);
+        if (connection != null && (!connection.isDone() || connection.channel().isActive())) {
+            return connection;
+        }
+        synchronized (connections) {
+            connection = connections.get(index);
+            if (connection == null || (connection.isDone() && !connection.channel().isActive())) {
+                connection = bootstrap.connect(address);
+                connections.set(index, connection);
+            }
+            return connection;
+        }
+    }
+
+    /**
+     * 연결을 모두 닫는다. 응답을 기다리던 호출은 IOException으로 완료된다.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (connections) {
+            for (int i = 0; i < connections.length(); i++) {
+                ChannelFuture connection = connections.get(i);
+                if (connection != null) {
+                    connection.channel().close().awaitUninterruptibly();
+                }
+            }
+        }
+        if (ownGroup != null) {
+            ownGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).awaitUninterruptibly();
+        }
+    }
+
+    /**
+     * 보낼 호출 하나. 연결의 이벤트 루프에서 요청 번호를 받아 프레임으로 인코딩된다.
+     */
+    private static final class Call {
+        final String method;
+
+        final String uri;
+
+        final Map<String, String> headers;
+
+        final Map<String, String> fields;
+
+        final CompletableFuture<JsonObject> future = new CompletableFuture<JsonObject>();
+
+        ScheduledFuture<?> timeout;
+
+        Call(String method, String uri, Map<String, String> headers, Map<String, String> fields) {
+            this.method = method;
+            this.uri = uri;
+            this.headers = headers;
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * 연결마다 하나씩 두는 핸들러. 호출을 요청 프레임으로 기록하고, 응답 프레임을 요청 번호로 찾아 호출을 완료한다.
+     */
+    private static final class CallHandler extends ChannelDuplexHandler {
+        private final long timeoutMillis;
+
+        private final IntObjectMap<Call> pending = new IntObjectHashMap<Call>();
+
+        private int nextId;
+
+        private boolean flushPending;
+
+        CallHandler(long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+            if (!(msg instanceof Call)) {
+                ctx.write(msg, promise);
+                return;
+            }
+            final Call call = (Call) msg;
+            final int requestId = nextId++;
+            ByteBuf out = ctx.alloc().ioBuffer();
+            try {
+                RpcCodec.writeRequest(out, requestId, call.method, call.uri, call.headers, call.fields);
+            } catch (RuntimeException e) {
+                out.release();
+                promise.setFailure(e);
+                return;
+            }
+            pending.put(requestId, call);
+            if (timeoutMillis > 0) {
+                call.timeout = ctx.executor().schedule(() -> {
+                    if (pending.remove(requestId) != null) {
+                        call.future.completeExceptionally(new TimeoutException("rpc call timed out : " + call.uri));
+                    }
+                }, timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+            ctx.write(out, promise);
+        }
+
+        /**
+         * 바로 flush 하지 않고, 이미 이벤트 루프의 작업 대기열에 들어온 다른 호출의 기록이 끝난 뒤 한 번에 flush 한다.
+         */
+        @Override
+        public void flush(final ChannelHandlerContext ctx) {
+            if (flushPending) {
+                return;
+            }
+            flushPending = true;
+            ctx.executor().execute(() -> {
+                flushPending = false;
+                ctx.flush();
+            });
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ByteBuf frame = (ByteBuf) msg;
+            try {
+                Call call = pending.remove(frame.readInt());
+                if (call == null) {
+                    // 시간이 지나 포기한 호출의 늦은 응답
+                    return;
+                }
+                if (call.timeout != null) {
+                    call.timeout.cancel(false);
+                }
+                try {
+                    call.future.complete(RpcCodec.readResponse(frame));
+                } catch (RuntimeException e) {
+                    call.future.completeExceptionally(e);
+                }
+            } finally {
+                frame.release();
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            if (!pending.isEmpty()) {
+                IOException closed = new IOException("rpc connection closed : " + ctx.channel().remoteAddress(),
+                        new ClosedChannelException());
+                for (Call call : pending.values()) {
+                    if (call.timeout != null) {
+                        call.timeout.cancel(false);
+                    }
+                    call.future.completeExceptionally(closed);
+                }
+                pending.clear();
+            }
+            super.channelInactive(ctx);
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            ctx.close();
+        }
+    }
+}
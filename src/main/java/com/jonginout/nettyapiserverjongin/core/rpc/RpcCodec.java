@@ -0,0 +1,254 @@
+package com.jonginout.nettyapiserverjongin.core.rpc;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.internal.LazilyParsedNumber;
+import com.jonginout.nettyapiserverjongin.core.ApiRequestContext;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.util.CharsetUtil;
+
+import java.util.Map;
+
+/**
+ * 서비스 간 호출에 사용하는 이진 RPC 프레임의 인코딩과 디코딩.
+ *
+ * 프레임은 4바이트 길이(자신 제외) 뒤에 4바이트 요청 번호가 오고, 응답은 요청 번호로 요청과 짝을 맞추므로
+ * 연결 하나에서 여러 호출을 응답 순서와 관계없이 동시에 보낼 수 있다. 길이와 개수는 varint, 문자열은 varint 길이 뒤의 UTF-8이다.
+ *
+ * 요청 : 길이 | 요청 번호 | 메서드(1바이트) | uri | 헤더 수 | (이름, 값)... | 필드 수 | (이름, 값)...
+ * 응답 : 길이 | 요청 번호 | 필드 수 | (이름, 형식(1바이트), 값)...
+ *
+ * 요청 헤더는 선언된 헤더(token 등)로, 필드는 본문 값으로 요청 컨텍스트에 들어간다.
+ * 호출한 노드의 주소와 공유 비밀 값은 예약 헤더로 보내며, 요청 컨텍스트에 넣지 않고 {@link RpcCaller}로 따로 읽는다.
+ * 응답은 처리 결과 JSON의 최상위 필드를 형식과 함께 보내며, 객체와 배열은 JSON 문자열로 보낸다.
+ */
+public final class RpcCodec {
+    /**
+     * 프레임 앞의 길이 필드 크기
+     */
+    public static final int LENGTH_FIELD_SIZE = 4;
+
+    /**
+     * 호출한 노드의 주소를 담는 예약 헤더
+     */
+    public static final String NODE_HEADER = "rpc-node";
+
+    /**
+     * 호출한 노드가 보내는 공유 비밀 값을 담는 예약 헤더
+     */
+    public static final String SECRET_HEADER = "rpc-secret";
+
+    // 메서드 번호. 순서를 바꾸면 이전 클라이언트와 호환되지 않는다.
+    private static final String[] METHODS = {"GET", "POST", "PUT", "DELETE", "PATCH", "HEAD", "OPTIONS"};
+
+    // 응답 필드 값의 형식
+    private static final byte NULL = 0;
+
+    private static final byte STRING = 1;
+
+    private static final byte NUMBER = 2;
+
+    private static final byte TRUE = 3;
+
+    private static final byte FALSE = 4;
+
+    private static final byte JSON = 5;
+
+    private RpcCodec() {
+    }
+
+    /**
+     * 요청 프레임 하나를 길이 필드까지 기록한다. 선언되지 않은 헤더는 서버에서 버려진다.
+     */
+    public static void writeRequest(ByteBuf out, int requestId, String method, String uri,
+                                    Map<String, String> headers, Map<String, String> fields) {
+        int start = out.writerIndex();
+        out.writeInt(0);
+        out.writeInt(requestId);
+        out.writeByte(methodCode(method));
+        writeString(out, uri);
+        writeMap(out, headers);
+        writeMap(out, fields);
+        out.setInt(start, out.writerIndex() - start - LENGTH_FIELD_SIZE);
+    }
+
+    /**
+     * 길이 필드를 뗀 요청 프레임에서 요청 번호 뒤의 내용을 읽어 요청 컨텍스트를 채운다.
+     * 프레임이 잘못되었으면 CorruptedFrameException이 발생한다.
+     *
+     * @return 예약 헤더로 받은 인증 정보. 예약 헤더가 없으면 null
+     */
+    public static RpcCaller readRequest(ByteBuf in, ApiRequestContext context) {
+        try {
+            int method = in.readUnsignedByte();
+            if (method >= METHODS.length) {
+                throw new CorruptedFrameException("unknown method : " + method);
+            }
+            String uri = readString(in);
+            if (!uri.startsWith("/")) {
+                throw new CorruptedFrameException("uri must start with / : " + uri);
+            }
+            context.init(METHODS[method], uri);
+            String node = null;
+            String secret = null;
+            for (int i = readVarInt(in); i > 0; i--) {
+                String name = readString(in);
+                String value = readString(in);
+                if (NODE_HEADER.equals(name)) {
+                    node = value;
+                } else if (SECRET_HEADER.equals(name)) {
+                    secret = value;
+                } else {
+                    context.setHeader(name, value);
+                }
+            }
+            for (int i = readVarInt(in); i > 0; i--) {
+                context.bodyAttributes().put(readString(in), readString(in));
+            }
+            return node == null && secret == null ? null : new RpcCaller(node, secret);
+        } catch (IndexOutOfBoundsException e) {
+            throw new CorruptedFrameException("truncated request frame", e);
+        }
+    }
+
+    /**
+     * 응답 프레임 하나를 길이 필드까지 기록한다.
+     */
+    public static void writeResponse(ByteBuf out, int requestId, JsonObject result) {
+        int start = out.writerIndex();
+        out.writeInt(0);
+        out.writeInt(requestId);
+        writeVarInt(out, result.entrySet().size());
+        for (Map.Entry<String, JsonElement> field : result.entrySet()) {
+            writeString(out, field.getKey());
+            writeValue(out, field.getValue());
+        }
+        out.setInt(start, out.writerIndex() - start - LENGTH_FIELD_SIZE);
+    }
+
+    /**
+     * 길이 필드를 뗀 응답 프레임에서 요청 번호 뒤의 내용을 처리 결과로 읽는다.
+     */
+    public static JsonObject readResponse(ByteBuf in) {
+        try {
+            JsonObject result = new JsonObject();
+            for (int i = readVarInt(in); i > 0; i--) {
+                String name = readString(in);
+                result.add(name, readValue(in));
+            }
+            return result;
+        } catch (IndexOutOfBoundsException e) {
+            throw new CorruptedFrameException("truncated response frame", e);
+        }
+    }
+
+    private static int methodCode(String method) {
+        for (int i = 0; i < METHODS.length; i++) {
+            if (METHODS[i].equalsIgnoreCase(method)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("unsupported method : " + method);
+    }
+
+    private static void writeMap(ByteBuf out, Map<String, String> map) {
+        if (map == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        int count = 0;
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            if (entry.getValue() != null) {
+                count++;
+            }
+        }
+        writeVarInt(out, count);
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            if (entry.getValue() != null) {
+                writeString(out, entry.getKey());
+                writeString(out, entry.getValue());
+            }
+        }
+    }
+
+    private static void writeValue(ByteBuf out, JsonElement value) {
+        if (value == null || value.isJsonNull()) {
+            out.writeByte(NULL);
+        } else if (value.isJsonPrimitive()) {
+            JsonPrimitive primitive = value.getAsJsonPrimitive();
+            if (primitive.isBoolean()) {
+                out.writeByte(primitive.getAsBoolean() ? TRUE : FALSE);
+            } else {
+                out.writeByte(primitive.isNumber() ? NUMBER : STRING);
+                writeString(out, primitive.getAsString());
+            }
+        } else {
+            out.writeByte(JSON);
+            writeString(out, value.toString());
+        }
+    }
+
+    private static JsonElement readValue(ByteBuf in) {
+        byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return JsonNull.INSTANCE;
+            case STRING:
+                return new JsonPrimitive(readString(in));
+            case NUMBER:
+                return new JsonPrimitive(new LazilyParsedNumber(readString(in)));
+            case TRUE:
+                return new JsonPrimitive(Boolean.TRUE);
+            case FALSE:
+                return new JsonPrimitive(Boolean.FALSE);
+            case JSON:
+                return new JsonParser().parse(readString(in));
+            default:
+                throw new CorruptedFrameException("unknown value type : " + type);
+        }
+    }
+
+    static void writeString(ByteBuf out, String value) {
+        int length = ByteBufUtil.utf8Bytes(value);
+        writeVarInt(out, length);
+        ByteBufUtil.reserveAndWriteUtf8(out, value, length);
+    }
+
+    static String readString(ByteBuf in) {
+        int length = readVarInt(in);
+        if (length > in.readableBytes()) {
+            throw new CorruptedFrameException("string length " + length + " exceeds frame");
+        }
+        String value = in.toString(in.readerIndex(), length, CharsetUtil.UTF_8);
+        in.skipBytes(length);
+        return value;
+    }
+
+    static void writeVarInt(ByteBuf out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(ByteBuf in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                if (value < 0) {
+                    throw new CorruptedFrameException("negative length");
+                }
+                return value;
+            }
+        }
+        throw new CorruptedFrameException("malformed varint");
+    }
+}
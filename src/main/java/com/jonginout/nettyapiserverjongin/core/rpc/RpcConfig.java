@@ -0,0 +1,38 @@
+package com.jonginout.nettyapiserverjongin.core.rpc;
+
+/**
+ * 서비스 간 호출용 이진 RPC 리스너 설정.
+ *
+ * RPC 리스너는 HTTP 리스너와 이벤트 루프, 업무 실행기와 라우팅 테이블을 공유한다.
+ * TLS 없이 열리므로 기본으로 꺼져 있고, 켜더라도 rpc.bind.address(기본 루프백)처럼 외부에 노출되지 않는 주소에 바인드한다.
+ * 내부 호출로 표시되는 것은 {@link RpcAuthenticator}로 인증한 노드의 호출뿐이고, 나머지는 HTTP 요청처럼 입장 제어를 거친다.
+ */
+public class RpcConfig {
+    /**
+     * 프레임 최대 크기의 기본값. 클라이언트가 응답 프레임을 받을 때도 사용한다.
+     */
+    public static final int DEFAULT_MAX_FRAME_SIZE = 1024 * 1024;
+
+    private final boolean enabled;
+
+    private final int maxFrameSize;
+
+    /**
+     * @param maxFrameSize 받을 수 있는 요청 프레임의 최대 크기(byte). 넘으면 연결을 닫는다.
+     */
+    public RpcConfig(boolean enabled, int maxFrameSize) {
+        if (maxFrameSize < 64) {
+            throw new IllegalArgumentException("rpc.max.frame.size is too small : " + maxFrameSize);
+        }
+        this.enabled = enabled;
+        this.maxFrameSize = maxFrameSize;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getMaxFrameSize() {
+        return maxFrameSize;
+    }
+}
@@ -0,0 +1,288 @@
+package com.jonginout.nettyapiserverjongin.core.rpc;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.core.ApiRequestContext;
+import com.jonginout.nettyapiserverjongin.core.ErrorResponse;
+import com.jonginout.nettyapiserverjongin.core.ServerLifecycle;
+import com.jonginout.nettyapiserverjongin.core.ServiceDispatcher;
+import com.jonginout.nettyapiserverjongin.core.ServiceExecutor;
+import com.jonginout.nettyapiserverjongin.core.admission.AdmissionController;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics.Phase;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics.Rejection;
+import com.jonginout.nettyapiserverjongin.core.route.Route;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.CorruptedFrameException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * RPC 연결마다 하나씩 두는 핸들러. HTTP의 ApiRequestParser에 해당한다.
+ *
+ * 요청 프레임을 요청 컨텍스트로 읽어 HTTP와 같은 라우팅 테이블에서 라우트를 찾고, {@link ServiceDispatcher#execute}로
+ * 라우트의 실행 방식대로 실행한다. 응답은 끝나는 대로 요청 번호를 붙여 기록하므로 앞선 호출을 기다리지 않는다.
+ * 읽기 도중에 기록된 응답은 channelReadComplete에서, 읽기 밖에서 기록된 응답은 이벤트 루프의 다음 작업에서 한 번에 flush 한다.
+ *
+ * 응답 캐시, 압축과 접근 로그는 거치지 않고, 요청 처리 지표, 입장 제어와 서버 수명 주기를 HTTP 리스너와 공유한다.
+ * 예약 헤더의 인증 정보를 {@link RpcAuthenticator}가 받아들인 호출만 내부 호출로 표시하여 입장 제어 없이
+ * 클러스터 노드 사이의 내부 라우트(/cluster/...)를 실행하게 한다. 인증 정보가 틀리면 401로 응답하고,
+ * 인증 정보가 없는 호출은 HTTP 요청처럼 입장 제어를 거친다.
+ * 서버 종료가 시작되면(DRAIN) 새 호출은 503으로 응답하고, 처리 중인 호출의 응답을 모두 보낸 뒤 연결을 닫는다.
+ */
+public class RpcServerHandler extends ChannelInboundHandlerAdapter {
+    private static final Logger logger = LogManager.getLogger(RpcServerHandler.class);
+
+    // 모든 연결이 함께 쓰는 오류 결과. 수정하면 안 된다.
+    private static final JsonObject BAD_REQUEST = result("400", "Bad Request");
+
+    private static final JsonObject UNAUTHORIZED = result("401", "Unauthorized");
+
+    private static final JsonObject GATEWAY_TIMEOUT = result("504", "Gateway Timeout");
+
+    private static final JsonObject INTERNAL_SERVER_ERROR = result("500", "Internal Server Error");
+
+    private final ServiceExecutor serviceExecutor;
+
+    private final ApiMetrics metrics;
+
+    private final ServerLifecycle lifecycle;
+
+    private final AdmissionController admission;
+
+    private final RpcAuthenticator authenticator;
+
+    // 응답을 기다리는 호출 수. 이벤트 루프에서만 바뀐다.
+    private int pending;
+
+    // channelRead와 channelReadComplete 사이인지 여부
+    private boolean reading;
+
+    private boolean flushPending;
+
+    private boolean draining;
+
+    /**
+     * @param admission     인증 정보 없이 들어온 호출의 입장 제어. null이면 입장 제어를 하지 않는다.
+     * @param authenticator 호출한 노드의 인증. null이면 어떤 호출도 내부 호출로 표시하지 않는다.
+     */
+    public RpcServerHandler(ServiceExecutor serviceExecutor, ApiMetrics metrics, ServerLifecycle lifecycle,
+                            AdmissionController admission, RpcAuthenticator authenticator) {
+        this.serviceExecutor = serviceExecutor;
+        this.metrics = metrics;
+        this.lifecycle = lifecycle;
+        this.admission = admission != null && admission.isEnabled() ? admission : null;
+        this.authenticator = authenticator;
+    }
+
+    private static JsonObject result(String resultCode, String message) {
+        JsonObject result = new JsonObject();
+        result.addProperty("resultCode", resultCode);
+        result.addProperty("message", message);
+        return result;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (!(msg instanceof ByteBuf)) {
+            ctx.fireChannelRead(msg);
+            return;
+        }
+        reading = true;
+        ByteBuf frame = (ByteBuf) msg;
+        ApiRequestContext context = new ApiRequestContext();
+        context.setRemoteAddress(ctx.channel().remoteAddress());
+        RpcCaller caller;
+        int requestId;
+        try {
+            if (frame.readableBytes() < 4) {
+                throw new CorruptedFrameException("frame too short : " + frame.readableBytes());
+            }
+            requestId = frame.readInt();
+            try {
+                caller = RpcCodec.readRequest(frame, context);
+            } catch (CorruptedFrameException e) {
+                logger.debug("잘못된 RPC 요청 : " + e.getMessage());
+                respond(ctx, requestId, BAD_REQUEST);
+                return;
+            }
+        } finally {
+            frame.release();
+        }
+
+        if (draining) {
+            respond(ctx, requestId, ErrorResponse.SERVICE_UNAVAILABLE.getResult());
+            return;
+        }
+        if (caller != null) {
+            if (authenticator == null || !authenticator.authenticate(caller.getNode(), caller.getSecret())) {
+                logger.debug("인증하지 못한 RPC 호출 : " + ctx.channel().remoteAddress() + " " + caller.getNode());
+                respond(ctx, requestId, UNAUTHORIZED);
+                return;
+            }
+            context.setInternal(true);
+        }
+
+        boolean admitted = admission != null && !context.isInternal() && !admission.isExempt(context.getUri());
+        if (admitted) {
+            Rejection rejection = admission.admit(AdmissionController.ipHash(context.getRemoteAddress()),
+                    context.get("token"));
+            if (rejection != null) {
+                metrics.countRejected(rejection);
+                boolean rateLimited = rejection == Rejection.IP_RATE || rejection == Rejection.TOKEN_RATE;
+                respond(ctx, requestId, (rateLimited ? ErrorResponse.TOO_MANY_REQUESTS
+                        : ErrorResponse.SERVICE_UNAVAILABLE).getResult());
+                return;
+            }
+        }
+        call(ctx, requestId, context, admitted);
+    }
+
+    /**
+     * 라우트를 찾아 실행하고, 끝나거나 라우트의 제한 시간이 지나면 이벤트 루프에서 응답을 기록한다.
+     * 제한 시간이 지나도 서비스는 계속 실행될 수 있으므로 실행 중인 서비스 수는 서비스가 끝날 때 줄인다.
+     * 입장 제어를 받은 호출은 응답을 기록할 때 자리를 돌려준다.
+     */
+    private void call(final ChannelHandlerContext ctx, final int requestId, ApiRequestContext context,
+                      final boolean admitted) {
+        final Route route = ServiceDispatcher.route(context);
+        final long serviceStart = System.nanoTime();
+        final CompletableFuture<JsonObject> result = new CompletableFuture<JsonObject>();
+        pending++;
+        lifecycle.serviceStarted();
+        CompletionStage<JsonObject> stage = ServiceDispatcher.execute(route, context, serviceExecutor);
+        ServiceDispatcher.cancelWhenAbandoned(result, stage);
+        stage.whenComplete((apiResult, e) -> {
+            lifecycle.serviceFinished();
+            if (e != null) {
+                result.completeExceptionally(e);
+            } else {
+                result.complete(apiResult);
+            }
+        });
+
+        if (!result.isDone()) {
+            long timeoutMillis = serviceExecutor.resolveTimeoutMillis(route.getTimeoutMillis());
+            final ScheduledFuture<?> timeout = ctx.executor().schedule(
+                    () -> result.completeExceptionally(new TimeoutException()), timeoutMillis, TimeUnit.MILLISECONDS);
+            final ChannelFutureListener cancel = future -> result.cancel(true);
+            ctx.channel().closeFuture().addListener(cancel);
+            result.whenComplete((apiResult, e) -> {
+                timeout.cancel(false);
+                ctx.channel().closeFuture().removeListener(cancel);
+            });
+        }
+
+        result.whenComplete((apiResult, e) -> {
+            long elapsed = System.nanoTime() - serviceStart;
+            metrics.route(route.getName()).record(Phase.SERVICE, elapsed);
+            if (ctx.executor().inEventLoop()) {
+                complete(ctx, requestId, apiResult, e, admitted, elapsed);
+            } else {
+                ctx.executor().execute(() -> complete(ctx, requestId, apiResult, e, admitted, elapsed));
+            }
+        });
+    }
+
+    private void complete(ChannelHandlerContext ctx, int requestId, JsonObject apiResult, Throwable e,
+                          boolean admitted, long elapsed) {
+        pending--;
+        if (e != null) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof CancellationException) {
+                if (admitted) {
+                    admission.release();
+                }
+                return;
+            }
+            if (cause instanceof TimeoutException) {
+                apiResult = GATEWAY_TIMEOUT;
+            } else {
+                logger.error("RPC API 서비스 실행 실패", cause);
+                apiResult = INTERNAL_SERVER_ERROR;
+            }
+        }
+        if (apiResult == null) {
+            apiResult = new JsonObject();
+        }
+        if (admitted) {
+            String resultCode = resultCode(apiResult);
+            admission.release(elapsed, "503".equals(resultCode) || "504".equals(resultCode));
+        }
+        respond(ctx, requestId, apiResult);
+    }
+
+    private void respond(ChannelHandlerContext ctx, int requestId, JsonObject apiResult) {
+        metrics.countResult(resultCode(apiResult));
+        if (!ctx.channel().isActive()) {
+            return;
+        }
+        ByteBuf out = ctx.alloc().ioBuffer();
+        RpcCodec.writeResponse(out, requestId, apiResult);
+        ctx.write(out, ctx.voidPromise());
+        if (draining && pending == 0) {
+            ctx.writeAndFlush(Unpooled.EMPTY_BUFFER).addListener(ChannelFutureListener.CLOSE);
+        } else {
+            flushLater(ctx);
+        }
+    }
+
+    private static String resultCode(JsonObject apiResult) {
+        JsonElement resultCode = apiResult.get("resultCode");
+        return resultCode != null && resultCode.isJsonPrimitive() ? resultCode.getAsString() : "200";
+    }
+
+    private void flushLater(final ChannelHandlerContext ctx) {
+        if (reading || flushPending) {
+            return;
+        }
+        flushPending = true;
+        ctx.executor().execute(() -> {
+            flushPending = false;
+            ctx.flush();
+        });
+    }
+
+    @Override
+    public void channelReadComplete(ChannelHandlerContext ctx) {
+        reading = false;
+        ctx.flush();
+        ctx.fireChannelReadComplete();
+    }
+
+    /**
+     * 서버 종료가 시작되면 처리 중인 호출이 없을 때 연결을 닫는다. 남은 호출이 있으면 마지막 응답을 보낸 뒤 닫는다.
+     */
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt == ServerLifecycle.DRAIN) {
+            draining = true;
+            if (pending == 0) {
+                ctx.close();
+            }
+            return;
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+
+    /**
+     * 최대 크기를 넘는 프레임을 포함해 프레임 경계를 잃으면 연결을 닫는다.
+     */
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        logger.warn("RPC 연결을 닫습니다 : " + ctx.channel().remoteAddress() + " " + cause);
+        ctx.close();
+    }
+}
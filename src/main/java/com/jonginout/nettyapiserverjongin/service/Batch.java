@@ -0,0 +1,66 @@
+package com.jonginout.nettyapiserverjongin.service;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.jonginout.nettyapiserverjongin.core.ApiHandlerTemplate;
+import com.jonginout.nettyapiserverjongin.core.ApiRequestContext;
+import com.jonginout.nettyapiserverjongin.core.ApiRoute;
+import com.jonginout.nettyapiserverjongin.core.BatchExecutor;
+import com.jonginout.nettyapiserverjongin.core.ErrorResponse;
+import com.jonginout.nettyapiserverjongin.core.ExecutionMode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 여러 API 호출을 한 번의 HTTP 왕복으로 처리하는 묶음 요청.
+ * 본문을 읽어 하위 요청을 나눠 주기만 하므로 이벤트 루프에서 실행하며, 하위 요청은 각자의 라우트 실행 방식을 따른다.
+ *
+ * <pre>
+ * POST /batch
+ * {"requests": [
+ *     {"id": "verify", "method": "GET", "uri": "/tokens", "fields": {"token": "..."}},
+ *     {"id": "user", "uri": "/users", "fields": {"email": "${verify.email}"}, "dependsOn": ["verify"]}
+ * ]}
+ * </pre>
+ */
+@Service(BatchExecutor.BATCH_ROUTE)
+@ApiRoute(method = "POST", path = "/batch", execution = ExecutionMode.INLINE)
+public class Batch extends ApiHandlerTemplate {
+    private final BatchExecutor batchExecutor;
+
+    @Autowired
+    public Batch(BatchExecutor batchExecutor) {
+        this.batchExecutor = batchExecutor;
+    }
+
+    @Override
+    protected String validate(ApiRequestContext context) {
+        if (StringUtils.isEmpty(context.getBodyAttribute("requests"))) {
+            return "requests가 없습니다.";
+        }
+
+        return null;
+    }
+
+    @Override
+    public CompletionStage<JsonObject> handle(ApiRequestContext context) throws ServiceException {
+        // 입력 requests 하위 요청 배열. 하위 요청은 id, method, uri, fields, dependsOn을 가진다.
+        // 출력 resultCode 하위 요청을 모두 실행했으면 200, 하위 요청 배열이 잘못되었으면 405
+        // 출력 results 요청 순서대로 하위 요청의 id와 처리 결과(result)
+        JsonElement requests;
+        try {
+            requests = new JsonParser().parse(context.getBodyAttribute("requests"));
+        } catch (JsonParseException e) {
+            return ErrorResponse.INVALID_PARAMETER.getStage();
+        }
+        if (!requests.isJsonArray()) {
+            return ErrorResponse.INVALID_PARAMETER.getStage();
+        }
+        return batchExecutor.execute(context, requests.getAsJsonArray());
+    }
+}
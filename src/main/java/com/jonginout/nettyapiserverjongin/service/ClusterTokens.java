@@ -0,0 +1,103 @@
+package com.jonginout.nettyapiserverjongin.service;
+
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.core.ApiHandlerTemplate;
+import com.jonginout.nettyapiserverjongin.core.ApiRequestContext;
+import com.jonginout.nettyapiserverjongin.core.ApiRoute;
+import com.jonginout.nettyapiserverjongin.core.ErrorResponse;
+import com.jonginout.nettyapiserverjongin.core.ExecutionMode;
+import com.jonginout.nettyapiserverjongin.core.ResponseCache;
+import com.jonginout.nettyapiserverjongin.core.cluster.ClusterEnabledCondition;
+import com.jonginout.nettyapiserverjongin.service.token.Token;
+import com.jonginout.nettyapiserverjongin.service.token.TokenStore;
+import io.netty.handler.codec.http.HttpMethod;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 클러스터 노드가 토큰의 담당 노드에 넘긴 조회. 담당 노드를 다시 찾지 않고 항상 이 노드의 캐시로 처리한다.
+ * 클러스터 모드에서만 등록되며, RPC 리스너가 클러스터 노드로 인증한 내부 호출만 처리하고 그 밖의 요청에는 404로 응답한다.
+ *
+ * GET은 토큰 확인, PUT은 다른 노드가 발급했거나 넘긴 토큰을 캐시에 넣기, DELETE는 캐시에서 지우기다.
+ * DELETE는 이 노드에 캐시된 tokenVerify 응답도 지운다.
+ */
+@Service("clusterTokens")
+@Conditional(ClusterEnabledCondition.class)
+@ApiRoute(method = {"GET", "PUT", "DELETE"}, path = TokenStore.CLUSTER_PATH, execution = ExecutionMode.INLINE,
+        compress = false)
+public class ClusterTokens extends ApiHandlerTemplate {
+    private final TokenStore tokenStore;
+
+    private final ResponseCache responseCache;
+
+    @Autowired
+    public ClusterTokens(TokenStore tokenStore, ResponseCache responseCache) {
+        this.tokenStore = tokenStore;
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    protected String validate(ApiRequestContext context) {
+        if (!context.isInternal()) {
+            return null;
+        }
+
+        if (StringUtils.isEmpty(context.get("token"))) {
+            return "token이 없습니다.";
+        }
+
+        if (HttpMethod.PUT.equals(context.getMethod())) {
+            if (StringUtils.isEmpty(context.get("userNo")) || StringUtils.isEmpty(context.get("email"))) {
+                return "토큰 정보가 없습니다.";
+            }
+            try {
+                Long.parseLong(context.get("issueDate"));
+                Long.parseLong(context.get("expireDate"));
+            } catch (NumberFormatException e) {
+                return "토큰 발급 시각이 잘못되었습니다.";
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public CompletionStage<JsonObject> handle(ApiRequestContext context) throws ServiceException {
+        // 입력 token 토큰, PUT이면 userNo, email, issueDate, expireDate 토큰 발급 정보
+        // 출력 resultCode 처리했거나 토큰이 유효하면 200, 토큰이 없거나 만료되었으면 404
+        // 출력 GET이면 userNo, email, issueDate, expireDate 토큰 발급 정보
+        if (!context.isInternal()) {
+            return ErrorResponse.NOT_FOUND.getStage();
+        }
+
+        String key = context.get("token");
+        if (HttpMethod.PUT.equals(context.getMethod())) {
+            tokenStore.putLocal(new Token(key, context.get("userNo"), context.get("email"),
+                    Long.parseLong(context.get("issueDate")), Long.parseLong(context.get("expireDate"))));
+            return CompletableFuture.completedFuture(resultOf("200"));
+        }
+        if (HttpMethod.DELETE.equals(context.getMethod())) {
+            tokenStore.expireLocal(key);
+            responseCache.invalidate("tokenVerify", key);
+            return CompletableFuture.completedFuture(resultOf("200"));
+        }
+
+        return tokenStore.verifyLocal(key).thenApply(token -> {
+            if (token == null) {
+                return resultOf("404");
+            }
+
+            JsonObject apiResult = resultOf("200");
+            apiResult.addProperty("userNo", token.getUserNo());
+            apiResult.addProperty("email", token.getEmail());
+            apiResult.addProperty("issueDate", token.getIssueDate());
+            apiResult.addProperty("expireDate", token.getExpireDate());
+            return apiResult;
+        });
+    }
+}
@@ -0,0 +1,62 @@
+package com.jonginout.nettyapiserverjongin.service;
+
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.core.ApiHandlerTemplate;
+import com.jonginout.nettyapiserverjongin.core.ApiRequestContext;
+import com.jonginout.nettyapiserverjongin.core.ApiRoute;
+import com.jonginout.nettyapiserverjongin.core.ErrorResponse;
+import com.jonginout.nettyapiserverjongin.core.ExecutionMode;
+import com.jonginout.nettyapiserverjongin.core.cluster.ClusterEnabledCondition;
+import com.jonginout.nettyapiserverjongin.service.user.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 클러스터 노드가 사용자의 담당 노드에 넘긴 조회. 담당 노드를 다시 찾지 않고 항상 이 노드의 캐시와 데이터베이스로 처리한다.
+ * 클러스터 모드에서만 등록되며, RPC 리스너가 클러스터 노드로 인증한 내부 호출만 처리하고 그 밖의 요청에는 404로 응답한다.
+ */
+@Service("clusterUsers")
+@Conditional(ClusterEnabledCondition.class)
+@ApiRoute(method = "GET", path = UserRepository.CLUSTER_PATH, execution = ExecutionMode.INLINE, compress = false)
+public class ClusterUsers extends ApiHandlerTemplate {
+    private final UserRepository userRepository;
+
+    @Autowired
+    public ClusterUsers(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    protected String validate(ApiRequestContext context) {
+        if (context.isInternal() && StringUtils.isEmpty(context.get("email"))) {
+            return "email이 없습니다.";
+        }
+
+        return null;
+    }
+
+    @Override
+    public CompletionStage<JsonObject> handle(ApiRequestContext context) throws ServiceException {
+        // 입력 email 사용자의 이메일
+        // 출력 resultCode 사용자가 있으면 200, 없으면 404
+        // 출력 userNo, userName 사용자 정보
+        if (!context.isInternal()) {
+            return ErrorResponse.NOT_FOUND.getStage();
+        }
+
+        return userRepository.findLocal(context.get("email")).thenApply(user -> {
+            if (user == null) {
+                return resultOf("404");
+            }
+
+            JsonObject apiResult = resultOf("200");
+            apiResult.addProperty("userNo", String.valueOf(user.getUserNo()));
+            apiResult.addProperty("userName", user.getUserName());
+            return apiResult;
+        });
+    }
+}
@@ -0,0 +1,44 @@
+package com.jonginout.nettyapiserverjongin.service;
+
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.core.ApiHandlerTemplate;
+import com.jonginout.nettyapiserverjongin.core.ApiRequestContext;
+import com.jonginout.nettyapiserverjongin.core.ApiRoute;
+import com.jonginout.nettyapiserverjongin.core.ExecutionMode;
+import com.jonginout.nettyapiserverjongin.core.ServerLifecycle;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 로드 밸런서와 오케스트레이터의 헬스 체크. 업무 스레드가 밀려 있어도 응답하도록 이벤트 루프에서 실행하고,
+ * 본문을 보지 않는 클라이언트를 위해 resultCode를 HTTP 상태 코드로 응답한다.
+ *
+ * /health/live는 이벤트 루프가 요청을 처리하는 동안 200이고, /health/ready는 두 리스너를 모두 바인드한 뒤
+ * 서버 종료(연결 비우기)를 시작하기 전까지만 200, 그 밖에는 503이다.
+ */
+@Service("health")
+@ApiRoute(method = "GET", path = {"/health/live", "/health/ready"}, execution = ExecutionMode.INLINE,
+        compress = false, resultCodeAsStatus = true)
+public class Health extends ApiHandlerTemplate {
+    private static final String READY_PATH = "/health/ready";
+
+    private final ServerLifecycle lifecycle;
+
+    @Autowired
+    public Health(ServerLifecycle lifecycle) {
+        this.lifecycle = lifecycle;
+    }
+
+    @Override
+    public CompletionStage<JsonObject> handle(ApiRequestContext context) throws ServiceException {
+        // 출력 resultCode 준비(살아) 있으면 200, 아니면 503
+        // 출력 state 서버 수명 주기 상태(STARTING, RUNNING, DRAINING, STOPPED)
+        boolean up = READY_PATH.equals(context.getPath()) ? lifecycle.isReady() : lifecycle.isLive();
+        JsonObject apiResult = resultOf(up ? "200" : "503");
+        apiResult.addProperty("state", lifecycle.getState().name());
+        return CompletableFuture.completedFuture(apiResult);
+    }
+}
@@ -0,0 +1,51 @@
+package com.jonginout.nettyapiserverjongin.service;
+
+import com.jonginout.nettyapiserverjongin.core.ApiRequestTemplate;
+import com.jonginout.nettyapiserverjongin.core.ApiRoute;
+import com.jonginout.nettyapiserverjongin.core.ReusableApiRequest;
+import com.jonginout.nettyapiserverjongin.core.TextApiRequest;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import org.springframework.context.annotation.Scope;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+/**
+ * 응답 텍스트를 담는 버퍼를 요청마다 새로 만들지 않도록 이벤트 루프마다 풀에 보관해 재사용한다.
+ */
+@Service("metrics")
+@Scope("prototype")
+@ApiRoute(method = "GET", path = "/metrics")
+public class Metrics extends ApiRequestTemplate implements TextApiRequest, ReusableApiRequest {
+    private final ApiMetrics metrics;
+
+    private final StringBuilder text = new StringBuilder(8192);
+
+    public Metrics(ApiMetrics metrics, Map<String, String> reqData) {
+        super(reqData);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void reset(Map<String, String> reqData) {
+        super.reset(reqData);
+        text.setLength(0);
+    }
+
+    @Override
+    public void service() throws ServiceException {
+        // 출력 요청 처리 지표를 Prometheus 텍스트 형식으로 돌려준다.
+        metrics.writeTo(text);
+        this.apiResult.addProperty("resultCode", "200");
+    }
+
+    @Override
+    public String getContentType() {
+        return "text/plain; version=0.0.4; charset=UTF-8";
+    }
+
+    @Override
+    public CharSequence getTextResult() {
+        return text;
+    }
+}
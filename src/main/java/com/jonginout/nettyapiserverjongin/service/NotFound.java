@@ -0,0 +1,20 @@
+package com.jonginout.nettyapiserverjongin.service;
+
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.core.ApiHandlerTemplate;
+import com.jonginout.nettyapiserverjongin.core.ApiRequestContext;
+import com.jonginout.nettyapiserverjongin.core.ErrorResponse;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 요청 URI와 메서드에 해당하는 API 서비스가 없을 때 사용하는 기본 API 서비스.
+ * 처리 결과를 만들지 않고 미리 만들어 둔 404 응답을 돌려준다.
+ */
+public class NotFound extends ApiHandlerTemplate {
+
+    @Override
+    public CompletionStage<JsonObject> handle(ApiRequestContext context) throws ServiceException {
+        return ErrorResponse.NOT_FOUND.getStage();
+    }
+}
@@ -1,22 +1,25 @@
 package com.jonginout.nettyapiserverjongin.service;
 
+/**
+ * 요청 파라미터 정합성 검사 실패. 클라이언트 오류를 알리는 용도이므로 스택 트레이스를 만들지 않는다.
+ */
 public class RequestParamException extends Exception {
     private static final long serialVersionUID = -1583203227626153961L;
 
     public RequestParamException() {
-        super();
+        super(null, null, false, false);
     }
 
     public RequestParamException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 
     public RequestParamException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, false, false);
     }
 
     public RequestParamException(Throwable cause) {
-        super(cause);
+        super(cause == null ? null : cause.toString(), cause, false, false);
     }
 
     protected RequestParamException(String message, Throwable cause, boolean enableSuppression,
@@ -1,22 +1,26 @@
 package com.jonginout.nettyapiserverjongin.service;
 
+/**
+ * API 서비스 처리 실패. 원인 예외를 감싸 501 응답으로 바꾸는 용도이므로 스택 트레이스를 만들지 않는다.
+ * 원인 예외의 스택 트레이스는 그대로 남는다.
+ */
 public class ServiceException extends Exception {
     private static final long serialVersionUID = -8368700741578891068L;
 
     public ServiceException() {
-        super();
+        super(null, null, false, false);
     }
 
     public ServiceException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 
     public ServiceException(String message, Throwable cause) {
-        super(message, cause);
+        super(message, cause, false, false);
     }
 
     public ServiceException(Throwable cause) {
-        super(cause);
+        super(cause == null ? null : cause.toString(), cause, false, false);
     }
 
     protected ServiceException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
@@ -0,0 +1,55 @@
+package com.jonginout.nettyapiserverjongin.service;
+
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.core.ApiHandlerTemplate;
+import com.jonginout.nettyapiserverjongin.core.ApiRequestContext;
+import com.jonginout.nettyapiserverjongin.core.ApiRoute;
+import com.jonginout.nettyapiserverjongin.core.ResponseCache;
+import com.jonginout.nettyapiserverjongin.service.token.TokenStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 토큰을 만료시키고 이 노드에 캐시된 tokenVerify 응답을 지운다. 클러스터 모드에서는 담당 노드가 /cluster/tokens DELETE를
+ * 받아 자신의 캐시도 지운다. 그 밖의 노드에 캐시된 응답은 tokenVerify의 cacheTtlMillis(1초)가 지나야 사라진다.
+ */
+@Service("tokenExpier")
+@ApiRoute(method = "DELETE", path = "/tokens")
+public class TokenExpier extends ApiHandlerTemplate {
+    private final TokenStore tokenStore;
+
+    private final ResponseCache responseCache;
+
+    @Autowired
+    public TokenExpier(TokenStore tokenStore, ResponseCache responseCache) {
+        this.tokenStore = tokenStore;
+        this.responseCache = responseCache;
+    }
+
+    @Override
+    protected String validate(ApiRequestContext context) {
+        if (StringUtils.isEmpty(context.get("token"))) {
+            return "token이 없습니다.";
+        }
+
+        return null;
+    }
+
+    @Override
+    public CompletionStage<JsonObject> handle(ApiRequestContext context) throws ServiceException {
+        // 입력 token 만료시킬 토큰을 HTTP 헤더에 입력한다.
+        // 출력 resultCode API 처리 결과코드를 돌려준다. API 처리 결과가 정상이면 결과코드는 200이다.
+        final String token = context.get("token");
+        return tokenStore.expire(token).thenApply(done -> {
+            // 캐시된 tokenVerify 응답이 만료된 토큰을 유효하다고 응답하지 않게 한다.
+            responseCache.invalidate("tokenVerify", token);
+
+            JsonObject apiResult = resultOf("200");
+            apiResult.addProperty("message", "Success");
+            return apiResult;
+        });
+    }
+}
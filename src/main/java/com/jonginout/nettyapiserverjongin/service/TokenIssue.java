@@ -0,0 +1,67 @@
+package com.jonginout.nettyapiserverjongin.service;
+
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.core.ApiHandlerTemplate;
+import com.jonginout.nettyapiserverjongin.core.ApiRequestContext;
+import com.jonginout.nettyapiserverjongin.core.ApiRoute;
+import com.jonginout.nettyapiserverjongin.service.token.TokenStore;
+import com.jonginout.nettyapiserverjongin.service.user.User;
+import com.jonginout.nettyapiserverjongin.service.user.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 데이터베이스와 Redis를 동기 방식으로 호출하므로 업무 스레드에서 실행한다.
+ */
+@Service("tokenIssue")
+@ApiRoute(method = "POST", path = "/tokens", compress = false)
+public class TokenIssue extends ApiHandlerTemplate {
+    private final TokenStore tokenStore;
+
+    private final UserRepository userRepository;
+
+    @Autowired
+    public TokenIssue(TokenStore tokenStore, UserRepository userRepository) {
+        this.tokenStore = tokenStore;
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    protected String validate(ApiRequestContext context) {
+        if (StringUtils.isEmpty(context.get("userNo"))) {
+            return "userNo가 없습니다.";
+        }
+
+        if (StringUtils.isEmpty(context.get("password"))) {
+            return "password가 없습니다.";
+        }
+
+        return null;
+    }
+
+    @Override
+    public CompletionStage<JsonObject> handle(ApiRequestContext context) throws ServiceException {
+        // 입력 userNo 사용자 번호, password 사용자 비밀번호
+        // 출력 resultCode API 처리 결과코드를 돌려준다. API 처리 결과가 정상이면 결과코드는 200이다.
+        // 출력 message API 처리 결과 메시지를 돌려준다.
+        // 출력 token 발급된 토큰. 이후 API 호출 시 HTTP 헤더의 token 값으로 전달한다.
+        User user = userRepository.authenticate(context.get("userNo"), context.get("password"));
+
+        if (user == null) {
+            // 데이터 없음.
+            return CompletableFuture.completedFuture(resultOf("404"));
+        }
+
+        return tokenStore.issue(String.valueOf(user.getUserNo()), user.getEmail()).thenApply(token -> {
+            // helper.
+            JsonObject apiResult = resultOf("200");
+            apiResult.addProperty("message", "Success");
+            apiResult.addProperty("token", token.getKey());
+            return apiResult;
+        });
+    }
+}
@@ -0,0 +1,60 @@
+package com.jonginout.nettyapiserverjongin.service;
+
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.core.ApiHandlerTemplate;
+import com.jonginout.nettyapiserverjongin.core.ApiRequestContext;
+import com.jonginout.nettyapiserverjongin.core.ApiRoute;
+import com.jonginout.nettyapiserverjongin.core.ExecutionMode;
+import com.jonginout.nettyapiserverjongin.service.token.TokenStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 모든 API 호출마다 사용되므로 이벤트 루프에서 실행하고, 요청마다 객체를 만들지 않도록 싱글톤 핸들러로 둔다.
+ * 로컬 캐시에 있는 토큰은 바로 응답하고, 없을 때만 TokenStore가 업무 스레드에서 Redis를 조회한다.
+ * 유효한 토큰의 응답은 1초 동안 응답 캐시에서 보내며, 토큰을 만료시키면 tokenExpier가 캐시에서 지운다.
+ * 응답 캐시는 노드마다 따로 있으므로, 클러스터 모드에서는 만료를 요청받은 노드와 토큰의 담당 노드의 캐시만 바로 지워진다.
+ * 다른 노드는 만료된 토큰에도 캐시된 200 응답을 최대 1초(cacheTtlMillis) 동안 더 보낼 수 있다.
+ */
+@Service("tokenVerify")
+@ApiRoute(method = "GET", path = "/tokens", execution = ExecutionMode.INLINE, cacheTtlMillis = 1000,
+        cacheKey = "token")
+public class TokenVerify extends ApiHandlerTemplate {
+    private final TokenStore tokenStore;
+
+    @Autowired
+    public TokenVerify(TokenStore tokenStore) {
+        this.tokenStore = tokenStore;
+    }
+
+    @Override
+    protected String validate(ApiRequestContext context) {
+        if (StringUtils.isEmpty(context.get("token"))) {
+            return "token이 없습니다.";
+        }
+
+        return null;
+    }
+
+    @Override
+    public CompletionStage<JsonObject> handle(ApiRequestContext context) throws ServiceException {
+        // 입력 token 발급된 토큰을 HTTP 헤더에 입력한다.
+        // 출력 resultCode 토큰이 유효하면 200, 없거나 만료되었으면 404
+        // 출력 issueDate, email, userNo 토큰 발급 정보
+        return tokenStore.verify(context.get("token")).thenApply(token -> {
+            if (token == null) {
+                return resultOf("404");
+            }
+
+            JsonObject apiResult = resultOf("200");
+            apiResult.addProperty("message", "Success");
+            apiResult.addProperty("issueDate", token.getIssueDate());
+            apiResult.addProperty("email", token.getEmail());
+            apiResult.addProperty("userNo", token.getUserNo());
+            return apiResult;
+        });
+    }
+}
@@ -1,48 +1,60 @@
 package com.jonginout.nettyapiserverjongin.service;
 
-import com.jonginout.nettyapiserverjongin.core.ApiRequestTemplate;
-import org.springframework.context.annotation.Scope;
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.core.ApiHandlerTemplate;
+import com.jonginout.nettyapiserverjongin.core.ApiRequestContext;
+import com.jonginout.nettyapiserverjongin.core.ApiRoute;
+import com.jonginout.nettyapiserverjongin.core.ExecutionMode;
+import com.jonginout.nettyapiserverjongin.service.user.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.CompletionStage;
 
+/**
+ * 호출이 가장 많은 API이므로 이벤트 루프에서 실행하고, 요청마다 객체를 만들지 않도록 싱글톤 핸들러로 둔다.
+ * 캐시된 사용자는 바로 응답하고, 캐시에 없을 때만 UserRepository가 업무 스레드에서 데이터베이스를 조회한다.
+ * 같은 email의 GET 응답은 인코딩된 그대로 10초 동안 응답 캐시에서 보낸다.
+ */
 @Service("users")
-@Scope("prototype")
-public class UserInfo extends ApiRequestTemplate {
-
-    public UserInfo(Map<String, String> reqData) {
-        super(reqData);
+@ApiRoute(path = {"/users", "/users/{email}"}, execution = ExecutionMode.INLINE,
+        cacheTtlMillis = 10000, cacheKey = "email")
+public class UserInfo extends ApiHandlerTemplate {
+    private final UserRepository userRepository;
+
+    @Autowired
+    public UserInfo(UserRepository userRepository) {
+        this.userRepository = userRepository;
     }
 
     @Override
-    public void requestParamValidation() throws RequestParamException {
-        if (StringUtils.isEmpty(this.reqData.get("email"))) {
-            throw new RequestParamException("email이 없습니다.");
+    protected String validate(ApiRequestContext context) {
+        if (StringUtils.isEmpty(context.get("email"))) {
+            return "email이 없습니다.";
         }
+
+        return null;
     }
 
     @Override
-    public void service() throws ServiceException {
+    public CompletionStage<JsonObject> handle(ApiRequestContext context) throws ServiceException {
         // 입력 email 사용자의 이메일을 HTTP heder에 입력한다.
         // 출력 resultCode API 처리 결과코드를 돌려준다. API 처리 결과가 정상이면 결과코드는 200이다.
         // 출력 message API 처리 결과 메시지를 돌려준다. API의 처리결과가 정상일 때는 Success 메시지를 돌려주며
         // 나머지 정상이 아닐 때는 오류 메시지를 돌려준다.
         // 출력 userNo 입력된 이메일에 해당하는 사용자의 사용자 번호를 돌려준다.
-        Map<String, Object> result = new HashMap<>();
-        result.put("USERNO", 12312);
-
-        if (result != null) {
-            String userNo = String.valueOf(result.get("USERNO"));
+        return userRepository.findByEmail(context.get("email")).thenApply(user -> {
+            if (user == null) {
+                // 데이터 없음.
+                return resultOf("404");
+            }
 
             // helper.
-            this.apiResult.addProperty("resultCode", "200");
-            this.apiResult.addProperty("message", "Success");
-            this.apiResult.addProperty("userNo", userNo);
-        } else {
-            // 데이터 없음.
-            this.apiResult.addProperty("resultCode", "404");
-        }
+            JsonObject apiResult = resultOf("200");
+            apiResult.addProperty("message", "Success");
+            apiResult.addProperty("userNo", String.valueOf(user.getUserNo()));
+            return apiResult;
+        });
     }
 }
@@ -0,0 +1,45 @@
+package com.jonginout.nettyapiserverjongin.service.token;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.JedisPoolConfig;
+
+/**
+ * Redis에 토큰을 저장한다. 연결은 JedisPool에서 빌려 쓰고 명령이 끝나면 바로 돌려준다.
+ */
+public class JedisTokenBackend implements TokenBackend {
+    private final JedisPool pool;
+
+    public JedisTokenBackend(String host, int port, int timeoutMillis, int maxConnections) {
+        JedisPoolConfig config = new JedisPoolConfig();
+        config.setMaxTotal(maxConnections);
+        config.setMaxIdle(maxConnections);
+        this.pool = new JedisPool(config, host, port, timeoutMillis);
+    }
+
+    @Override
+    public void setex(String key, int seconds, String value) {
+        try (Jedis jedis = pool.getResource()) {
+            jedis.setex(key, seconds, value);
+        }
+    }
+
+    @Override
+    public String get(String key) {
+        try (Jedis jedis = pool.getResource()) {
+            return jedis.get(key);
+        }
+    }
+
+    @Override
+    public void del(String key) {
+        try (Jedis jedis = pool.getResource()) {
+            jedis.del(key);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.destroy();
+    }
+}
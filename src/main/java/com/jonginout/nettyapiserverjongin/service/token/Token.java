@@ -0,0 +1,79 @@
+package com.jonginout.nettyapiserverjongin.service.token;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * 발급된 토큰 정보. Redis에는 JSON 문자열로 저장되고 로컬 캐시에는 이 객체 그대로 저장된다.
+ */
+public final class Token {
+    private final String key;
+
+    private final String userNo;
+
+    private final String email;
+
+    // 발급 시각과 만료 시각(epoch 초)
+    private final long issueDate;
+
+    private final long expireDate;
+
+    public Token(String key, String userNo, String email, long issueDate, long expireDate) {
+        this.key = key;
+        this.userNo = userNo;
+        this.email = email;
+        this.issueDate = issueDate;
+        this.expireDate = expireDate;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getUserNo() {
+        return userNo;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public long getIssueDate() {
+        return issueDate;
+    }
+
+    public long getExpireDate() {
+        return expireDate;
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return nowMillis / 1000 >= expireDate;
+    }
+
+    /**
+     * 남은 유효 시간(초)
+     */
+    int remainingSeconds(long nowMillis) {
+        return (int) Math.max(0, expireDate - nowMillis / 1000);
+    }
+
+    String toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("issueDate", issueDate);
+        json.addProperty("expireDate", expireDate);
+        json.addProperty("email", email);
+        json.addProperty("userNo", userNo);
+        return json.toString();
+    }
+
+    static Token fromJson(String key, String value) {
+        JsonObject json = new JsonParser().parse(value).getAsJsonObject();
+        return new Token(key, asString(json.get("userNo")), asString(json.get("email")),
+                json.get("issueDate").getAsLong(), json.get("expireDate").getAsLong());
+    }
+
+    private static String asString(JsonElement value) {
+        return value == null || value.isJsonNull() ? null : value.getAsString();
+    }
+}
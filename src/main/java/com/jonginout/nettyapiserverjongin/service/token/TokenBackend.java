@@ -0,0 +1,18 @@
+package com.jonginout.nettyapiserverjongin.service.token;
+
+/**
+ * 토큰을 프로세스 밖에 저장하는 저장소. 여러 API 서버가 같은 토큰을 확인할 수 있게 한다.
+ * 구현은 스레드에 안전해야 하며 실패는 RuntimeException으로 알린다.
+ */
+public interface TokenBackend {
+    public void setex(String key, int seconds, String value);
+
+    /**
+     * @return 저장된 값. 없거나 만료되었으면 null
+     */
+    public String get(String key);
+
+    public void del(String key);
+
+    public void close();
+}
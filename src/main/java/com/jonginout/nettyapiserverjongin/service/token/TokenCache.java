@@ -0,0 +1,31 @@
+package com.jonginout.nettyapiserverjongin.service.token;
+
+import com.jonginout.nettyapiserverjongin.core.LocalCache;
+
+/**
+ * 크기가 제한된 프로세스 내 토큰 캐시. 토큰의 만료 시각이 지나면 캐시에서도 사라진다.
+ * 캐시에서 밀려난 토큰은 다시 조회할 때 Redis에서 읽어 온다.
+ *
+ * revalidateMillis가 0보다 크면 토큰을 그 시간까지만 캐시한다. 다른 서버가 만료시킨 토큰도
+ * 이 시간이 지나 Redis를 다시 읽으면 거부되므로, Redis를 함께 쓸 때는 로그아웃이 모든 서버에 퍼지는 최대 지연이 된다.
+ */
+public class TokenCache extends LocalCache<String, Token> {
+    private final long revalidateMillis;
+
+    public TokenCache(int maxSize) {
+        this(maxSize, 0);
+    }
+
+    public TokenCache(int maxSize, long revalidateMillis) {
+        super(maxSize);
+        this.revalidateMillis = revalidateMillis;
+    }
+
+    public void put(Token token) {
+        long expireAtMillis = token.getExpireDate() * 1000;
+        if (revalidateMillis > 0) {
+            expireAtMillis = Math.min(expireAtMillis, System.currentTimeMillis() + revalidateMillis);
+        }
+        put(token.getKey(), token, expireAtMillis);
+    }
+}
@@ -0,0 +1,303 @@
+package com.jonginout.nettyapiserverjongin.service.token;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.core.ExecutionMode;
+import com.jonginout.nettyapiserverjongin.core.ServiceExecutor;
+import com.jonginout.nettyapiserverjongin.core.cluster.Cluster;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import com.jonginout.nettyapiserverjongin.service.ServiceException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 토큰 발급, 확인, 만료를 처리한다.
+ *
+ * 발급과 만료는 로컬 캐시와 Redis에 함께 기록한다(write-through).
+ * 확인은 로컬 캐시에서 바로 처리하고, 캐시에 없을 때만(다른 서버가 발급했거나 캐시에서 밀려난 토큰)
+ * 업무 스레드에서 Redis를 읽어 캐시에 채운다. 같은 토큰을 동시에 확인하면 Redis는 한 번만 읽고 결과를 나누어 쓴다.
+ * backend가 null이면 로컬 캐시만 사용한다.
+ * 캐시에 재확인 시간을 주면(TokenCache) 그 시간마다 Redis를 다시 읽으므로 다른 서버에서 만료시킨 토큰도 거부된다.
+ *
+ * 클러스터 모드에서는 토큰의 담당 노드만 토큰을 캐시한다. 발급할 때는 이 노드가 담당하는 키가 나올 때까지 키를 다시 뽑아
+ * 발급한 노드가 곧 담당 노드가 되게 하고, 확인과 만료는 담당 노드의 /cluster/tokens로 넘긴다. 담당 노드가 응답하지 않으면
+ * 로컬에서 처리한다. 링이 바뀌면 담당이 바뀐 토큰을 새 담당 노드로 넘긴다.
+ * 담당 노드로 넘기는 호출은 기다리지 않고 CompletionStage로 돌려주므로 느린 노드가 업무 스레드를 붙잡지 않는다.
+ */
+public class TokenStore {
+    private static final Logger logger = LogManager.getLogger(TokenStore.class);
+
+    /**
+     * 담당 노드가 토큰을 로컬에서만 처리하는 내부 라우트
+     */
+    public static final String CLUSTER_PATH = "/cluster/tokens";
+
+    // 링에서 토큰 키와 사용자 키가 겹치지 않게 붙이는 접두사
+    private static final String CLUSTER_KEY_PREFIX = "t:";
+
+    // 이 노드가 담당하는 키를 뽑을 때까지 시도하는 최대 횟수. 노드가 수십 개 이하이면 거의 항상 안에서 끝난다.
+    private static final int MAX_KEY_ATTEMPTS = 64;
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private static final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+    private final TokenCache cache;
+
+    private final TokenBackend backend;
+
+    private final int ttlSeconds;
+
+    private final ServiceExecutor serviceExecutor;
+
+    private final Cluster cluster;
+
+    private final ApiMetrics metrics;
+
+    // Redis에서 읽는 중인 토큰과 그 결과. 같은 토큰의 확인은 이 결과를 함께 기다린다.
+    private final Map<String, CompletableFuture<Token>> loading =
+            new ConcurrentHashMap<String, CompletableFuture<Token>>();
+
+    public TokenStore(TokenCache cache, TokenBackend backend, int ttlSeconds, ServiceExecutor serviceExecutor) {
+        this(cache, backend, ttlSeconds, serviceExecutor, null, null);
+    }
+
+    /**
+     * @param cluster 클러스터 모드가 아니면 null이어도 된다.
+     */
+    public TokenStore(TokenCache cache, TokenBackend backend, int ttlSeconds, ServiceExecutor serviceExecutor,
+                      Cluster cluster, ApiMetrics metrics) {
+        this.cache = cache;
+        this.backend = backend;
+        this.ttlSeconds = ttlSeconds;
+        this.serviceExecutor = serviceExecutor;
+        this.cluster = cluster != null && cluster.isEnabled() ? cluster : null;
+        this.metrics = metrics;
+        if (this.cluster != null) {
+            this.cluster.addRebalanceListener(this::handOff);
+        }
+    }
+
+    /**
+     * 새 토큰을 발급한다. Redis 기록이 실패하면 토큰을 발급하지 않는다.
+     * 담당 노드에 넣어야 하면 그 호출이 끝날 때 완료되고, 그렇지 않으면 이미 완료된 CompletionStage를 돌려준다.
+     */
+    public CompletionStage<Token> issue(String userNo, String email) throws ServiceException {
+        long issueDate = System.currentTimeMillis() / 1000;
+        Token token = new Token(ownedKey(), userNo, email, issueDate, issueDate + ttlSeconds);
+
+        if (backend != null) {
+            try {
+                backend.setex(token.getKey(), ttlSeconds, token.toJson());
+            } catch (RuntimeException e) {
+                throw new ServiceException("토큰을 저장하지 못했습니다.", e);
+            }
+        }
+
+        final String owner = ownerOf(token.getKey());
+        if (owner != null) {
+            // 담당하는 키를 뽑지 못한 드문 경우. 담당 노드에 넣지 못하면 로컬 캐시에 둔다.
+            return cluster.forward(owner, "PUT", CLUSTER_PATH, toFields(token)).handle((apiResult, e) -> {
+                if (e != null) {
+                    logger.warn("토큰을 담당 노드에 넣지 못했습니다 : " + owner + " " + e);
+                    cache.put(token);
+                }
+                return token;
+            });
+        }
+        cache.put(token);
+        return CompletableFuture.completedFuture(token);
+    }
+
+    /**
+     * 토큰을 확인한다. 없거나 만료된 토큰이면 null로 완료된다.
+     * 로컬 캐시에 있으면 이미 완료된 CompletionStage를 돌려준다.
+     */
+    public CompletionStage<Token> verify(final String key) {
+        String owner = ownerOf(key);
+        if (owner == null) {
+            return verifyLocal(key);
+        }
+        return cluster.forward(owner, "GET", CLUSTER_PATH, Collections.singletonMap("token", key))
+                .handle((apiResult, e) -> e == null
+                        ? CompletableFuture.completedFuture(fromResult(key, apiResult)) : verifyLocal(key))
+                .thenCompose(stage -> stage);
+    }
+
+    /**
+     * 담당 노드와 상관없이 이 노드의 캐시와 Redis로 토큰을 확인한다.
+     * 같은 토큰을 Redis에서 읽는 중이면 새로 읽지 않고 그 결과를 돌려준다. 돌려준 CompletionStage는 여러 요청이
+     * 함께 기다리므로 취소하면 안 된다.
+     */
+    public CompletionStage<Token> verifyLocal(final String key) {
+        Token token = cache.get(key);
+        if (token != null || backend == null) {
+            return CompletableFuture.completedFuture(token);
+        }
+
+        final CompletableFuture<Token> result = new CompletableFuture<Token>();
+        CompletableFuture<Token> running = loading.putIfAbsent(key, result);
+        if (running != null) {
+            return running;
+        }
+        boolean accepted = serviceExecutor.execute(ExecutionMode.POOL, () -> {
+            Token loaded;
+            try {
+                loaded = load(key);
+            } catch (RuntimeException e) {
+                loading.remove(key, result);
+                result.completeExceptionally(new ServiceException("토큰을 조회하지 못했습니다.", e));
+                return;
+            }
+            // 캐시를 채운 뒤에 지우므로 이후의 확인은 캐시에서 처리된다.
+            loading.remove(key, result);
+            result.complete(loaded);
+        });
+        if (!accepted) {
+            loading.remove(key, result);
+            result.completeExceptionally(new ServiceException("토큰 조회 요청이 너무 많습니다."));
+        }
+        return result;
+    }
+
+    /**
+     * 토큰을 만료시킨다. 다른 서버의 로컬 캐시에 남은 토큰은 그 캐시의 재확인 시간(token.cache.revalidate.millis)이
+     * 지날 때까지 유효하다. Redis 삭제가 실패하면 ServiceException이 발생한다.
+     * 클러스터 모드에서는 담당 노드의 캐시에서도 지우며, 그 호출이 끝날 때 완료된다. 담당 노드가 응답하지 않아도
+     * 정상으로 완료되고, 그 노드에 남은 토큰은 재확인 시간이 지나면 Redis를 다시 읽어 거부된다.
+     */
+    public CompletionStage<Void> expire(String key) throws ServiceException {
+        cache.remove(key);
+        if (backend != null) {
+            try {
+                backend.del(key);
+            } catch (RuntimeException e) {
+                throw new ServiceException("토큰을 삭제하지 못했습니다.", e);
+            }
+        }
+        final String owner = ownerOf(key);
+        if (owner == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return cluster.forward(owner, "DELETE", CLUSTER_PATH, Collections.singletonMap("token", key))
+                .handle((apiResult, e) -> {
+                    if (e != null) {
+                        logger.warn("담당 노드의 캐시에서 토큰을 지우지 못했습니다 : " + owner + " " + e);
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * 다른 노드가 넘긴 토큰을 이 노드의 캐시에 넣는다.
+     */
+    public void putLocal(Token token) {
+        cache.put(token);
+    }
+
+    /**
+     * 이 노드의 캐시에서만 토큰을 지운다. Redis의 토큰은 만료를 요청받은 노드가 지운다.
+     */
+    public void expireLocal(String key) {
+        cache.remove(key);
+    }
+
+    public void close() {
+        if (backend != null) {
+            backend.close();
+        }
+    }
+
+    private Token load(String key) {
+        String value = backend.get(key);
+        if (value == null) {
+            return null;
+        }
+
+        Token token = Token.fromJson(key, value);
+        if (token.isExpired(System.currentTimeMillis())) {
+            return null;
+        }
+        cache.put(token);
+        return token;
+    }
+
+    private String ownerOf(String key) {
+        return cluster == null ? null : cluster.ownerOf(CLUSTER_KEY_PREFIX + key);
+    }
+
+    /**
+     * 이 노드가 담당하는 새 토큰 키. 발급한 노드가 담당 노드이면 발급 직후의 확인도 다른 노드를 거치지 않는다.
+     */
+    private String ownedKey() {
+        String key = newKey();
+        for (int i = 1; cluster != null && i < MAX_KEY_ATTEMPTS && !cluster.owns(CLUSTER_KEY_PREFIX + key); i++) {
+            key = newKey();
+        }
+        return key;
+    }
+
+    /**
+     * 링이 바뀌면 담당이 바뀐 토큰을 캐시에서 꺼내 새 담당 노드로 넘긴다. 넘기지 못한 토큰은 다시 캐시에 넣는다.
+     */
+    private void handOff() {
+        final List<Token> moved = new ArrayList<Token>();
+        cache.removeIf(key -> !cluster.owns(CLUSTER_KEY_PREFIX + key), moved::add);
+        for (final Token token : moved) {
+            String owner = ownerOf(token.getKey());
+            if (owner == null) {
+                cache.put(token);
+                continue;
+            }
+            cluster.forward(owner, "PUT", CLUSTER_PATH, toFields(token)).whenComplete((apiResult, e) -> {
+                if (e != null) {
+                    cache.put(token);
+                } else {
+                    metrics.countClusterHandoff();
+                }
+            });
+        }
+        if (!moved.isEmpty()) {
+            logger.info("담당 노드가 바뀐 토큰 " + moved.size() + "개를 넘깁니다.");
+        }
+    }
+
+    private static Map<String, String> toFields(Token token) {
+        Map<String, String> fields = new HashMap<String, String>();
+        fields.put("token", token.getKey());
+        fields.put("userNo", token.getUserNo());
+        fields.put("email", token.getEmail());
+        fields.put("issueDate", String.valueOf(token.getIssueDate()));
+        fields.put("expireDate", String.valueOf(token.getExpireDate()));
+        return fields;
+    }
+
+    /**
+     * 담당 노드의 GET /cluster/tokens 처리 결과. 200이 아니면 없거나 만료된 토큰이다.
+     */
+    private static Token fromResult(String key, JsonObject apiResult) {
+        JsonElement resultCode = apiResult.get("resultCode");
+        if (resultCode == null || !"200".equals(resultCode.getAsString())) {
+            return null;
+        }
+        return new Token(key, apiResult.get("userNo").getAsString(), apiResult.get("email").getAsString(),
+                apiResult.get("issueDate").getAsLong(), apiResult.get("expireDate").getAsLong());
+    }
+
+    private static String newKey() {
+        byte[] bytes = new byte[16];
+        random.nextBytes(bytes);
+        return encoder.encodeToString(bytes);
+    }
+}
@@ -0,0 +1,31 @@
+package com.jonginout.nettyapiserverjongin.service.user;
+
+/**
+ * USERS 테이블의 사용자 정보
+ */
+public final class User {
+    private final long userNo;
+
+    // 사용자 아이디(email)
+    private final String email;
+
+    private final String userName;
+
+    public User(Long userNo, String email, String userName) {
+        this.userNo = userNo;
+        this.email = email;
+        this.userName = userName;
+    }
+
+    public long getUserNo() {
+        return userNo;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+}
@@ -0,0 +1,20 @@
+package com.jonginout.nettyapiserverjongin.service.user;
+
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * USERS 테이블 조회. SQL은 mapper/UserMapper.xml에 있다.
+ */
+public interface UserMapper {
+    public User selectByEmail(@Param("email") String email);
+
+    /**
+     * 여러 email을 한 번의 IN (...) 쿼리로 조회한다.
+     */
+    public List<User> selectByEmails(@Param("emails") Collection<String> emails);
+
+    public User selectByUserNoAndPassword(@Param("userNo") String userNo, @Param("password") String password);
+}
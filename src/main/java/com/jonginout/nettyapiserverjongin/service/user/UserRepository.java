@@ -0,0 +1,187 @@
+package com.jonginout.nettyapiserverjongin.service.user;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.core.ExecutionMode;
+import com.jonginout.nettyapiserverjongin.core.LocalCache;
+import com.jonginout.nettyapiserverjongin.core.MicroBatcher;
+import com.jonginout.nettyapiserverjongin.core.ServiceExecutor;
+import com.jonginout.nettyapiserverjongin.core.cluster.Cluster;
+import com.jonginout.nettyapiserverjongin.service.ServiceException;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 사용자 조회.
+ *
+ * email로 조회한 사용자는 ttlMillis 동안 로컬 캐시에서 바로 돌려준다(read-through).
+ * 캐시에 없는 email을 동시에 여러 요청이 조회하면 하나의 조회 결과를 함께 받는다.
+ * batchWindowMillis가 0보다 크면 그 시간 동안 들어온 조회를 모아 IN (...) 쿼리 한 번으로 실행하고,
+ * 0이면 업무 스레드에서 한 건씩 조회한다.
+ *
+ * 클러스터 모드에서는 email의 담당 노드만 사용자를 캐시하고, 다른 노드는 담당 노드의 /cluster/users로 조회를 넘긴다.
+ * 담당 노드가 응답하지 않으면 로컬에서 조회한다. 링이 바뀌면 담당이 바뀐 사용자를 캐시에서 지운다.
+ */
+public class UserRepository {
+    /**
+     * 담당 노드가 사용자를 로컬에서만 조회하는 내부 라우트
+     */
+    public static final String CLUSTER_PATH = "/cluster/users";
+
+    // 링에서 토큰 키와 사용자 키가 겹치지 않게 붙이는 접두사
+    private static final String CLUSTER_KEY_PREFIX = "u:";
+
+    private final UserMapper mapper;
+
+    private final LocalCache<String, User> cache;
+
+    private final long ttlMillis;
+
+    private final ServiceExecutor serviceExecutor;
+
+    private final MicroBatcher<String, User> batcher;
+
+    private final Cluster cluster;
+
+    // 조회 중인 email. 같은 email의 동시 조회가 이 결과를 기다린다.
+    private final ConcurrentHashMap<String, CompletableFuture<User>> loading =
+            new ConcurrentHashMap<String, CompletableFuture<User>>();
+
+    public UserRepository(UserMapper mapper, int cacheSize, long ttlMillis, long batchWindowMillis,
+                          int batchMaxSize, ServiceExecutor serviceExecutor) {
+        this(mapper, cacheSize, ttlMillis, batchWindowMillis, batchMaxSize, serviceExecutor, null);
+    }
+
+    /**
+     * @param cluster 클러스터 모드가 아니면 null이어도 된다.
+     */
+    public UserRepository(UserMapper mapper, int cacheSize, long ttlMillis, long batchWindowMillis,
+                          int batchMaxSize, ServiceExecutor serviceExecutor, Cluster cluster) {
+        this.mapper = mapper;
+        this.cache = new LocalCache<String, User>(cacheSize);
+        this.ttlMillis = ttlMillis;
+        this.serviceExecutor = serviceExecutor;
+        this.batcher = batchWindowMillis > 0
+                ? new MicroBatcher<String, User>("user-batch", this::selectByEmails, batchWindowMillis, batchMaxSize,
+                serviceExecutor)
+                : null;
+        this.cluster = cluster != null && cluster.isEnabled() ? cluster : null;
+        if (this.cluster != null) {
+            // 담당이 바뀐 사용자는 새 담당 노드가 데이터베이스에서 다시 읽는다.
+            this.cluster.addRebalanceListener(
+                    () -> cache.removeIf(email -> !this.cluster.owns(CLUSTER_KEY_PREFIX + email), null));
+        }
+    }
+
+    /**
+     * email에 해당하는 사용자를 조회한다. 없으면 null로 완료된다.
+     * 캐시에 있으면 이미 완료된 CompletionStage를 돌려준다.
+     */
+    public CompletionStage<User> findByEmail(final String email) {
+        String owner = cluster == null ? null : cluster.ownerOf(CLUSTER_KEY_PREFIX + email);
+        if (owner == null) {
+            return findLocal(email);
+        }
+        return cluster.forward(owner, "GET", CLUSTER_PATH, Collections.singletonMap("email", email))
+                .handle((apiResult, e) -> e == null
+                        ? CompletableFuture.completedFuture(fromResult(email, apiResult)) : findLocal(email))
+                .thenCompose(stage -> stage);
+    }
+
+    /**
+     * 담당 노드와 상관없이 이 노드의 캐시와 데이터베이스에서 사용자를 조회한다.
+     */
+    public CompletionStage<User> findLocal(final String email) {
+        User user = cache.get(email);
+        if (user != null) {
+            return CompletableFuture.completedFuture(user);
+        }
+
+        CompletableFuture<User> result = loading.get(email);
+        if (result != null) {
+            return result;
+        }
+        final CompletableFuture<User> created = new CompletableFuture<User>();
+        result = loading.putIfAbsent(email, created);
+        if (result != null) {
+            return result;
+        }
+
+        load(email).whenComplete((loaded, e) -> {
+            // 캐시에 먼저 넣어 조회 중 목록에서 빠진 뒤의 요청이 다시 쿼리하지 않게 한다.
+            if (loaded != null) {
+                cache.put(email, loaded, System.currentTimeMillis() + ttlMillis);
+            }
+            loading.remove(email, created);
+            if (e != null) {
+                created.completeExceptionally(new ServiceException("사용자를 조회하지 못했습니다.", e));
+            } else {
+                created.complete(loaded);
+            }
+        });
+        return created;
+    }
+
+    /**
+     * 사용자 번호와 비밀번호가 맞는 사용자를 조회한다. 인증 결과는 캐시하지 않는다.
+     */
+    public User authenticate(String userNo, String password) throws ServiceException {
+        try {
+            return mapper.selectByUserNoAndPassword(userNo, password);
+        } catch (RuntimeException e) {
+            throw new ServiceException("사용자를 조회하지 못했습니다.", e);
+        }
+    }
+
+    public void close() {
+        if (batcher != null) {
+            batcher.shutdown();
+        }
+    }
+
+    private CompletableFuture<User> load(final String email) {
+        if (batcher != null) {
+            return batcher.load(email);
+        }
+
+        final CompletableFuture<User> result = new CompletableFuture<User>();
+        boolean accepted = serviceExecutor.execute(ExecutionMode.POOL, () -> {
+            try {
+                result.complete(mapper.selectByEmail(email));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        if (!accepted) {
+            result.completeExceptionally(new IllegalStateException("service queue is full"));
+        }
+        return result;
+    }
+
+    /**
+     * 담당 노드의 GET /cluster/users 처리 결과. 200이 아니면 없는 사용자다.
+     */
+    private static User fromResult(String email, JsonObject apiResult) {
+        JsonElement resultCode = apiResult.get("resultCode");
+        if (resultCode == null || !"200".equals(resultCode.getAsString())) {
+            return null;
+        }
+        JsonElement userName = apiResult.get("userName");
+        return new User(apiResult.get("userNo").getAsLong(), email,
+                userName == null || userName.isJsonNull() ? null : userName.getAsString());
+    }
+
+    private Map<String, User> selectByEmails(Collection<String> emails) {
+        Map<String, User> users = new HashMap<String, User>();
+        for (User user : mapper.selectByEmails(emails)) {
+            users.put(user.getEmail(), user);
+        }
+        return users;
+    }
+}
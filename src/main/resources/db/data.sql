@@ -0,0 +1,3 @@
+INSERT INTO USERS (USERNO, USERID, USERNAME, PASSWORD) VALUES (12312, 'jongin@example.com', 'jongin', 'jongin1234');
+INSERT INTO USERS (USERNO, USERID, USERNAME, PASSWORD) VALUES (12313, 'netty@example.com', 'netty', 'netty1234');
+INSERT INTO USERS (USERNO, USERID, USERNAME, PASSWORD) VALUES (12314, 'spring@example.com', 'spring', 'spring1234');
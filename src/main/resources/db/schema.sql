@@ -0,0 +1,8 @@
+DROP TABLE USERS IF EXISTS;
+CREATE TABLE USERS (
+    USERNO   BIGINT       NOT NULL PRIMARY KEY,
+    USERID   VARCHAR(128) NOT NULL,
+    USERNAME VARCHAR(64)  NOT NULL,
+    PASSWORD VARCHAR(128) NOT NULL,
+    CONSTRAINT USERS_USERID_UK UNIQUE (USERID)
+);
@@ -1,13 +1,16 @@
 package com.jonginout.nettyapiserverjongin;
 
-import org.junit.jupiter.api.Test;
-import org.springframework.boot.test.context.SpringBootTest;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
-@SpringBootTest
-class NettyApiServerJonginApplicationTests {
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = ApiServerConfig.class)
+public class NettyApiServerJonginApplicationTests {
 
     @Test
-    void contextLoads() {
+    public void contextLoads() {
     }
 
 }
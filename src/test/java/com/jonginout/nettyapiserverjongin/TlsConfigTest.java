@@ -0,0 +1,111 @@
+package com.jonginout.nettyapiserverjongin;
+
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.handler.ssl.SslHandler;
+import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TlsConfigTest {
+    private static final Http2Config HTTP1_ONLY = new Http2Config(false, 100, 65535, 8192);
+
+    // 테스트용으로 만든 localhost 자체 서명 인증서와 PKCS#8 개인 키
+    private static final String CERT_PATH = resource("tls/localhost.crt");
+
+    private static final String KEY_PATH = resource("tls/localhost.key");
+
+    @Test
+    public void jdkEngineResumesSessions() throws Exception {
+        assertResumes(config("jdk", ""));
+    }
+
+    @Test
+    public void openSslEngineResumesSessionsWithTickets() throws Exception {
+        Assume.assumeTrue(OpenSsl.isAvailable());
+        File ticketKeys = File.createTempFile("ticket", ".key");
+        try {
+            Files.write(ticketKeys.toPath(), new byte[96]);
+            TlsConfig config = config("openssl", ticketKeys.getPath());
+            assertEquals(SslProvider.OPENSSL, config.getProvider());
+            assertResumes(config);
+        } finally {
+            ticketKeys.delete();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownProvider() {
+        config("boringssl", "");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTruncatedTicketKeyFile() throws Exception {
+        Assume.assumeTrue(OpenSsl.isAvailable());
+        File ticketKeys = File.createTempFile("ticket", ".key");
+        try {
+            Files.write(ticketKeys.toPath(), new byte[40]);
+            config("openssl", ticketKeys.getPath()).newServerContext(HTTP1_ONLY);
+        } finally {
+            ticketKeys.delete();
+        }
+    }
+
+    private static TlsConfig config(String provider, String ticketKeyPath) {
+        return new TlsConfig(provider, CERT_PATH, KEY_PATH, "", 1024, 300, true, ticketKeyPath);
+    }
+
+    private static String resource(String name) {
+        return new File(TlsConfigTest.class.getClassLoader().getResource(name).getFile()).getPath();
+    }
+
+    /**
+     * 같은 클라이언트 컨텍스트로 두 번 연결하면 두 번째 핸드셰이크는 세션을 다시 사용한다.
+     * TLS 1.3 티켓 발급 여부는 엔진마다 달라 두 엔진이 같은 방식으로 재개하는 TLS 1.2로 확인한다.
+     */
+    private static void assertResumes(TlsConfig config) throws Exception {
+        SslContext server = config.newServerContext(HTTP1_ONLY);
+        SslContext client = SslContextBuilder.forClient().sslProvider(SslProvider.JDK)
+                .protocols("TLSv1.2").trustManager(InsecureTrustManagerFactory.INSTANCE).build();
+
+        assertFalse(handshake(server, client));
+        assertTrue(handshake(server, client));
+    }
+
+    private static boolean handshake(SslContext serverContext, SslContext clientContext) {
+        long startMillis = System.currentTimeMillis();
+        SslHandler serverHandler = serverContext.newHandler(ByteBufAllocator.DEFAULT);
+        EmbeddedChannel server = new EmbeddedChannel(serverHandler);
+        EmbeddedChannel client = new EmbeddedChannel(clientContext.newHandler(ByteBufAllocator.DEFAULT,
+                "localhost", 8443));
+        for (int i = 0; i < 10 && !serverHandler.handshakeFuture().isDone(); i++) {
+            transfer(client, server);
+            transfer(server, client);
+        }
+        // TLS 1.3 세션 티켓은 핸드셰이크가 끝난 뒤에 전달된다.
+        transfer(server, client);
+        assertTrue(serverHandler.handshakeFuture().isSuccess());
+        boolean reused = TlsConfig.isSessionReused(serverHandler.engine(), startMillis);
+        client.finishAndReleaseAll();
+        server.finishAndReleaseAll();
+        return reused;
+    }
+
+    private static void transfer(EmbeddedChannel from, EmbeddedChannel to) {
+        Object msg;
+        while ((msg = from.readOutbound()) != null) {
+            to.writeInbound(msg);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.service.RequestParamException;
+import com.jonginout.nettyapiserverjongin.service.ServiceException;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ApiHandlerTemplateTest {
+
+    @Test
+    public void sameHandlerServesEachContext() {
+        Echo handler = new Echo(null);
+        assertEquals("jongin", handler.execute(context("jongin")).toCompletableFuture().join()
+                .get("email").getAsString());
+        assertEquals("netty", handler.execute(context("netty")).toCompletableFuture().join()
+                .get("email").getAsString());
+    }
+
+    @Test
+    public void validationFailureCompletesWith405() {
+        ApiRequestContext context = new ApiRequestContext();
+        context.init("GET", "/echo");
+        JsonObject result = new Echo(null).execute(context).toCompletableFuture().join();
+        assertEquals("405", result.get("resultCode").getAsString());
+    }
+
+    @Test
+    public void validateFailureCompletesWithSharedErrorResponse() {
+        ApiHandlerTemplate handler = new ApiHandlerTemplate() {
+            @Override
+            protected String validate(ApiRequestContext context) {
+                return context.get("email") == null ? "email이 없습니다." : null;
+            }
+
+            @Override
+            public CompletionStage<JsonObject> handle(ApiRequestContext context) {
+                throw new AssertionError("정합성 검사에 실패한 요청을 처리했습니다.");
+            }
+        };
+        ApiRequestContext context = new ApiRequestContext();
+        context.init("GET", "/echo");
+        JsonObject result = handler.execute(context).toCompletableFuture().join();
+        assertSame(ErrorResponse.INVALID_PARAMETER, ErrorResponse.of(result));
+        assertEquals("405", result.get("resultCode").getAsString());
+    }
+
+    @Test
+    public void serviceExceptionCompletesWith501() {
+        CompletableFuture<JsonObject> backend = new CompletableFuture<>();
+        CompletableFuture<JsonObject> stage = new Echo(backend).execute(context("jongin")).toCompletableFuture();
+        backend.completeExceptionally(new ServiceException("backend down"));
+        assertEquals("501", stage.join().get("resultCode").getAsString());
+    }
+
+    @Test
+    public void plainRequestMapIsWrappedAsApiRequest() {
+        Map<String, String> reqData = new HashMap<>();
+        reqData.put(ApiRequestContext.REQUEST_METHOD, "GET");
+        reqData.put(ApiRequestContext.REQUEST_URI, "/echo");
+        reqData.put("email", "jongin");
+
+        ApiRequest service = new HandlerRequest(new Echo(null), reqData);
+        service.executeService();
+        assertEquals("jongin", service.getApiResult().get("email").getAsString());
+    }
+
+    private static ApiRequestContext context(String email) {
+        ApiRequestContext context = new ApiRequestContext();
+        context.init("GET", "/echo");
+        context.bodyAttributes().put("email", email);
+        return context;
+    }
+
+    private static class Echo extends ApiHandlerTemplate {
+        private final CompletionStage<JsonObject> backend;
+
+        Echo(CompletionStage<JsonObject> backend) {
+            this.backend = backend;
+        }
+
+        @Override
+        public void requestParamValidation(ApiRequestContext context) throws RequestParamException {
+            if (context.get("email") == null) {
+                throw new RequestParamException("email이 없습니다.");
+            }
+        }
+
+        @Override
+        public CompletionStage<JsonObject> handle(ApiRequestContext context) {
+            if (backend != null) {
+                return backend;
+            }
+            JsonObject apiResult = resultOf("200");
+            apiResult.addProperty("email", context.get("email"));
+            return CompletableFuture.completedFuture(apiResult);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ApiRequestContextTest {
+
+    @Test
+    public void keepsTypedSlots() {
+        ApiRequestContext context = newContext();
+
+        assertEquals(HttpMethod.GET, context.getMethod());
+        assertEquals("/users/jongin", context.getPath());
+        assertEquals("2", context.getQueryParam("page"));
+        assertEquals("secret", context.getHeader("TOKEN"));
+        assertNull(context.getHeader("x-undeclared"));
+    }
+
+    @Test
+    public void mapViewResolvesLikeOldRequestMap() {
+        ApiRequestContext context = newContext();
+        context.pathVariables().put("email", "path@example.com");
+        Map<String, String> reqData = context.asMap();
+
+        assertEquals("/users/jongin?page=2", reqData.get("REQUEST_URI"));
+        assertEquals("GET", reqData.get("REQUEST_METHOD"));
+        assertEquals("secret", reqData.get("token"));
+        assertEquals("path@example.com", reqData.get("email"));
+        assertNull(reqData.get("x-undeclared"));
+
+        // 본문 값이 경로 변수와 헤더보다 우선한다.
+        reqData.put("email", "body@example.com");
+        assertEquals("body@example.com", reqData.get("email"));
+        assertEquals("body@example.com", context.getBodyAttribute("email"));
+        assertEquals(4, reqData.size());
+        assertSame(context, ApiRequestContext.from(reqData));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void staleMapViewFailsAfterRecycle() {
+        ApiRequestContext context = newContext();
+        Map<String, String> reqData = context.asMap();
+        context.recycle();
+
+        context.init(HttpMethod.POST, "/tokens", new DefaultHttpHeaders());
+        reqData.get("REQUEST_URI");
+    }
+
+    private static ApiRequestContext newContext() {
+        HttpHeaders headers = new DefaultHttpHeaders();
+        headers.add("token", "secret");
+        headers.add("x-undeclared", "ignored");
+
+        ApiRequestContext context = new ApiRequestContext();
+        context.init(HttpMethod.GET, "/users/jongin?page=2", headers);
+        return context;
+    }
+}
@@ -0,0 +1,82 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.service.RequestParamException;
+import com.jonginout.nettyapiserverjongin.service.ServiceException;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class AsyncApiRequestTemplateTest {
+
+    @Test
+    public void completesWithServiceResult() {
+        CompletableFuture<JsonObject> backend = new CompletableFuture<>();
+        CompletableFuture<JsonObject> stage = new Echo(request("jongin"), backend)
+                .executeServiceAsync().toCompletableFuture();
+        assertFalse(stage.isDone());
+
+        JsonObject result = new JsonObject();
+        result.addProperty("resultCode", "200");
+        backend.complete(result);
+        assertEquals("200", stage.join().get("resultCode").getAsString());
+    }
+
+    @Test
+    public void validationFailureCompletesWith405() {
+        JsonObject result = new Echo(new HashMap<String, String>(), new CompletableFuture<JsonObject>())
+                .executeServiceAsync().toCompletableFuture().join();
+        assertEquals("405", result.get("resultCode").getAsString());
+    }
+
+    @Test
+    public void serviceExceptionCompletesWith501() {
+        CompletableFuture<JsonObject> backend = new CompletableFuture<>();
+        CompletableFuture<JsonObject> stage = new Echo(request("jongin"), backend)
+                .executeServiceAsync().toCompletableFuture();
+        backend.completeExceptionally(new ServiceException("backend down"));
+        assertEquals("501", stage.join().get("resultCode").getAsString());
+    }
+
+    @Test
+    public void synchronousCallWaitsForStage() {
+        JsonObject result = new JsonObject();
+        result.addProperty("resultCode", "200");
+        Echo service = new Echo(request("jongin"), CompletableFuture.completedFuture(result));
+        service.executeService();
+        assertEquals("200", service.getApiResult().get("resultCode").getAsString());
+    }
+
+    private static Map<String, String> request(String email) {
+        Map<String, String> reqData = new HashMap<>();
+        reqData.put("email", email);
+        return reqData;
+    }
+
+    private static class Echo extends AsyncApiRequestTemplate {
+        private final CompletionStage<JsonObject> backend;
+
+        Echo(Map<String, String> reqData, CompletionStage<JsonObject> backend) {
+            super(reqData);
+            this.backend = backend;
+        }
+
+        @Override
+        public void requestParamValidation() throws RequestParamException {
+            if (reqData.get("email") == null) {
+                throw new RequestParamException("email이 없습니다.");
+            }
+        }
+
+        @Override
+        public CompletionStage<JsonObject> serviceAsync() {
+            return backend;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics.Timeout;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.timeout.IdleStateEvent;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConnectionTimeoutHandlerTest {
+    @Test
+    public void pausesReadsAndClosesAfterWriteTimeout() {
+        ApiMetrics metrics = new ApiMetrics();
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new ConnectionTimeoutHandler(new ConnectionTimeoutConfig(0, 0, 1000), metrics));
+        channel.freezeTime();
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(8, 16));
+
+        // flush 하지 않은 응답이 high water mark를 넘으면 읽기를 멈춘다.
+        channel.write(Unpooled.wrappedBuffer(new byte[32]));
+        assertFalse(channel.isWritable());
+        assertFalse(channel.config().isAutoRead());
+        assertEquals(1, metrics.getReadPauses());
+
+        channel.advanceTimeBy(1, TimeUnit.SECONDS);
+        channel.runScheduledPendingTasks();
+        assertFalse(channel.isOpen());
+        assertEquals(1, metrics.getTimeouts(Timeout.WRITE));
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void resumesReadsWhenWritable() {
+        ApiMetrics metrics = new ApiMetrics();
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new ConnectionTimeoutHandler(new ConnectionTimeoutConfig(0, 0, 1000), metrics));
+        channel.freezeTime();
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(8, 16));
+
+        channel.write(Unpooled.wrappedBuffer(new byte[32]));
+        channel.flush();
+        assertTrue(channel.isWritable());
+        assertTrue(channel.config().isAutoRead());
+
+        channel.advanceTimeBy(1, TimeUnit.SECONDS);
+        channel.runScheduledPendingTasks();
+        assertTrue(channel.isOpen());
+        assertEquals(0, metrics.getTimeouts(Timeout.WRITE));
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void closesIdleConnectionWithoutProtocol() {
+        ApiMetrics metrics = new ApiMetrics();
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new ConnectionTimeoutHandler(new ConnectionTimeoutConfig(1000, 0, 0), metrics));
+
+        channel.pipeline().fireUserEventTriggered(IdleStateEvent.ALL_IDLE_STATE_EVENT);
+        assertFalse(channel.isOpen());
+        assertEquals(1, metrics.getTimeouts(Timeout.IDLE));
+    }
+
+    @Test
+    public void firesReadTimeoutForSlowRequestBody() {
+        ApiMetrics metrics = new ApiMetrics();
+        final List<Object> events = new ArrayList<Object>();
+        EmbeddedChannel channel = new EmbeddedChannel(
+                new RequestReadTimeoutHandler(new ConnectionTimeoutConfig(0, 1000, 0), metrics),
+                new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+                        events.add(evt);
+                    }
+                });
+        channel.freezeTime();
+
+        // 한 번의 읽기로 끝난 요청은 타이머를 걸지 않는다.
+        channel.writeInbound(new DefaultHttpRequest(HTTP_1_1, HttpMethod.GET, "/users"),
+                LastHttpContent.EMPTY_LAST_CONTENT);
+        channel.advanceTimeBy(2, TimeUnit.SECONDS);
+        channel.runScheduledPendingTasks();
+        assertTrue(events.isEmpty());
+
+        channel.writeInbound(new DefaultHttpRequest(HTTP_1_1, HttpMethod.POST, "/tokens"));
+        channel.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+        channel.writeInbound(new DefaultHttpContent(Unpooled.wrappedBuffer(new byte[]{'a'})));
+        channel.runScheduledPendingTasks();
+        assertTrue(events.isEmpty());
+
+        channel.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+        channel.runScheduledPendingTasks();
+        assertEquals(1, events.size());
+        assertTrue(events.get(0) == RequestReadTimeoutHandler.READ_TIMEOUT);
+        assertEquals(1, metrics.getTimeouts(Timeout.READ));
+        channel.finishAndReleaseAll();
+    }
+}
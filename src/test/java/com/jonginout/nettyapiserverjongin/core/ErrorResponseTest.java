@@ -0,0 +1,38 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.google.gson.JsonObject;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ErrorResponseTest {
+
+    @Test
+    public void contentIsIndependentDuplicateOfPreEncodedBody() {
+        ByteBuf first = ErrorResponse.NOT_FOUND.content();
+        ByteBuf second = ErrorResponse.NOT_FOUND.content();
+        assertEquals("{\"resultCode\":\"404\",\"message\":\"Not Found\"}", first.toString(CharsetUtil.UTF_8));
+
+        // 기록한 쪽이 읽고 해제해도 다른 복제본과 다음 응답의 본문은 그대로다.
+        first.skipBytes(first.readableBytes());
+        first.release();
+        assertEquals(second.readableBytes(), ErrorResponse.NOT_FOUND.content().readableBytes());
+        assertEquals(ErrorResponse.NOT_FOUND.getResult().toString(), second.toString(CharsetUtil.UTF_8));
+        second.release();
+    }
+
+    @Test
+    public void findsErrorResponseByIdentity() {
+        assertSame(ErrorResponse.NOT_FOUND, ErrorResponse.of(ErrorResponse.NOT_FOUND.getResult()));
+
+        JsonObject copy = new JsonObject();
+        copy.addProperty("resultCode", "404");
+        copy.addProperty("message", "Not Found");
+        assertNull(ErrorResponse.of(copy));
+        assertNull(ErrorResponse.of(null));
+    }
+}
@@ -0,0 +1,60 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class JsonByteBufWriterTest {
+
+    @Test
+    public void encodesCommonEnvelopeLikeGson() {
+        JsonObject result = new JsonObject();
+        result.addProperty("resultCode", "200");
+        result.addProperty("message", "Success");
+        result.addProperty("userNo", "12312");
+        assertEncodedLikeGson(result);
+        // 두 번째 호출은 캐시된 필드 이름을 사용한다.
+        assertEncodedLikeGson(result);
+    }
+
+    @Test
+    public void escapesStringsLikeGson() {
+        JsonObject result = new JsonObject();
+        result.addProperty("quote\"key", "back\\slash \"quoted\" \n\t\r\b\f \u0001 <html>&'=");
+        result.addProperty("한글", "유니코드 \u2028 \u2029 \ud83d\ude00");
+        assertEncodedLikeGson(result);
+    }
+
+    @Test
+    public void encodesNestedValuesLikeGson() {
+        JsonArray items = new JsonArray();
+        items.add(new JsonPrimitive(1));
+        items.add(new JsonPrimitive(2.5d));
+        items.add(JsonNull.INSTANCE);
+        items.add(new JsonPrimitive(true));
+        items.add(new JsonObject());
+
+        JsonObject result = new JsonObject();
+        result.add("items", items);
+        result.addProperty("count", 5L);
+        result.addProperty("valid", false);
+        result.add("empty", new JsonArray());
+        assertEncodedLikeGson(result);
+    }
+
+    private static void assertEncodedLikeGson(JsonObject result) {
+        ByteBuf buf = JsonByteBufWriter.encode(PooledByteBufAllocator.DEFAULT, result);
+        try {
+            assertEquals(result.toString(), buf.toString(CharsetUtil.UTF_8));
+        } finally {
+            buf.release();
+        }
+    }
+}
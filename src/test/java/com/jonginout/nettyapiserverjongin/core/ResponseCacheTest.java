@@ -0,0 +1,93 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import com.jonginout.nettyapiserverjongin.core.route.Route;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ResponseCacheTest {
+    private static final Route USERS = new Route("users", "/users", null, null, ExecutionMode.INLINE, 0, 0,
+            1000, new String[]{"email"});
+
+    private static final Route UNCACHED = new Route("tokenIssue", "/tokens", null);
+
+    @Test
+    public void keyUsesDeclaredFieldsForGetOnly() {
+        ResponseCache cache = new ResponseCache(16, 1024, null);
+        assertEquals(cache.key(USERS, context("GET", "/users?x=1", "jongin")),
+                cache.key(USERS, context("GET", "/users?x=2", "jongin")));
+        assertNotEquals(cache.key(USERS, context("GET", "/users", "jongin")),
+                cache.key(USERS, context("GET", "/users", "netty")));
+        assertNull(cache.key(USERS, context("POST", "/users", "jongin")));
+        assertNull(cache.key(UNCACHED, context("GET", "/tokens", "jongin")));
+    }
+
+    @Test
+    public void storedBodyIsServedWithStableEtag() throws IOException {
+        ResponseCache cache = new ResponseCache(16, 1024, new ResponseCompressor(true, 0, 6, new ApiMetrics()));
+        String key = cache.key(USERS, context("GET", "/users", "jongin"));
+        ByteBuf body = Unpooled.copiedBuffer("{\"resultCode\":\"200\"}", CharsetUtil.UTF_8);
+        ResponseCache.Entry entry = cache.put(key, body, "200", 1000);
+        body.release();
+
+        assertSame(entry, cache.get(key));
+        assertEquals("{\"resultCode\":\"200\"}", entry.content().toString(CharsetUtil.UTF_8));
+        // 응답마다 duplicate를 보내므로 해제되어도 캐시된 본문은 그대로다.
+        entry.content().release();
+        assertEquals("{\"resultCode\":\"200\"}", gunzip(entry.gzipped()));
+
+        assertTrue(entry.matches(entry.getEtag()));
+        assertTrue(entry.matches("\"other\", W/" + entry.getEtag()));
+        assertTrue(entry.matches("*"));
+        assertFalse(entry.matches("\"other\""));
+        assertFalse(entry.matches(null));
+    }
+
+    @Test
+    public void largeBodiesAreNotCachedAndEntriesCanBeInvalidated() {
+        ResponseCache cache = new ResponseCache(16, 8, null);
+        String key = cache.key(USERS, context("GET", "/users", "jongin"));
+        ByteBuf body = Unpooled.copiedBuffer("0123456789", CharsetUtil.UTF_8);
+        assertNull(cache.put(key, body, "200", 1000));
+        assertNull(cache.get(key));
+
+        body.readerIndex(4);
+        assertNull(cache.put(key, body, "200", 1000).gzipped());
+        body.release();
+        cache.invalidate("users", "jongin");
+        assertNull(cache.get(key));
+    }
+
+    private static ApiRequestContext context(String method, String uri, String email) {
+        ApiRequestContext context = new ApiRequestContext();
+        context.init(method, uri);
+        context.setHeader("email", email);
+        return context;
+    }
+
+    private static String gunzip(ByteBuf gzipped) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteBufInputStream(gzipped))) {
+            byte[] buffer = new byte[256];
+            for (int n; (n = in.read(buffer)) > 0; ) {
+                out.write(buffer, 0, n);
+            }
+        }
+        return new String(out.toByteArray(), CharsetUtil.UTF_8);
+    }
+}
@@ -0,0 +1,100 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResponseCompressorTest {
+    private static final String JSON = "application/json; charset=UTF-8";
+
+    @Test
+    public void negotiatesByQuality() {
+        ResponseCompressor compressor = new ResponseCompressor(true, 0, 6, new ApiMetrics());
+        assertEquals(ResponseCompressor.Encoding.GZIP, compressor.negotiate("gzip, deflate, br"));
+        assertEquals(ResponseCompressor.Encoding.DEFLATE, compressor.negotiate("gzip;q=0.5, deflate"));
+        assertEquals(ResponseCompressor.Encoding.DEFLATE, compressor.negotiate("deflate, *;q=0.1"));
+        assertEquals(ResponseCompressor.Encoding.GZIP, compressor.negotiate("*"));
+        assertEquals(ResponseCompressor.Encoding.IDENTITY, compressor.negotiate("gzip;q=0, br"));
+        assertEquals(ResponseCompressor.Encoding.IDENTITY, compressor.negotiate(null));
+        assertEquals(ResponseCompressor.Encoding.NONE,
+                new ResponseCompressor(false, 0, 6, new ApiMetrics()).negotiate("gzip"));
+    }
+
+    @Test
+    public void compressesLargeJsonAndRecordsMetrics() throws IOException {
+        ApiMetrics metrics = new ApiMetrics();
+        ResponseCompressor compressor = new ResponseCompressor(true, 64, 6, metrics);
+        String body = body(200);
+        ByteBuf content = Unpooled.copiedBuffer(body, CharsetUtil.UTF_8);
+
+        ByteBuf gzip = compressor.compress(PooledByteBufAllocator.DEFAULT, content, JSON,
+                ResponseCompressor.Encoding.GZIP);
+        ByteBuf deflate = compressor.compress(PooledByteBufAllocator.DEFAULT, content, JSON,
+                ResponseCompressor.Encoding.DEFLATE);
+        assertEquals(body, inflate(new GZIPInputStream(new ByteBufInputStream(gzip, true))));
+        assertEquals(body, inflate(new InflaterInputStream(new ByteBufInputStream(deflate, true))));
+        // 원본의 읽기 위치는 그대로이다.
+        assertEquals(body.length(), content.readableBytes());
+        content.release();
+
+        ApiMetrics.CompressionMetrics gzipMetrics = metrics.compression("gzip");
+        assertEquals(1, gzipMetrics.getResponses());
+        assertEquals(body.length(), gzipMetrics.getInputBytes());
+        assertTrue(gzipMetrics.getOutputBytes() < gzipMetrics.getInputBytes());
+        assertEquals(1, metrics.compression("deflate").getResponses());
+    }
+
+    @Test
+    public void skipsSmallUnacceptedAndBinaryBodies() {
+        ApiMetrics metrics = new ApiMetrics();
+        ResponseCompressor compressor = new ResponseCompressor(true, 1024, 6, metrics);
+        ByteBuf small = Unpooled.copiedBuffer(body(2), CharsetUtil.UTF_8);
+        ByteBuf large = Unpooled.copiedBuffer(body(200), CharsetUtil.UTF_8);
+
+        assertNull(compressor.compress(PooledByteBufAllocator.DEFAULT, small, JSON, ResponseCompressor.Encoding.GZIP));
+        assertNull(compressor.compress(PooledByteBufAllocator.DEFAULT, large, JSON,
+                ResponseCompressor.Encoding.IDENTITY));
+        assertNull(compressor.compress(PooledByteBufAllocator.DEFAULT, large, "image/png",
+                ResponseCompressor.Encoding.GZIP));
+        assertNull(compressor.compress(PooledByteBufAllocator.DEFAULT, large, JSON, ResponseCompressor.Encoding.NONE));
+        small.release();
+        large.release();
+
+        assertEquals(1, metrics.getCompressionSkipped("too_small"));
+        assertEquals(1, metrics.getCompressionSkipped("not_accepted"));
+        assertEquals(0, metrics.compression("gzip").getResponses());
+    }
+
+    private static String body(int users) {
+        StringBuilder json = new StringBuilder("{\"resultCode\":\"200\",\"users\":[");
+        for (int i = 0; i < users; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"email\":\"user").append(i).append("@jongin.com\"}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String inflate(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) > 0) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        return new String(out.toByteArray(), CharsetUtil.UTF_8);
+    }
+}
@@ -0,0 +1,91 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.junit.Test;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResponseSequencerTest {
+
+    @Test
+    public void writesResponsesInRequestOrder() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ChannelHandlerContext ctx = channel.pipeline().firstContext();
+        ResponseSequencer sequencer = new ResponseSequencer();
+
+        long first = sequencer.next();
+        long second = sequencer.next();
+        long third = sequencer.next();
+
+        // 뒤의 요청이 먼저 끝나면 앞의 응답이 올 때까지 보관한다.
+        assertFalse(sequencer.complete(ctx, third, response(HttpResponseStatus.ACCEPTED), false));
+        assertFalse(sequencer.complete(ctx, second, response(HttpResponseStatus.CREATED), false));
+        assertNull(channel.readOutbound());
+
+        assertTrue(sequencer.complete(ctx, first, response(HttpResponseStatus.OK), false));
+        channel.flush();
+        assertStatus(HttpResponseStatus.OK, channel.readOutbound());
+        assertStatus(HttpResponseStatus.CREATED, channel.readOutbound());
+        assertStatus(HttpResponseStatus.ACCEPTED, channel.readOutbound());
+        assertEquals(0, sequencer.pending());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void growsBeyondInitialCapacityAndSkipsCancelled() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ChannelHandlerContext ctx = channel.pipeline().firstContext();
+        ResponseSequencer sequencer = new ResponseSequencer();
+
+        long[] seqs = new long[10];
+        for (int i = 0; i < seqs.length; i++) {
+            seqs[i] = sequencer.next();
+        }
+        for (int i = seqs.length - 1; i > 0; i--) {
+            sequencer.complete(ctx, seqs[i], i == 5 ? null : response(HttpResponseStatus.OK), false);
+        }
+        assertEquals(10, sequencer.pending());
+
+        assertTrue(sequencer.complete(ctx, seqs[0], response(HttpResponseStatus.OK), false));
+        channel.flush();
+        assertEquals(9, channel.outboundMessages().size());
+        assertEquals(0, sequencer.pending());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void closesAfterConnectionCloseResponse() {
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelInboundHandlerAdapter());
+        ChannelHandlerContext ctx = channel.pipeline().firstContext();
+        ResponseSequencer sequencer = new ResponseSequencer();
+
+        long first = sequencer.next();
+        long second = sequencer.next();
+        FullHttpResponse late = response(HttpResponseStatus.OK);
+        sequencer.complete(ctx, second, late, false);
+        assertTrue(sequencer.complete(ctx, first, response(HttpResponseStatus.OK), true));
+        channel.flush();
+
+        assertFalse(channel.isOpen());
+        assertEquals(1, channel.outboundMessages().size());
+        assertEquals(0, late.refCnt());
+        channel.finishAndReleaseAll();
+    }
+
+    private static FullHttpResponse response(HttpResponseStatus status) {
+        return new DefaultFullHttpResponse(HTTP_1_1, status);
+    }
+
+    private static void assertStatus(HttpResponseStatus expected, Object message) {
+        assertEquals(expected, ((FullHttpResponse) message).status());
+    }
+}
@@ -0,0 +1,60 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.jonginout.nettyapiserverjongin.core.ServerLifecycle.State;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ServerLifecycleTest {
+    @Test
+    public void waitsForRunningServicesBeforeReleasingEventLoops() throws InterruptedException {
+        ServerLifecycle lifecycle = new ServerLifecycle(5000, 0, 0);
+        EventLoopGroup group = new NioEventLoopGroup(1);
+        lifecycle.addEventLoopGroup(group);
+        assertFalse(lifecycle.isReady());
+        lifecycle.started();
+        assertTrue(lifecycle.isReady());
+
+        // 프로토콜을 정하지 않은(ApiRequestParser가 없는) 연결은 바로 닫는다.
+        EmbeddedChannel idle = new EmbeddedChannel();
+        lifecycle.addClientChannel(idle);
+        lifecycle.serviceStarted();
+
+        Thread shutdown = new Thread(lifecycle::shutdown);
+        shutdown.start();
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertEquals(State.DRAINING, lifecycle.getState());
+        assertFalse(lifecycle.isReady());
+        assertTrue(lifecycle.isLive());
+        assertFalse(idle.isOpen());
+        assertFalse(group.isShuttingDown());
+
+        lifecycle.serviceFinished();
+        shutdown.join(5000);
+        assertEquals(State.STOPPED, lifecycle.getState());
+        assertFalse(lifecycle.isLive());
+        assertTrue(group.isTerminated());
+    }
+
+    @Test
+    public void stopsAfterDrainTimeout() throws InterruptedException {
+        ServerLifecycle lifecycle = new ServerLifecycle(100, 0, 0);
+        lifecycle.started();
+        lifecycle.serviceStarted();
+
+        long start = System.nanoTime();
+        lifecycle.shutdown();
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(State.STOPPED, lifecycle.getState());
+        // 이미 종료한 뒤의 호출은 바로 돌아온다.
+        lifecycle.shutdown();
+        lifecycle.awaitTermination();
+    }
+}
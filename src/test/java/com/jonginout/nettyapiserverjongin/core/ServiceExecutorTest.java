@@ -0,0 +1,80 @@
+package com.jonginout.nettyapiserverjongin.core;
+
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.core.route.Route;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ServiceExecutorTest {
+    private ServiceExecutor executor;
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void inlineRunsOnCallerThread() {
+        executor = new ServiceExecutor("pool", 1, 1, 1000);
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+        assertTrue(executor.execute(ExecutionMode.INLINE, () -> thread.set(Thread.currentThread())));
+        assertSame(Thread.currentThread(), thread.get());
+    }
+
+    @Test
+    public void defaultModeUsesPool() throws InterruptedException {
+        executor = new ServiceExecutor("pool", 1, 1, 1000);
+        final AtomicReference<Thread> thread = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        assertTrue(executor.execute(ExecutionMode.DEFAULT, () -> {
+            thread.set(Thread.currentThread());
+            done.countDown();
+        }));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), thread.get());
+    }
+
+    @Test
+    public void rejectsWhenQueueIsFull() throws InterruptedException {
+        executor = new ServiceExecutor("pool", 1, 1, 1000);
+        final CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = () -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        assertTrue(executor.execute(ExecutionMode.POOL, blocking)); // 실행 중
+        assertTrue(executor.execute(ExecutionMode.POOL, blocking)); // 대기열
+        assertFalse(executor.execute(ExecutionMode.POOL, blocking));
+        assertEquals(1, executor.getQueueDepth());
+        release.countDown();
+    }
+
+    @Test
+    public void abandonedCallCancelsServiceStage() {
+        executor = new ServiceExecutor("inline", 1, 1, 1000);
+        final CompletableFuture<JsonObject> pending = new CompletableFuture<>();
+        Route route = new Route("slow", null, null, context -> pending, ExecutionMode.INLINE, 0, 0);
+
+        // ApiRequestParser와 RpcServerHandler가 제한 시간이 지나거나 연결이 닫혔을 때 하는 것과 같다.
+        CompletableFuture<JsonObject> result = new CompletableFuture<>();
+        ServiceDispatcher.cancelWhenAbandoned(result,
+                ServiceDispatcher.execute(route, new ApiRequestContext(), executor));
+        result.cancel(false);
+        assertTrue(pending.isCancelled());
+    }
+}
@@ -0,0 +1,79 @@
+package com.jonginout.nettyapiserverjongin.core.accesslog;
+
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics.Phase;
+import com.jonginout.nettyapiserverjongin.core.route.Route;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AccessLogTest {
+    private static final String[] REDACT = {"token", "email"};
+
+    @Test
+    public void formatsFixedLayoutAndRedactsPathVariablesAndQuery() {
+        ApiMetrics metrics = new ApiMetrics();
+        AccessRecord record = new AccessRecord();
+        record.start(new InetSocketAddress("127.0.0.1", 50000), "HTTP/1.1", "GET",
+                "/users/jongin@example.com?token=abc&page=2", System.nanoTime());
+        record.route(new Route("users", "/users/{email}", null), metrics.route("users"));
+        record.record(Phase.SERVICE, 2000);
+        record.finish(200, "200", 42);
+        assertEquals(1, metrics.route("users").get(Phase.SERVICE).getCount());
+
+        StringBuilder line = new StringBuilder();
+        record.formatTo(line, REDACT);
+        String[] fields = line.toString().split(" ");
+        assertEquals(14, fields.length);
+        assertEquals("127.0.0.1", fields[0]);
+        assertEquals("GET", fields[2]);
+        assertEquals("/users/***?token=***&page=2", fields[3]);
+        assertEquals("users", fields[4]);
+        assertEquals("200", fields[5]);
+        assertEquals("42", fields[8]);
+        assertEquals("2", fields[11]);
+    }
+
+    @Test
+    public void formatsRequestRejectedBeforeRouting() {
+        AccessRecord record = new AccessRecord();
+        record.start(null, "HTTP/1.1", null, null, System.nanoTime());
+        record.finish(408, "408", 0);
+
+        StringBuilder line = new StringBuilder();
+        record.formatTo(line, REDACT);
+        assertTrue(line.toString().startsWith("- HTTP/1.1 - - - 408 408 0 0 "));
+    }
+
+    @Test
+    public void dropsEntriesWhenBufferIsFull() {
+        AccessLogBuffer buffer = new AccessLogBuffer(2);
+        AccessRecord record = new AccessRecord();
+        record.start(null, "HTTP/1.1", "GET", "/users", 0);
+        assertTrue(buffer.offer(record));
+        record.start(null, "HTTP/1.1", "GET", "/tokens", 0);
+        assertTrue(buffer.offer(record));
+        assertFalse(buffer.offer(record));
+
+        // 항목은 복사되어 들어간 순서대로 나오고, 꺼낸 칸은 다시 쓸 수 있다.
+        assertEquals("/users", uriOf(buffer.peek()));
+        buffer.release();
+        assertTrue(buffer.offer(record));
+        assertEquals("/tokens", uriOf(buffer.peek()));
+        buffer.release();
+        assertEquals("/tokens", uriOf(buffer.peek()));
+        buffer.release();
+        assertNull(buffer.peek());
+    }
+
+    private static String uriOf(AccessRecord entry) {
+        StringBuilder line = new StringBuilder();
+        entry.formatTo(line, REDACT);
+        return line.toString().split(" ")[3];
+    }
+}
@@ -0,0 +1,82 @@
+package com.jonginout.nettyapiserverjongin.core.admission;
+
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics.Rejection;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AdmissionControllerTest {
+    @Test
+    public void limitsRatePerIpAndToken() {
+        AdmissionController controller = new AdmissionController(true, 100, false, 100, 1, 100, 0.9,
+                1, 3, 1, 2, 1024, "");
+
+        for (int i = 0; i < 3; i++) {
+            assertNull(controller.admit(1, null));
+        }
+        assertEquals(Rejection.IP_RATE, controller.admit(1, null));
+        // 다른 IP는 자기 버킷을 쓴다.
+        assertNull(controller.admit(2, "token-a"));
+        assertNull(controller.admit(3, "token-a"));
+        assertEquals(Rejection.TOKEN_RATE, controller.admit(4, "token-a"));
+        assertNull(controller.admit(4, "token-b"));
+    }
+
+    @Test
+    public void capsRequestsInFlight() {
+        AdmissionController controller = new AdmissionController(true, 2, false, 2, 1, 100, 0.9,
+                0, 0, 0, 0, 1024, "");
+
+        assertNull(controller.admit(1, null));
+        assertNull(controller.admit(1, null));
+        assertEquals(Rejection.IN_FLIGHT, controller.admit(1, null));
+        controller.release(0, false);
+        assertNull(controller.admit(1, null));
+        controller.release();
+        controller.release();
+        assertEquals(0, controller.getInFlight());
+    }
+
+    @Test
+    public void adaptsLimitToLatency() throws InterruptedException {
+        AdmissionController controller = new AdmissionController(true, 100, true, 10, 2, 50, 0.5,
+                0, 0, 0, 0, 1024, "");
+        long slow = TimeUnit.MILLISECONDS.toNanos(100);
+
+        // 목표 응답 시간이 지난 뒤의 느린 응답은 한도를 줄이고, 바로 이어진 느린 응답은 다시 줄이지 않는다.
+        TimeUnit.MILLISECONDS.sleep(60);
+        assertNull(controller.admit(1, null));
+        controller.release(slow, false);
+        assertEquals(5, controller.getLimit());
+        assertNull(controller.admit(1, null));
+        controller.release(slow, false);
+        assertEquals(5, controller.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            assertNull(controller.admit(1, null));
+        }
+        assertEquals(Rejection.CONCURRENCY, controller.admit(1, null));
+        // 한도가 찬 상태의 빠른 응답은 한도를 늘린다.
+        controller.release(0, false);
+        assertEquals(6, controller.getLimit());
+
+        TimeUnit.MILLISECONDS.sleep(60);
+        controller.release(0, true);
+        assertEquals(3, controller.getLimit());
+    }
+
+    @Test
+    public void matchesExemptPaths() {
+        AdmissionController controller = new AdmissionController(true, 1, false, 1, 1, 100, 0.9,
+                0, 0, 0, 0, 1024, "/metrics, /health");
+        assertTrue(controller.isExempt("/metrics"));
+        assertTrue(controller.isExempt("/health?verbose=true"));
+        assertFalse(controller.isExempt("/metricsx"));
+        assertFalse(controller.isExempt("/users"));
+    }
+}
@@ -0,0 +1,79 @@
+package com.jonginout.nettyapiserverjongin.core.admission;
+
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics.Rejection;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AdmissionHandlerTest {
+    @Test
+    public void writesRejectionAfterEarlierPipelinedResponse() {
+        ApiMetrics metrics = new ApiMetrics();
+        AdmissionController controller = new AdmissionController(true, 1, false, 1, 1, 100, 0.9,
+                0, 0, 0, 0, 1024, "/metrics");
+        EmbeddedChannel channel = new EmbeddedChannel(new AdmissionHandler(controller, metrics));
+
+        channel.writeInbound(get("/users"), LastHttpContent.EMPTY_LAST_CONTENT);
+        // 두 번째 요청은 한도를 넘어 거절되고, 본문 조각은 다음 핸들러로 넘어가지 않는다.
+        channel.writeInbound(new DefaultHttpRequest(HTTP_1_1, HttpMethod.POST, "/tokens"),
+                new DefaultHttpContent(Unpooled.copiedBuffer("a=1", CharsetUtil.UTF_8)),
+                LastHttpContent.EMPTY_LAST_CONTENT);
+        channel.writeInbound(get("/metrics"), LastHttpContent.EMPTY_LAST_CONTENT);
+
+        assertTrue(channel.readInbound() instanceof HttpRequest);
+        assertTrue(channel.readInbound() instanceof LastHttpContent);
+        assertEquals("/metrics", ((HttpRequest) channel.readInbound()).uri());
+        assertTrue(channel.readInbound() instanceof HttpContent);
+        assertNull(channel.readInbound());
+        assertNull(channel.readOutbound());
+        assertEquals(1, controller.getInFlight());
+
+        channel.writeOutbound(new DefaultFullHttpResponse(HTTP_1_1, HttpResponseStatus.OK));
+        assertEquals(0, controller.getInFlight());
+        assertStatus(HttpResponseStatus.OK, channel.readOutbound());
+        assertStatus(HttpResponseStatus.SERVICE_UNAVAILABLE, channel.readOutbound());
+        channel.writeOutbound(new DefaultFullHttpResponse(HTTP_1_1, HttpResponseStatus.OK));
+        assertStatus(HttpResponseStatus.OK, channel.readOutbound());
+
+        assertEquals(1, metrics.getRejected(Rejection.IN_FLIGHT));
+        assertEquals(1, metrics.getResultCount("503"));
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void releasesPermitsWhenChannelCloses() {
+        AdmissionController controller = new AdmissionController(true, 1, false, 1, 1, 100, 0.9,
+                0, 0, 0, 0, 1024, "");
+        EmbeddedChannel channel = new EmbeddedChannel(new AdmissionHandler(controller, new ApiMetrics()));
+
+        channel.writeInbound(get("/users"));
+        assertEquals(1, controller.getInFlight());
+        channel.finishAndReleaseAll();
+        assertEquals(0, controller.getInFlight());
+    }
+
+    private static HttpRequest get(String uri) {
+        return new DefaultHttpRequest(HTTP_1_1, HttpMethod.GET, uri);
+    }
+
+    private static void assertStatus(HttpResponseStatus status, Object response) {
+        assertEquals(status, ((FullHttpResponse) response).status());
+        ((FullHttpResponse) response).release();
+    }
+}
@@ -0,0 +1,173 @@
+package com.jonginout.nettyapiserverjongin.core.cluster;
+
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ClusterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ApiMetrics metrics = new ApiMetrics();
+
+    private Cluster cluster;
+
+    @After
+    public void tearDown() {
+        if (cluster != null) {
+            cluster.close();
+        }
+    }
+
+    @Test
+    public void ringSpreadsKeysEvenly() {
+        HashRing ring = new HashRing(Arrays.asList("a:1", "b:1", "c:1", "d:1"), 160);
+        Map<String, Integer> counts = new HashMap<String, Integer>();
+        for (int i = 0; i < 40000; i++) {
+            counts.merge(ring.owner("t:" + i), 1, Integer::sum);
+        }
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            // 노드마다 평균 10000개에서 20% 안쪽
+            assertTrue(String.valueOf(counts), count > 8000 && count < 12000);
+        }
+    }
+
+    @Test
+    public void addingNodeMovesOnlyItsShareOfKeys() {
+        HashRing before = new HashRing(Arrays.asList("a:1", "b:1", "c:1"), 160);
+        HashRing after = new HashRing(Arrays.asList("a:1", "b:1", "c:1", "d:1"), 160);
+        int moved = 0;
+        for (int i = 0; i < 40000; i++) {
+            String owner = after.owner("u:" + i);
+            if (!owner.equals(before.owner("u:" + i))) {
+                // 옮겨진 키는 모두 새 노드로 간다.
+                assertEquals("d:1", owner);
+                moved++;
+            }
+        }
+        assertTrue(String.valueOf(moved), moved > 8000 && moved < 12000);
+    }
+
+    @Test
+    public void disabledClusterOwnsEveryKey() {
+        cluster = new Cluster(false, "127.0.0.1:9090", "127.0.0.1:9091", "", "secret", 16, 1, 500, 0, 5000,
+                metrics);
+        assertTrue(cluster.owns("t:anything"));
+        assertNull(cluster.ownerOf("t:anything"));
+        assertEquals(1, cluster.getRing().getNodes().size());
+    }
+
+    @Test
+    public void authenticatesOnlyPeersWithSharedSecret() {
+        cluster = new Cluster(true, "127.0.0.1:9090", "127.0.0.1:9091", "", "secret", 16, 1, 500, 0, 5000,
+                metrics);
+        assertTrue(cluster.authenticate("127.0.0.1:9091", "secret"));
+        assertFalse(cluster.authenticate("127.0.0.1:9091", "secreT"));
+        assertFalse(cluster.authenticate("127.0.0.1:9091", null));
+        assertFalse(cluster.authenticate(null, "secret"));
+        // 노드 목록에 없는 노드와 자기 자신을 밝힌 호출
+        assertFalse(cluster.authenticate("127.0.0.1:9092", "secret"));
+        assertFalse(cluster.authenticate("127.0.0.1:9090", "secret"));
+        cluster.close();
+
+        // 다른 노드가 없는 노드는 비밀 값이 맞아도 받아들이지 않는다.
+        cluster = new Cluster(true, "127.0.0.1:9090", "", "", "secret", 16, 1, 500, 0, 5000, metrics);
+        assertFalse(cluster.authenticate("127.0.0.1:9090", "secret"));
+        cluster.close();
+
+        // 클러스터 모드가 아니면 어떤 호출도 내부 호출로 받아들이지 않는다.
+        cluster = new Cluster(false, "127.0.0.1:9090", "127.0.0.1:9091", "", "secret", 16, 1, 500, 0, 5000,
+                metrics);
+        assertFalse(cluster.authenticate("127.0.0.1:9091", "secret"));
+    }
+
+    @Test
+    public void reloadsPeersFileAndRebalances() throws IOException {
+        File peers = folder.newFile("peers");
+        write(peers, "# 노드 목록", "127.0.0.1:9091", "not-an-address");
+        cluster = new Cluster(true, "127.0.0.1:9090", "", peers.getPath(), "secret", 16, 1, 500, 0, 5000,
+                metrics);
+        AtomicInteger rebalances = new AtomicInteger();
+        cluster.addRebalanceListener(rebalances::incrementAndGet);
+        assertEquals(2, cluster.getRing().getNodes().size());
+
+        cluster.refresh();
+        assertEquals(0, rebalances.get());
+
+        write(peers, "127.0.0.1:9091", "127.0.0.1:9092", "127.0.0.1:9090");
+        cluster.refresh();
+        assertEquals(1, rebalances.get());
+        assertEquals(3, cluster.getRing().getNodes().size());
+
+        String key = ownedBy(cluster, "127.0.0.1:9092");
+        assertEquals("127.0.0.1:9092", cluster.ownerOf(key));
+        assertFalse(cluster.owns(key));
+
+        write(peers, "127.0.0.1:9091");
+        cluster.refresh();
+        assertEquals(2, rebalances.get());
+        assertFalse("127.0.0.1:9092".equals(cluster.getRing().owner(key)));
+    }
+
+    @Test
+    public void dropsUnreachablePeerFromRing() throws Exception {
+        String dead = "127.0.0.1:" + unusedPort();
+        cluster = new Cluster(true, "127.0.0.1:9090", dead, "", "secret", 16, 1, 500, 0, 60000, metrics);
+        String key = ownedBy(cluster, dead);
+
+        try {
+            cluster.forward(cluster.ownerOf(key), "GET", "/cluster/tokens", null).get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof IOException);
+        }
+        assertEquals(1, metrics.getClusterLookups(ApiMetrics.ClusterLookup.FALLBACK));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (cluster.getRing().getNodes().size() != 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, cluster.getRing().getNodes().size());
+        assertNull(cluster.ownerOf(key));
+        assertEquals(1, metrics.getClusterLookups(ApiMetrics.ClusterLookup.LOCAL));
+    }
+
+    private static String ownedBy(Cluster cluster, String node) {
+        for (int i = 0; ; i++) {
+            if (node.equals(cluster.getRing().owner("t:" + i))) {
+                return "t:" + i;
+            }
+        }
+    }
+
+    private static void write(File file, String... lines) throws IOException {
+        Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+    private static int unusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.jonginout.nettyapiserverjongin.core.metrics;
+
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics.Phase;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ApiMetricsTest {
+
+    @Test
+    public void bucketsArePowersOfTwoFromOneMicrosecond() {
+        assertEquals(0, LatencyHistogram.bucketIndex(0));
+        assertEquals(0, LatencyHistogram.bucketIndex(1024));
+        assertEquals(1, LatencyHistogram.bucketIndex(1025));
+        assertEquals(1, LatencyHistogram.bucketIndex(2048));
+        assertEquals(10, LatencyHistogram.bucketIndex(1L << 20));
+        assertEquals(LatencyHistogram.BUCKET_COUNT, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void writesPrometheusText() {
+        ApiMetrics metrics = new ApiMetrics();
+        metrics.route("users").record(Phase.SERVICE, 1000);
+        metrics.route("users").record(Phase.SERVICE, 3000);
+        metrics.route("users").record(Phase.SERVICE, 20_000_000_000L);
+        metrics.countResult("200");
+        metrics.countResult("200");
+        metrics.countResult("404");
+        metrics.connectionOpened();
+
+        metrics.registerAllocator(PooledByteBufAllocator.DEFAULT);
+
+        StringBuilder out = new StringBuilder();
+        metrics.writeTo(out);
+        String text = out.toString();
+
+        assertTrue(text.contains("# TYPE api_request_phase_seconds histogram\n"));
+        assertTrue(text.contains("api_request_phase_seconds_bucket{route=\"users\",phase=\"service\",le=\"1.024E-6\"} 1\n"));
+        assertTrue(text.contains("api_request_phase_seconds_bucket{route=\"users\",phase=\"service\",le=\"4.096E-6\"} 2\n"));
+        assertTrue(text.contains("api_request_phase_seconds_bucket{route=\"users\",phase=\"service\",le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("api_request_phase_seconds_count{route=\"users\",phase=\"service\"} 3\n"));
+        assertTrue(text.contains("api_request_phase_seconds_count{route=\"users\",phase=\"decode\"} 0\n"));
+        assertTrue(text.contains("api_responses_total{result_code=\"200\"} 2\n"));
+        assertTrue(text.contains("api_responses_total{result_code=\"404\"} 1\n"));
+        assertTrue(text.contains("api_active_connections 1\n"));
+        assertTrue(text.contains("api_allocator_used_bytes{type=\"direct\"} "));
+    }
+
+    @Test
+    public void writesEachCompressionFamilyAsOneGroup() {
+        ApiMetrics metrics = new ApiMetrics();
+        metrics.recordCompression("gzip", 1 << 20, 1 << 18, 250_000_000);
+        metrics.recordCompression("br", 1 << 20, 1 << 17, 500_000_000);
+
+        StringBuilder out = new StringBuilder();
+        metrics.writeTo(out);
+        String text = out.toString();
+
+        // 한 지표의 샘플은 TYPE 줄 바로 뒤에 모여 있어야 한다.
+        assertTrue(text.contains("# TYPE api_compression_ratio gauge\n"
+                + "api_compression_ratio{encoding=\"br\"} 0.125\n"
+                + "api_compression_ratio{encoding=\"gzip\"} 0.25\n"
+                + "# HELP api_compression_seconds_per_mebibyte "));
+        assertTrue(text.contains("# TYPE api_compression_seconds_per_mebibyte gauge\n"
+                + "api_compression_seconds_per_mebibyte{encoding=\"br\"} 0.5\n"
+                + "api_compression_seconds_per_mebibyte{encoding=\"gzip\"} 0.25\n"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.jonginout.nettyapiserverjongin.core.route;
+
+import com.jonginout.nettyapiserverjongin.core.ApiRequest;
+import com.jonginout.nettyapiserverjongin.core.ApiRequestTemplate;
+import com.jonginout.nettyapiserverjongin.core.ReusableApiRequest;
+import com.jonginout.nettyapiserverjongin.service.ServiceException;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class PooledApiRequestFactoryTest {
+
+    @Test
+    public void releasedRequestIsResetAndReused() {
+        PooledApiRequestFactory factory = new PooledApiRequestFactory(Counter::new, 1);
+        Counter first = (Counter) factory.create(Collections.singletonMap("n", "1"));
+        first.executeService();
+        assertEquals(1, first.getApiResult().get("count").getAsInt());
+        factory.release(first);
+
+        Counter second = (Counter) factory.create(Collections.singletonMap("n", "2"));
+        assertSame(first, second);
+        assertFalse(second.getApiResult().has("count"));
+        second.executeService();
+        assertEquals(1, second.getApiResult().get("count").getAsInt());
+        assertEquals("2", second.getApiResult().get("n").getAsString());
+    }
+
+    @Test
+    public void poolIsBounded() {
+        PooledApiRequestFactory factory = new PooledApiRequestFactory(Counter::new, 1);
+        ApiRequest a = factory.create(Collections.<String, String>emptyMap());
+        ApiRequest b = factory.create(Collections.<String, String>emptyMap());
+        factory.release(a);
+        factory.release(b);
+
+        assertSame(a, factory.create(Collections.<String, String>emptyMap()));
+        assertNotSame(b, factory.create(Collections.<String, String>emptyMap()));
+    }
+
+    @Test
+    public void unpooledCreateDoesNotTakeFromPool() {
+        PooledApiRequestFactory factory = new PooledApiRequestFactory(Counter::new, 1);
+        ApiRequest pooled = factory.create(Collections.<String, String>emptyMap());
+        factory.release(pooled);
+
+        assertNotSame(pooled, factory.createUnpooled(Collections.<String, String>emptyMap()));
+        assertSame(pooled, factory.create(Collections.<String, String>emptyMap()));
+    }
+
+    public static class Counter extends ApiRequestTemplate implements ReusableApiRequest {
+        private int count;
+
+        public Counter(Map<String, String> reqData) {
+            super(reqData);
+        }
+
+        @Override
+        public void reset(Map<String, String> reqData) {
+            super.reset(reqData);
+            count = 0;
+        }
+
+        @Override
+        public void service() throws ServiceException {
+            count++;
+            this.apiResult.addProperty("count", count);
+            this.apiResult.addProperty("n", reqData.get("n"));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.jonginout.nettyapiserverjongin.core.route;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RouteTableTest {
+    private RouteTable table;
+
+    private Route users;
+    private Route userByEmail;
+    private Route tokenIssue;
+    private Route tokenVerify;
+    private Route me;
+
+    @Before
+    public void setUp() {
+        table = new RouteTable();
+        users = new Route("users", "/users", null);
+        userByEmail = new Route("users", "/users/{email}", null);
+        tokenIssue = new Route("tokenIssue", "/tokens", null);
+        tokenVerify = new Route("tokenVerify", "/tokens", null);
+        me = new Route("me", "/users/me", null);
+
+        table.add(null, "/users", users);
+        table.add(null, "/users/{email}", userByEmail);
+        table.add("GET", "/users/me", me);
+        table.add("POST", "/tokens", tokenIssue);
+        table.add("GET", "/tokens", tokenVerify);
+    }
+
+    @Test
+    public void matchesStaticPathAndMethod() {
+        Map<String, String> vars = new HashMap<>();
+        assertSame(tokenIssue, table.find("POST", "/tokens", vars));
+        assertSame(tokenVerify, table.find("GET", "/tokens?x=1", vars));
+        assertNull(table.find("PUT", "/tokens", vars));
+        assertSame(users, table.find("DELETE", "/users/", vars));
+        assertTrue(vars.isEmpty());
+    }
+
+    @Test
+    public void extractsDecodedPathVariable() {
+        Map<String, String> vars = new HashMap<>();
+        assertSame(userByEmail, table.find("GET", "/users/jongin%40example.com?q", vars));
+        assertEquals("jongin@example.com", vars.get("email"));
+    }
+
+    @Test
+    public void staticSegmentWinsAndFallsBackToVariable() {
+        Map<String, String> vars = new HashMap<>();
+        assertSame(me, table.find("GET", "/users/me", vars));
+        assertTrue(vars.isEmpty());
+
+        assertSame(userByEmail, table.find("POST", "/users/me", vars));
+        assertEquals("me", vars.get("email"));
+    }
+
+    @Test
+    public void unknownPathReturnsNull() {
+        Map<String, String> vars = new HashMap<>();
+        assertNull(table.find("GET", "/", vars));
+        assertNull(table.find("GET", "/tokensXYZ", vars));
+        assertNull(table.find("GET", "/users/a/b", vars));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void rejectsDuplicateRoute() {
+        table.add("GET", "/tokens", tokenVerify);
+    }
+}
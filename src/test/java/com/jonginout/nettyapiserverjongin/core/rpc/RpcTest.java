@@ -0,0 +1,209 @@
+package com.jonginout.nettyapiserverjongin.core.rpc;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.jonginout.nettyapiserverjongin.ApiServerConfig;
+import com.jonginout.nettyapiserverjongin.RpcServerInitializer;
+import com.jonginout.nettyapiserverjongin.core.ApiRequestContext;
+import com.jonginout.nettyapiserverjongin.core.ConnectionTimeoutConfig;
+import com.jonginout.nettyapiserverjongin.core.ResponseCache;
+import com.jonginout.nettyapiserverjongin.core.ServerLifecycle;
+import com.jonginout.nettyapiserverjongin.core.ServiceExecutor;
+import com.jonginout.nettyapiserverjongin.core.admission.AdmissionController;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import com.jonginout.nettyapiserverjongin.service.ClusterTokens;
+import com.jonginout.nettyapiserverjongin.service.token.TokenStore;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = ApiServerConfig.class)
+@TestPropertySource(properties = "token.store=memory")
+public class RpcTest {
+    @Autowired
+    private RpcConfig rpcConfig;
+
+    @Autowired
+    private ServiceExecutor serviceExecutor;
+
+    @Autowired
+    private ApiMetrics metrics;
+
+    @Autowired
+    private ServerLifecycle lifecycle;
+
+    @Autowired
+    private ConnectionTimeoutConfig timeoutConfig;
+
+    @Autowired
+    private AdmissionController admission;
+
+    @Autowired
+    private TokenStore tokenStore;
+
+    @Autowired
+    private ResponseCache responseCache;
+
+    private EventLoopGroup group;
+
+    private Channel serverChannel;
+
+    private RpcClient client;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        group = new NioEventLoopGroup(1);
+        serverChannel = new ServerBootstrap().group(group).channel(NioServerSocketChannel.class)
+                .childHandler(initializer())
+                .bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)).sync().channel();
+        client = new RpcClient((InetSocketAddress) serverChannel.localAddress(), 2, 5000);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        client.close();
+        serverChannel.close().sync();
+        group.shutdownGracefully(0, 1, TimeUnit.SECONDS).sync();
+    }
+
+    private RpcServerInitializer initializer() {
+        return new RpcServerInitializer(rpcConfig, serviceExecutor, metrics, lifecycle, timeoutConfig, admission,
+                (node, secret) -> "secret".equals(secret));
+    }
+
+    private static Map<String, String> credentials(String secret) {
+        Map<String, String> headers = new HashMap<String, String>();
+        headers.put(RpcCodec.NODE_HEADER, "127.0.0.1:9091");
+        headers.put(RpcCodec.SECRET_HEADER, secret);
+        return headers;
+    }
+
+    @Test
+    public void callsSameServicesAsHttp() throws Exception {
+        JsonObject user = client.call("GET", "/users",
+                Collections.singletonMap("email", "jongin@example.com"), null).get(5, TimeUnit.SECONDS);
+        assertEquals("200", user.get("resultCode").getAsString());
+        assertEquals("12312", user.get("userNo").getAsString());
+
+        Map<String, String> fields = new HashMap<String, String>();
+        fields.put("userNo", "12312");
+        fields.put("password", "jongin1234");
+        JsonObject token = client.call("POST", "/tokens", fields).get(5, TimeUnit.SECONDS);
+        assertEquals("200", token.get("resultCode").getAsString());
+
+        JsonObject verified = client.call("GET", "/tokens",
+                Collections.singletonMap("token", token.get("token").getAsString()), null).get(5, TimeUnit.SECONDS);
+        assertEquals("200", verified.get("resultCode").getAsString());
+
+        assertEquals("404", client.call("GET", "/missing", null).get(5, TimeUnit.SECONDS)
+                .get("resultCode").getAsString());
+    }
+
+    @Test
+    public void answersClusterRoutesOnlyToAuthenticatedNodesInClusterMode() throws Exception {
+        Map<String, String> token = handedOffToken();
+        // 인증 정보가 없는 호출은 내부 라우트를 찾지 못한 것처럼, 틀린 호출은 401로 응답한다.
+        assertEquals("404", client.call("PUT", "/cluster/tokens", token).get(5, TimeUnit.SECONDS)
+                .get("resultCode").getAsString());
+        assertEquals("401", client.call("PUT", "/cluster/tokens", credentials("wrong"), token)
+                .get(5, TimeUnit.SECONDS).get("resultCode").getAsString());
+        // 클러스터 모드가 아니면 인증한 호출에도 내부 라우트가 없다.
+        assertEquals("404", client.call("PUT", "/cluster/tokens", credentials("secret"), token)
+                .get(5, TimeUnit.SECONDS).get("resultCode").getAsString());
+        assertEquals("404", client.call("GET", "/cluster/users", credentials("secret"),
+                Collections.singletonMap("email", "jongin@example.com")).get(5, TimeUnit.SECONDS)
+                .get("resultCode").getAsString());
+        assertEquals("404", client.call("GET", "/tokens",
+                Collections.singletonMap("token", "handed-off"), null).get(5, TimeUnit.SECONDS)
+                .get("resultCode").getAsString());
+    }
+
+    @Test
+    public void clusterTokensAcceptOnlyInternalCalls() throws Exception {
+        ClusterTokens clusterTokens = new ClusterTokens(tokenStore, responseCache);
+        ApiRequestContext external = new ApiRequestContext();
+        external.init("PUT", TokenStore.CLUSTER_PATH);
+        external.bodyAttributes().putAll(handedOffToken());
+        assertEquals("404", clusterTokens.execute(external).toCompletableFuture().get(5, TimeUnit.SECONDS)
+                .get("resultCode").getAsString());
+
+        ApiRequestContext internal = new ApiRequestContext();
+        internal.init("PUT", TokenStore.CLUSTER_PATH);
+        internal.bodyAttributes().putAll(handedOffToken());
+        internal.setInternal(true);
+        assertEquals("200", clusterTokens.execute(internal).toCompletableFuture().get(5, TimeUnit.SECONDS)
+                .get("resultCode").getAsString());
+        JsonObject verified = client.call("GET", "/tokens",
+                Collections.singletonMap("token", "handed-off"), null).get(5, TimeUnit.SECONDS);
+        assertEquals("jongin@example.com", verified.get("email").getAsString());
+        tokenStore.expireLocal("handed-off");
+    }
+
+    private static Map<String, String> handedOffToken() {
+        Map<String, String> token = new HashMap<String, String>();
+        token.put("token", "handed-off");
+        token.put("userNo", "12312");
+        token.put("email", "jongin@example.com");
+        token.put("issueDate", "1");
+        token.put("expireDate", String.valueOf(System.currentTimeMillis() / 1000 + 60));
+        return token;
+    }
+
+    @Test
+    public void answersMalformedRequestWithoutClosingConnection() {
+        EmbeddedChannel channel = new EmbeddedChannel(initializer());
+        ByteBuf frame = Unpooled.buffer();
+        frame.writeInt(0).writeInt(7).writeByte(99);
+        frame.setInt(0, frame.readableBytes() - RpcCodec.LENGTH_FIELD_SIZE);
+        channel.writeInbound(frame);
+
+        ByteBuf response = channel.readOutbound();
+        response.skipBytes(RpcCodec.LENGTH_FIELD_SIZE);
+        assertEquals(7, response.readInt());
+        assertEquals("400", RpcCodec.readResponse(response).get("resultCode").getAsString());
+        response.release();
+        assertTrue(channel.isActive());
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void keepsResultFieldTypes() {
+        JsonObject result = new JsonObject();
+        result.addProperty("resultCode", "200");
+        result.addProperty("userNo", 12312);
+        result.addProperty("active", true);
+        result.add("items", new JsonArray());
+        result.add("empty", null);
+
+        ByteBuf frame = Unpooled.buffer();
+        RpcCodec.writeResponse(frame, 3, result);
+        assertEquals(frame.readableBytes() - RpcCodec.LENGTH_FIELD_SIZE, frame.readInt());
+        assertEquals(3, frame.readInt());
+        assertEquals(result, RpcCodec.readResponse(frame));
+        frame.release();
+    }
+}
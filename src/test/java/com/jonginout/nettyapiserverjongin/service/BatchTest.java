@@ -0,0 +1,139 @@
+package com.jonginout.nettyapiserverjongin.service;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.jonginout.nettyapiserverjongin.ApiServerConfig;
+import com.jonginout.nettyapiserverjongin.core.ApiRequestContext;
+import com.jonginout.nettyapiserverjongin.core.BatchExecutor;
+import com.jonginout.nettyapiserverjongin.core.ExecutionMode;
+import com.jonginout.nettyapiserverjongin.core.ServerLifecycle;
+import com.jonginout.nettyapiserverjongin.core.ServiceExecutor;
+import com.jonginout.nettyapiserverjongin.core.admission.AdmissionController;
+import com.jonginout.nettyapiserverjongin.core.metrics.ApiMetrics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = ApiServerConfig.class)
+@TestPropertySource(properties = "token.store=memory")
+public class BatchTest {
+    @Autowired
+    private Batch batch;
+
+    @Autowired
+    private ServiceExecutor serviceExecutor;
+
+    @Test
+    public void returnsResultsInRequestOrderAndSkipsFailedDependencies() throws Exception {
+        JsonArray results = execute("["
+                + "{\"id\":\"missing\",\"uri\":\"/missing\"},"
+                + "{\"id\":\"user\",\"uri\":\"/users\",\"fields\":{\"email\":\"jongin@example.com\"}},"
+                + "{\"id\":\"after\",\"uri\":\"/users\",\"fields\":{\"email\":\"${missing.email}\"},"
+                + "\"dependsOn\":[\"missing\"]}"
+                + "]").getAsJsonArray("results");
+
+        assertEquals(3, results.size());
+        assertEquals("missing", results.get(0).getAsJsonObject().get("id").getAsString());
+        assertEquals("404", resultCode(results, 0));
+        assertEquals("200", resultCode(results, 1));
+        assertEquals("12312", results.get(1).getAsJsonObject().getAsJsonObject("result").get("userNo").getAsString());
+        assertEquals("424", resultCode(results, 2));
+    }
+
+    @Test
+    public void fillsFieldsFromDependencyResults() throws Exception {
+        JsonArray results = execute("["
+                + "{\"id\":\"user\",\"uri\":\"/users\",\"fields\":{\"email\":\"jongin@example.com\"}},"
+                + "{\"id\":\"token\",\"method\":\"POST\",\"uri\":\"/tokens\","
+                + "\"fields\":{\"userNo\":\"${user.userNo}\",\"password\":\"jongin1234\"},\"dependsOn\":[\"user\"]}"
+                + "]").getAsJsonArray("results");
+
+        assertEquals("200", resultCode(results, 0));
+        assertEquals("200", resultCode(results, 1));
+    }
+
+    @Test
+    public void rejectsInvalidRequestsWithoutRunningAny() throws Exception {
+        assertEquals("405", execute("[{\"uri\":\"/batch\",\"method\":\"POST\"}]").get("resultCode").getAsString());
+        assertEquals("405", execute("[{\"id\":\"a\",\"uri\":\"/users\",\"dependsOn\":[\"b\"]}]")
+                .get("resultCode").getAsString());
+        assertEquals("405", execute("{}").get("resultCode").getAsString());
+    }
+
+    @Test
+    public void admitsEachSubRequestAgainstTheCallersRateLimit() throws Exception {
+        // token별 버킷에 2개만 있으므로 세 번째 하위 요청은 실행하지 않고 429로 채운다.
+        AdmissionController admission = new AdmissionController(true, 100, false, 100, 1, 250, 0.5, 0, 1, 1, 2, 16, "");
+        BatchExecutor executor = new BatchExecutor(serviceExecutor, admission, new ApiMetrics(),
+                new ServerLifecycle(0, 0, 0), 20);
+        String requests = "["
+                + "{\"id\":\"a\",\"uri\":\"/users\",\"fields\":{\"email\":\"jongin@example.com\"}},"
+                + "{\"id\":\"b\",\"uri\":\"/users\",\"fields\":{\"email\":\"jongin@example.com\"}},"
+                + "{\"id\":\"c\",\"uri\":\"/users\",\"fields\":{\"email\":\"jongin@example.com\"}}"
+                + "]";
+
+        ApiRequestContext context = new ApiRequestContext();
+        context.init("POST", "/batch");
+        context.setHeader("token", "abc");
+        JsonArray results = executor.execute(context, new JsonParser().parse(requests).getAsJsonArray())
+                .toCompletableFuture().get(5, TimeUnit.SECONDS).getAsJsonArray("results");
+
+        assertEquals("200", resultCode(results, 0));
+        assertEquals("200", resultCode(results, 1));
+        assertEquals("429", resultCode(results, 2));
+        assertEquals(0, admission.getInFlight());
+        executor.close();
+    }
+
+    @Test
+    public void timesOutHungSubRequestAndReleasesItsSlot() throws Exception {
+        // 업무 스레드 하나를 붙잡아 두면 하위 요청은 대기열에서 제한 시간 50ms를 넘긴다.
+        ServiceExecutor blocked = new ServiceExecutor("pool", 1, 4, 50);
+        final CountDownLatch hold = new CountDownLatch(1);
+        blocked.execute(ExecutionMode.POOL, () -> {
+            try {
+                hold.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        AdmissionController admission = new AdmissionController(true, 100, false, 100, 1, 250, 0.5, 0, 1, 1, 2, 16, "");
+        ServerLifecycle lifecycle = new ServerLifecycle(0, 0, 0);
+        BatchExecutor executor = new BatchExecutor(blocked, admission, new ApiMetrics(), lifecycle, 20);
+
+        ApiRequestContext context = new ApiRequestContext();
+        context.init("POST", "/batch");
+        context.setHeader("token", "abc");
+        JsonArray results = executor.execute(context, new JsonParser()
+                .parse("[{\"id\":\"a\",\"method\":\"DELETE\",\"uri\":\"/tokens\",\"fields\":{\"token\":\"abc\"}}]")
+                .getAsJsonArray()).toCompletableFuture().get(5, TimeUnit.SECONDS).getAsJsonArray("results");
+
+        assertEquals("504", resultCode(results, 0));
+        assertEquals(0, admission.getInFlight());
+        assertEquals(0, lifecycle.getInFlight());
+        hold.countDown();
+        executor.close();
+        blocked.shutdown();
+    }
+
+    private JsonObject execute(String requests) throws Exception {
+        ApiRequestContext context = new ApiRequestContext();
+        context.init("POST", "/batch");
+        context.bodyAttributes().put("requests", requests);
+        return batch.execute(context).toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+
+    private static String resultCode(JsonArray results, int index) {
+        return results.get(index).getAsJsonObject().getAsJsonObject("result").get("resultCode").getAsString();
+    }
+}
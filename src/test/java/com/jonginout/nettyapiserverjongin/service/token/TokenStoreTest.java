@@ -0,0 +1,195 @@
+package com.jonginout.nettyapiserverjongin.service.token;
+
+import com.jonginout.nettyapiserverjongin.core.ExecutionMode;
+import com.jonginout.nettyapiserverjongin.core.ServiceExecutor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TokenStoreTest {
+    private ServiceExecutor serviceExecutor;
+
+    private FakeBackend backend;
+
+    @Before
+    public void setUp() {
+        serviceExecutor = new ServiceExecutor("inline", 1, 1, 1000);
+        backend = new FakeBackend();
+    }
+
+    @After
+    public void tearDown() {
+        serviceExecutor.shutdown();
+    }
+
+    @Test
+    public void issueWritesThroughAndVerifyHitsLocalCache() throws Exception {
+        TokenStore store = new TokenStore(new TokenCache(16), backend, 60, serviceExecutor);
+        Token token = store.issue("12312", "jongin@example.com").toCompletableFuture().get();
+
+        assertEquals(1, backend.sets);
+        assertEquals(60, backend.seconds);
+        assertNotNull(backend.values.get(token.getKey()));
+
+        Token verified = store.verify(token.getKey()).toCompletableFuture().get();
+        assertEquals("jongin@example.com", verified.getEmail());
+        assertEquals(0, backend.gets);
+    }
+
+    @Test
+    public void verifyMissReadsBackendAndFillsCache() throws Exception {
+        TokenStore issuer = new TokenStore(new TokenCache(16), backend, 60, serviceExecutor);
+        Token token = issuer.issue("12312", "jongin@example.com").toCompletableFuture().get();
+
+        // 다른 서버는 로컬 캐시에 없는 토큰을 Redis에서 읽는다.
+        TokenCache cache = new TokenCache(16);
+        TokenStore other = new TokenStore(cache, backend, 60, serviceExecutor);
+        Token verified = other.verify(token.getKey()).toCompletableFuture().get();
+        assertEquals("12312", verified.getUserNo());
+        assertEquals(token.getExpireDate(), verified.getExpireDate());
+        assertEquals(1, backend.gets);
+
+        assertNotNull(cache.get(token.getKey()));
+        other.verify(token.getKey()).toCompletableFuture().get();
+        assertEquals(1, backend.gets);
+    }
+
+    @Test
+    public void expireRemovesFromCacheAndBackend() throws Exception {
+        TokenStore store = new TokenStore(new TokenCache(16), backend, 60, serviceExecutor);
+        Token token = store.issue("12312", "jongin@example.com").toCompletableFuture().get();
+
+        store.expire(token.getKey()).toCompletableFuture().get();
+        assertTrue(backend.values.isEmpty());
+        assertNull(store.verify(token.getKey()).toCompletableFuture().get());
+    }
+
+    @Test
+    public void otherServerRejectsExpiredTokenAfterRevalidation() throws Exception {
+        TokenStore issuer = new TokenStore(new TokenCache(16), backend, 60, serviceExecutor);
+        Token token = issuer.issue("12312", "jongin@example.com").toCompletableFuture().get();
+
+        TokenStore other = new TokenStore(new TokenCache(16, 20), backend, 60, serviceExecutor);
+        assertNotNull(other.verify(token.getKey()).toCompletableFuture().get());
+
+        // 발급한 서버에서 로그아웃하면 다른 서버는 재확인 시간이 지난 뒤 Redis를 다시 읽어 거부한다.
+        issuer.expire(token.getKey()).toCompletableFuture().get();
+        Thread.sleep(40);
+        assertNull(other.verify(token.getKey()).toCompletableFuture().get());
+        assertEquals(2, backend.gets);
+    }
+
+    @Test
+    public void concurrentMissesShareOneBackendRead() throws Exception {
+        TokenStore issuer = new TokenStore(new TokenCache(16), backend, 60, serviceExecutor);
+        Token token = issuer.issue("12312", "jongin@example.com").toCompletableFuture().get();
+
+        // 업무 스레드를 붙잡아 두어 첫 조회가 끝나기 전에 같은 토큰을 다시 확인한다.
+        ServiceExecutor pool = new ServiceExecutor("pool", 1, 4, 1000);
+        final CountDownLatch hold = new CountDownLatch(1);
+        pool.execute(ExecutionMode.POOL, () -> {
+            try {
+                hold.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        TokenStore other = new TokenStore(new TokenCache(16), backend, 60, pool);
+        CompletionStage<Token> first = other.verify(token.getKey());
+        CompletionStage<Token> second = other.verify(token.getKey());
+        hold.countDown();
+
+        assertEquals("12312", first.toCompletableFuture().get(5, TimeUnit.SECONDS).getUserNo());
+        assertEquals("12312", second.toCompletableFuture().get(5, TimeUnit.SECONDS).getUserNo());
+        assertEquals(1, backend.gets);
+        pool.shutdown();
+    }
+
+    @Test
+    public void cacheDropsExpiredTokensAndStaysBounded() {
+        TokenCache cache = new TokenCache(4);
+        long now = System.currentTimeMillis() / 1000;
+        cache.put(new Token("expired", "1", "a@b.c", now - 10, now - 1));
+        assertNull(cache.get("expired"));
+
+        for (int i = 0; i < 10; i++) {
+            cache.put(new Token("t" + i, "1", "a@b.c", now, now + 60));
+        }
+        assertTrue(cache.size() <= 4);
+    }
+
+    @Test
+    public void cacheEvictsDownToLowWaterMark() {
+        TokenCache cache = new TokenCache(20);
+        long now = System.currentTimeMillis() / 1000;
+        for (int i = 0; i < 20; i++) {
+            cache.put(new Token("t" + i, "1", "a@b.c", now, now + 60));
+        }
+        assertEquals(20, cache.size());
+
+        // 최대 크기를 넘으면 10%를 비워 다음 put들은 다시 훑지 않는다.
+        cache.put(new Token("t20", "1", "a@b.c", now, now + 60));
+        assertEquals(18, cache.size());
+    }
+
+    @Test
+    public void cacheRemoveIfHandsBackLiveTokens() {
+        TokenCache cache = new TokenCache(16);
+        long now = System.currentTimeMillis() / 1000;
+        cache.put(new Token("moved", "1", "a@b.c", now, now + 60));
+        cache.put(new Token("stale", "1", "a@b.c", now - 10, now - 1));
+        cache.put(new Token("kept", "1", "a@b.c", now, now + 60));
+
+        List<Token> moved = new ArrayList<>();
+        cache.removeIf(key -> !key.equals("kept"), moved::add);
+        assertEquals(1, moved.size());
+        assertEquals("moved", moved.get(0).getKey());
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get("kept"));
+    }
+
+    private static class FakeBackend implements TokenBackend {
+        final Map<String, String> values = new HashMap<>();
+
+        int sets;
+
+        int gets;
+
+        int seconds;
+
+        @Override
+        public synchronized void setex(String key, int seconds, String value) {
+            this.sets++;
+            this.seconds = seconds;
+            values.put(key, value);
+        }
+
+        @Override
+        public synchronized String get(String key) {
+            gets++;
+            return values.get(key);
+        }
+
+        @Override
+        public synchronized void del(String key) {
+            values.remove(key);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
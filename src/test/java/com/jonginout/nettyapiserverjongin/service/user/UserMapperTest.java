@@ -0,0 +1,47 @@
+package com.jonginout.nettyapiserverjongin.service.user;
+
+import com.jonginout.nettyapiserverjongin.ApiServerConfig;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 메모리 HSQLDB(db/schema.sql, db/data.sql)에 매퍼 SQL을 실행한다.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(classes = ApiServerConfig.class)
+public class UserMapperTest {
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    public void selectsSingleAndBatchedUsers() {
+        User user = userMapper.selectByEmail("jongin@example.com");
+        assertEquals(12312L, user.getUserNo());
+        assertEquals("jongin", user.getUserName());
+
+        List<User> users = userMapper.selectByEmails(
+                Arrays.asList("jongin@example.com", "netty@example.com", "nobody@example.com"));
+        assertEquals(2, users.size());
+    }
+
+    @Test
+    public void repositoryLoadsThroughBatchAndAuthenticates() throws Exception {
+        assertEquals(12313L, userRepository.findByEmail("netty@example.com").toCompletableFuture().get().getUserNo());
+        assertNull(userRepository.findByEmail("nobody@example.com").toCompletableFuture().get());
+
+        assertEquals("spring@example.com", userRepository.authenticate("12314", "spring1234").getEmail());
+        assertNull(userRepository.authenticate("12314", "wrong"));
+    }
+}
@@ -0,0 +1,129 @@
+package com.jonginout.nettyapiserverjongin.service.user;
+
+import com.jonginout.nettyapiserverjongin.core.ServiceExecutor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class UserRepositoryTest {
+    private ServiceExecutor serviceExecutor;
+
+    private FakeMapper mapper;
+
+    @Before
+    public void setUp() {
+        serviceExecutor = new ServiceExecutor("pool", 4, 64, 1000);
+        mapper = new FakeMapper();
+    }
+
+    @After
+    public void tearDown() {
+        serviceExecutor.shutdown();
+    }
+
+    @Test
+    public void cachesLoadedUsers() throws Exception {
+        UserRepository repository = new UserRepository(mapper, 16, 60000, 0, 1, serviceExecutor);
+        repository.findByEmail("a@example.com").toCompletableFuture().get(1, TimeUnit.SECONDS);
+        User cached = repository.findByEmail("a@example.com").toCompletableFuture().getNow(null);
+
+        assertEquals("a@example.com", cached.getEmail());
+        assertEquals(1, mapper.singles.get());
+    }
+
+    @Test
+    public void coalescesConcurrentLookupsOfSameEmail() throws Exception {
+        mapper.gate = new CountDownLatch(1);
+        UserRepository repository = new UserRepository(mapper, 16, 60000, 0, 1, serviceExecutor);
+
+        CompletableFuture<User> first = repository.findByEmail("a@example.com").toCompletableFuture();
+        CompletableFuture<User> second = repository.findByEmail("a@example.com").toCompletableFuture();
+        assertSame(first, second);
+
+        mapper.gate.countDown();
+        assertEquals("a@example.com", first.get(1, TimeUnit.SECONDS).getEmail());
+        assertEquals(1, mapper.singles.get());
+    }
+
+    @Test
+    public void batchesLookupsWithinWindowIntoOneQuery() throws Exception {
+        UserRepository repository = new UserRepository(mapper, 16, 60000, 50, 64, serviceExecutor);
+        List<CompletableFuture<User>> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(repository.findByEmail("user" + i + "@example.com").toCompletableFuture());
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("user" + i + "@example.com", results.get(i).get(1, TimeUnit.SECONDS).getEmail());
+        }
+        assertEquals(1, mapper.batches.get());
+        assertEquals(10, mapper.lastBatchSize);
+        repository.close();
+    }
+
+    @Test
+    public void runsFullBatchWithoutWaitingForWindow() throws Exception {
+        UserRepository repository = new UserRepository(mapper, 16, 60000, 60000, 2, serviceExecutor);
+        CompletableFuture<User> first = repository.findByEmail("a@example.com").toCompletableFuture();
+        CompletableFuture<User> second = repository.findByEmail("b@example.com").toCompletableFuture();
+
+        assertEquals("b@example.com", second.get(1, TimeUnit.SECONDS).getEmail());
+        assertTrue(first.isDone());
+        repository.close();
+    }
+
+    private static class FakeMapper implements UserMapper {
+        final AtomicInteger singles = new AtomicInteger();
+
+        final AtomicInteger batches = new AtomicInteger();
+
+        volatile int lastBatchSize;
+
+        volatile CountDownLatch gate;
+
+        @Override
+        public User selectByEmail(String email) {
+            singles.incrementAndGet();
+            await();
+            return new User(1L, email, "user");
+        }
+
+        @Override
+        public List<User> selectByEmails(Collection<String> emails) {
+            batches.incrementAndGet();
+            lastBatchSize = emails.size();
+            List<User> users = new ArrayList<>();
+            for (String email : emails) {
+                users.add(new User(1L, email, "user"));
+            }
+            return users;
+        }
+
+        @Override
+        public User selectByUserNoAndPassword(String userNo, String password) {
+            return null;
+        }
+
+        private void await() {
+            try {
+                if (gate != null) {
+                    gate.await(1, TimeUnit.SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}